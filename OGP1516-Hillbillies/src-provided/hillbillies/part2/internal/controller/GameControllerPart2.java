@@ -1,20 +1,17 @@
 package hillbillies.part2.internal.controller;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import hillbillies.common.internal.controller.GameController;
 import hillbillies.common.internal.inputmodes.InputMode;
 import hillbillies.common.internal.selection.Selection;
-import hillbillies.model.Boulder;
 import hillbillies.model.Faction;
-import hillbillies.model.Log;
+import hillbillies.model.MovableWorldObject;
 import hillbillies.model.Unit;
 import hillbillies.model.World;
 import hillbillies.part2.facade.IFacade;
@@ -156,51 +153,19 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		@Override
 		public Set<?> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
 			Set<Object> result = new HashSet<>();
-			result.addAll(getObjectsOfTypeInBox(Unit.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getUnits,
-					getFacade()::isAlive, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Boulder.class, minX, minY, minZ, maxX, maxY, maxZ,
-					getFacade()::getBoulders, b -> true, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Log.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getLogs,
-					l -> true, getFacade()::getPosition));
+			try {
+				for (MovableWorldObject object : world.getObjectsInBox(minX, minY, minZ, maxX, maxY, maxZ)) {
+					if (!(object instanceof Unit) || getFacade().isAlive((Unit) object))
+						result.add(object);
+				}
+			} catch (ModelException e) {
+				handleError(e);
+			}
 			return result;
 		}
 
 	};
 
-	@FunctionalInterface
-	private static interface MEFunction<T, R> {
-		public R apply(T obj) throws ModelException;
-	}
-
-	protected <T> Set<T> getObjectsOfTypeInBox(Class<T> type, double minX, double minY, double minZ, double maxX,
-			double maxY, double maxZ, MEFunction<World, Set<T>> objects, MEFunction<T, Boolean> isAlive,
-			MEFunction<T, double[]> position) {
-		try {
-			Set<T> objs = objects.apply(world);
-			if (objs != null) {
-				final double[] min = new double[] { minX, minY, minZ };
-				final double[] max = new double[] { maxX, maxY, maxZ };
-				return objs.stream().filter(o -> {
-					try {
-						return isAlive.apply(o) && liesInBox(position.apply(o), min, max);
-					} catch (ModelException e) {
-						handleError(e);
-						return false;
-					}
-				}).collect(Collectors.toSet());
-			}
-		} catch (ModelException e) {
-			handleError(e);
-		}
-		return Collections.emptySet();
-	}
-
-	protected static boolean liesInBox(double[] position, double[] low, double[] high) {
-		return position != null && low[0] <= position[0] && position[0] < high[0] && low[1] <= position[1]
-				&& position[1] < high[1] && low[2] <= position[2] && position[2] < high[2];
-
-	}
-
 	@Override
 	protected InputMode createDefaultInputMode() {
 		return new Part2InputMode(this);
@@ -187,11 +187,105 @@ public class ConnectedToBorder {
 		return changed;
 	}
 
+	/**
+	 * Make all cubes that are marked in the given array passable at once, and
+	 * return the list of coordinates that are no longer connected to a border
+	 * of the world due to this change.
+	 *
+	 * The result is the same as calling
+	 * {@link #changeSolidToPassable(int, int, int)} for every marked cube, but
+	 * connectivity is computed afresh with a single breadth-first search from
+	 * the solid cubes at the border, so the whole operation takes time linear
+	 * in the size of the world. This is the preferred way to initialize the
+	 * algorithm when a world is loaded.
+	 *
+	 * @param cubes
+	 *            An array with an entry for each cube of the world, indexed by
+	 *            x + y * nbX + z * (nbX * nbY); the cubes whose entry is true
+	 *            are made passable, the others are left unchanged
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that were solid and connected before this change,
+	 *         and are solid but no longer connected to the border after it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given array does not have an entry for each cube.
+	 */
+	public List<int[]> changeSolidToPassable(boolean[] cubes) throws IllegalArgumentException {
+		if (cubes.length != passable.length)
+			throw new IllegalArgumentException("Expected " + passable.length + " cubes, got " + cubes.length);
+		for (int index = 0; index < cubes.length; index++) {
+			if (cubes[index])
+				passable[index] = true;
+		}
+
+		// mark every solid cube as unreached, then flood from the solid border cubes
+		boolean[] wasConnected = new boolean[passable.length];
+		int[] queue = new int[passable.length];
+		int tail = 0;
+		for (int index = 0; index < passable.length; index++) {
+			wasConnected[index] = !notConnected[index];
+			notConnected[index] = true;
+		}
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				for (int x = 0; x < nbX; x++) {
+					if (x != 0 && x != nbX - 1 && y != 0 && y != nbY - 1 && z != 0 && z != nbZ - 1)
+						continue;
+					int index = getIndex(x, y, z);
+					if (isSolid(index) && notConnected[index]) {
+						notConnected[index] = false;
+						queue[tail++] = index;
+					}
+				}
+			}
+		}
+		int nbXY = nbX * nbY;
+		for (int head = 0; head < tail; head++) {
+			int index = queue[head];
+			int x = index % nbX;
+			int y = (index / nbX) % nbY;
+			int z = index / nbXY;
+			if (x > 0)
+				tail = reach(index - 1, queue, tail);
+			if (x < nbX - 1)
+				tail = reach(index + 1, queue, tail);
+			if (y > 0)
+				tail = reach(index - nbX, queue, tail);
+			if (y < nbY - 1)
+				tail = reach(index + nbX, queue, tail);
+			if (z > 0)
+				tail = reach(index - nbXY, queue, tail);
+			if (z < nbZ - 1)
+				tail = reach(index + nbXY, queue, tail);
+		}
+
+		List<int[]> changed = new ArrayList<>();
+		for (int index = 0; index < passable.length; index++) {
+			if (isSolid(index) && notConnected[index] && wasConnected[index])
+				changed.add(new int[] { index % nbX, (index / nbX) % nbY, index / nbXY });
+		}
+		return changed;
+	}
+
 	/*
 	 * THE FIELDS AND OPERATIONS BELOW ARE PRIVATE AND MAY NOT BE USED BY YOUR
 	 * IMPLEMENTATION
 	 */
 
+	/**
+	 * Mark the cube with the given index as connected and append it to the
+	 * given queue if it is solid and not yet marked, and return the new tail of
+	 * the queue.
+	 */
+	private int reach(int index, int[] queue, int tail) {
+		if (isSolid(index) && notConnected[index]) {
+			notConnected[index] = false;
+			queue[tail++] = index;
+		}
+		return tail;
+	}
+
 	private final int nbX;
 	private final int nbY;
 	private final int nbZ;
@@ -0,0 +1,313 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.part2.listener.TerrainChangeListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A class of autosaves, periodically saving a world to a compressed snapshot file without stalling its advance of time.
+ * 		At the end of an advance of time of the world, once the interval has passed, the state is captured: a copy of
+ * 		the terrain that shares its chunks with the world until the world changes them, and the serialized state of
+ * 		the units, objects and tasks, which is small. A background thread then writes the snapshot, compressed with
+ * 		gzip, to a temporary file next to the save file and moves it over the save file once it is complete. The time
+ * 		the world is paused for the capture and the time the background thread takes to save are measured.
+ *
+ * @invar	The interval of each autosave is strictly positive.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class Autosave implements Closeable {
+
+	/**
+	 * Initialize this new autosave saving the given world to the given file every given interval of game time.
+	 *
+	 * @param	world
+	 *			The world to save.
+	 * @param	file
+	 *			The path of the save file; an existing file is overwritten.
+	 * @param	interval
+	 *			The game time in seconds between two saves.
+	 * @throws	IllegalArgumentException
+	 *			The given interval is not strictly positive.
+	 */
+    public Autosave(World world, Path file, double interval) throws IllegalArgumentException {
+        if (! (interval > 0))
+            throw new IllegalArgumentException("Invalid autosave interval " + interval);
+        this.world = world;
+        this.file = file;
+        this.interval = interval;
+    }
+
+    /* Variables */
+
+    /**
+     * Variable registering the world this autosave saves.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the path of the save file.
+     */
+    private final Path file;
+
+    /**
+     * Variable registering the game time in seconds between two saves.
+     */
+    private final double interval;
+
+    /**
+     * Variable registering the game time since the last save was started.
+     */
+    private double timeSinceSave = 0;
+
+    /**
+     * Variable registering the last save handed to the background thread, or null if none was.
+     */
+    private Future<?> pendingSave;
+
+    /**
+     * Object holding the background thread writing the saves, one at a time.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Variables registering the duration in nanoseconds of the last and of the longest pause of the world to capture its
+     * state.
+     */
+    private volatile long lastCapturePause = 0;
+    private volatile long maxCapturePause = 0;
+
+    /**
+     * Variables registering the duration in nanoseconds of the last completed save on the background thread, and the
+     * size in bytes of its file.
+     */
+    private volatile long lastSaveTime = 0;
+    private volatile long lastSaveSize = 0;
+
+    /**
+     * Variable registering the number of completed saves.
+     */
+    private volatile int nbSaves = 0;
+
+    /**
+     * Variable registering the error of the last failed save, or null if no save failed.
+     */
+    private volatile IOException lastError;
+
+    /**
+     * Variable registering whether this autosave is closed.
+     */
+    private boolean closed = false;
+
+    /* Methods */
+
+    /**
+     * Load the world saved in the given save file.
+     *
+     * @param	file
+     *			The path of the save file.
+     * @param	changeListener
+     *			The terrain change listener for the loaded world.
+     * @throws	IOException
+     *			The file could not be read, or does not hold a compressed snapshot.
+     */
+    public static World load(Path file, TerrainChangeListener changeListener) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+            return WorldSnapshot.read(in, changeListener);
+        }
+    }
+
+    /**
+     * Return the world this autosave saves.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Return the path of the save file of this autosave.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * Return the game time in seconds between two saves of this autosave.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public double getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Return whether this autosave is closed.
+     */
+    @Basic
+    @Raw
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Register that the world advanced by the given amount of time, and start a save if the interval has passed.
+     * 		If the previous save is still being written, the save is started at the first advance after it completes.
+     * 		This is called by the world at the end of each advance of time. A closed autosave does nothing.
+     *
+     * @param	dt
+     *			The amount of time the world advanced.
+     */
+    void advanceTime(double dt) {
+        if (isClosed())
+            return;
+        timeSinceSave += dt;
+        if (timeSinceSave < interval || (pendingSave != null && ! pendingSave.isDone()))
+            return;
+        timeSinceSave = 0;
+        save();
+    }
+
+    /**
+     * Capture the state of the world and hand it to the background thread to be saved.
+     * 		The world must not advance while its state is captured, so this is to be called between advances of time.
+     *
+     * @return	The save on the background thread, which completes once the save file is written, or fails with the
+     * 			IOException that prevented that.
+     * @throws	IllegalStateException
+     *			This autosave is closed.
+     */
+    public Future<?> save() throws IllegalStateException {
+        if (isClosed())
+            throw new IllegalStateException("The autosave is closed");
+        long start = System.nanoTime();
+        TerrainStorage terrain = world.getTerrain().copyFeatures();
+        byte[] state = WorldSnapshot.captureState(world);
+        long pause = System.nanoTime() - start;
+        lastCapturePause = pause;
+        if (pause > maxCapturePause)
+            maxCapturePause = pause;
+        pendingSave = writer.submit(() -> {
+            write(terrain, state);
+            return null;
+        });
+        return pendingSave;
+    }
+
+    /**
+     * Write a snapshot of the given terrain and state to the save file, through a temporary file.
+     *
+     * @throws	IOException
+     *			The temporary file could not be written or moved over the save file.
+     */
+    private void write(TerrainStorage terrain, byte[] state) throws IOException {
+        long start = System.nanoTime();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+                WorldSnapshot.write(terrain, state, out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exc) {
+            lastError = exc;
+            throw exc;
+        }
+        lastSaveSize = Files.size(file);
+        lastSaveTime = System.nanoTime() - start;
+        nbSaves++;
+    }
+
+    /**
+     * Return the duration in nanoseconds of the last pause of the world to capture its state, or 0 if there was none.
+     */
+    public long getLastCapturePause() {
+        return this.lastCapturePause;
+    }
+
+    /**
+     * Return the duration in nanoseconds of the longest pause of the world to capture its state, or 0 if there was none.
+     */
+    public long getMaxCapturePause() {
+        return this.maxCapturePause;
+    }
+
+    /**
+     * Return the duration in nanoseconds of the last completed save on the background thread, or 0 if there was none.
+     */
+    public long getLastSaveTime() {
+        return this.lastSaveTime;
+    }
+
+    /**
+     * Return the size in bytes of the save file written by the last completed save, or 0 if there was none.
+     */
+    public long getLastSaveSize() {
+        return this.lastSaveSize;
+    }
+
+    /**
+     * Return the number of completed saves of this autosave.
+     */
+    public int getNbSaves() {
+        return this.nbSaves;
+    }
+
+    /**
+     * Return the error of the last failed save of this autosave, or null if no save failed.
+     */
+    public IOException getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Detach this autosave from its world, wait for the save being written, if any, and stop the background thread.
+     * 		Closing an autosave that is already closed has no effect.
+     *
+     * @post	This autosave is closed.
+     * @effect	If this autosave is the autosave of its world, the world is no longer saved automatically.
+     * @throws	IOException
+     *			The wait was interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (world.getAutosave() == this)
+            world.setAutosave(null);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the autosave", exc);
+        }
+    }
+
+}
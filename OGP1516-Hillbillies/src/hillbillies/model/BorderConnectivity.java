@@ -0,0 +1,594 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A class registering which solid cubes of a world are connected to a border of that world through directly adjacent
+ * solid cubes.
+ * 		Border connectivity keeps a spanning forest of the connected solid cubes: every solid cube at a border is a root,
+ * 		every other connected cube has a directly adjacent solid cube as its parent, and each cube has a depth larger than
+ * 		the depth of its parent. Making a cube passable only affects the cubes below it in the forest. Its children are
+ * 		first given another neighbour that is not deeper than the cube itself, which can never lie below it; only the
+ * 		subtrees of children for which that fails are searched, and those searches stay within the subtrees.
+ * 		Everything works on linear cube indices, with reusable int arrays as work queues and visits marked with a search
+ * 		number, so a change of the terrain does not allocate beyond the list it returns.
+ * 		Passability and connectivity take a bit per cube. The forest and the search marks are kept in pages of 4096 cubes
+ * 		that are only allocated once one of their cubes needs them, so the passable parts of a world cost nothing.
+ * 		Initially all cubes are solid and connected; the forest is built when it is first needed, so a connectivity
+ * 		restored from saved flags only pays for that on its first change.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class BorderConnectivity {
+
+	/**
+	 * Initialize this new border connectivity for a world of the given size in which all cubes are solid.
+	 *
+	 * @param	nbX
+	 *			The number of cubes along the x axis.
+	 * @param	nbY
+	 *			The number of cubes along the y axis.
+	 * @param	nbZ
+	 *			The number of cubes along the z axis.
+	 */
+    public BorderConnectivity(int nbX, int nbY, int nbZ) {
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbXY = nbX * nbY;
+        this.nbCubes = nbX * nbY * nbZ;
+        int nbPages = (nbCubes + PAGE_SIZE - 1) >> PAGE_BITS;
+        this.forest = new int[nbPages][];
+        this.visited = new int[nbPages][];
+    }
+
+    /* Variables */
+
+    /**
+     * Variables registering the number of cubes along the x and y axis, in a horizontal layer and in the whole world.
+     */
+    private final int nbX;
+    private final int nbY;
+    private final int nbZ;
+    private final int nbXY;
+    private final int nbCubes;
+
+    /**
+     * Constants reflecting the base 2 logarithm of the number of cubes in a page, and that number itself.
+     */
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * Constant reflecting the direction stored for roots and for cubes that are not connected.
+     */
+    private static final int NO_PARENT = 7;
+
+    /**
+     * Set registering the passable cubes, by linear cube index.
+     */
+    private final BitSet passable = new BitSet();
+
+    /**
+     * Set registering the cubes that are not connected to a border; passable cubes are never connected.
+     */
+    private final BitSet notConnected = new BitSet();
+
+    /**
+     * Variable registering whether the forest has been built.
+     */
+    private boolean forestBuilt = false;
+
+    /**
+     * Pages registering the place of each connected cube in the spanning forest: its depth, shifted left by three bits,
+     * combined with the direction of its parent, or NO_PARENT for roots.
+     */
+    private final int[][] forest;
+
+    /**
+     * Pages registering the last search number each cube was marked with.
+     */
+    private final int[][] visited;
+
+    /**
+     * Variable registering the highest search number handed out so far.
+     */
+    private int search = 0;
+
+    /**
+     * The work queue of a search, used as a ring buffer when the forest is built.
+     */
+    private int[] queue = new int[64];
+
+    /**
+     * Array registering the cubes cut off from the forest by the current change.
+     */
+    private int[] orphans = new int[64];
+
+    /* Methods */
+
+    /**
+     * Return the number of cubes along the x axis of the world of this border connectivity.
+     */
+    @Basic
+    @Raw
+    public int getNbX() {
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes along the y axis of the world of this border connectivity.
+     */
+    @Basic
+    @Raw
+    public int getNbY() {
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes along the z axis of the world of this border connectivity.
+     */
+    @Basic
+    @Raw
+    public int getNbZ() {
+        return this.nbZ;
+    }
+
+    /**
+     * Return the linear index of the cube with given x, y and z coordinate.
+     */
+    public int getIndex(int x, int y, int z) {
+        return x + nbX * (y + nbY * z);
+    }
+
+    /**
+     * Check whether the cube with given x, y and z coordinate is solid and connected to a border of the world through
+     * directly adjacent solid cubes.
+     */
+    public boolean isSolidConnectedToBorder(int x, int y, int z) {
+        return isSolidConnectedToBorder(getIndex(x, y, z));
+    }
+
+    /**
+     * Check whether the cube with the given linear index is solid and connected to a border of the world through
+     * directly adjacent solid cubes.
+     */
+    public boolean isSolidConnectedToBorder(int index) {
+        return ! passable.get(index) && ! notConnected.get(index);
+    }
+
+    /**
+     * Make all cubes that are marked in the given array passable at once, and return the coordinates of the solid cubes
+     * that are no longer connected to a border because of it.
+     *
+     * @param	cubes
+     *			An array with an entry for each cube, indexed by linear cube index; the cubes whose entry is true are made
+     *			passable.
+     * @return	The coordinates {x, y, z} of the cubes that were solid and connected before and are solid but not
+     *			connected after this change.
+     * @throws	IllegalArgumentException
+     *			The given array does not have an entry for each cube.
+     */
+    public List<int[]> changeSolidToPassable(boolean[] cubes) throws IllegalArgumentException {
+        if (cubes.length != nbCubes)
+            throw new IllegalArgumentException("Expected " + nbCubes + " cubes, got " + cubes.length);
+        return changeSolidToPassable(index -> cubes[index]);
+    }
+
+    /**
+     * Make all cubes that satisfy the given condition passable at once, and return the coordinates of the solid cubes
+     * that are no longer connected to a border because of it.
+     * 		The forest is built anew with a single breadth-first search from the solid border cubes.
+     *
+     * @param	cubes
+     *			The condition on the linear index of a cube telling whether to make it passable.
+     * @return	The coordinates {x, y, z} of the cubes that were solid and connected before and are solid but not
+     *			connected after this change.
+     */
+    public List<int[]> changeSolidToPassable(IntPredicate cubes) {
+        BitSet wasConnected = new BitSet(nbCubes);
+        wasConnected.set(0, nbCubes);
+        wasConnected.andNot(passable);
+        wasConnected.andNot(notConnected);
+        for (int index = 0; index < nbCubes; index++) {
+            if (cubes.test(index))
+                passable.set(index);
+        }
+        rebuild();
+        wasConnected.and(notConnected);
+        wasConnected.andNot(passable);
+        List<int[]> changed = new ArrayList<>();
+        for (int index = wasConnected.nextSetBit(0); index >= 0; index = wasConnected.nextSetBit(index + 1))
+            changed.add(getCoordinates(index));
+        return changed;
+    }
+
+    /**
+     * Take over the passable cubes and the solid cubes that are not connected from an earlier border connectivity of the
+     * same world, and return the coordinates of those solid cubes.
+     * 		No search is needed; the forest is built anew when it is first needed.
+     *
+     * @param	passableCubes
+     *			The condition on the linear index of a cube telling whether it is passable.
+     * @param	disconnectedCubes
+     *			The condition on the linear index of a solid cube telling whether it is not connected to a border.
+     * @return	The coordinates {x, y, z} of the solid cubes that are not connected to a border.
+     */
+    public List<int[]> restore(IntPredicate passableCubes, IntPredicate disconnectedCubes) {
+        passable.clear();
+        notConnected.clear();
+        Arrays.fill(forest, null);
+        forestBuilt = false;
+        List<int[]> disconnected = new ArrayList<>();
+        for (int index = 0; index < nbCubes; index++) {
+            if (passableCubes.test(index)) {
+                passable.set(index);
+                notConnected.set(index);
+            } else if (disconnectedCubes.test(index)) {
+                notConnected.set(index);
+                disconnected.add(getCoordinates(index));
+            }
+        }
+        return disconnected;
+    }
+
+    /**
+     * Make the cube with given x, y and z coordinate passable, and return the coordinates of the solid cubes that are no
+     * longer connected to a border because of it.
+     *
+     * @param	x
+     *			The x coordinate of the cube to make passable.
+     * @param	y
+     *			The y coordinate of the cube to make passable.
+     * @param	z
+     *			The z coordinate of the cube to make passable.
+     * @return	The coordinates {x, y, z} of the cubes that were connected before and are solid but not connected after
+     *			this change; empty if the cube already was passable or was not connected.
+     */
+    public List<int[]> changeSolidToPassable(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (passable.get(index))
+            return Collections.emptyList();
+        if (! forestBuilt)
+            rebuild();
+        boolean wasConnected = ! notConnected.get(index);
+        passable.set(index);
+        notConnected.set(index);
+        if (! wasConnected)
+            return Collections.emptyList();
+
+        //give the children another parent that cannot lie below the removed cube, or cut off their subtree
+        int orphan = reserveSearches(2);
+        int reattached = orphan + 1;
+        int nbOrphans = 0;
+        int maxDepth = getDepth(index);
+        for (int direction = 0; direction < 6; direction++) {
+            int child = getNeighbour(index, direction);
+            if (child < 0 || ! isChildOf(child, direction) || ! isSolidConnectedToBorder(child))
+                continue;
+            if (! adopt(child, maxDepth))
+                nbOrphans = collectSubtree(child, orphan, nbOrphans);
+        }
+        if (nbOrphans == 0)
+            return Collections.emptyList();
+
+        //hang the cut off cubes back from their connected neighbours, breadth-first through the cut off cubes
+        int tail = 0;
+        for (int i = 0; i < nbOrphans; i++) {
+            int current = orphans[i];
+            int best = -1;
+            int bestDirection = -1;
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(current, direction);
+                if (neighbour >= 0 && isSolidConnectedToBorder(neighbour) && getVisited(neighbour) != orphan
+                        && (best < 0 || getDepth(neighbour) < getDepth(best))) {
+                    best = neighbour;
+                    bestDirection = direction;
+                }
+            }
+            if (best >= 0) {
+                setForest(current, getDepth(best) + 1, bestDirection);
+                setVisited(current, reattached);
+                tail = enqueue(current, tail);
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int current = queue[head];
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(current, direction);
+                if (neighbour >= 0 && getVisited(neighbour) == orphan) {
+                    setForest(neighbour, getDepth(current) + 1, direction ^ 1);
+                    setVisited(neighbour, reattached);
+                    tail = enqueue(neighbour, tail);
+                }
+            }
+        }
+
+        List<int[]> changed = new ArrayList<>();
+        for (int i = 0; i < nbOrphans; i++) {
+            int current = orphans[i];
+            if (getVisited(current) == orphan) {
+                notConnected.set(current);
+                changed.add(getCoordinates(current));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Make the cube with given x, y and z coordinate solid, and return the coordinates of the cubes that became connected
+     * to a border because of it.
+     *
+     * @param	x
+     *			The x coordinate of the cube to make solid.
+     * @param	y
+     *			The y coordinate of the cube to make solid.
+     * @param	z
+     *			The z coordinate of the cube to make solid.
+     * @return	The coordinates {x, y, z} of the cubes that are connected to a border after this change and were not
+     *			before; if not empty, this includes the given cube itself.
+     */
+    public List<int[]> changePassableToSolid(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (! passable.get(index))
+            return Collections.emptyList();
+        if (! forestBuilt)
+            rebuild();
+        passable.clear(index);
+        if (isBorder(x, y, z)) {
+            setForest(index, 0, NO_PARENT);
+        } else {
+            int best = -1;
+            int bestDirection = -1;
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(index, direction);
+                if (neighbour >= 0 && isSolidConnectedToBorder(neighbour)
+                        && (best < 0 || getDepth(neighbour) < getDepth(best))) {
+                    best = neighbour;
+                    bestDirection = direction;
+                }
+            }
+            if (best < 0)
+                return Collections.emptyList();
+            setForest(index, getDepth(best) + 1, bestDirection);
+        }
+        List<int[]> result = new ArrayList<>();
+        notConnected.clear(index);
+        int tail = enqueue(index, 0);
+        for (int head = 0; head < tail; head++) {
+            int current = queue[head];
+            result.add(getCoordinates(current));
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(current, direction);
+                if (neighbour >= 0 && ! passable.get(neighbour) && notConnected.get(neighbour)) {
+                    notConnected.clear(neighbour);
+                    setForest(neighbour, getDepth(current) + 1, direction ^ 1);
+                    tail = enqueue(neighbour, tail);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build the spanning forest anew with a breadth-first search from all solid cubes at the borders.
+     * 		The queue is used as a ring buffer, so it only needs to hold the front of the search.
+     */
+    private void rebuild() {
+        notConnected.set(0, nbCubes);
+        Arrays.fill(forest, null);
+        int head = 0;
+        int size = 0;
+        for (int z = 0; z < nbZ; z++) {
+            for (int y = 0; y < nbY; y++) {
+                for (int x = 0; x < nbX; x++) {
+                    if (! isBorder(x, y, z)) {
+                        //skip to the cube at the opposite side of this row
+                        x = nbX - 2;
+                        continue;
+                    }
+                    int index = getIndex(x, y, z);
+                    if (! passable.get(index)) {
+                        notConnected.clear(index);
+                        setForest(index, 0, NO_PARENT);
+                        if (size == queue.length)
+                            head = growRing(head, size);
+                        queue[(head + size++) % queue.length] = index;
+                    }
+                }
+            }
+        }
+        while (size > 0) {
+            int current = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            int depth = getDepth(current);
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(current, direction);
+                if (neighbour >= 0 && ! passable.get(neighbour) && notConnected.get(neighbour)) {
+                    notConnected.clear(neighbour);
+                    setForest(neighbour, depth + 1, direction ^ 1);
+                    if (size == queue.length)
+                        head = growRing(head, size);
+                    queue[(head + size++) % queue.length] = neighbour;
+                }
+            }
+        }
+        forestBuilt = true;
+    }
+
+    /**
+     * Double the size of the queue while it is used as a full ring buffer starting at the given head, and return the
+     * new head.
+     */
+    private int growRing(int head, int size) {
+        int[] grown = new int[2 * queue.length];
+        for (int i = 0; i < size; i++)
+            grown[i] = queue[(head + i) % queue.length];
+        queue = grown;
+        return 0;
+    }
+
+    /**
+     * Append the given cube to the queue, growing it if needed, and return the new tail.
+     */
+    private int enqueue(int index, int tail) {
+        if (tail == queue.length)
+            queue = Arrays.copyOf(queue, 2 * tail);
+        queue[tail] = index;
+        return tail + 1;
+    }
+
+    /**
+     * Give the given cube a connected neighbour no deeper than the given depth as its new parent, if it has one.
+     * 		Such a neighbour cannot lie below the former parent of the cube, whose depth is the given depth, so the forest
+     * 		stays a forest.
+     *
+     * @return	True if and only if the cube got a new parent.
+     */
+    private boolean adopt(int child, int maxDepth) {
+        for (int direction = 0; direction < 6; direction++) {
+            int neighbour = getNeighbour(child, direction);
+            if (neighbour >= 0 && isSolidConnectedToBorder(neighbour) && getDepth(neighbour) <= maxDepth) {
+                setForest(child, getDepth(child), direction);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark the given cube and all cubes below it in the forest with the given search number, append them to the orphans,
+     * and return the new number of orphans.
+     */
+    private int collectSubtree(int root, int mark, int nbOrphans) {
+        int first = nbOrphans;
+        setVisited(root, mark);
+        orphans = (nbOrphans == orphans.length) ? Arrays.copyOf(orphans, 2 * nbOrphans) : orphans;
+        orphans[nbOrphans++] = root;
+        for (int i = first; i < nbOrphans; i++) {
+            int current = orphans[i];
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbour = getNeighbour(current, direction);
+                if (neighbour >= 0 && isChildOf(neighbour, direction) && isSolidConnectedToBorder(neighbour)) {
+                    setVisited(neighbour, mark);
+                    if (nbOrphans == orphans.length)
+                        orphans = Arrays.copyOf(orphans, 2 * nbOrphans);
+                    orphans[nbOrphans++] = neighbour;
+                }
+            }
+        }
+        return nbOrphans;
+    }
+
+    /**
+     * Check whether the given cube, which lies in the given direction from its neighbour, has that neighbour as its
+     * parent.
+     */
+    private boolean isChildOf(int child, int direction) {
+        return (getForest(child) & 7) == (direction ^ 1);
+    }
+
+    /**
+     * Return the depth of the given cube in the forest.
+     */
+    private int getDepth(int index) {
+        return getForest(index) >>> 3;
+    }
+
+    /**
+     * Return the place of the given cube in the forest.
+     */
+    private int getForest(int index) {
+        int[] page = forest[index >> PAGE_BITS];
+        return (page == null) ? NO_PARENT : page[index & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Set the place of the given cube in the forest to the given depth and the given direction of its parent.
+     */
+    private void setForest(int index, int depth, int parentDirection) {
+        int[] page = forest[index >> PAGE_BITS];
+        if (page == null) {
+            page = new int[PAGE_SIZE];
+            Arrays.fill(page, NO_PARENT);
+            forest[index >> PAGE_BITS] = page;
+        }
+        page[index & (PAGE_SIZE - 1)] = (depth << 3) | parentDirection;
+    }
+
+    /**
+     * Return the search number the given cube was last marked with.
+     */
+    private int getVisited(int index) {
+        int[] page = visited[index >> PAGE_BITS];
+        return (page == null) ? 0 : page[index & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Mark the given cube with the given search number.
+     */
+    private void setVisited(int index, int mark) {
+        int[] page = visited[index >> PAGE_BITS];
+        if (page == null) {
+            page = new int[PAGE_SIZE];
+            visited[index >> PAGE_BITS] = page;
+        }
+        page[index & (PAGE_SIZE - 1)] = mark;
+    }
+
+    /**
+     * Reserve the given number of consecutive search numbers, higher than any number used before, and return the first.
+     */
+    private int reserveSearches(int number) {
+        if (search > Integer.MAX_VALUE - number) {
+            Arrays.fill(visited, null);
+            search = 0;
+        }
+        int first = search + 1;
+        search += number;
+        return first;
+    }
+
+    /**
+     * Return the linear index of the neighbour of the cube with the given index in the given direction, or -1 if that
+     * neighbour lies outside the world.
+     * 		The directions 0 to 5 are -x, +x, -y, +y, -z and +z, so the opposite of a direction is that direction xor 1.
+     */
+    private int getNeighbour(int index, int direction) {
+        switch (direction) {
+            case 0:	return (index % nbX == 0) ? -1 : index - 1;
+            case 1:	return (index % nbX == nbX - 1) ? -1 : index + 1;
+            case 2:	return ((index / nbX) % nbY == 0) ? -1 : index - nbX;
+            case 3:	return ((index / nbX) % nbY == nbY - 1) ? -1 : index + nbX;
+            case 4:	return (index < nbXY) ? -1 : index - nbXY;
+            default: return (index >= nbXY * (nbZ - 1)) ? -1 : index + nbXY;
+        }
+    }
+
+    /**
+     * Check whether the cube with given x, y and z coordinate lies at a border of the world.
+     */
+    private boolean isBorder(int x, int y, int z) {
+        return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+    }
+
+    /**
+     * Return the x, y and z coordinate of the cube with the given linear index.
+     */
+    private int[] getCoordinates(int index) {
+        return new int[]{index % nbX, (index / nbX) % nbY, index / nbXY};
+    }
+
+}
@@ -29,5 +29,19 @@ public class Boulder extends InanimateMovableWorldObject {
 	public Boulder(double x, double y, double z, World world) throws IllegalLocation {
         super(x, y, z, world);
     }
+
+    /**
+     * Initialize this new boulder with given weight and given world, without a location.
+     *
+     * @param	weight
+     *			The weight for this new boulder.
+     * @param	world
+     *			The world for this new boulder.
+     * @effect	This new boulder is initialized as an inanimate movable world object with given weight as its weight and with
+     * 			the given world as its world.
+     */
+    Boulder(int weight, World world) {
+        super(weight, world);
+    }
 	
 }
\ No newline at end of file
@@ -0,0 +1,390 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+import java.util.BitSet;
+
+/**
+ * A class of terrains registering the number of the geological feature of every cube of a world, stored in chunks of
+ * 16 by 16 by 16 cubes.
+ * 		A chunk in which all cubes have the same feature is stored as that single feature; only chunks with different
+ * 		features hold an array with a byte per cube. Worlds that are mostly air or mostly rock therefore take little
+ * 		memory, whatever their size. The flags of the cubes are kept in a set per flag.
+ * 		Copies of the features share the arrays of their chunks with this terrain until either of them changes a cube
+ * 		of a chunk, which then gets an array of its own.
+ *
+ * @invar	Each chunk is either uniform or holds a byte for each of its cubes.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class ChunkedTerrain implements TerrainStorage {
+
+	/**
+	 * Initialize this new terrain with given size in which every cube has the given feature.
+	 *
+	 * @param	nbX
+	 *			The number of cubes along the x axis.
+	 * @param	nbY
+	 *			The number of cubes along the y axis.
+	 * @param	nbZ
+	 *			The number of cubes along the z axis.
+	 * @param	feature
+	 *			The number of the geological feature of all cubes of this new terrain.
+	 * @throws	IllegalArgumentException
+	 *			One of the sizes is not strictly positive, or the terrain would hold more cubes than can be indexed.
+	 */
+    public ChunkedTerrain(int nbX, int nbY, int nbZ, int feature) throws IllegalArgumentException {
+        if (nbX <= 0 || nbY <= 0 || nbZ <= 0 || (long) nbX * nbY * nbZ > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid terrain size " + nbX + "x" + nbY + "x" + nbZ);
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.nbChunksX = (nbX + CHUNK_SIZE - 1) >> CHUNK_BITS;
+        this.nbChunksY = (nbY + CHUNK_SIZE - 1) >> CHUNK_BITS;
+        int nbChunks = nbChunksX * nbChunksY * ((nbZ + CHUNK_SIZE - 1) >> CHUNK_BITS);
+        this.chunks = new byte[nbChunks][];
+        this.uniform = new byte[nbChunks];
+        java.util.Arrays.fill(this.uniform, (byte) feature);
+    }
+
+	/**
+	 * Initialize this new terrain as a copy of the features of the given terrain, sharing the arrays of its chunks.
+	 *
+	 * @param	source
+	 *			The terrain to copy.
+	 * @post	The arrays of all chunks of both terrains are shared, so both copy a chunk before changing it.
+	 */
+    private ChunkedTerrain(ChunkedTerrain source) {
+        this.nbX = source.nbX;
+        this.nbY = source.nbY;
+        this.nbZ = source.nbZ;
+        this.nbChunksX = source.nbChunksX;
+        this.nbChunksY = source.nbChunksY;
+        this.chunks = source.chunks.clone();
+        this.uniform = source.uniform.clone();
+        this.shared.set(0, chunks.length);
+        source.shared.set(0, chunks.length);
+    }
+
+    /* Variables */
+
+    /**
+     * Constants reflecting the number of cubes along each side of a chunk, and its base 2 logarithm.
+     */
+    public static final int CHUNK_BITS = 4;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Constant reflecting the number of bytes of the array of a chunk that is not uniform.
+     */
+    static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * Constant reflecting the mask selecting the position of a cube within its chunk from one of its coordinates.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Variables registering the number of cubes of this terrain along the x, y and z axis.
+     */
+    private final int nbX;
+    private final int nbY;
+    private final int nbZ;
+
+    /**
+     * Variables registering the number of chunks of this terrain along the x and y axis.
+     */
+    private final int nbChunksX;
+    private final int nbChunksY;
+
+    /**
+     * Array registering the features of the cubes of each chunk, or null for a uniform chunk.
+     */
+    private final byte[][] chunks;
+
+    /**
+     * Array registering the feature of all cubes of each uniform chunk.
+     */
+    private final byte[] uniform;
+
+    /**
+     * Sets registering the cubes for which the standable and the disconnected flag are set, by linear cube index.
+     */
+    private final BitSet standable = new BitSet();
+    private final BitSet disconnected = new BitSet();
+
+    /**
+     * Variable registering whether the flags of this terrain are valid.
+     */
+    private boolean validFlags = false;
+
+    /**
+     * Set registering the chunks whose arrays may be shared with a copy of this terrain, and must be copied before one
+     * of their cubes changes.
+     */
+    private final BitSet shared = new BitSet();
+
+    /* Methods */
+
+    /**
+     * Return the number of cubes of this terrain along the x axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbX() {
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes of this terrain along the y axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbY() {
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes of this terrain along the z axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbZ() {
+        return this.nbZ;
+    }
+
+    /**
+     * Return the number of the geological feature of the cube with given x, y and z coordinate.
+     * 		The coordinate must lie within this terrain.
+     */
+    @Override
+    public int get(int x, int y, int z) {
+        int chunk = getChunk(x, y, z);
+        byte[] cubes = chunks[chunk];
+        if (cubes == null)
+            return uniform[chunk];
+        return cubes[getOffset(x, y, z)];
+    }
+
+    /**
+     * Return the number of the geological feature of the cube with the given linear index, which runs fastest along x
+     * and slowest along z.
+     */
+    @Override
+    public int get(int index) {
+        int nbXY = nbX * nbY;
+        return get(index % nbX, (index % nbXY) / nbX, index / nbXY);
+    }
+
+    /**
+     * Set the geological feature of the cube with given x, y and z coordinate to the feature with given number.
+     * 		A uniform chunk, or a chunk sharing its array with a copy, gets an array of its own when one of its cubes gets
+     * 		another feature.
+     *
+     * @param	x
+     *			The x coordinate of the cube.
+     * @param	y
+     *			The y coordinate of the cube.
+     * @param	z
+     *			The z coordinate of the cube.
+     * @param	feature
+     *			The number of the new geological feature of the cube.
+     */
+    @Override
+    public void set(int x, int y, int z, int feature) {
+        int chunk = getChunk(x, y, z);
+        byte[] cubes = chunks[chunk];
+        if (cubes == null) {
+            if (uniform[chunk] == feature)
+                return;
+            cubes = new byte[CHUNK_BYTES];
+            java.util.Arrays.fill(cubes, uniform[chunk]);
+            chunks[chunk] = cubes;
+            shared.clear(chunk);
+        } else if (shared.get(chunk)) {
+            if (cubes[getOffset(x, y, z)] == feature)
+                return;
+            cubes = cubes.clone();
+            chunks[chunk] = cubes;
+            shared.clear(chunk);
+        }
+        cubes[getOffset(x, y, z)] = (byte) feature;
+    }
+
+    /**
+     * Return the number of the geological feature of all cubes of the chunk holding the cube with given x, y and z
+     * coordinate, or -1 if that chunk is not uniform.
+     */
+    public int getUniformFeature(int x, int y, int z) {
+        int chunk = getChunk(x, y, z);
+        return (chunks[chunk] == null) ? uniform[chunk] : -1;
+    }
+
+    /**
+     * Return the number of the geological feature shared by the cube with given x, y and z coordinate and all its
+     * neighbours, or -1 if this terrain does not know of such a feature.
+     * 		This is the feature of a uniform chunk for the cubes in the interior of that chunk.
+     */
+    @Override
+    public int getSurroundingFeature(int x, int y, int z) {
+        return isInChunkInterior(x, y, z) ? getUniformFeature(x, y, z) : -1;
+    }
+
+    /**
+     * Check whether the cube with given x, y and z coordinate lies in the interior of its chunk, so that all its
+     * neighbours lie in the same chunk.
+     */
+    public static boolean isInChunkInterior(int x, int y, int z) {
+        return ((x + 1) & CHUNK_MASK) > 1 && ((y + 1) & CHUNK_MASK) > 1 && ((z + 1) & CHUNK_MASK) > 1;
+    }
+
+    /**
+     * Collapse every chunk whose cubes within this terrain all have the same feature to that single feature.
+     *
+     * @return	The number of chunks that still hold an array of their own.
+     */
+    public int compact() {
+        int nbMixed = 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            byte[] cubes = chunks[chunk];
+            if (cubes == null)
+                continue;
+            int baseX = (chunk % nbChunksX) << CHUNK_BITS;
+            int baseY = ((chunk / nbChunksX) % nbChunksY) << CHUNK_BITS;
+            int baseZ = (chunk / (nbChunksX * nbChunksY)) << CHUNK_BITS;
+            byte first = cubes[getOffset(baseX, baseY, baseZ)];
+            boolean same = true;
+            for (int z = baseZ; z < Math.min(baseZ + CHUNK_SIZE, nbZ) && same; z++)
+                for (int y = baseY; y < Math.min(baseY + CHUNK_SIZE, nbY) && same; y++)
+                    for (int x = baseX; x < Math.min(baseX + CHUNK_SIZE, nbX) && same; x++)
+                        same = cubes[getOffset(x, y, z)] == first;
+            if (same) {
+                chunks[chunk] = null;
+                uniform[chunk] = first;
+            } else {
+                nbMixed++;
+            }
+        }
+        return nbMixed;
+    }
+
+    /**
+     * Return a terrain holding the features of this terrain, which later changes to this terrain do not affect.
+     * 		The copy shares the arrays of the chunks of this terrain until either changes them, so copying only takes
+     * 		time in proportion to the number of chunks. The flags are not copied.
+     */
+    @Override
+    public ChunkedTerrain copyFeatures() {
+        return new ChunkedTerrain(this);
+    }
+
+    /**
+     * Return the number of chunks of this terrain.
+     */
+    public int getNbChunks() {
+        return chunks.length;
+    }
+
+    /**
+     * Return the number of chunks of this terrain that hold an array of their own.
+     */
+    public int getNbMixedChunks() {
+        int nbMixed = 0;
+        for (byte[] cubes: chunks) {
+            if (cubes != null)
+                nbMixed++;
+        }
+        return nbMixed;
+    }
+
+    /**
+     * Check whether the given flag is set for the cube with the given linear index.
+     */
+    @Override
+    public boolean getFlag(int index, int flag) {
+        return getFlagSet(flag).get(index);
+    }
+
+    /**
+     * Set or clear the given flag for the cube with the given linear index.
+     */
+    @Override
+    public void setFlag(int index, int flag, boolean value) {
+        getFlagSet(flag).set(index, value);
+    }
+
+    /**
+     * Return a set of the linear indices of the cubes for which the given flag is set, which later changes to this
+     * terrain do not affect.
+     *
+     * @throws	IllegalArgumentException
+     *			The given flag is not a flag of terrains.
+     */
+    @Override
+    public BitSet copyFlags(int flag) throws IllegalArgumentException {
+        return (BitSet) getFlagSet(flag).clone();
+    }
+
+    /**
+     * Check whether the flags of this terrain are valid.
+     */
+    @Basic
+    @Raw
+    @Override
+    public boolean hasValidFlags() {
+        return this.validFlags;
+    }
+
+    /**
+     * Mark the flags of this terrain as valid or not.
+     *
+     * @param	valid
+     *			Whether the flags are valid.
+     * @post	The flags of this terrain are valid if and only if the given value is true.
+     * @post	If the flags are marked not valid, all flags are cleared.
+     */
+    @Override
+    public void setValidFlags(boolean valid) {
+        if (! valid) {
+            standable.clear();
+            disconnected.clear();
+        }
+        this.validFlags = valid;
+    }
+
+    /**
+     * Return the set registering the given flag.
+     *
+     * @throws	IllegalArgumentException
+     *			The given flag is not a flag of terrains.
+     */
+    private BitSet getFlagSet(int flag) throws IllegalArgumentException {
+        if (flag == FLAG_STANDABLE)
+            return standable;
+        if (flag == FLAG_DISCONNECTED)
+            return disconnected;
+        throw new IllegalArgumentException("Unknown terrain flag " + flag);
+    }
+
+    /**
+     * Return the index of the chunk holding the cube with given x, y and z coordinate.
+     */
+    int getChunk(int x, int y, int z) {
+        return (x >> CHUNK_BITS) + nbChunksX * ((y >> CHUNK_BITS) + nbChunksY * (z >> CHUNK_BITS));
+    }
+
+    /**
+     * Return the position of the cube with given x, y and z coordinate within its chunk.
+     */
+    private static int getOffset(int x, int y, int z) {
+        return (x & CHUNK_MASK) | ((y & CHUNK_MASK) << CHUNK_BITS) | ((z & CHUNK_MASK) << (2 * CHUNK_BITS));
+    }
+
+}
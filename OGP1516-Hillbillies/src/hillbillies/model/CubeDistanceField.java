@@ -0,0 +1,323 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.activities.IndexedMinHeap;
+
+import java.util.Arrays;
+
+/**
+ * A class of distance fields registering, for every cube of a world, the nearest cube of a given type.
+ * 		Distances are numbers of steps between neighbouring cubes, where a step can go to any of the 26 neighbours of a
+ * 		cube but only passes through passable cubes. The cubes of the given type are the sources of the field: they have
+ * 		distance zero whether they are passable or not.
+ * 		The field follows the terrain of its world lazily: before answering a question it applies the terrain changes made
+ * 		since it was last brought up to date, touching only the cubes whose distance can have changed.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class CubeDistanceField {
+
+	/**
+	 * Initialize this new distance field for the given world and the given cube type.
+	 *
+	 * @param	world
+	 *			The world for this new distance field.
+	 * @param	cubeType
+	 *			The type of the cubes this new distance field leads to.
+	 */
+    CubeDistanceField(World world, int cubeType) {
+        this.world = world;
+        this.cubeType = cubeType;
+        rebuild();
+    }
+
+    /* Variables */
+
+    /**
+     * The distance of cubes that cannot reach a cube of the type of this field.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Variable registering the world of this distance field.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the type of the cubes this distance field leads to.
+     */
+    private final int cubeType;
+
+    /**
+     * Array registering the distance of each cube to the nearest cube of the type of this field, indexed by linear cube
+     * index.
+     */
+    private int[] distances;
+
+    /**
+     * Array registering the linear index of the nearest cube of the type of this field for each cube, or -1 if there is
+     * no such cube within reach.
+     */
+    private int[] nearest;
+
+    /**
+     * Variable registering the terrain version of the world this distance field is up to date with.
+     */
+    private long terrainVersion;
+
+    /**
+     * Array registering the cubes that take part in the current update, stamped with the number of that update.
+     */
+    private int[] affected;
+
+    /**
+     * Variable registering the number of the current update.
+     */
+    private int update = 0;
+
+    /**
+     * The open set of an update, ordered by tentative distance.
+     */
+    private IndexedMinHeap openSet;
+
+    /**
+     * The x, y and z offsets of the 26 neighbours of a cube.
+     */
+    private static final int[] OFFSET_X = new int[26];
+    private static final int[] OFFSET_Y = new int[26];
+    private static final int[] OFFSET_Z = new int[26];
+
+    static {
+        int i = 0;
+        for (int x = -1; x < 2; x++) {
+            for (int y = -1; y < 2; y++) {
+                for (int z = -1; z < 2; z++) {
+                    if (x == 0 && y == 0 && z == 0)
+                        continue;
+                    OFFSET_X[i] = x;
+                    OFFSET_Y[i] = y;
+                    OFFSET_Z[i] = z;
+                    i++;
+                }
+            }
+        }
+    }
+
+    /* Methods */
+
+    /**
+     * Return the type of the cubes this distance field leads to.
+     */
+    @Basic
+    @Raw
+    public int getCubeType() {
+        return this.cubeType;
+    }
+
+    /**
+     * Return the distance from the cube with given location to the nearest cube of the type of this field, or
+     * UNREACHABLE if no such cube can be reached from it.
+     *
+     * @param	cubeLocation
+     *			The location of the cube to start from.
+     */
+    public int getDistance(int[] cubeLocation) {
+        refresh();
+        return distances[world.getCubeIndex(cubeLocation[0], cubeLocation[1], cubeLocation[2])];
+    }
+
+    /**
+     * Return the location of the cube of the type of this field that is nearest to the cube with given location, or null
+     * if no such cube can be reached from it.
+     *
+     * @param	cubeLocation
+     *			The location of the cube to start from.
+     */
+    public int[] getNearest(int[] cubeLocation) {
+        refresh();
+        int index = nearest[world.getCubeIndex(cubeLocation[0], cubeLocation[1], cubeLocation[2])];
+        return index < 0 ? null : world.getCubeLocation(index);
+    }
+
+    /**
+     * Bring this distance field up to date with the terrain of its world.
+     * 		The changed cubes are applied one by one; if the world no longer remembers all of them, the field is built anew.
+     */
+    public void refresh() {
+        if (terrainVersion == world.getTerrainVersion())
+            return;
+        int[] changes = world.getTerrainChangesSince(terrainVersion);
+        if (changes == null || distances.length != world.getNbCubes()) {
+            rebuild();
+            return;
+        }
+        for (int change: changes)
+            applyChange(change);
+        terrainVersion = world.getTerrainVersion();
+    }
+
+    /**
+     * Compute all distances of this field anew with a breadth-first search from all the cubes of its type at once.
+     */
+    private void rebuild() {
+        int nbCubes = world.getNbCubes();
+        distances = new int[nbCubes];
+        nearest = new int[nbCubes];
+        affected = new int[nbCubes];
+        openSet = new IndexedMinHeap(nbCubes);
+        update = 0;
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(nearest, -1);
+        int[] queue = new int[nbCubes];
+        int head = 0;
+        int tail = 0;
+        for (int index = 0; index < nbCubes; index++) {
+            if (cubeTypeAt(index) == cubeType) {
+                distances[index] = 0;
+                nearest[index] = index;
+                queue[tail++] = index;
+            }
+        }
+        int nbX = world.getxSideSize();
+        int nbXY = nbX * world.getySideSize();
+        while (head < tail) {
+            int current = queue[head++];
+            int cx = current % nbX;
+            int cy = (current % nbXY) / nbX;
+            int cz = current / nbXY;
+            for (int i = 0; i < 26; i++) {
+                int nx = cx + OFFSET_X[i];
+                int ny = cy + OFFSET_Y[i];
+                int nz = cz + OFFSET_Z[i];
+                if (! world.isWithinBorders(nx, ny, nz))
+                    continue;
+                int neighbour = world.getCubeIndex(nx, ny, nz);
+                if (distances[neighbour] != UNREACHABLE || ! isPassable(neighbour))
+                    continue;
+                distances[neighbour] = distances[current] + 1;
+                nearest[neighbour] = nearest[current];
+                queue[tail++] = neighbour;
+            }
+        }
+        terrainVersion = world.getTerrainVersion();
+    }
+
+    /**
+     * Update this distance field after the type of the cube with given index has changed.
+     * 		The cubes whose distance was derived from the changed cube, directly or through other such cubes, lose their
+     * 		distance. They, and the changed cube itself, then get new distances from their other neighbours, and every
+     * 		distance that improves is passed on to the neighbours of its cube.
+     *
+     * @param	changed
+     *			The linear index of the changed cube.
+     */
+    private void applyChange(int changed) {
+        if (++update == Integer.MAX_VALUE) {
+            Arrays.fill(affected, 0);
+            update = 1;
+        }
+        int nbX = world.getxSideSize();
+        int nbXY = nbX * world.getySideSize();
+
+        //collect the changed cube and the cubes depending on it, and forget their distances
+        int[] dependants = new int[16];
+        int nbDependants = 0;
+        dependants[nbDependants++] = changed;
+        affected[changed] = update;
+        for (int i = 0; i < nbDependants; i++) {
+            int current = dependants[i];
+            int distance = distances[current];
+            distances[current] = UNREACHABLE;
+            nearest[current] = -1;
+            if (distance == UNREACHABLE)
+                continue;
+            int cx = current % nbX;
+            int cy = (current % nbXY) / nbX;
+            int cz = current / nbXY;
+            for (int j = 0; j < 26; j++) {
+                int nx = cx + OFFSET_X[j];
+                int ny = cy + OFFSET_Y[j];
+                int nz = cz + OFFSET_Z[j];
+                if (! world.isWithinBorders(nx, ny, nz))
+                    continue;
+                int neighbour = world.getCubeIndex(nx, ny, nz);
+                if (affected[neighbour] != update && distances[neighbour] == distance + 1) {
+                    affected[neighbour] = update;
+                    if (nbDependants == dependants.length)
+                        dependants = Arrays.copyOf(dependants, 2 * nbDependants);
+                    dependants[nbDependants++] = neighbour;
+                }
+            }
+        }
+
+        //give the collected cubes the best distance offered by their neighbours
+        openSet.clear();
+        for (int i = 0; i < nbDependants; i++) {
+            int current = dependants[i];
+            if (cubeTypeAt(current) == cubeType) {
+                openSet.insertOrDecrease(current, 0);
+                nearest[current] = current;
+                continue;
+            }
+            if (! isPassable(current))
+                continue;
+            int cx = current % nbX;
+            int cy = (current % nbXY) / nbX;
+            int cz = current / nbXY;
+            for (int j = 0; j < 26; j++) {
+                int nx = cx + OFFSET_X[j];
+                int ny = cy + OFFSET_Y[j];
+                int nz = cz + OFFSET_Z[j];
+                if (! world.isWithinBorders(nx, ny, nz))
+                    continue;
+                int neighbour = world.getCubeIndex(nx, ny, nz);
+                if (distances[neighbour] != UNREACHABLE
+                        && openSet.insertOrDecrease(current, distances[neighbour] + 1))
+                    nearest[current] = nearest[neighbour];
+            }
+        }
+
+        //pass improved distances on in order of increasing distance
+        while (! openSet.isEmpty()) {
+            int current = openSet.peek();
+            int distance = (int) openSet.getKey(current);
+            openSet.poll();
+            if (distance >= distances[current])
+                continue;
+            distances[current] = distance;
+            int cx = current % nbX;
+            int cy = (current % nbXY) / nbX;
+            int cz = current / nbXY;
+            for (int j = 0; j < 26; j++) {
+                int nx = cx + OFFSET_X[j];
+                int ny = cy + OFFSET_Y[j];
+                int nz = cz + OFFSET_Z[j];
+                if (! world.isWithinBorders(nx, ny, nz))
+                    continue;
+                int neighbour = world.getCubeIndex(nx, ny, nz);
+                if (distance + 1 < distances[neighbour] && isPassable(neighbour)
+                        && openSet.insertOrDecrease(neighbour, distance + 1))
+                    nearest[neighbour] = nearest[current];
+            }
+        }
+    }
+
+    /**
+     * Return the type of the cube with the given linear index.
+     */
+    private int cubeTypeAt(int index) {
+        return world.getCubeIDAtIndex(index);
+    }
+
+    /**
+     * Check whether the cube with the given linear index can be passed through.
+     */
+    private boolean isPassable(int index) {
+        return world.isPassableAtIndex(index);
+    }
+
+}
@@ -2,6 +2,7 @@ package hillbillies.model.CubeObjects;
 
 /**
  * A class of air cubes.
+ *		Air cubes have no state, so there is a single instance that is shared by every air cube.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
@@ -10,6 +11,24 @@ package hillbillies.model.CubeObjects;
  */
 public class Air extends CubeWorldObject {
 
+	/**
+	 * The only air cube, shared by all the air cubes of all worlds.
+	 */
+	public static final Air INSTANCE = new Air();
+
+	private Air() {
+	}
+
+	/**
+	 * Return the number referring to the geological feature of this air cube.
+	 *
+	 * @return	Always 0.
+	 */
+	@Override
+	public int getId() {
+		return 0;
+	}
+
 	/**
 	 * Return whether this air cube is passable.
 	 * 
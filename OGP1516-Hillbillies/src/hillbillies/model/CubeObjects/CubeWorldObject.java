@@ -2,6 +2,8 @@ package hillbillies.model.CubeObjects;
 
 /**
  * A class of cubes in the game world.
+ *		Cube world objects only describe the behaviour of a geological feature; the worlds store the feature of each
+ *		cube as its number.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
@@ -10,6 +12,11 @@ package hillbillies.model.CubeObjects;
  */
 public abstract class CubeWorldObject {
 
+	/**
+	 * Return the number referring to the geological feature of this cube world object.
+	 */
+	public abstract int getId();
+
 	/**
 	 * Return whether this cube world object is passable.
 	 */
@@ -2,6 +2,7 @@ package hillbillies.model.CubeObjects;
 
 /**
  * A class of rock cubes.
+ *		Rock cubes have no state, so there is a single instance that is shared by every rock cube.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
@@ -10,6 +11,24 @@ package hillbillies.model.CubeObjects;
  */
 public class Rock extends CubeWorldObject {
 
+	/**
+	 * The only rock cube, shared by all the rock cubes of all worlds.
+	 */
+	public static final Rock INSTANCE = new Rock();
+
+	private Rock() {
+	}
+
+	/**
+	 * Return the number referring to the geological feature of this rock cube.
+	 *
+	 * @return	Always 1.
+	 */
+	@Override
+	public int getId() {
+		return 1;
+	}
+
 	/**
 	 * Return whether this rock cube is passable.
 	 * 
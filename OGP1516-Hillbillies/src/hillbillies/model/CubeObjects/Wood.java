@@ -2,6 +2,7 @@ package hillbillies.model.CubeObjects;
 
 /**
  * A class of wood cubes.
+ *		Wood cubes have no state, so there is a single instance that is shared by every wood cube.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
@@ -10,6 +11,24 @@ package hillbillies.model.CubeObjects;
  */
 public class Wood extends CubeWorldObject {
 
+	/**
+	 * The only wood cube, shared by all the wood cubes of all worlds.
+	 */
+	public static final Wood INSTANCE = new Wood();
+
+	private Wood() {
+	}
+
+	/**
+	 * Return the number referring to the geological feature of this wood cube.
+	 *
+	 * @return	Always 2.
+	 */
+	@Override
+	public int getId() {
+		return 2;
+	}
+
 	/**
 	 * Return whether this wood cube is passable.
 	 * 
@@ -2,6 +2,7 @@ package hillbillies.model.CubeObjects;
 
 /**
  * A class of workshop cubes.
+ *		Workshop cubes have no state, so there is a single instance that is shared by every workshop cube.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
@@ -9,6 +10,24 @@ package hillbillies.model.CubeObjects;
  * 			https://github.com/julieallard/HillBilliesOGP.git
  */
 public class Workshop extends CubeWorldObject {
+
+	/**
+	 * The only workshop cube, shared by all the workshop cubes of all worlds.
+	 */
+	public static final Workshop INSTANCE = new Workshop();
+
+	private Workshop() {
+	}
+
+	/**
+	 * Return the number referring to the geological feature of this workshop cube.
+	 *
+	 * @return	Always 3.
+	 */
+	@Override
+	public int getId() {
+		return 3;
+	}
 	
 	/**
 	 * Return whether this workshop cube is passable.
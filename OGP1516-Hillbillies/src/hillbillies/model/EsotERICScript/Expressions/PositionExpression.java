@@ -1,5 +1,6 @@
 package hillbillies.model.EsotERICScript.Expressions;
 
+import hillbillies.model.CubeObjects.Workshop;
 import hillbillies.model.Unit;
 import hillbillies.model.exceptions.SyntaxError;
 
@@ -88,7 +89,11 @@ public class PositionExpression extends Expression {
         
         @Override
         public int[] getValue() throws SyntaxError {
-            return scanWorld(this.arg1.value(executor).getLocation().getCubeLocation(), "Workshop");
+            int[] workshop = task.world.getNearestCubeOfType(this.arg1.value(executor).getLocation().getCubeLocation(),
+                    Workshop.INSTANCE.getId());
+            if (workshop == null)
+                throw new SyntaxError("No Workshop object was found.");
+            return workshop;
         }
 
     }
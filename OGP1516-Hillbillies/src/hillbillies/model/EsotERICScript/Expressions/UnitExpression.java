@@ -4,8 +4,6 @@ import hillbillies.model.Faction;
 import hillbillies.model.Unit;
 import hillbillies.model.exceptions.SyntaxError;
 
-import java.util.List;
-
 public class UnitExpression extends Expression {
 	
     @Override
@@ -57,12 +55,11 @@ public class UnitExpression extends Expression {
         public Unit getValue() throws SyntaxError {
             Unit arg = arg1.value(executor);
             Faction faction = arg.getFaction();
-            int[] loc = scanWorld(arg.getLocation().getCubeLocation(), "Friend");
-            List<Unit> UnitList = task.world.getUnitsAt(loc);
-            for (Unit unit: UnitList)
-                if (unit.getFaction() == faction)
-                	return unit;
-            throw new SyntaxError("No friend Units found");
+            Unit friend = task.world.getNearestUnit(arg.getXCoordinate(), arg.getYCoordinate(), arg.getZCoordinate(),
+                    unit -> unit != arg && unit.getFaction() == faction);
+            if (friend == null)
+                throw new SyntaxError("No friend Units found");
+            return friend;
         }
         
     }
@@ -80,12 +77,11 @@ public class UnitExpression extends Expression {
         public Unit getValue() throws SyntaxError {
             Unit arg = arg1.value(executor);
             Faction faction = arg.getFaction();
-            int[] loc = scanWorld(arg.getLocation().getCubeLocation(), "Enemy");
-            List<Unit> UnitList = task.world.getUnitsAt(loc);
-            for (Unit unit: UnitList)
-                if (unit.getFaction() != faction)
-                	return unit;
-            throw new RuntimeException("No enemy Units found");
+            Unit enemy = task.world.getNearestUnit(arg.getXCoordinate(), arg.getYCoordinate(), arg.getZCoordinate(),
+                    unit -> unit.getFaction() != faction);
+            if (enemy == null)
+                throw new RuntimeException("No enemy Units found");
+            return enemy;
         }
         
     }
@@ -102,8 +98,11 @@ public class UnitExpression extends Expression {
         @Override
         public Unit getValue() throws SyntaxError {
             Unit arg = arg1.value(executor);
-            int[] loc = scanWorld(arg.getLocation().getCubeLocation(), "Any");
-            return task.world.getUnitsAt(loc).get(0);
+            Unit any = task.world.getNearestUnit(arg.getXCoordinate(), arg.getYCoordinate(), arg.getZCoordinate(),
+                    unit -> unit != arg);
+            if (any == null)
+                throw new SyntaxError("No Any object was found.");
+            return any;
         }
         
     }
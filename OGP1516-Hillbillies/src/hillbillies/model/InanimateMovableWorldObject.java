@@ -2,6 +2,7 @@ package hillbillies.model;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.activities.Fall;
 import hillbillies.model.activities.IActivity;
 import hillbillies.model.activities.NoActivity;
 import hillbillies.model.exceptions.IllegalLocation;
@@ -33,13 +34,20 @@ abstract class InanimateMovableWorldObject extends MovableWorldObject {
      *			The z coordinate for this new inanimate movable world object.
      * @param	world
      *			The world for this new inanimate movable world object.
-     * @effect	The location of this new inanimate movable world object is set to the given x, y and z coordinate.
      * @effect	The world of this new inanimate movable world object is set to the given world.
+     * @effect	The location of this new inanimate movable world object is set to the given x, y and z coordinate.
+     * @effect	The activity of this new inanimate movable world object is set to falling if the cube below the given
+     * 			coordinates does not support it, and to none otherwise.
      * @post	The weight of this new inanimate movable world object is equal to a random weight.
      */
     InanimateMovableWorldObject(double x, double y, double z, World world) throws IllegalLocation {
-        this.setLocation(x, y, z);
         this.setWorld(world);
+        //the activity comes first, as only a falling object can be located above a cube that does not support it
+        if (isSupportedAt(new int[]{(int) x, (int) y, (int) z}))
+            this.setActivity(new NoActivity());
+        else
+            this.setActivity(new Fall(this));
+        this.setLocation(x, y, z);
         /*
       Object holding the random generator used during the random cration of the inanimate movable world object.
      */
@@ -47,6 +55,24 @@ abstract class InanimateMovableWorldObject extends MovableWorldObject {
         this.weight = random.nextInt(41) + 10;
     }
 
+    /**
+     * Initialize this new inanimate movable world object with given weight and given world, without a location.
+     * 		Used to restore objects from a snapshot, whose location is restored afterwards.
+     *
+     * @param	weight
+     *			The weight for this new inanimate movable world object.
+     * @param	world
+     *			The world for this new inanimate movable world object.
+     * @effect	The world of this new inanimate movable world object is set to the given world.
+     * @effect	The activity of this new inanimate movable world object is set to none.
+     * @post	The weight of this new inanimate movable world object is equal to the given weight.
+     */
+    InanimateMovableWorldObject(int weight, World world) {
+        this.setWorld(world);
+        this.setActivity(new NoActivity());
+        this.weight = weight;
+    }
+
     /* Variables */
     
     /**
@@ -89,6 +115,25 @@ abstract class InanimateMovableWorldObject extends MovableWorldObject {
         return ((activity.getId() == 0) || (activity.getId() == 6));
     }
 
+    /**
+     * Check whether the given cube location is supported by the cube below it in the world of this inanimate movable
+     * world object.
+     */
+    private boolean isSupportedAt(int[] cubeLoc) {
+        return cubeLoc[2] == 0 || this.getWorld().willBreakFall(cubeLoc);
+    }
+
+    /**
+     * Let this inanimate movable world object fall if the cube below it no longer supports it.
+     *
+     * @effect	If this inanimate movable world object is not falling yet and the cube below it does not support it, its
+     * 			activity is set to falling.
+     */
+    void fallIfUnsupported() {
+        if (! (this.getActivity() instanceof Fall) && ! isSupportedAt(this.getLocation().getCubeLocation()))
+            this.setActivity(new Fall(this));
+    }
+
     /**
      * Let the inanimate movable world object finish its current activity.
      *
@@ -29,5 +29,19 @@ public class Log extends InanimateMovableWorldObject {
     public Log(double x, double y, double z, World world) throws IllegalLocation {
         super(x, y, z, world);
     }
+
+    /**
+     * Initialize this new log with given weight and given world, without a location.
+     *
+     * @param	weight
+     *			The weight for this new log.
+     * @param	world
+     *			The world for this new log.
+     * @effect	This new log is initialized as an inanimate movable world object with given weight as its weight and with
+     * 			the given world as its world.
+     */
+    Log(int weight, World world) {
+        super(weight, world);
+    }
     
 }
\ No newline at end of file
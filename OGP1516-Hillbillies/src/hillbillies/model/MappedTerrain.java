@@ -0,0 +1,423 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A class of terrains registering the number of the geological feature of every cube of a world in a memory-mapped
+ * file instead of on the Java heap.
+ * 		The file starts with a header of 32 bytes holding the size of the terrain, followed by a byte per cube in linear
+ * 		cube index order. The lowest six bits of that byte hold the feature, the highest two bits the flags of the cube.
+ * 		The operating system pages the file in and out as needed, so a terrain can be larger than the heap, and a file
+ * 		whose flags are valid lets a world start without deriving them again. The file only claims valid flags from the
+ * 		moment they are flushed while valid until the next change to the terrain, so a file left behind halfway through
+ * 		a change never claims flags that do not match its features.
+ *
+ * @invar	The file of each mapped terrain holds a byte for each of its cubes.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class MappedTerrain implements TerrainStorage {
+
+	/**
+	 * Initialize this new terrain with given size on the given open channel.
+	 *
+	 * @throws	IOException
+	 *			The file could not be mapped.
+	 */
+    private MappedTerrain(FileChannel channel, int nbX, int nbY, int nbZ) throws IOException {
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        long size = HEADER_SIZE + (long) nbX * nbY * nbZ;
+        this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >> SEGMENT_BITS)];
+        for (int segment = 0; segment < segments.length; segment++) {
+            long start = (long) segment << SEGMENT_BITS;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+        this.validFlags = segments[0].get(VALID_FLAGS_POSITION) != 0;
+        this.validOnFile = this.validFlags;
+    }
+
+    /**
+     * Create a new file at the given path holding a terrain of given size in which every cube has the given feature,
+     * and return that terrain.
+     * 		The flags of the new terrain are not valid.
+     *
+     * @param	file
+     *			The path of the file to create; an existing file is overwritten.
+     * @param	nbX
+     *			The number of cubes along the x axis.
+     * @param	nbY
+     *			The number of cubes along the y axis.
+     * @param	nbZ
+     *			The number of cubes along the z axis.
+     * @param	feature
+     *			The number of the geological feature of all cubes of the new terrain.
+     * @throws	IllegalArgumentException
+     *			One of the sizes is not strictly positive, the terrain would hold more cubes than can be indexed, or the
+     *			feature does not fit in the six bits reserved for it.
+     * @throws	IOException
+     *			The file could not be created or mapped.
+     */
+    public static MappedTerrain create(Path file, int nbX, int nbY, int nbZ, int feature)
+            throws IllegalArgumentException, IOException {
+        if (nbX <= 0 || nbY <= 0 || nbZ <= 0 || (long) nbX * nbY * nbZ > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid terrain size " + nbX + "x" + nbY + "x" + nbZ);
+        if ((feature & ~FEATURE_MASK) != 0)
+            throw new IllegalArgumentException("Invalid feature " + feature);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            //a mapping stays valid after its channel is closed
+            MappedTerrain terrain = new MappedTerrain(channel, nbX, nbY, nbZ);
+            ByteBuffer header = terrain.segments[0];
+            header.putInt(0, MAGIC);
+            header.putInt(4, FORMAT_VERSION);
+            header.putInt(8, nbX);
+            header.putInt(12, nbY);
+            header.putInt(16, nbZ);
+            if (feature != 0)
+                terrain.fill((byte) feature);
+            return terrain;
+        }
+    }
+
+    /**
+     * Create a new file at the given path holding a copy of the features of the given terrain, and return the terrain of
+     * that file.
+     * 		The flags of the new terrain are not valid.
+     *
+     * @param	file
+     *			The path of the file to create; an existing file is overwritten.
+     * @param	source
+     *			The terrain to copy.
+     * @throws	IOException
+     *			The file could not be created or mapped.
+     */
+    public static MappedTerrain create(Path file, TerrainStorage source) throws IOException {
+        MappedTerrain terrain = create(file, source.getNbX(), source.getNbY(), source.getNbZ(), 0);
+        for (int z = 0; z < terrain.nbZ; z++)
+            for (int y = 0; y < terrain.nbY; y++)
+                for (int x = 0; x < terrain.nbX; x++)
+                    terrain.set(x, y, z, source.get(x, y, z));
+        return terrain;
+    }
+
+    /**
+     * Open the terrain stored in the file at the given path.
+     * 		Changes to the terrain are written to that file.
+     *
+     * @param	file
+     *			The path of the file to open.
+     * @throws	IOException
+     *			The file could not be read or mapped, or it does not hold a terrain of this format.
+     */
+    public static MappedTerrain open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC)
+                throw new IOException(file + " does not hold a terrain");
+            if (header.getInt(4) != FORMAT_VERSION)
+                throw new IOException(file + " holds a terrain of unsupported version " + header.getInt(4));
+            int nbX = header.getInt(8);
+            int nbY = header.getInt(12);
+            int nbZ = header.getInt(16);
+            if (nbX <= 0 || nbY <= 0 || nbZ <= 0 || (long) nbX * nbY * nbZ > Integer.MAX_VALUE
+                    || channel.size() < HEADER_SIZE + (long) nbX * nbY * nbZ)
+                throw new IOException(file + " holds a damaged terrain");
+            return new MappedTerrain(channel, nbX, nbY, nbZ);
+        }
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the first four bytes of every terrain file, "HBTR" in ASCII.
+     */
+    private static final int MAGIC = 0x48425452;
+
+    /**
+     * Constant reflecting the version of the format of terrain files written by this class.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Constant reflecting the number of bytes in front of the first cube of a terrain file.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Constant reflecting the position in a terrain file of the byte telling whether its flags are valid.
+     */
+    private static final int VALID_FLAGS_POSITION = 20;
+
+    /**
+     * Constant reflecting the bits of the byte of a cube holding its feature.
+     */
+    private static final int FEATURE_MASK = 0x3F;
+
+    /**
+     * Constants reflecting the base 2 logarithm of the number of bytes mapped at once, and that number itself.
+     * 		A single mapping cannot exceed 2 gigabytes, so larger files are mapped in segments.
+     */
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    /**
+     * Variables registering the number of cubes of this terrain along the x, y and z axis.
+     */
+    private final int nbX;
+    private final int nbY;
+    private final int nbZ;
+
+    /**
+     * The consecutive segments of the file of this terrain.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Variable registering whether the flags of this terrain are valid.
+     */
+    private boolean validFlags;
+
+    /**
+     * Variable registering whether the file of this terrain claims that its flags are valid.
+     */
+    private boolean validOnFile;
+
+    /* Methods */
+
+    /**
+     * Return the number of cubes of this terrain along the x axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbX() {
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes of this terrain along the y axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbY() {
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes of this terrain along the z axis.
+     */
+    @Basic
+    @Raw
+    @Override
+    public int getNbZ() {
+        return this.nbZ;
+    }
+
+    /**
+     * Return the number of the geological feature of the cube with given x, y and z coordinate.
+     * 		The coordinate must lie within this terrain.
+     */
+    @Override
+    public int get(int x, int y, int z) {
+        return get(x + nbX * (y + nbY * z));
+    }
+
+    /**
+     * Return the number of the geological feature of the cube with the given linear index, which runs fastest along x
+     * and slowest along z.
+     */
+    @Override
+    public int get(int index) {
+        return getByte(index) & FEATURE_MASK;
+    }
+
+    /**
+     * Set the geological feature of the cube with given x, y and z coordinate to the feature with given number.
+     * 		The flags of the cube are left alone.
+     *
+     * @param	x
+     *			The x coordinate of the cube.
+     * @param	y
+     *			The y coordinate of the cube.
+     * @param	z
+     *			The z coordinate of the cube.
+     * @param	feature
+     *			The number of the new geological feature of the cube.
+     */
+    @Override
+    public void set(int x, int y, int z, int feature) {
+        int index = x + nbX * (y + nbY * z);
+        setByte(index, (getByte(index) & ~FEATURE_MASK) | (feature & FEATURE_MASK));
+    }
+
+    /**
+     * Return -1, since this terrain does not know which cubes are surrounded by cubes of the same feature.
+     */
+    @Override
+    public int getSurroundingFeature(int x, int y, int z) {
+        return -1;
+    }
+
+    /**
+     * Check whether the given flag is set for the cube with the given linear index.
+     */
+    @Override
+    public boolean getFlag(int index, int flag) {
+        return (getByte(index) & flag) != 0;
+    }
+
+    /**
+     * Set or clear the given flag for the cube with the given linear index.
+     */
+    @Override
+    public void setFlag(int index, int flag, boolean value) {
+        int current = getByte(index);
+        setByte(index, value ? (current | flag) : (current & ~flag));
+    }
+
+    /**
+     * Check whether the flags of this terrain are valid.
+     */
+    @Basic
+    @Raw
+    @Override
+    public boolean hasValidFlags() {
+        return this.validFlags;
+    }
+
+    /**
+     * Mark the flags of this terrain as valid or not.
+     *
+     * @param	valid
+     *			Whether the flags are valid.
+     * @post	The flags of this terrain are valid if and only if the given value is true.
+     * @post	If the flags are marked not valid, all flags are cleared.
+     * @post	The file of this terrain does not claim valid flags until this terrain is flushed. A world marks the flags
+     * 			of its terrain when it takes the terrain, so the file stops claiming them while the world writes to it.
+     */
+    @Override
+    public void setValidFlags(boolean valid) {
+        if (! valid) {
+            byte[] block = new byte[1 << 16];
+            for (int segment = 0; segment < segments.length; segment++) {
+                ByteBuffer buffer = segments[segment].duplicate();
+                buffer.position((segment == 0) ? HEADER_SIZE : 0);
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(block.length, buffer.remaining());
+                    int start = buffer.position();
+                    buffer.get(block, 0, length);
+                    for (int i = 0; i < length; i++)
+                        block[i] &= FEATURE_MASK;
+                    buffer.position(start);
+                    buffer.put(block, 0, length);
+                }
+            }
+        }
+        this.validFlags = valid;
+        clearValidOnFile();
+    }
+
+    /**
+     * Make the file of this terrain no longer claim that its flags are valid.
+     */
+    private void clearValidOnFile() {
+        if (validOnFile) {
+            segments[0].put(VALID_FLAGS_POSITION, (byte) 0);
+            segments[0].force();
+            this.validOnFile = false;
+        }
+    }
+
+    /**
+     * Return a chunked terrain holding the features of this terrain.
+     * 		All cubes are copied, so this takes a pass over the whole file.
+     */
+    @Override
+    public ChunkedTerrain copyFeatures() {
+        ChunkedTerrain copy = new ChunkedTerrain(nbX, nbY, nbZ, 0);
+        for (int z = 0; z < nbZ; z++)
+            for (int y = 0; y < nbY; y++)
+                for (int x = 0; x < nbX; x++)
+                    copy.set(x, y, z, get(x, y, z));
+        copy.compact();
+        return copy;
+    }
+
+    /**
+     * Return a set of the linear indices of the cubes for which the given flag is set, which later changes to this
+     * terrain do not affect. This takes a pass over the whole file.
+     */
+    @Override
+    public BitSet copyFlags(int flag) {
+        BitSet copy = new BitSet();
+        int nbCubes = nbX * nbY * nbZ;
+        for (int index = 0; index < nbCubes; index++) {
+            if (getFlag(index, flag))
+                copy.set(index);
+        }
+        return copy;
+    }
+
+    /**
+     * Write all changes to this terrain to its file.
+     * 		If the flags of this terrain are valid, the file claims so only once all cubes have been written.
+     */
+    public void flush() {
+        for (MappedByteBuffer segment: segments)
+            segment.force();
+        if (validFlags && ! validOnFile) {
+            segments[0].put(VALID_FLAGS_POSITION, (byte) 1);
+            segments[0].force();
+            this.validOnFile = true;
+        }
+    }
+
+    /**
+     * Set the feature of every cube of this terrain to the given feature, clearing its flags.
+     */
+    private void fill(byte feature) {
+        byte[] block = new byte[1 << 16];
+        Arrays.fill(block, feature);
+        for (int segment = 0; segment < segments.length; segment++) {
+            ByteBuffer buffer = segments[segment].duplicate();
+            buffer.position((segment == 0) ? HEADER_SIZE : 0);
+            while (buffer.hasRemaining())
+                buffer.put(block, 0, Math.min(block.length, buffer.remaining()));
+        }
+    }
+
+    /**
+     * Return the byte of the cube with the given linear index.
+     */
+    private int getByte(int index) {
+        long position = HEADER_SIZE + (long) index;
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Set the byte of the cube with the given linear index to the given value.
+     */
+    private void setByte(int index, int value) {
+        clearValidOnFile();
+        long position = HEADER_SIZE + (long) index;
+        segments[(int) (position >>> SEGMENT_BITS)].put((int) (position & (SEGMENT_SIZE - 1)), (byte) value);
+    }
+
+}
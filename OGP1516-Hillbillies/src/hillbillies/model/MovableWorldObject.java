@@ -29,7 +29,21 @@ public abstract class MovableWorldObject {
     private World world;
 	
     /**
-     * Variable registering the location of this movable world object.
+     * Variables registering the x, y and z coordinate of this movable world object.
+     * 		They are updated in place when this movable world object moves.
+     */
+    private double xCoordinate;
+    private double yCoordinate;
+    private double zCoordinate;
+
+    /**
+     * Variable registering whether this movable world object has been given a location.
+     */
+    private boolean hasLocation = false;
+
+    /**
+     * Variable registering the location of this movable world object, or null if it has not been requested since the last
+     * movement of this movable world object.
      */
     private VLocation location;
 	
@@ -38,6 +52,12 @@ public abstract class MovableWorldObject {
      */
     private IActivity activity;
 
+    /**
+     * Variable registering the identifier of this movable world object in the world's world map, or -1 if it is not
+     * registered.
+     */
+    private int registryId = -1;
+
     /* Methods */
     
     /**
@@ -95,11 +115,61 @@ public abstract class MovableWorldObject {
     @Basic
     @Raw
     public VLocation getLocation() {
+        if (this.location == null && this.hasLocation)
+            this.location = new VLocation(this.xCoordinate, this.yCoordinate, this.zCoordinate, this);
         return this.location;
     }
+
+    /**
+     * Return the x coordinate of this movable world object.
+     */
+    @Basic
+    @Raw
+    public double getXCoordinate() {
+        return this.xCoordinate;
+    }
+
+    /**
+     * Return the y coordinate of this movable world object.
+     */
+    @Basic
+    @Raw
+    public double getYCoordinate() {
+        return this.yCoordinate;
+    }
+
+    /**
+     * Return the z coordinate of this movable world object.
+     */
+    @Basic
+    @Raw
+    public double getZCoordinate() {
+        return this.zCoordinate;
+    }
+
+    /**
+     * Check whether this movable world object can have the given x, y and z coordinate as its coordinates.
+     *
+     * @param	x
+     *			The x coordinate to check.
+     * @param	y
+     *			The y coordinate to check.
+     * @param	z
+     *			The z coordinate to check.
+     * @return	True if and only if the coordinates lie within the borders of this movable world object's world and this
+     * 			movable world object can be located in the cube they lie in.
+     */
+    @Raw
+    public boolean canHaveAsCoordinates(double x, double y, double z) {
+        World world = this.getWorld();
+        return (x >= 0 && y >= 0 && z >= 0
+                && x <= world.getxSideSize() && y <= world.getySideSize() && z <= world.getzSideSize()
+                && world.canHaveAsCubeLocation((int) x, (int) y, (int) z, this));
+    }
 	
     /**
      * Set the location of this movable world object to the given x, y and z coordinate.
+     * 		The coordinates are updated in place, no new location is created.
      *
      * @param	x
      *			The x coordinate for this movable world object.
@@ -107,12 +177,21 @@ public abstract class MovableWorldObject {
      *			The y coordinate for this movable world object.
      * @param	z
      *			The z coordinate for this movable world object.
-     * @effect	The location of this movable world object is set to the location with given x, y and z coordinate.
+     * @post	The x, y and z coordinate of this movable world object are equal to the given x, y and z coordinate.
+     * @effect	This movable world object is registered at its new location in the world's world map.
+     * @throws	IllegalLocation
+     *			This movable world object cannot have the given coordinates as its coordinates.
      */
 	@Raw
-    public void setLocation(double x, double y, double z) {
-        VLocation location = new VLocation(x, y, z, this);
-        this.setLocation(location);
+    public void setLocation(double x, double y, double z) throws IllegalLocation {
+        if (! canHaveAsCoordinates(x, y, z))
+            throw new IllegalLocation();
+        this.xCoordinate = x;
+        this.yCoordinate = y;
+        this.zCoordinate = z;
+        this.hasLocation = true;
+        this.location = null;
+        this.register();
     }
 	
     /**
@@ -123,9 +202,8 @@ public abstract class MovableWorldObject {
      * @effect	The location of this movable world object is set to the location with the x, y and z coordinate supplied by the given array.
      */
 	@Raw
-    public void setLocation(double[] array) {
-        VLocation location = new VLocation(array[0], array[1], array[2], this);
-        this.setLocation(location);
+    public void setLocation(double[] array) throws IllegalLocation {
+        this.setLocation(array[0], array[1], array[2]);
     }
 	
     /**
@@ -139,30 +217,74 @@ public abstract class MovableWorldObject {
      */
     @Raw
     public void setLocation(VLocation location) throws IllegalLocation {
-        if ((! location.isValidLocation()) || location.getOccupant() == this)
+        if ((! location.isValidLocation()) || location.getOccupant() != this)
             throw new IllegalLocation();
+        this.setLocation(location.getXLocation(), location.getYLocation(), location.getZLocation());
         this.location = location;
-        this.register(location);
     }
 
     /**
-     * Register the given location and this movable world object in the world's world map.
+     * Set the location of this movable world object to the given x, y and z coordinate, as restored from a snapshot.
+     * 		Unlike setLocation, the coordinates are not checked against the terrain, since a restored object may be
+     * 		halfway a fall.
+     *
+     * @post	The x, y and z coordinate of this movable world object are equal to the given x, y and z coordinate.
+     * @effect	This movable world object is registered at its new location in the world's world map.
+     * @throws	IllegalLocation
+     *			The given coordinates lie outside the world of this movable world object.
+     */
+    @Raw
+    void restoreLocation(double x, double y, double z) throws IllegalLocation {
+        World world = this.getWorld();
+        if (! (x >= 0 && y >= 0 && z >= 0 && x <= world.getxSideSize() && y <= world.getySideSize() && z <= world.getzSideSize()))
+            throw new IllegalLocation();
+        this.xCoordinate = x;
+        this.yCoordinate = y;
+        this.zCoordinate = z;
+        this.hasLocation = true;
+        this.location = null;
+        this.register();
+    }
+
+    /**
+     * Return the identifier of this movable world object in the world's world map, or -1 if it is not registered.
+     */
+    @Basic
+    @Raw
+    public int getRegistryId() {
+        return this.registryId;
+    }
+
+    /**
+     * Check whether this movable world object is registered in the world's world map.
+     */
+    public boolean isRegistered() {
+        return this.registryId >= 0;
+    }
+
+    /**
+     * Register this movable world object at its current location in the world's world map.
      *
-     * @param	location
-     *			The location to register.
-     * @post	The given location and this movable world object are added in the world's world map.
+     * @post	This movable world object is registered in the world's world map under its current location.
      */
-    public void register(VLocation location) {
-        this.getWorld().getWorldMap().put(location, this);
+    public void register() {
+        WorldMap<VLocation, MovableWorldObject> worldMap = this.getWorld().getWorldMap();
+        if (this.registryId < 0)
+            this.registryId = worldMap.addObject(this);
+        else
+            worldMap.moved(this);
     }
 
     /**
-     * Unregister this movable world object and its location from the world's world map.
+     * Unregister this movable world object from the world's world map.
      *
-     * @post	This movable world object and its location are removed from the world's world map.
+     * @post	This movable world object is removed from the world's world map.
      */
     public void unregister() {
-        this.getWorld().getWorldMap().remove(this.getLocation());
+        if (this.registryId < 0)
+            return;
+        this.getWorld().getWorldMap().removeObject(this);
+        this.registryId = -1;
     }
     
     /**
@@ -0,0 +1,438 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.part2.listener.TerrainChangeListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A class of rewind histories, recording the state of a world after every advance of time so that any recent tick can
+ * be restored.
+ * 		The history is a ring buffer of ticks. Every so many ticks a keyframe is recorded: a copy of the terrain that
+ * 		shares its chunks with the world until the world changes them, and the serialized state of the units, objects
+ * 		and tasks as in a world snapshot. Every other tick only records a delta: the cubes changed since the previous
+ * 		tick with their new feature, taken from the terrain change log of the world, and the bytes of the serialized
+ * 		state that differ from the previous tick. Created, moved and removed objects and changed unit properties all
+ * 		show up as such differences. A tick is restored from the keyframe before it, with the deltas up to it applied.
+ * 		When the estimated memory use exceeds the budget, the oldest keyframe is dropped with its deltas.
+ * 		Tasks are recorded as in a world snapshot: a restored tick gets tasks whose statements are created anew from the
+ * 		programs they were made from by a task factory, queued at the same schedulers and assigned to the same units. A
+ * 		task that was being executed starts again from its first statement in the restored world, and tasks whose
+ * 		statements were not made by a task factory are not recorded at all, so they are missing from restored ticks.
+ *
+ * @invar	The first tick of the history is a keyframe.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class RewindHistory {
+
+	/**
+	 * Initialize this new rewind history of the given world, recording its current state as tick 0.
+	 *
+	 * @param	world
+	 *			The world to record.
+	 * @param	keyframeInterval
+	 *			The number of ticks from one keyframe to the next.
+	 * @param	memoryBudget
+	 *			The number of bytes the recorded ticks may take, estimated.
+	 * @throws	IllegalArgumentException
+	 *			The keyframe interval or the memory budget is not strictly positive.
+	 */
+    public RewindHistory(World world, int keyframeInterval, long memoryBudget) throws IllegalArgumentException {
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("Invalid keyframe interval " + keyframeInterval);
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("Invalid memory budget " + memoryBudget);
+        this.world = world;
+        this.keyframeInterval = keyframeInterval;
+        this.memoryBudget = memoryBudget;
+        recordKeyframe();
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the number of equal bytes that ends a run of differing bytes of a delta.
+     */
+    private static final int MIN_EQUAL_RUN = 8;
+
+    /**
+     * Variable registering the world this history records.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the number of ticks from one keyframe to the next.
+     */
+    private final int keyframeInterval;
+
+    /**
+     * Variable registering the number of bytes the recorded ticks may take.
+     */
+    private final long memoryBudget;
+
+    /**
+     * Queue registering the recorded ticks, oldest first.
+     */
+    private final ArrayDeque<Tick> ticks = new ArrayDeque<>();
+
+    /**
+     * Variables registering the number and the game time of the newest tick.
+     */
+    private long newestTick = 0;
+    private double time = 0;
+
+    /**
+     * Variable registering the newest keyframe.
+     */
+    private Tick lastKeyframe;
+
+    /**
+     * Variable registering the serialized state of the newest tick, which the next delta is taken against.
+     */
+    private byte[] lastState;
+
+    /**
+     * Variable registering the terrain version of the world at the newest tick.
+     */
+    private long lastTerrainVersion;
+
+    /**
+     * Set registering the chunks of the terrain of the newest keyframe that were changed in the world since, which the
+     * keyframe is now the only one to hold.
+     */
+    private final BitSet copiedChunks = new BitSet();
+
+    /**
+     * Variable registering the estimated number of bytes taken by the recorded ticks.
+     */
+    private long memoryUse = 0;
+
+    /* Methods */
+
+    /**
+     * Return the world this history records.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Return the number of bytes the recorded ticks of this history may take.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public long getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
+    /**
+     * Return the estimated number of bytes taken by the recorded ticks of this history.
+     * 		A delta counts its own bytes. A keyframe counts its state and the chunks of its terrain it holds on its own:
+     * 		those the world changed after the keyframe was recorded, or all chunks that are not uniform if the world
+     * 		does not store its terrain in chunks.
+     */
+    public long getMemoryUse() {
+        return this.memoryUse;
+    }
+
+    /**
+     * Return the number of the oldest tick that can be restored.
+     */
+    public long getOldestTick() {
+        return ticks.getFirst().number;
+    }
+
+    /**
+     * Return the number of the newest tick that can be restored.
+     * 		Tick 0 is the state in which the history was created, and every advance of time of the world adds a tick.
+     */
+    @Basic
+    @Raw
+    public long getNewestTick() {
+        return this.newestTick;
+    }
+
+    /**
+     * Return the game time of the newest tick, counted from tick 0.
+     */
+    @Basic
+    @Raw
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Record the state of the world after it advanced by the given amount of time as a new tick.
+     * 		This is called by the world at the end of each advance of time.
+     *
+     * @param	dt
+     *			The amount of time the world advanced.
+     */
+    void advanceTime(double dt) {
+        newestTick++;
+        time += dt;
+        int[] changes = world.getTerrainChangesSince(lastTerrainVersion);
+        //the world forgets changes after a while, so a tick with too many of them becomes a keyframe
+        if (changes == null || newestTick - lastKeyframe.number >= keyframeInterval)
+            recordKeyframe();
+        else
+            recordDelta(changes);
+        while (memoryUse > memoryBudget && ticks.getFirst() != lastKeyframe) {
+            do {
+                memoryUse -= ticks.removeFirst().size;
+            } while (ticks.getFirst().terrain == null);
+        }
+    }
+
+    /**
+     * Record the newest tick as a keyframe.
+     */
+    private void recordKeyframe() {
+        Tick tick = new Tick(newestTick, time);
+        tick.terrain = world.getTerrain().copyFeatures();
+        tick.state = WorldSnapshot.captureState(world);
+        tick.size = tick.state.length;
+        if (! (world.getTerrain() instanceof ChunkedTerrain))
+            tick.size += (long) tick.terrain.getNbMixedChunks() * ChunkedTerrain.CHUNK_BYTES;
+        copiedChunks.clear();
+        lastKeyframe = tick;
+        lastState = tick.state;
+        lastTerrainVersion = world.getTerrainVersion();
+        memoryUse += tick.size;
+        ticks.addLast(tick);
+    }
+
+    /**
+     * Record the newest tick as a delta, holding the given changed cubes.
+     */
+    private void recordDelta(int[] changes) {
+        Tick tick = new Tick(newestTick, time);
+        tick.cubes = changes;
+        tick.features = new byte[changes.length];
+        boolean shared = world.getTerrain() instanceof ChunkedTerrain;
+        ChunkedTerrain keyframeTerrain = lastKeyframe.terrain;
+        for (int i = 0; i < changes.length; i++) {
+            int[] location = world.getCubeLocation(changes[i]);
+            tick.features[i] = (byte) world.getCubeIDAt(location[0], location[1], location[2]);
+            if (shared && keyframeTerrain.getUniformFeature(location[0], location[1], location[2]) < 0) {
+                int chunk = keyframeTerrain.getChunk(location[0], location[1], location[2]);
+                if (! copiedChunks.get(chunk)) {
+                    copiedChunks.set(chunk);
+                    lastKeyframe.size += ChunkedTerrain.CHUNK_BYTES;
+                    memoryUse += ChunkedTerrain.CHUNK_BYTES;
+                }
+            }
+        }
+        byte[] state = WorldSnapshot.captureState(world);
+        tick.state = diff(lastState, state);
+        tick.size = tick.state.length + 5L * changes.length;
+        lastState = state;
+        lastTerrainVersion = world.getTerrainVersion();
+        memoryUse += tick.size;
+        ticks.addLast(tick);
+    }
+
+    /**
+     * Restore the world as it was at the tick with the given number into a new world, and return it.
+     * 		The world recorded by this history is not changed.
+     *
+     * @param	number
+     *			The number of the tick to restore.
+     * @param	changeListener
+     *			The terrain change listener for the new world.
+     * @throws	IllegalArgumentException
+     *			The tick with the given number is not recorded in this history.
+     * @throws	IOException
+     *			The recorded state could not be restored.
+     */
+    public World restore(long number, TerrainChangeListener changeListener) throws IllegalArgumentException, IOException {
+        if (number < getOldestTick() || number > getNewestTick())
+            throw new IllegalArgumentException("Tick " + number + " is not recorded");
+        List<Tick> segment = new ArrayList<>();
+        for (Tick tick : ticks) {
+            if (tick.number > number)
+                break;
+            if (tick.terrain != null)
+                segment.clear();
+            segment.add(tick);
+        }
+        ChunkedTerrain terrain = segment.get(0).terrain.copyFeatures();
+        byte[] state = segment.get(0).state;
+        int nbX = terrain.getNbX();
+        int nbXY = nbX * terrain.getNbY();
+        for (Tick tick : segment.subList(1, segment.size())) {
+            for (int i = 0; i < tick.cubes.length; i++) {
+                int index = tick.cubes[i];
+                terrain.set(index % nbX, (index % nbXY) / nbX, index / nbXY, tick.features[i]);
+            }
+            state = patch(state, tick.state);
+        }
+        return WorldSnapshot.read(terrain, state, changeListener);
+    }
+
+    /**
+     * Restore the world as it was the given number of seconds of game time before the newest tick into a new world,
+     * and return it.
+     * 		This is the newest tick at or before that time.
+     *
+     * @param	seconds
+     *			The game time to rewind.
+     * @param	changeListener
+     *			The terrain change listener for the new world.
+     * @throws	IllegalArgumentException
+     *			The given number of seconds is negative, or reaches back further than this history.
+     * @throws	IOException
+     *			The recorded state could not be restored.
+     */
+    public World rewind(double seconds, TerrainChangeListener changeListener)
+            throws IllegalArgumentException, IOException {
+        if (! (seconds >= 0))
+            throw new IllegalArgumentException("Invalid rewind of " + seconds + " seconds");
+        double target = time - seconds + 1e-9;
+        long number = -1;
+        for (Tick tick : ticks) {
+            if (tick.time > target)
+                break;
+            number = tick.number;
+        }
+        if (number < 0)
+            throw new IllegalArgumentException("Cannot rewind " + seconds + " seconds");
+        return restore(number, changeListener);
+    }
+
+    /**
+     * Return a delta turning the first given array into the second one.
+     * 		The delta holds the length of the second array, followed by pairs of runs: the number of bytes to copy from
+     * 		the first array, and the number of bytes that follow in the delta itself. Bytes after the last pair are
+     * 		copied from the first array. All numbers are unsigned variable-length integers, as in world files.
+     */
+    private static byte[] diff(byte[] from, byte[] to) {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writeLength(delta, to.length);
+        int position = 0;
+        int start = 0;
+        while (start < to.length) {
+            if (start < from.length && from[start] == to[start]) {
+                start++;
+                continue;
+            }
+            //a run of differing bytes ends at the first long enough run of equal bytes
+            int end = start + 1;
+            int equal = 0;
+            for (int i = end; i < to.length && equal < MIN_EQUAL_RUN; i++) {
+                if (i < from.length && from[i] == to[i]) {
+                    equal++;
+                } else {
+                    equal = 0;
+                    end = i + 1;
+                }
+            }
+            writeLength(delta, start - position);
+            writeLength(delta, end - start);
+            delta.write(to, start, end - start);
+            position = end;
+            start = end;
+        }
+        return delta.toByteArray();
+    }
+
+    /**
+     * Return the array the given delta, as returned by diff, turns the given array into.
+     */
+    private static byte[] patch(byte[] from, byte[] delta) {
+        int[] offset = {0};
+        byte[] to = new byte[readLength(delta, offset)];
+        int position = 0;
+        while (offset[0] < delta.length) {
+            int copied = readLength(delta, offset);
+            int changed = readLength(delta, offset);
+            System.arraycopy(from, position, to, position, copied);
+            position += copied;
+            System.arraycopy(delta, offset[0], to, position, changed);
+            position += changed;
+            offset[0] += changed;
+        }
+        if (position < to.length)
+            System.arraycopy(from, position, to, position, to.length - position);
+        return to;
+    }
+
+    /**
+     * Write the given length as an unsigned variable-length integer.
+     */
+    private static void writeLength(ByteArrayOutputStream out, int length) {
+        while (length >= 0x80) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+    }
+
+    /**
+     * Read an unsigned variable-length integer from the given array at the given offset, and move the offset past it.
+     */
+    private static int readLength(byte[] bytes, int[] offset) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int current = bytes[offset[0]++];
+            length |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0)
+                return length;
+        }
+    }
+
+    /**
+     * A class of recorded ticks, being either a keyframe or a delta.
+     */
+    private static class Tick {
+
+        private Tick(long number, double time) {
+            this.number = number;
+            this.time = time;
+        }
+
+        /**
+         * Variables registering the number and the game time of this tick.
+         */
+        private final long number;
+        private final double time;
+
+        /**
+         * Variable registering the copy of the terrain of a keyframe, or null for a delta.
+         */
+        private ChunkedTerrain terrain;
+
+        /**
+         * Variable registering the serialized state of a keyframe, or the delta of the serialized state of a delta.
+         */
+        private byte[] state;
+
+        /**
+         * Variables registering the indices of the cubes changed in a delta, and their new features.
+         */
+        private int[] cubes;
+        private byte[] features;
+
+        /**
+         * Variable registering the estimated number of bytes taken by this tick.
+         */
+        private long size;
+
+    }
+
+}
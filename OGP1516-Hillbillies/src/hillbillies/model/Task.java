@@ -65,6 +65,12 @@ public class Task implements Comparable {
 	 * Variable registering the root statement of this task.
 	 */
 	private Statement rootStatement;
+
+	/**
+	 * Variable registering the program the root statement of this task was created from, or null if it was not created
+	 * by a task factory.
+	 */
+	private TaskProgram program;
 	
 	/**
 	 * Variable registering the world of this task.
@@ -140,6 +146,28 @@ public class Task implements Comparable {
 			throw new IllegalArgumentException("A break statement can't be a root statement.");
 		this.rootStatement = rootStatement;
 	}
+
+	/**
+	 * Return the program the root statement of this task was created from, or null if it was not created by a task
+	 * factory.
+	 */
+	@Basic
+	@Raw
+	TaskProgram getProgram() {
+		return this.program;
+	}
+
+	/**
+	 * Set the program the root statement of this task was created from to the given program.
+	 *
+	 * @param	program
+	 * 			The program of the root statement of this task, or null if it is not known.
+	 * @post	The program of this task is equal to the given program.
+	 * 		  |	new.getProgram() == program
+	 */
+	void setProgram(TaskProgram program) {
+		this.program = program;
+	}
 		
 	/**
 	 * Return whether this task is being executed.
@@ -9,11 +9,52 @@ import hillbillies.part3.programs.ITaskFactory;
 import hillbillies.part3.programs.SourceLocation;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
 
+    /**
+     * Map registering the program of each statement and expression created by this factory.
+     */
+    private final Map<Object, TaskProgram> programs = new IdentityHashMap<>();
+
+    /**
+     * Register the program of the given statement or expression, created by a call of the given kind with the given
+     * variable name, coordinates and statements or expressions, and return it.
+     * 		Nothing is registered if the factory refused the call, or if one of the given statements or expressions was
+     * 		not created by this factory, since its program is not known.
+     */
+    private <T> T record(T created, TaskProgram.Kind kind, String name, int[] numbers, Object... parts) {
+        if (created == null)
+            return null;
+        TaskProgram[] partPrograms = new TaskProgram[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] == null)
+                continue;
+            partPrograms[i] = programs.get(parts[i]);
+            if (partPrograms[i] == null)
+                return created;
+        }
+        programs.put(created, new TaskProgram(kind, name, numbers, partPrograms));
+        return created;
+    }
+
+    /**
+     * Register the program of the given statement or expression, created by a call of the given kind with the given
+     * statements or expressions, and return it.
+     */
+    private <T> T record(T created, TaskProgram.Kind kind, Object... parts) {
+        return record(created, kind, null, NO_NUMBERS, parts);
+    }
+
+    /**
+     * Constant reflecting the coordinates given to a call that takes none.
+     */
+    private static final int[] NO_NUMBERS = new int[0];
+
 
     /**
      * Create a list of tasks from the given arguments.
@@ -36,6 +77,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
             Task task=new Task(name, priority);
             task.setSelected(loc);
             task.setRootStatement(activity);
+            task.setProgram(programs.get(activity));
             if (!task.isLegaltask()) {
                 throw new IllegalArgumentException("IllegalTaskSupplied");
             }
@@ -53,7 +95,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Statement createAssignment(String variableName, Expression value, SourceLocation sourceLocation) {
-        return Statement.newAssignstatement(variableName,value);
+        return record(Statement.newAssignstatement(variableName,value),
+                TaskProgram.Kind.ASSIGNMENT, variableName, NO_NUMBERS, value);
     }
 
     /**
@@ -66,7 +109,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createWhile(Expression condition, Statement body, SourceLocation sourceLocation) {
         if(!(condition instanceof BooleanExpression))return null;
-        return Statement.newWhileStatement((BooleanExpression) condition,body);
+        return record(Statement.newWhileStatement((BooleanExpression) condition,body),
+                TaskProgram.Kind.WHILE, condition, body);
     }
 
     /**
@@ -82,7 +126,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createIf(Expression condition, Statement ifBody, Statement elseBody, SourceLocation sourceLocation) {
         if(!(condition instanceof BooleanExpression))return null;
-        return Statement.newIfStatement((BooleanExpression) condition,ifBody,elseBody);
+        return record(Statement.newIfStatement((BooleanExpression) condition,ifBody,elseBody),
+                TaskProgram.Kind.IF, condition, ifBody, elseBody);
     }
 
     /**
@@ -93,7 +138,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Statement createBreak(SourceLocation sourceLocation) {
-        return Statement.newBreakStatement();
+        return record(Statement.newBreakStatement(), TaskProgram.Kind.BREAK);
     }
 
     /**
@@ -118,7 +163,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Statement createSequence(List<Statement> statements, SourceLocation sourceLocation) {
-        return Statement.newSequenceStatement(statements);
+        return record(Statement.newSequenceStatement(statements), TaskProgram.Kind.SEQUENCE, statements.toArray());
     }
 
     /**
@@ -130,7 +175,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createMoveTo(Expression position, SourceLocation sourceLocation) {
         if(!(position instanceof PositionExpression))return null;
-        return Statement.newMovetoStatement((PositionExpression)position);
+        return record(Statement.newMovetoStatement((PositionExpression)position), TaskProgram.Kind.MOVE_TO, position);
     }
 
     /**
@@ -142,7 +187,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createWork(Expression position, SourceLocation sourceLocation) {
         if(!(position instanceof PositionExpression))return null;
-        return Statement.newWorkStatement((PositionExpression)position);
+        return record(Statement.newWorkStatement((PositionExpression)position), TaskProgram.Kind.WORK, position);
     }
 
     /**
@@ -154,7 +199,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createFollow(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression))return null;
-        return Statement.newFollowStatement((UnitExpression)unit);
+        return record(Statement.newFollowStatement((UnitExpression)unit), TaskProgram.Kind.FOLLOW, unit);
     }
 
     /**
@@ -166,7 +211,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Statement createAttack(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression))return null;
-        return Statement.newAttackStatement((UnitExpression)unit);
+        return record(Statement.newAttackStatement((UnitExpression)unit), TaskProgram.Kind.ATTACK, unit);
     }
 
     /**
@@ -193,7 +238,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createIsSolid(Expression position, SourceLocation sourceLocation) {
         if(!(position instanceof PositionExpression)) return null;
-        return BooleanExpression.newIsSolidExpression((PositionExpression)position);
+        return record(BooleanExpression.newIsSolidExpression((PositionExpression)position),
+                TaskProgram.Kind.IS_SOLID, position);
     }
 
     /**
@@ -206,7 +252,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createIsPassable(Expression position, SourceLocation sourceLocation) {
         if(!(position instanceof PositionExpression)) return null;
-        return BooleanExpression.newIsPassableExpression((PositionExpression)position);
+        return record(BooleanExpression.newIsPassableExpression((PositionExpression)position),
+                TaskProgram.Kind.IS_PASSABLE, position);
     }
 
     /**
@@ -219,7 +266,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createIsFriend(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression)) return null;
-        return BooleanExpression.newIsFriendExpression((UnitExpression)unit);
+        return record(BooleanExpression.newIsFriendExpression((UnitExpression)unit), TaskProgram.Kind.IS_FRIEND, unit);
     }
 
     /**
@@ -232,7 +279,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createIsEnemy(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression)) return null;
-        return BooleanExpression.newIsEnemyExpression((UnitExpression)unit);
+        return record(BooleanExpression.newIsEnemyExpression((UnitExpression)unit), TaskProgram.Kind.IS_ENEMY, unit);
     }
 
     /**
@@ -245,7 +292,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createIsAlive(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression)) return null;
-        return BooleanExpression.newIsAliveExpression((UnitExpression)unit);
+        return record(BooleanExpression.newIsAliveExpression((UnitExpression)unit), TaskProgram.Kind.IS_ALIVE, unit);
     }
 
     /**
@@ -258,7 +305,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createCarriesItem(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression)) return null;
-        return BooleanExpression.newIsCarryingExpression((UnitExpression)unit);
+        return record(BooleanExpression.newIsCarryingExpression((UnitExpression)unit),
+                TaskProgram.Kind.CARRIES_ITEM, unit);
     }
 
     /**
@@ -271,7 +319,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createNot(Expression expression, SourceLocation sourceLocation) {
         if(!(expression instanceof BooleanExpression)) return null;
-        return BooleanExpression.newNotExpression((BooleanExpression) expression);
+        return record(BooleanExpression.newNotExpression((BooleanExpression) expression),
+                TaskProgram.Kind.NOT, expression);
     }
 
     /**
@@ -287,7 +336,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createAnd(Expression left, Expression right, SourceLocation sourceLocation) {
         if((!(right instanceof BooleanExpression))||(!(left instanceof BooleanExpression))) return null;
-        return BooleanExpression.newAndExpression((BooleanExpression) left,(BooleanExpression)right);
+        return record(BooleanExpression.newAndExpression((BooleanExpression) left,(BooleanExpression)right),
+                TaskProgram.Kind.AND, left, right);
     }
 
     /**
@@ -303,7 +353,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createOr(Expression left, Expression right, SourceLocation sourceLocation) {
         if((!(right instanceof BooleanExpression))||(!(left instanceof BooleanExpression))) return null;
-        return BooleanExpression.newOrExpression((BooleanExpression) left,(BooleanExpression)right);
+        return record(BooleanExpression.newOrExpression((BooleanExpression) left,(BooleanExpression)right),
+                TaskProgram.Kind.OR, left, right);
     }
 
     /**
@@ -314,7 +365,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createHerePosition(SourceLocation sourceLocation) {
-        return PositionExpression.newHereExpression();
+        return record(PositionExpression.newHereExpression(), TaskProgram.Kind.HERE);
     }
 
     /**
@@ -326,7 +377,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createLogPosition(SourceLocation sourceLocation) {
-        return PositionExpression.newPosLogExpression((UnitExpression)UnitExpression.newThisUnitExpression());
+        return record(PositionExpression.newPosLogExpression((UnitExpression)UnitExpression.newThisUnitExpression()),
+                TaskProgram.Kind.LOG);
     }
 
     /**
@@ -338,7 +390,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createBoulderPosition(SourceLocation sourceLocation) {
-        return PositionExpression.newPosBoulderExpression((UnitExpression)UnitExpression.newThisUnitExpression());
+        return record(PositionExpression.newPosBoulderExpression((UnitExpression)UnitExpression.newThisUnitExpression()),
+                TaskProgram.Kind.BOULDER);
     }
 
     /**
@@ -350,7 +403,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createWorkshopPosition(SourceLocation sourceLocation) {
-        return PositionExpression.newPosWorkshopExpression((UnitExpression)UnitExpression.newThisUnitExpression());
+        return record(PositionExpression.newPosWorkshopExpression((UnitExpression)UnitExpression.newThisUnitExpression()),
+                TaskProgram.Kind.WORKSHOP);
     }
 
     /**
@@ -362,7 +416,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createSelectedPosition(SourceLocation sourceLocation) {
-        return PositionExpression.newPosSelectedExpression();
+        return record(PositionExpression.newPosSelectedExpression(), TaskProgram.Kind.SELECTED);
     }
 
     /**
@@ -375,7 +429,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createNextToPosition(Expression position, SourceLocation sourceLocation) {
         if(!(position instanceof PositionExpression)) return null;
-        return PositionExpression.newNextToExpression((PositionExpression)position);
+        return record(PositionExpression.newNextToExpression((PositionExpression)position),
+                TaskProgram.Kind.NEXT_TO, position);
     }
 
     /**
@@ -387,7 +442,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
     @Override
     public Expression createPositionOf(Expression unit, SourceLocation sourceLocation) {
         if(!(unit instanceof UnitExpression)) return null;
-        return PositionExpression.newPosOfExpression((UnitExpression) unit);
+        return record(PositionExpression.newPosOfExpression((UnitExpression) unit), TaskProgram.Kind.POSITION_OF, unit);
     }
 
     /**
@@ -401,7 +456,8 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createLiteralPosition(int x, int y, int z, SourceLocation sourceLocation) {
-        return PositionExpression.newPosConstantExpression(new int[]{x,y,z});
+        return record(PositionExpression.newPosConstantExpression(new int[]{x,y,z}),
+                TaskProgram.Kind.LITERAL_POSITION, null, new int[]{x,y,z});
     }
 
     /**
@@ -412,7 +468,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createThis(SourceLocation sourceLocation) {
-        return UnitExpression.newThisUnitExpression();
+        return record(UnitExpression.newThisUnitExpression(), TaskProgram.Kind.THIS);
     }
 
     /**
@@ -423,7 +479,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createFriend(SourceLocation sourceLocation) {
-        return UnitExpression.newFriendExpression();
+        return record(UnitExpression.newFriendExpression(), TaskProgram.Kind.FRIEND);
     }
 
     /**
@@ -434,7 +490,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createEnemy(SourceLocation sourceLocation) {
-        return UnitExpression.newEnemyExpression();
+        return record(UnitExpression.newEnemyExpression(), TaskProgram.Kind.ENEMY);
     }
 
     /**
@@ -444,7 +500,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createAny(SourceLocation sourceLocation) {
-        return UnitExpression.newAnyExpression();
+        return record(UnitExpression.newAnyExpression(), TaskProgram.Kind.ANY);
     }
 
     /**
@@ -454,7 +510,7 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createTrue(SourceLocation sourceLocation) {
-        return BooleanExpression.newBooleanConstantExpression(true);
+        return record(BooleanExpression.newBooleanConstantExpression(true), TaskProgram.Kind.TRUE);
     }
 
     /**
@@ -464,6 +520,6 @@ public class TaskFactory implements ITaskFactory<Expression,Statement,Task>  {
      */
     @Override
     public Expression createFalse(SourceLocation sourceLocation) {
-        return BooleanExpression.newBooleanConstantExpression(false);
+        return record(BooleanExpression.newBooleanConstantExpression(false), TaskProgram.Kind.FALSE);
     }
 }
@@ -0,0 +1,222 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.EsotERICScript.Expressions.Expression;
+import hillbillies.model.EsotERICScript.Statements.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class of task programs, recording the call to a task factory that created a statement or expression, together with
+ * the programs of the statements and expressions given to that call.
+ * 		Statements keep their progress in themselves and a sequence even removes its statements while it is executed, so
+ * 		a statement cannot be saved as it is. Its program can: replaying it on a task factory creates the statement anew,
+ * 		as it was before it was executed.
+ *
+ * @invar	The number of parts, numbers and the presence of a name of each task program match its kind.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+final class TaskProgram {
+
+	/**
+	 * Initialize this new task program for a call of the given kind with the given arguments.
+	 *
+	 * @param	kind
+	 *			The kind of call.
+	 * @param	name
+	 *			The variable name given to the call, or null if the kind takes none.
+	 * @param	numbers
+	 *			The coordinates given to the call, or an empty array if the kind takes none.
+	 * @param	parts
+	 *			The programs of the statements and expressions given to the call, in order. A missing part, as the else
+	 *			body of an if statement without one, is null.
+	 * @throws	IllegalArgumentException
+	 *			The name, numbers or number of parts do not match the given kind.
+	 */
+    TaskProgram(Kind kind, String name, int[] numbers, TaskProgram[] parts) throws IllegalArgumentException {
+        if ((name != null) != kind.hasName || numbers.length != kind.nbNumbers
+                || (kind.nbParts >= 0 && parts.length != kind.nbParts))
+            throw new IllegalArgumentException("Invalid arguments for a task program of kind " + kind);
+        this.kind = kind;
+        this.name = name;
+        this.numbers = numbers.clone();
+        this.parts = parts.clone();
+    }
+
+    /* Variables */
+
+    /**
+     * Enumeration of the calls of a task factory that create a statement or expression, with the number of parts they
+     * take, or -1 if they take any number, whether they take a variable name and how many coordinates they take.
+     */
+    enum Kind {
+        ASSIGNMENT(1, true, 0), WHILE(2, false, 0), IF(3, false, 0), BREAK(0, false, 0), PRINT(1, false, 0),
+        SEQUENCE(-1, false, 0), MOVE_TO(1, false, 0), WORK(1, false, 0), FOLLOW(1, false, 0), ATTACK(1, false, 0),
+        READ_VARIABLE(0, true, 0), IS_SOLID(1, false, 0), IS_PASSABLE(1, false, 0), IS_FRIEND(1, false, 0),
+        IS_ENEMY(1, false, 0), IS_ALIVE(1, false, 0), CARRIES_ITEM(1, false, 0), NOT(1, false, 0), AND(2, false, 0),
+        OR(2, false, 0), HERE(0, false, 0), LOG(0, false, 0), BOULDER(0, false, 0), WORKSHOP(0, false, 0),
+        SELECTED(0, false, 0), NEXT_TO(1, false, 0), POSITION_OF(1, false, 0), LITERAL_POSITION(0, false, 3),
+        THIS(0, false, 0), FRIEND(0, false, 0), ENEMY(0, false, 0), ANY(0, false, 0), TRUE(0, false, 0),
+        FALSE(0, false, 0);
+
+        Kind(int nbParts, boolean hasName, int nbNumbers) {
+            this.nbParts = nbParts;
+            this.hasName = hasName;
+            this.nbNumbers = nbNumbers;
+        }
+
+        private final int nbParts;
+        private final boolean hasName;
+        private final int nbNumbers;
+    }
+
+    /**
+     * Variable registering the kind of call of this task program.
+     */
+    private final Kind kind;
+
+    /**
+     * Variable registering the variable name given to the call of this task program, or null if it takes none.
+     */
+    private final String name;
+
+    /**
+     * Array registering the coordinates given to the call of this task program.
+     */
+    private final int[] numbers;
+
+    /**
+     * Array registering the programs of the statements and expressions given to the call of this task program.
+     */
+    private final TaskProgram[] parts;
+
+    /* Methods */
+
+    /**
+     * Return the kind of call of this task program.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Return the variable name given to the call of this task program, or null if it takes none.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * Return a copy of the coordinates given to the call of this task program.
+     */
+    int[] getNumbers() {
+        return this.numbers.clone();
+    }
+
+    /**
+     * Return a copy of the programs of the statements and expressions given to the call of this task program.
+     */
+    TaskProgram[] getParts() {
+        return this.parts.clone();
+    }
+
+    /**
+     * Create the statement recorded by this task program anew with the given task factory.
+     *
+     * @throws	IllegalArgumentException
+     *			This task program does not create a statement.
+     */
+    Statement buildStatement(TaskFactory factory) throws IllegalArgumentException {
+        Object built = build(factory);
+        if (! (built instanceof Statement))
+            throw new IllegalArgumentException("The task program of kind " + kind + " does not create a statement");
+        return (Statement) built;
+    }
+
+    /**
+     * Create the statement or expression recorded by this task program anew with the given task factory, and return
+     * it, or return null if the factory refuses the call.
+     *
+     * @throws	IllegalArgumentException
+     *			A part of this task program creates a statement where an expression is expected, or the other way around.
+     */
+    private Object build(TaskFactory factory) throws IllegalArgumentException {
+        switch (kind) {
+            case ASSIGNMENT:	return factory.createAssignment(name, expression(factory, 0), null);
+            case WHILE:			return factory.createWhile(expression(factory, 0), statement(factory, 1), null);
+            case IF:			return factory.createIf(expression(factory, 0), statement(factory, 1), statement(factory, 2),
+                    					null);
+            case BREAK:			return factory.createBreak(null);
+            case PRINT:			return factory.createPrint(expression(factory, 0), null);
+            case SEQUENCE:		List<Statement> statements = new ArrayList<>(parts.length);
+            					for (int i = 0; i < parts.length; i++)
+            						statements.add(statement(factory, i));
+            					return factory.createSequence(statements, null);
+            case MOVE_TO:		return factory.createMoveTo(expression(factory, 0), null);
+            case WORK:			return factory.createWork(expression(factory, 0), null);
+            case FOLLOW:		return factory.createFollow(expression(factory, 0), null);
+            case ATTACK:		return factory.createAttack(expression(factory, 0), null);
+            case READ_VARIABLE:	return factory.createReadVariable(name, null);
+            case IS_SOLID:		return factory.createIsSolid(expression(factory, 0), null);
+            case IS_PASSABLE:	return factory.createIsPassable(expression(factory, 0), null);
+            case IS_FRIEND:		return factory.createIsFriend(expression(factory, 0), null);
+            case IS_ENEMY:		return factory.createIsEnemy(expression(factory, 0), null);
+            case IS_ALIVE:		return factory.createIsAlive(expression(factory, 0), null);
+            case CARRIES_ITEM:	return factory.createCarriesItem(expression(factory, 0), null);
+            case NOT:			return factory.createNot(expression(factory, 0), null);
+            case AND:			return factory.createAnd(expression(factory, 0), expression(factory, 1), null);
+            case OR:			return factory.createOr(expression(factory, 0), expression(factory, 1), null);
+            case HERE:			return factory.createHerePosition(null);
+            case LOG:			return factory.createLogPosition(null);
+            case BOULDER:		return factory.createBoulderPosition(null);
+            case WORKSHOP:		return factory.createWorkshopPosition(null);
+            case SELECTED:		return factory.createSelectedPosition(null);
+            case NEXT_TO:		return factory.createNextToPosition(expression(factory, 0), null);
+            case POSITION_OF:	return factory.createPositionOf(expression(factory, 0), null);
+            case LITERAL_POSITION:	return factory.createLiteralPosition(numbers[0], numbers[1], numbers[2], null);
+            case THIS:			return factory.createThis(null);
+            case FRIEND:		return factory.createFriend(null);
+            case ENEMY:			return factory.createEnemy(null);
+            case ANY:			return factory.createAny(null);
+            case TRUE:			return factory.createTrue(null);
+            case FALSE:			return factory.createFalse(null);
+            default:			throw new IllegalArgumentException("Unknown kind of task program " + kind);
+        }
+    }
+
+    /**
+     * Create the statement recorded by the part of this task program at the given position anew with the given task
+     * factory, or return null if that part is missing.
+     */
+    private Statement statement(TaskFactory factory, int position) throws IllegalArgumentException {
+        Object built = (parts[position] == null) ? null : parts[position].build(factory);
+        if (built != null && ! (built instanceof Statement))
+            throw new IllegalArgumentException("A statement was expected in a task program of kind " + kind);
+        return (Statement) built;
+    }
+
+    /**
+     * Create the expression recorded by the part of this task program at the given position anew with the given task
+     * factory, or return null if that part is missing.
+     */
+    private Expression expression(TaskFactory factory, int position) throws IllegalArgumentException {
+        Object built = (parts[position] == null) ? null : parts[position].build(factory);
+        if (built != null && ! (built instanceof Expression))
+            throw new IllegalArgumentException("An expression was expected in a task program of kind " + kind);
+        return (Expression) built;
+    }
+
+}
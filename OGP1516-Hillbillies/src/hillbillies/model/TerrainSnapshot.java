@@ -0,0 +1,187 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+
+/**
+ * A class of snapshots of the cubes units can stand in at one terrain version of a world.
+ * 		A snapshot never changes once it is taken, so any thread can search paths on it while the world advances. It
+ * 		holds one bit per cube, in blocks of BLOCK_SIZE cubes by linear index. A snapshot taken after a few terrain
+ * 		changes shares the blocks of the previous snapshot in which no cube changed, and only copies the others.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class TerrainSnapshot implements TerrainView {
+
+	/**
+	 * Initialize this new snapshot of the given world at its current terrain version.
+	 *
+	 * @param	world
+	 *			The world to take this new snapshot of.
+	 */
+    TerrainSnapshot(World world) {
+        this.nbX = world.getxSideSize();
+        this.nbY = world.getySideSize();
+        this.nbZ = world.getzSideSize();
+        this.terrainVersion = world.getTerrainVersion();
+        long[] words = world.getTerrain().copyFlags(TerrainStorage.FLAG_STANDABLE).toLongArray();
+        this.blocks = new long[(getNbCubes() + BLOCK_SIZE - 1) / BLOCK_SIZE][];
+        for (int block = 0; block < blocks.length; block++) {
+            blocks[block] = new long[BLOCK_WORDS];
+            int from = block * BLOCK_WORDS;
+            if (from < words.length)
+                System.arraycopy(words, from, blocks[block], 0, Math.min(BLOCK_WORDS, words.length - from));
+        }
+    }
+
+	/**
+	 * Initialize this new snapshot of the given world at its current terrain version from the given previous snapshot,
+	 * given the cubes changed since.
+	 *
+	 * @param	world
+	 *			The world to take this new snapshot of.
+	 * @param	previous
+	 *			The previous snapshot of the given world.
+	 * @param	changes
+	 *			The linear indices of the cubes changed since the terrain version of the previous snapshot.
+	 */
+    TerrainSnapshot(World world, TerrainSnapshot previous, int[] changes) {
+        this.nbX = previous.nbX;
+        this.nbY = previous.nbY;
+        this.nbZ = previous.nbZ;
+        this.terrainVersion = world.getTerrainVersion();
+        this.blocks = previous.blocks.clone();
+        boolean[] copied = new boolean[blocks.length];
+        for (int change : changes) {
+            int x = change % nbX;
+            int y = (change / nbX) % nbY;
+            int z = change / (nbX * nbY);
+            //whether a unit can stand in a cube depends on its neighbours, so those may have changed as well
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, nbX - 1); nx++)
+                for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, nbY - 1); ny++)
+                    for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, nbZ - 1); nz++)
+                        setStandable(getCubeIndex(nx, ny, nz), world.isStandable(nx, ny, nz), copied);
+        }
+    }
+
+    /* Variables */
+
+    /**
+     * Variables registering the number of cubes of this snapshot along the x, y and z axis.
+     */
+    private final int nbX;
+    private final int nbY;
+    private final int nbZ;
+
+    /**
+     * Constant reflecting the number of cubes in a block of a snapshot.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Constant reflecting the number of words holding the bits of a block.
+     */
+    private static final int BLOCK_WORDS = BLOCK_SIZE / Long.SIZE;
+
+    /**
+     * Array registering, per block of cubes by linear index, the bits of the cubes units can stand in. Blocks may be
+     * shared with other snapshots of the same world, so they are never changed once this snapshot is taken.
+     */
+    private final long[][] blocks;
+
+    /**
+     * Variable registering the terrain version of the world this snapshot was taken at.
+     */
+    private final long terrainVersion;
+
+    /* Methods */
+
+    @Override
+    @Basic
+    @Raw
+    @Immutable
+    public int getxSideSize() {
+        return this.nbX;
+    }
+
+    @Override
+    @Basic
+    @Raw
+    @Immutable
+    public int getySideSize() {
+        return this.nbY;
+    }
+
+    @Override
+    @Basic
+    @Raw
+    @Immutable
+    public int getzSideSize() {
+        return this.nbZ;
+    }
+
+    @Override
+    public int getNbCubes() {
+        return nbX * nbY * nbZ;
+    }
+
+    @Override
+    public boolean isWithinBorders(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < nbX && y < nbY && z < nbZ;
+    }
+
+    @Override
+    public int getCubeIndex(int x, int y, int z) {
+        return x + nbX * (y + nbY * z);
+    }
+
+    @Override
+    public boolean isStandable(int x, int y, int z) {
+        return isWithinBorders(x, y, z) && isStandableAtIndex(getCubeIndex(x, y, z));
+    }
+
+    /**
+     * Check whether a unit can stand in the cube with the given linear index in this snapshot.
+     */
+    private boolean isStandableAtIndex(int index) {
+        return (blocks[index / BLOCK_SIZE][(index % BLOCK_SIZE) / Long.SIZE] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set whether a unit can stand in the cube with the given linear index while this snapshot is taken, copying its
+     * block first unless the given array registers that it was copied already.
+     */
+    private void setStandable(int index, boolean flag, boolean[] copied) {
+        if (isStandableAtIndex(index) == flag)
+            return;
+        int block = index / BLOCK_SIZE;
+        if (! copied[block]) {
+            blocks[block] = blocks[block].clone();
+            copied[block] = true;
+        }
+        blocks[block][(index % BLOCK_SIZE) / Long.SIZE] ^= 1L << index;
+    }
+
+    /**
+     * Check whether this snapshot shares the block holding the cube with the given linear index with the given snapshot.
+     */
+    boolean sharesBlock(TerrainSnapshot other, int index) {
+        return this.blocks[index / BLOCK_SIZE] == other.blocks[index / BLOCK_SIZE];
+    }
+
+    /**
+     * Return the terrain version of the world this snapshot was taken at.
+     */
+    @Override
+    @Basic
+    @Raw
+    @Immutable
+    public long getTerrainVersion() {
+        return this.terrainVersion;
+    }
+
+}
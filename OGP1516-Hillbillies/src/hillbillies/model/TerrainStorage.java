@@ -0,0 +1,99 @@
+package hillbillies.model;
+
+import java.util.BitSet;
+
+/**
+ * An interface for storages registering the number of the geological feature of every cube of a world, together with
+ * a few flags per cube that the world derives from its terrain.
+ * 		The flags are only meaningful while they are marked valid; a world marks them valid once it has derived them and
+ * 		keeps them up to date while it changes the terrain. A storage whose flags are valid lets a new world skip deriving
+ * 		them again. Changing a storage that a world uses other than through that world is not supported.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public interface TerrainStorage {
+
+    /**
+     * The flag registering that a unit can stand in a cube.
+     */
+    int FLAG_STANDABLE = 0x40;
+
+    /**
+     * The flag registering that a solid cube is not connected to a border of the world.
+     */
+    int FLAG_DISCONNECTED = 0x80;
+
+    /**
+     * Return the number of cubes of this storage along the x axis.
+     */
+    int getNbX();
+
+    /**
+     * Return the number of cubes of this storage along the y axis.
+     */
+    int getNbY();
+
+    /**
+     * Return the number of cubes of this storage along the z axis.
+     */
+    int getNbZ();
+
+    /**
+     * Return the number of the geological feature of the cube with given x, y and z coordinate.
+     * 		The coordinate must lie within this storage.
+     */
+    int get(int x, int y, int z);
+
+    /**
+     * Return the number of the geological feature of the cube with the given linear index, which runs fastest along x
+     * and slowest along z.
+     */
+    int get(int index);
+
+    /**
+     * Set the geological feature of the cube with given x, y and z coordinate to the feature with given number.
+     */
+    void set(int x, int y, int z, int feature);
+
+    /**
+     * Return the number of the geological feature shared by the cube with given x, y and z coordinate and all its
+     * neighbours, or -1 if this storage does not know of such a feature.
+     */
+    int getSurroundingFeature(int x, int y, int z);
+
+    /**
+     * Check whether the given flag is set for the cube with the given linear index.
+     */
+    boolean getFlag(int index, int flag);
+
+    /**
+     * Set or clear the given flag for the cube with the given linear index.
+     */
+    void setFlag(int index, int flag, boolean value);
+
+    /**
+     * Check whether the flags of this storage are valid.
+     */
+    boolean hasValidFlags();
+
+    /**
+     * Mark the flags of this storage as valid or not.
+     */
+    void setValidFlags(boolean valid);
+
+    /**
+     * Return a terrain holding the features of this storage, which later changes to this storage do not affect.
+     * 		The flags are not copied.
+     */
+    ChunkedTerrain copyFeatures();
+
+    /**
+     * Return a set of the linear indices of the cubes for which the given flag is set, which later changes to this
+     * storage do not affect.
+     */
+    BitSet copyFlags(int flag);
+
+}
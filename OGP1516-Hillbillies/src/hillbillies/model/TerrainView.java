@@ -0,0 +1,57 @@
+package hillbillies.model;
+
+/**
+ * An interface for views on the terrain of a world as path searches see it: its size, and the cubes units can stand in.
+ * 		A world is the live view on its own terrain. A terrain snapshot is a view that never changes, so searches can
+ * 		run on it outside the thread that advances the world.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public interface TerrainView {
+
+    /**
+     * Return the number of cubes of this view along the x axis.
+     */
+    int getxSideSize();
+
+    /**
+     * Return the number of cubes of this view along the y axis.
+     */
+    int getySideSize();
+
+    /**
+     * Return the number of cubes of this view along the z axis.
+     */
+    int getzSideSize();
+
+    /**
+     * Return the number of cubes of this view.
+     */
+    int getNbCubes();
+
+    /**
+     * Check whether the cube with given x, y and z coordinate lies within the borders of this view.
+     */
+    boolean isWithinBorders(int x, int y, int z);
+
+    /**
+     * Return the linear index of the cube with given x, y and z coordinate, which runs fastest along x and slowest
+     * along z.
+     */
+    int getCubeIndex(int x, int y, int z);
+
+    /**
+     * Check whether a unit can stand in the cube with given x, y and z coordinate.
+     * 		False if the cube lies outside this view.
+     */
+    boolean isStandable(int x, int y, int z);
+
+    /**
+     * Return the terrain version of the world this view shows.
+     */
+    long getTerrainVersion();
+
+}
@@ -0,0 +1,221 @@
+package hillbillies.model;
+
+import hillbillies.model.exceptions.MapFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A class of readers of maps in the text .wrld format.
+ * 		The first line holds the number of cubes along the x, y and z axis. Then follows a layer per z coordinate, from
+ * 		the top down: an empty line followed by a row per y coordinate, holding a character per cube: '.' for air, 'R'
+ * 		for rock, 'S' for wood and 'W' for a workshop. Whitespace around a row is ignored, as is anything after the last
+ * 		layer.
+ * 		The bytes of the stream are parsed in a single pass through a buffer of their own, straight into the chunks of a
+ * 		terrain; nothing is allocated per line or per cube. A malformed map is reported with the line and column of the
+ * 		first character that does not fit.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class TextMapReader {
+
+	/**
+	 * Initialize this new reader reading from the given stream.
+	 *
+	 * @param	in
+	 *			The stream to read the map from.
+	 */
+    public TextMapReader(InputStream in) {
+        this.in = in;
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the value returned at the end of the stream.
+     */
+    private static final int END = -1;
+
+    /**
+     * Table registering the number of the geological feature for each character of a row, or -1 for characters that do
+     * not denote a feature.
+     */
+    private static final byte[] FEATURES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(FEATURES, (byte) -1);
+        FEATURES['.'] = 0;
+        FEATURES['R'] = 1;
+        FEATURES['S'] = 2;
+        FEATURES['W'] = 3;
+    }
+
+    /**
+     * Variable registering the stream this reader reads from.
+     */
+    private final InputStream in;
+
+    /**
+     * Buffer registering the bytes read from the stream but not yet parsed.
+     */
+    private final byte[] buffer = new byte[1 << 16];
+
+    /**
+     * Variables registering the position of the next byte to parse in the buffer, and the number of bytes in it.
+     */
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * Variables registering the line and the column of the last byte parsed, both starting at 1.
+     */
+    private int line = 1;
+    private int column = 0;
+
+    /* Methods */
+
+    /**
+     * Read the map in the file at the given path into a new chunked terrain, and return it.
+     *
+     * @throws	MapFormatException
+     *			The file does not hold a map in the text format.
+     * @throws	IOException
+     *			The file could not be read.
+     */
+    public static ChunkedTerrain read(Path file) throws MapFormatException, IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new TextMapReader(in).read();
+        }
+    }
+
+    /**
+     * Read the map from the stream of this reader into a new chunked terrain, and return it.
+     * 		The stream is not closed.
+     *
+     * @return	A compacted chunked terrain holding the features of the map.
+     * @throws	MapFormatException
+     *			The stream does not hold a map in the text format.
+     * @throws	IOException
+     *			Reading from the stream failed.
+     */
+    public ChunkedTerrain read() throws MapFormatException, IOException {
+        int nbX = readSize();
+        int nbY = readSize();
+        int nbZ = readSize();
+        endLine("the size", false);
+        if ((long) nbX * nbY * nbZ > Integer.MAX_VALUE)
+            throw new MapFormatException("The map holds too many cubes", line, column);
+        ChunkedTerrain terrain = new ChunkedTerrain(nbX, nbY, nbZ, 0);
+        for (int z = nbZ - 1; z >= 0; z--) {
+            endLine("the empty line above layer z=" + z, false);
+            for (int y = 0; y < nbY; y++) {
+                skipWhitespace();
+                for (int x = 0; x < nbX; x++) {
+                    int current = peek();
+                    if (current == END || current == '\n')
+                        throw new MapFormatException("Row z=" + z + ", y=" + y + " has only " + x + " of " + nbX
+                                + " cubes", line, column + 1);
+                    int feature = (current < FEATURES.length) ? FEATURES[current] : -1;
+                    if (feature < 0)
+                        throw new MapFormatException("Unknown cube type '" + (char) current + "'", line, column + 1);
+                    if (feature != 0)
+                        terrain.set(x, y, z, feature);
+                    skip();
+                }
+                endLine("row z=" + z + ", y=" + y, z == 0 && y == nbY - 1);
+            }
+        }
+        terrain.compact();
+        return terrain;
+    }
+
+    /**
+     * Read a strictly positive size, preceded by optional whitespace on the same line.
+     *
+     * @throws	MapFormatException
+     *			No such size follows.
+     */
+    private int readSize() throws MapFormatException, IOException {
+        skipWhitespace();
+        int current = peek();
+        if (current < '0' || current > '9')
+            throw new MapFormatException("Expected a size", line, column + 1);
+        long size = 0;
+        while (current >= '0' && current <= '9') {
+            size = 10 * size + (current - '0');
+            if (size > Integer.MAX_VALUE)
+                throw new MapFormatException("The size is too large", line, column + 1);
+            skip();
+            current = peek();
+        }
+        if (size == 0)
+            throw new MapFormatException("The size must be strictly positive", line, column);
+        return (int) size;
+    }
+
+    /**
+     * Read the rest of the current line, which may only hold whitespace, including the end of the line.
+     *
+     * @param	what
+     *			A description of what should end at this point, for the error message.
+     * @param	last
+     *			Whether the stream may end here instead of the line.
+     * @throws	MapFormatException
+     *			The line holds anything else, or the stream ends where it may not.
+     */
+    private void endLine(String what, boolean last) throws MapFormatException, IOException {
+        skipWhitespace();
+        int current = peek();
+        if (current == END) {
+            if (last)
+                return;
+            throw new MapFormatException("Unexpected end of file after " + what, line, column + 1);
+        }
+        if (current != '\n')
+            throw new MapFormatException("Unexpected '" + (char) current + "' after " + what, line, column + 1);
+        skip();
+    }
+
+    /**
+     * Skip whitespace on the current line.
+     * 		As for String.trim, any character up to a space is whitespace.
+     */
+    private void skipWhitespace() throws IOException {
+        int current = peek();
+        while (current != END && current != '\n' && current <= ' ') {
+            skip();
+            current = peek();
+        }
+    }
+
+    /**
+     * Return the next byte of the stream without parsing it, or END at the end of the stream.
+     */
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = Math.max(in.read(buffer, 0, buffer.length), 0);
+            position = 0;
+            if (limit == 0)
+                return END;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Parse the byte returned by the last call to peek.
+     */
+    private void skip() {
+        if (buffer[position++] == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+    }
+
+}
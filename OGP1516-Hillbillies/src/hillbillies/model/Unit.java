@@ -234,6 +234,59 @@ public class Unit extends MovableWorldObject {
         this.setActivity(new NoActivity());
     }
 
+    /**
+     * Initialize this new unit with given name, given weight, given strength, given agility, given toughness, given default
+     * behaviour state, given world and given faction, without a location.
+     * 		Used to restore units from a snapshot: the properties are not limited to their range upon creation, and the
+     * 		unit joins the given faction instead of being assigned one. The location is restored afterwards.
+     *
+     * @param	name
+     * 			The name for this unit.
+     * @param	weight
+     * 			The weight for this unit.
+     * @param	strength
+     * 			The strength for this unit.
+     * @param	agility
+     * 			The agility for this unit.
+     * @param	toughness
+     * 			The toughness for this unit.
+     * @param	enableDefaultBehavior
+     * 			The state of behaviour for this unit.
+     * @param	world
+     * 			The world for this unit.
+     * @param	faction
+     * 			The faction for this unit, or null if this unit founds a new faction.
+     * @effect	The name of this new unit is set to the given name.
+     *		  |	this.setName(name)
+     * @effect	The agility, strength, toughness and weight of this unit are set to the given agility, strength, toughness
+     * 			and weight, in that order.
+     * @effect	The initial state of behavior of this new unit is set according to the given flag.
+     *		  |	this.setDefaultBehavior(enableDefaultBehavior)
+     * @effect	The world of this new unit is set to the given world.
+     *		  |	this.setWorld(world)
+     * @effect	If the given faction is effective, this unit is added to it. Otherwise this unit founds a new faction.
+     * @effect	The activity of this new unit is set to none.
+     * 		  |	this.setActivity(new NoActivity)
+     */
+    Unit(String name, int weight, int strength, int agility, int toughness, boolean enableDefaultBehavior, World world,
+         Faction faction) throws IllegalArgumentException {
+        this.setName(name);
+        propAssignedUponCreation = true;
+        this.setAgility(agility);
+        this.setStrength(strength);
+        this.setToughness(toughness);
+        this.setWeight(weight);
+        this.setDefaultBehavior(enableDefaultBehavior);
+        this.setWorld(world);
+        if (faction == null) {
+            this.faction = new Faction(this, world);
+        } else {
+            faction.addUnit(this);
+            this.faction = faction;
+        }
+        this.setActivity(new NoActivity());
+    }
+
     /* Variables */
     /**
      * Variable registering the name of this unit.
@@ -388,7 +441,7 @@ public class Unit extends MovableWorldObject {
      */
     @Basic
     @Raw
-    private double getTimeSinceLastRest() {
+    double getTimeSinceLastRest() {
     	return this.timeSinceLastRest;
     }
     
@@ -470,10 +523,10 @@ public class Unit extends MovableWorldObject {
      * 			are uppercase or lowercase letters, single or double quotes or spaces.
      *		  |	result == (name.length() >= 2)
      *		  |		&& Character.isUpperCase(name.charAt(0))
-     *		  |		&& "[A-Z | a-z | \" | \' | \\s]*".matches(name)
+     *		  |		&& name.matches("[A-Za-z\"'\\s]*")
      */
     private static boolean isValidName(String name) {
-        return (name.length() >= 2) && Character.isUpperCase(name.charAt(0)) && "[A-Z | a-z | \" | \' | \\s]*".matches(name);
+        return (name.length() >= 2) && Character.isUpperCase(name.charAt(0)) && name.matches("[A-Za-z\"'\\s]*");
     }
 
     /**
@@ -1204,7 +1257,7 @@ public class Unit extends MovableWorldObject {
      */
     @Basic
     @Raw
-    private int getXPUsed() {
+    int getXPUsed() {
     	return this.xpused;
     }
     
@@ -1445,4 +1498,37 @@ public class Unit extends MovableWorldObject {
         } else
             this.setActivity(new NoActivity());
     }
+
+    /**
+     * Restore the experience and the time since the last rest of this unit from a snapshot.
+     * 		The experience points are not spent again.
+     *
+     * @param	xp
+     * 			The experience points of this unit.
+     * @param	xpUsed
+     * 			The experience points of this unit already used to increase its properties.
+     * @param	timeSinceLastRest
+     * 			The time since this unit rested for the last time.
+     */
+    void restore(int xp, int xpUsed, double timeSinceLastRest) throws IllegalTimeException {
+        this.xp = xp;
+        this.xpused = xpUsed;
+        this.setTimeSinceLastRest(timeSinceLastRest);
+    }
+
+    /**
+     * Restore the paused activity and the task of this unit from a snapshot.
+     * 		The task is not checked again, since it was checked when its statements were created anew.
+     *
+     * @param	pausedActivity
+     * 			The paused activity of this unit, or null if it has none.
+     * @param	task
+     * 			The task of this unit, or null if it has none.
+     */
+    void restore(IActivity pausedActivity, Task task) {
+        if (pausedActivity != null)
+            this.setPausedActivity(pausedActivity);
+        this.task = task;
+        this.hasTask = (task != null);
+    }
 }
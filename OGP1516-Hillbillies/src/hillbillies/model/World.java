@@ -3,27 +3,32 @@ package hillbillies.model;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.CubeObjects.*;
+import hillbillies.model.activities.ClusterGraph;
+import hillbillies.model.activities.Fall;
+import hillbillies.model.activities.FlowFieldCache;
+import hillbillies.model.activities.PathRequestService;
 import hillbillies.model.exceptions.IllegalLocation;
 import hillbillies.model.exceptions.IllegalTimeException;
 import hillbillies.model.exceptions.SyntaxError;
 import hillbillies.part2.listener.TerrainChangeListener;
-import hillbillies.util.ConnectedToBorder;
 import ogp.framework.util.Util;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * A class of worlds involving a cube world and a listener of world changes.
  * 
- * @invar  The CubeWorld of each World must be a valid CubeWorld for any World. 
- *       | isValidCubeWorld(getCubeWorld())
+ * @invar  The terrain of each World holds the geological feature of every cube of that World.
+ *       | getTerrain().getNbX() == getxSideSize() && getTerrain().getNbY() == getySideSize()
+ *       |	&& getTerrain().getNbZ() == getzSideSize()
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
  * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica  
  * 			https://github.com/julieallard/HillBilliesOGP.git
  */
-public class World {
+public class World implements TerrainView {
 
     /**
      * Initialize this new world with given CubeWorld.
@@ -34,13 +39,32 @@ public class World {
      */
     public World(int[][][] CubeWorld, TerrainChangeListener changeListener) throws IllegalLocation, IllegalArgumentException {
         this.setWorldMap(new WorldMap<>());
-        this.setxSideSize(CubeWorld[0].length);
-        this.setySideSize(CubeWorld[1].length);
-        this.setzSideSize(CubeWorld[2].length);
-        this.borderConnect = new ConnectedToBorder(getxSideSize(), getySideSize(), getzSideSize());
+        this.setxSideSize(CubeWorld.length);
+        this.setySideSize(CubeWorld[0].length);
+        this.setzSideSize(CubeWorld[0][0].length);
+        this.borderConnect = new BorderConnectivity(getxSideSize(), getySideSize(), getzSideSize());
         this.setCubeWorld(CubeWorld);
         this.changeListener = changeListener;
     }
+
+    /**
+     * Initialize this new world with given terrain.
+     * 		Unlike a cube world, a terrain need not hold a number for every cube on the heap, so this is the way to create
+     * 		very large worlds: a chunked terrain collapses uniform parts, and a mapped terrain keeps everything in a file.
+     *
+     * @param  terrain
+     * 		   The terrain with an allocation of the geological features for this new World.
+     * @effect The terrain of this new world is set to the given terrain.
+     */
+    public World(TerrainStorage terrain, TerrainChangeListener changeListener) throws IllegalArgumentException {
+        this.setWorldMap(new WorldMap<>());
+        this.setxSideSize(terrain.getNbX());
+        this.setySideSize(terrain.getNbY());
+        this.setzSideSize(terrain.getNbZ());
+        this.borderConnect = new BorderConnectivity(getxSideSize(), getySideSize(), getzSideSize());
+        this.setTerrain(terrain);
+        this.changeListener = changeListener;
+    }
     
     /**
      * Variable registering the changes of terrains of this World.
@@ -50,18 +74,84 @@ public class World {
     /**
      * Variable registering the solid and non-solid state of neigboring cubes (of neighboring cubes etc.) of this World.
      */
-    public final ConnectedToBorder borderConnect;
+    public final BorderConnectivity borderConnect;
     
     /**
-     * Variable registering the cubes of this World that are not supported anymore and which will cave in.
+     * Queue registering the cubes of this World that are not supported anymore and which will cave in, in the order in
+     * which they lost their support.
      */
-    private final ArrayList<int[]> caveInlist = new ArrayList<>();
-    
+    private final ArrayDeque<int[]> caveInlist = new ArrayDeque<>();
+
     /**
-     * Variable registering the cube world with an allocation of the geological features and the size of this World.
+     * Variable registering the maximum number of cubes of this World that cave in during one advance of time.
      */
-    private CubeWorldObject[][][] CubeWorld;
+    private int caveInBudget = DEFAULT_CAVE_IN_BUDGET;
+
+    /**
+     * Variable registering the number of cubes of this World that have caved in so far.
+     */
+    private long nbCavedIn = 0;
+
+    /**
+     * Variable registering the number of terrain changes made in this World.
+     */
+    private long terrainVersion = 0;
+
+    /**
+     * Variable registering the autosave of this World, or null if it is not saved automatically.
+     */
+    private Autosave autosave;
+
+    /**
+     * Variable registering the rewind history of this World, or null if its past is not recorded.
+     */
+    private RewindHistory rewindHistory;
+
+    /**
+     * Constant reflecting the number of terrain changes of which the changed cube is remembered.
+     */
+    static final int TERRAIN_CHANGE_LOG_SIZE = 1024;
+
+    /**
+     * Ring buffer registering the indices of the cubes changed by the most recent terrain changes of this World.
+     * 		The cube of change number v is at position v % TERRAIN_CHANGE_LOG_SIZE.
+     */
+    private final int[] terrainChangeLog = new int[TERRAIN_CHANGE_LOG_SIZE];
     
+    /**
+     * Variable registering the number of the geological feature of each cube of this World.
+     * 		Its flags register the cubes a unit can stand in and the solid cubes that are not connected to the border.
+     * 		They are kept up to date with the terrain: a change of a cube only affects whether a unit can stand in the cube
+     * 		itself and its 26 neighbours.
+     */
+    private TerrainStorage terrain;
+
+    /**
+     * The shared cube world objects describing the behaviour of each geological feature, indexed by its number.
+     */
+    private static final CubeWorldObject[] CUBE_OBJECTS = {Air.INSTANCE, Rock.INSTANCE, Wood.INSTANCE, Workshop.INSTANCE};
+
+    /**
+     * Tables registering whether the cubes of each geological feature are passable and whether they support objects
+     * above them, indexed by the number of the feature.
+     */
+    private static final boolean[] PASSABLE = new boolean[CUBE_OBJECTS.length];
+    private static final boolean[] SUPPORTING = new boolean[CUBE_OBJECTS.length];
+
+    static {
+        for (int i = 0; i < CUBE_OBJECTS.length; i++) {
+            PASSABLE[i] = CUBE_OBJECTS[i].isPassable();
+            SUPPORTING[i] = CUBE_OBJECTS[i].willSupport();
+        }
+    }
+
+    /**
+     * Check whether the given number refers to a geological feature of worlds.
+     */
+    static boolean isValidFeature(int feature) {
+        return feature >= 0 && feature < CUBE_OBJECTS.length;
+    }
+
     /**
      * Variable registering a world map with the objects and their location in this World,
      * with the location as the key and the object as the value of this HashMap.
@@ -85,6 +175,42 @@ public class World {
  	 * @invar	Each unit in the UnitSet references this world as the world to which it is attached.
 	 */
 	public Set<Unit> TotalUnitSet = new HashSet<>();
+
+	/**
+	 * Map registering the distance fields of this World, with the geological feature they lead to as the key.
+	 */
+	private final Map<Integer, CubeDistanceField> distanceFields = new HashMap<>();
+
+	/**
+	 * Variable registering the cluster graph of this World for planning long paths, or null if none was needed yet.
+	 */
+	private ClusterGraph clusterGraph;
+
+	/**
+	 * Variable registering the cache of flow fields shared by the units of this World heading to the same destination.
+	 */
+	private FlowFieldCache flowFields;
+
+	/**
+	 * Variable registering whether the units of this World search their paths with a jump point search instead of Astar.
+	 */
+	private boolean jumpPointSearch = false;
+
+	/**
+	 * Variable registering whether the units of this World plan long paths over its cluster graph.
+	 */
+	private boolean hierarchicalPathfinding = false;
+
+	/**
+	 * Variable registering the service searching the paths of the units of this World on worker threads, or null if
+	 * they search their paths while this World advances.
+	 */
+	private PathRequestService pathRequests;
+
+	/**
+	 * Variable registering the last snapshot taken of the terrain of this World, or null if none was taken yet.
+	 */
+	private TerrainSnapshot terrainSnapshot;
 	
 	private int xSideSize;
     
@@ -107,6 +233,14 @@ public class World {
 	 *		  |	result == 100
 	 */
 	 static final int MAX_UNITS = 100;
+
+	/**
+	 * Constant reflecting the number of cubes that may cave in during one advance of time of a new world.
+	 *
+	 * @return	The default cave-in budget of all worlds is 64.
+	 *		  |	result == 64
+	 */
+	 static final int DEFAULT_CAVE_IN_BUDGET = 64;
     
 	/**
 	 * Return the maximum amount of active factions in this world.
@@ -123,12 +257,12 @@ public class World {
 	}
 	
     /**
-     * Return the cube world of this World.
+     * Return the terrain of this World.
      */
     @Basic
     @Raw
-     CubeWorldObject[][][] getCubeWorld() {
-        return this.CubeWorld;
+     TerrainStorage getTerrain() {
+        return this.terrain;
     }
 
     /**
@@ -158,6 +292,8 @@ public class World {
      * @param  CubeWorld
      * 		   The new cube world for this World.
      * @post   The cube world of this new World is equal to the given cube world.
+     * @effect All passable cubes of the given cube world are made passable in the border connectivity of this World in
+     * 		   one pass, and the solid cubes that are not connected to the border are registered to cave in.
      * @throws IllegalLocation
      * 		   The given cube world is not a valid cube world for any World.
      */
@@ -165,29 +301,77 @@ public class World {
      void setCubeWorld(int[][][] CubeWorld) throws IllegalLocation, IllegalArgumentException {
         if (! isValidCubeWorld(CubeWorld))
             throw new IllegalLocation();
-        CubeWorldObject[][][] CubeWorldFinal = new CubeWorldObject[getxSideSize()][getySideSize()][getzSideSize()];
+        ChunkedTerrain terrainFinal = new ChunkedTerrain(getxSideSize(), getySideSize(), getzSideSize(), 0);
         for (int x = 0; x < getxSideSize(); x++) {
             for (int y = 0; y < getySideSize(); y++) {
                 for (int z = 0; z < getzSideSize(); z++) {
-                    switch (CubeWorld[x][y][z]) {
-                        case 0:		CubeWorldFinal[x][y][z] = new Air();
-                                    caveInlist.addAll(borderConnect.changeSolidToPassable(x,y,z));
-                                    break;
-                        case 1:		CubeWorldFinal[x][y][z] = new Rock();
-                            		break;
-                        case 2:		CubeWorldFinal[x][y][z] = new Wood();
-                                    break;
-                        case 3:		CubeWorldFinal[x][y][z] = new Workshop();
-                                    caveInlist.addAll(borderConnect.changeSolidToPassable(x,y,z));
-                                    break;
-                        default:	CubeWorldFinal[x][y][z] = new Air();
-                                    caveInlist.addAll(borderConnect.changeSolidToPassable(x,y,z));
-                                    break;
+                    int feature = CubeWorld[x][y][z];
+                    if (feature > 0 && feature < CUBE_OBJECTS.length)
+                        terrainFinal.set(x, y, z, feature);
+                }
+            }
+        }
+        terrainFinal.compact();
+        this.setTerrain(terrainFinal);
+    }
+
+    /**
+     * Set the terrain of this World to the given terrain.
+     *
+     * @param  terrain
+     * 		   The new terrain for this World.
+     * @post   The terrain of this World is the given terrain.
+     * @effect If the flags of the given terrain are valid, the border connectivity of this World is restored from them,
+     * 		   and the solid cubes they mark as not connected to the border are registered to cave in. The flags are marked
+     * 		   valid again, so a terrain kept in a file no longer claims valid flags there while this World changes it.
+     * @effect Otherwise, the cubes a unit can stand in are computed for the whole terrain, all passable cubes of the
+     * 		   given terrain are made passable in the border connectivity of this World in one pass, the solid cubes that
+     * 		   are not connected to the border are registered to cave in, and the flags of the terrain are marked valid.
+     * @throws IllegalArgumentException
+     * 		   The size of the given terrain differs from the size of this World.
+     */
+    @Raw
+     void setTerrain(TerrainStorage terrain) throws IllegalArgumentException {
+        if (terrain.getNbX() != getxSideSize() || terrain.getNbY() != getySideSize() || terrain.getNbZ() != getzSideSize())
+            throw new IllegalArgumentException("The terrain does not have the size of this world");
+        this.terrain = terrain;
+        if (terrain.hasValidFlags()) {
+            caveInlist.addAll(borderConnect.restore(this::isPassableAtIndex,
+                    index -> terrain.getFlag(index, TerrainStorage.FLAG_DISCONNECTED)));
+            terrain.setValidFlags(true);
+            return;
+        }
+        terrain.setValidFlags(false);
+        int lastX = getxSideSize() - 1;
+        int lastY = getySideSize() - 1;
+        int lastZ = getzSideSize() - 1;
+        for (int z = 0; z <= lastZ; z++) {
+            for (int y = 0; y <= lastY; y++) {
+                for (int x = 0; x <= lastX; x++) {
+                    int surrounding = terrain.getSurroundingFeature(x, y, z);
+                    if (surrounding >= 0) {
+                        //all neighbours have the same feature, so only the borders of the world can support
+                        if (PASSABLE[surrounding] && (x == 0 || x == lastX || y == 0 || y == lastY || z == 0 || z == lastZ))
+                            terrain.setFlag(getCubeIndex(x, y, z), TerrainStorage.FLAG_STANDABLE, true);
+                    } else if (computeStandable(x, y, z)) {
+                        terrain.setFlag(getCubeIndex(x, y, z), TerrainStorage.FLAG_STANDABLE, true);
                     }
                 }
             }
         }
-        this.CubeWorld = CubeWorldFinal;
+        List<int[]> disconnected = borderConnect.changeSolidToPassable(this::isPassableAtIndex);
+        markDisconnected(disconnected);
+        caveInlist.addAll(disconnected);
+        terrain.setValidFlags(true);
+    }
+
+    /**
+     * Mark the cubes at the given locations as solid cubes that are not connected to the border in the terrain of this
+     * World.
+     */
+    private void markDisconnected(List<int[]> locations) {
+        for (int[] location: locations)
+            terrain.setFlag(getCubeIndex(location[0], location[1], location[2]), TerrainStorage.FLAG_DISCONNECTED, true);
     }
 
     /**
@@ -204,13 +388,14 @@ public class World {
     public void destroyCube(int[] location) throws IllegalArgumentException, IllegalLocation {
         if (location.length != 3)
             throw new IllegalLocation();
-        CubeWorldObject[][][] world = this.getCubeWorld();
-        CubeWorldObject cube = world[location[0]][location[1]][location[2]];
+        CubeWorldObject cube = getCubeAt(location);
         if (! cube.isDestructible())
         	return;
         this.changeListener.notifyTerrainChanged(location[0], location[1], location[2]);
-        caveInlist.addAll(borderConnect.changeSolidToPassable(location[0], location[1], location[2]));
-        this.CubeWorld[location[0]][location[1]][location[2]] = new Air();
+        List<int[]> disconnected = borderConnect.changeSolidToPassable(location[0], location[1], location[2]);
+        markDisconnected(disconnected);
+        caveInlist.addAll(disconnected);
+        changeTerrain(location[0], location[1], location[2], Air.INSTANCE.getId());
         replace(cube, location);
     }
 
@@ -222,11 +407,20 @@ public class World {
      * @param  location
      * 		   The location of the cube to replace.
      * @effect With a probability of 25%, if the cube was of wood, a Log is created in the middle of the cube
-     * 		   and if the cube was of rock, a Boulder is created in the middle of the cube.
+     * 		   and if the cube was of rock, a Boulder is created in the middle of the cube. If the cube below does not
+     * 		   support it, as for a cube that caves in, the boulder or log falls from there.
+     * @effect The boulders and logs lying on the given cube fall.
      */
     private void replace(CubeWorldObject cube, int[] location) {
+        if (location[2] + 1 < getzSideSize()) {
+            int[] above = new int[]{location[0], location[1], location[2] + 1};
+            for (Boulder boulder: getBouldersAt(above))
+                boulder.fallIfUnsupported();
+            for (Log log: getLogsAt(above))
+                log.fallIfUnsupported();
+        }
         if (Math.random() <= 0.25) {
-            if (cube.getClass() == Rock.class) {
+            if (cube == Rock.INSTANCE) {
                 new Boulder((double) location[0] + 0.5, (double) location[1] + 0.5, (double) location[2] + 0.5, this);
             } else {
                 new Log((double) location[0] + 0.5, (double) location[1] + 0.5, (double) location[2] + 0.5, this);
@@ -299,6 +493,234 @@ public class World {
         return this.getWorldMap().getAllBouldersInCube(cubeLocation);
     }
 
+	/**
+	 * Return a list collecting all the objects in the given box.
+	 *
+	 * @param  minX
+	 * 		   The lowest x coordinate of the box.
+	 * @param  minY
+	 * 		   The lowest y coordinate of the box.
+	 * @param  minZ
+	 * 		   The lowest z coordinate of the box.
+	 * @param  maxX
+	 * 		   The x coordinate bounding the box from above.
+	 * @param  maxY
+	 * 		   The y coordinate bounding the box from above.
+	 * @param  maxZ
+	 * 		   The z coordinate bounding the box from above.
+	 * @return The objects of this world whose coordinates are at least the lowest coordinates of the box and smaller
+	 * 		   than its upper bounds.
+	 */
+    public List<MovableWorldObject> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY,
+    		double maxZ) {
+        return this.getWorldMap().getObjectsInBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+	/**
+	 * Return a list collecting all the objects in the given sphere.
+	 *
+	 * @param  x
+	 * 		   The x coordinate of the centre of the sphere.
+	 * @param  y
+	 * 		   The y coordinate of the centre of the sphere.
+	 * @param  z
+	 * 		   The z coordinate of the centre of the sphere.
+	 * @param  radius
+	 * 		   The radius of the sphere.
+	 * @return The objects of this world whose distance to the centre of the sphere is not greater than its radius.
+	 */
+    public List<MovableWorldObject> getObjectsInSphere(double x, double y, double z, double radius) {
+        return this.getWorldMap().getObjectsInSphere(x, y, z, radius);
+    }
+
+	/**
+	 * Return the unit satisfying the given condition that is nearest to the given position.
+	 *
+	 * @param  x
+	 * 		   The x coordinate of the position.
+	 * @param  y
+	 * 		   The y coordinate of the position.
+	 * @param  z
+	 * 		   The z coordinate of the position.
+	 * @param  condition
+	 * 		   The condition the unit must satisfy.
+	 * @return The unit of this world satisfying the given condition with the smallest distance to the given position,
+	 * 		   or null if no unit satisfies the condition.
+	 */
+    public Unit getNearestUnit(double x, double y, double z, Predicate<? super Unit> condition) {
+        List<Unit> nearest = this.getNearestUnits(x, y, z, 1, condition);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+	/**
+	 * Return the given number of units satisfying the given condition that are nearest to the given position.
+	 *
+	 * @param  x
+	 * 		   The x coordinate of the position.
+	 * @param  y
+	 * 		   The y coordinate of the position.
+	 * @param  z
+	 * 		   The z coordinate of the position.
+	 * @param  number
+	 * 		   The number of units to return.
+	 * @param  condition
+	 * 		   The condition the units must satisfy.
+	 * @return At most the given number of units of this world satisfying the given condition, ordered by increasing
+	 * 		   distance to the given position.
+	 */
+    @SuppressWarnings("unchecked")
+    public List<Unit> getNearestUnits(double x, double y, double z, int number, Predicate<? super Unit> condition) {
+        List<MovableWorldObject> nearest = this.getWorldMap().getNearestObjects(x, y, z, number,
+                object -> (object instanceof Unit) && condition.test((Unit) object));
+        return (List) nearest;
+    }
+
+	/**
+	 * Return the location of the cube of the given type that is nearest to the cube with given location.
+	 *
+	 * @param  cubeLocation
+	 * 		   The location of the cube to start from.
+	 * @param  cubeType
+	 * 		   The number referring to the geological feature to look for.
+	 * @return The location of the cube of the given type that can be reached in the fewest steps through passable
+	 * 		   cubes from the cube with given location, or null if there is no such cube.
+	 * @throws IllegalArgumentException
+	 * 		   The given cube location lies outside this world.
+	 */
+    public int[] getNearestCubeOfType(int[] cubeLocation, int cubeType) throws IllegalArgumentException {
+        if (! isWithinBorders(cubeLocation[0], cubeLocation[1], cubeLocation[2]))
+            throw new IllegalArgumentException("An illegal cubelocation was inspected getNearestCubeOfType");
+        return this.getDistanceField(cubeType).getNearest(cubeLocation);
+    }
+
+	/**
+	 * Return the distance field of this world leading to the cubes of the given type.
+	 * 		The field is built on first use and kept up to date with the terrain afterwards.
+	 *
+	 * @param  cubeType
+	 * 		   The number referring to the geological feature the field leads to.
+	 */
+    public CubeDistanceField getDistanceField(int cubeType) {
+        return this.distanceFields.computeIfAbsent(cubeType, type -> new CubeDistanceField(this, type));
+    }
+
+	/**
+	 * Return the cluster graph of this world for planning long paths hierarchically.
+	 * 		The graph is built on first use and kept up to date with the terrain afterwards.
+	 */
+    public ClusterGraph getClusterGraph() {
+        if (this.clusterGraph == null)
+            this.clusterGraph = new ClusterGraph(this);
+        return this.clusterGraph;
+    }
+
+	/**
+	 * Return the cache of flow fields of this world, shared by the units heading to the same destination.
+	 * 		The cache is created on first use, holding FlowFieldCache.DEFAULT_CAPACITY fields.
+	 */
+    public FlowFieldCache getFlowFields() {
+        if (this.flowFields == null)
+            this.flowFields = new FlowFieldCache(this, FlowFieldCache.DEFAULT_CAPACITY);
+        return this.flowFields;
+    }
+
+	/**
+	 * Replace the cache of flow fields of this world by an empty one holding at most the given number of fields.
+	 *
+	 * @param  capacity
+	 * 		   The number of fields the new cache can hold.
+	 * @throws IllegalArgumentException
+	 * 		   The given capacity is not strictly positive.
+	 */
+    public void setFlowFieldCapacity(int capacity) throws IllegalArgumentException {
+        this.flowFields = new FlowFieldCache(this, capacity);
+    }
+
+	/**
+	 * Return whether the units of this world search their paths with a jump point search instead of Astar.
+	 */
+    @Basic
+    @Raw
+    public boolean usesJumpPointSearch() {
+        return this.jumpPointSearch;
+    }
+
+	/**
+	 * Set whether the units of this world search their paths with a jump point search instead of Astar.
+	 * 		Both find equally short paths; the jump point search expands far fewer cubes on open terrain.
+	 *
+	 * @param  flag
+	 * 		   Whether to use the jump point search.
+	 * @post   The units of this world use the jump point search if and only if the given flag is true.
+	 */
+    public void setJumpPointSearch(boolean flag) {
+        this.jumpPointSearch = flag;
+    }
+
+	/**
+	 * Return whether the units of this world plan paths longer than a cluster over the cluster graph of this world.
+	 */
+    @Basic
+    @Raw
+    public boolean usesHierarchicalPathfinding() {
+        return this.hierarchicalPathfinding;
+    }
+
+	/**
+	 * Set whether the units of this world plan paths longer than a cluster over the cluster graph of this world.
+	 * 		Such paths are planned far faster on large maps, but may be slightly longer than the shortest path, and the
+	 * 		graph costs memory and upkeep on every terrain change once it is built.
+	 *
+	 * @param  flag
+	 * 		   Whether to plan long paths over the cluster graph.
+	 * @post   The units of this world plan long paths over the cluster graph if and only if the given flag is true.
+	 */
+    public void setHierarchicalPathfinding(boolean flag) {
+        this.hierarchicalPathfinding = flag;
+    }
+
+	/**
+	 * Return the service searching the paths of the units of this world on worker threads, or null if they search
+	 * their paths while this world advances.
+	 */
+    @Basic
+    @Raw
+    public PathRequestService getPathRequestService() {
+        return this.pathRequests;
+    }
+
+	/**
+	 * Set the service searching the paths of the units of this world to the given service.
+	 *
+	 * @param  pathRequests
+	 * 		   The service searching the paths of the units of this world, or null to search them while this world
+	 * 		   advances.
+	 * @post   The path request service of this world is equal to the given service.
+	 * @throws IllegalArgumentException
+	 * 		   The given service searches paths in another world.
+	 */
+    public void setPathRequestService(PathRequestService pathRequests) throws IllegalArgumentException {
+        if (pathRequests != null && pathRequests.getWorld() != this)
+            throw new IllegalArgumentException("The path request service searches paths in another world");
+        this.pathRequests = pathRequests;
+    }
+
+	/**
+	 * Return a snapshot of the cubes units can stand in at the current terrain version of this world.
+	 * 		The snapshot is shared until the terrain changes. A new snapshot is then taken from the previous one, only
+	 * 		copying the blocks around the changed cubes, unless more changes were made than this world remembers.
+	 */
+    public TerrainSnapshot getTerrainSnapshot() {
+        if (this.terrainSnapshot == null) {
+            this.terrainSnapshot = new TerrainSnapshot(this);
+        } else if (this.terrainSnapshot.getTerrainVersion() != getTerrainVersion()) {
+            int[] changes = getTerrainChangesSince(this.terrainSnapshot.getTerrainVersion());
+            this.terrainSnapshot = changes == null ? new TerrainSnapshot(this)
+                    : new TerrainSnapshot(this, this.terrainSnapshot, changes);
+        }
+        return this.terrainSnapshot;
+    }
+
     /**
      * Check whether the given object can have the given cube location as its cube location.
      * 
@@ -310,21 +732,69 @@ public class World {
      * 		   and if the cube underneath has zero as its z coordinate or can support objects. If the object is a Unit,
      * 		   this method will return true, except the before mentioned conditions, if and only if the x, y and z
      * 		   coordinate is at the border of the game world.	   
+     * 		   A falling object can have any passable cube as its cube location.
      */
     public boolean canHaveAsCubeLocation(int[] cubeLoc, MovableWorldObject object) {
         if (cubeLoc.length != 3)
         	return false;
-        if (! CubeWorld[cubeLoc[0]][cubeLoc[1]][cubeLoc[2]].isPassable())
+        return canHaveAsCubeLocation(cubeLoc[0], cubeLoc[1], cubeLoc[2], object);
+    }
+
+    /**
+     * Check whether the given object can have the cube with given x, y and z coordinate as its cube location.
+     * 		For units this is a lookup in the set of standable cubes of this world.
+     *
+     * @param  xLoc
+     * 		   The x coordinate of the cube to check.
+     * @param  yLoc
+     * 		   The y coordinate of the cube to check.
+     * @param  zLoc
+     * 		   The z coordinate of the cube to check.
+     * @param  object
+     * 		   The object whose location to check.
+     * @return False if the cube lies outside this world, otherwise the same result as
+     * 		   canHaveAsCubeLocation(new int[]{xLoc, yLoc, zLoc}, object).
+     */
+    public boolean canHaveAsCubeLocation(int xLoc, int yLoc, int zLoc, MovableWorldObject object) {
+        if (! isWithinBorders(xLoc, yLoc, zLoc))
+            return false;
+        int index = getCubeIndex(xLoc, yLoc, zLoc);
+        if (object != null && object.getActivity() instanceof Fall)
+            return PASSABLE[terrain.get(xLoc, yLoc, zLoc)];
+        if (object instanceof Unit)
+            return terrain.getFlag(index, TerrainStorage.FLAG_STANDABLE);
+        if (! PASSABLE[terrain.get(xLoc, yLoc, zLoc)])
+        	return false;
+        return zLoc == 0 || SUPPORTING[terrain.get(xLoc, yLoc, zLoc - 1)];
+    }
+
+    /**
+     * Check whether a unit can stand in the cube with given x, y and z coordinate.
+     * 		The answer is looked up in the set of standable cubes of this world.
+     *
+     * @param  x
+     * 		   The x coordinate of the cube to check.
+     * @param  y
+     * 		   The y coordinate of the cube to check.
+     * @param  z
+     * 		   The z coordinate of the cube to check.
+     * @return False if the cube lies outside this world, otherwise whether a unit can have the cube as its cube location.
+     */
+    public boolean isStandable(int x, int y, int z) {
+        return isWithinBorders(x, y, z) && terrain.getFlag(getCubeIndex(x, y, z), TerrainStorage.FLAG_STANDABLE);
+    }
+
+    /**
+     * Check whether a unit can stand in the cube with given x, y and z coordinate, judging by the terrain around it.
+     * 		A unit can stand in a passable cube at the bottom or at a side of this world, or next to a solid cube.
+     */
+    private boolean computeStandable(int xLoc, int yLoc, int zLoc) {
+        if (! PASSABLE[terrain.get(xLoc, yLoc, zLoc)])
         	return false;
-        int zLoc = cubeLoc[2];
         if (zLoc == 0)
             return true;
-        if (CubeWorld[cubeLoc[0]][cubeLoc[1]][cubeLoc[2] - 1].willSupport())
+        if (SUPPORTING[terrain.get(xLoc, yLoc, zLoc - 1)])
         	return true;
-        if (! (object instanceof Unit))
-        	return false;
-        int xLoc = cubeLoc[0];
-        int yLoc = cubeLoc[1];
         if (xLoc == 0 || xLoc == getxSideSize() - 1)
         	return true;
         if (yLoc == 0 || yLoc == getySideSize() - 1)
@@ -338,13 +808,35 @@ public class World {
                         return true;
                     if (x == getxSideSize() || y == getySideSize() || z == getzSideSize())
                     	return true;
-                    if (CubeWorld[x][y][z].willSupport())
+                    if (SUPPORTING[terrain.get(x, y, z)])
                     	return true;
                 }
             }
         }
         return false;
     }
+
+    /**
+     * Check whether the cube with given x, y and z coordinate lies within the borders of this world.
+     */
+    public boolean isWithinBorders(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < getxSideSize() && y < getySideSize() && z < getzSideSize();
+    }
+
+    /**
+     * Return the number of cubes in this world.
+     */
+    public int getNbCubes() {
+        return getxSideSize() * getySideSize() * getzSideSize();
+    }
+
+    /**
+     * Return the linear index of the cube with given x, y and z coordinate.
+     * 		The index runs fastest along x and slowest along z, as in BorderConnectivity.
+     */
+    public int getCubeIndex(int x, int y, int z) {
+        return x + getxSideSize() * (y + getySideSize() * z);
+    }
     
     /**
      * Check whether the given location contains a cube that will stop the fall of any object.
@@ -354,7 +846,7 @@ public class World {
      * @return True if and only if the terrain feature of the underlying cube at the given location will support any object.
      */
     public boolean willBreakFall(int[] cubeLoc) {
-        return (CubeWorld[cubeLoc[0]][cubeLoc[1]][cubeLoc[2] - 1].willSupport());
+        return SUPPORTING[terrain.get(cubeLoc[0], cubeLoc[1], cubeLoc[2] - 1)];
     }
 	
 	/**
@@ -412,7 +904,7 @@ public class World {
 		if (! unit.canHaveAsWorld(this)) 
 			throw new IllegalArgumentException("This world has already reached its max amount of Units.");
         this.TotalUnitSet.add(unit);
-        unit.register(unit.getLocation());
+        unit.register();
 	}
 
 	/**
@@ -461,10 +953,66 @@ public class World {
         caveIn();
         //World validity check
         assert this.TotalUnitSet.equals(this.getWorldMap().getAllUnits());
-        Collection<MovableWorldObject> totColl = this.getWorldMap().values();
-        for (MovableWorldObject object: totColl) {
-            object.advanceTime(dt);
+        //objects can be registered and removed while others advance, so a copy is traversed
+        for (MovableWorldObject object: this.getWorldMap().toArray()) {
+            if (object.isRegistered())
+                object.advanceTime(dt);
         }
+        //all objects have advanced, so the state can be captured consistently
+        if (autosave != null)
+            autosave.advanceTime(dt);
+        if (rewindHistory != null)
+            rewindHistory.advanceTime(dt);
+    }
+
+    /**
+     * Return the autosave of this world, or null if it is not saved automatically.
+     */
+    @Basic
+    @Raw
+    public Autosave getAutosave() {
+        return this.autosave;
+    }
+
+    /**
+     * Set the autosave of this world to the given autosave.
+     *
+     * @param  autosave
+     * 		   The autosave of this world, or null to stop saving it automatically.
+     * @post   The autosave of this world is equal to the given autosave.
+     * @throws IllegalArgumentException
+     * 		   The given autosave saves another world, or is closed.
+     */
+    public void setAutosave(Autosave autosave) throws IllegalArgumentException {
+        if (autosave != null && autosave.getWorld() != this)
+            throw new IllegalArgumentException("The autosave saves another world");
+        if (autosave != null && autosave.isClosed())
+            throw new IllegalArgumentException("The autosave is closed");
+        this.autosave = autosave;
+    }
+
+    /**
+     * Return the rewind history of this world, or null if its past is not recorded.
+     */
+    @Basic
+    @Raw
+    public RewindHistory getRewindHistory() {
+        return this.rewindHistory;
+    }
+
+    /**
+     * Set the rewind history of this world to the given rewind history.
+     *
+     * @param  rewindHistory
+     * 		   The rewind history of this world, or null to stop recording its past.
+     * @post   The rewind history of this world is equal to the given rewind history.
+     * @throws IllegalArgumentException
+     * 		   The given rewind history records another world.
+     */
+    public void setRewindHistory(RewindHistory rewindHistory) throws IllegalArgumentException {
+        if (rewindHistory != null && rewindHistory.getWorld() != this)
+            throw new IllegalArgumentException("The rewind history records another world");
+        this.rewindHistory = rewindHistory;
     }
 
     /**
@@ -475,41 +1023,125 @@ public class World {
      * @return The geological feature of the cube.
      */
     public int getCubeIDAt(int[] loc) {
-        CubeWorldObject cube;
-        try {
-        	cube = this.CubeWorld[loc[0]][loc[1]][loc[2]];
-        } catch (IndexOutOfBoundsException exception) {
+        return getCubeIDAt(loc[0], loc[1], loc[2]);
+    }
+
+    /**
+     * Return the geological feature of the cube with given x, y and z coordinate.
+     *
+     * @param  x
+     * 		   The x coordinate of the cube to check.
+     * @param  y
+     * 		   The y coordinate of the cube to check.
+     * @param  z
+     * 		   The z coordinate of the cube to check.
+     * @return The geological feature of the cube.
+     */
+    public int getCubeIDAt(int x, int y, int z) {
+        if (! isWithinBorders(x, y, z))
             throw new IllegalArgumentException("An illegal cubelocation was inspected getCubeIDAt");
-        }
-        if (cube instanceof Air)
-        	return 0;
-        if (cube instanceof Rock)
-        	return 1;
-        if (cube instanceof Wood)
-        	return 2;
-        if (cube instanceof Workshop)
-        	return 3;
-        throw new IllegalArgumentException();
+        return this.terrain.get(x, y, z);
+    }
+
+    /**
+     * Return the geological feature of the cube with the given linear index.
+     *
+     * @param  index
+     * 		   The linear index of the cube to check.
+     * @return The geological feature of the cube.
+     */
+    public int getCubeIDAtIndex(int index) {
+        return this.terrain.get(index);
     }
 
+    /**
+     * Check whether the cube with the given linear index can be passed through.
+     *
+     * @param  index
+     * 		   The linear index of the cube to check.
+     */
+    public boolean isPassableAtIndex(int index) {
+        return PASSABLE[this.terrain.get(index)];
+    }
+
+    /**
+     * Return the cube world object describing the cube at the given location.
+     *
+     * @param  loc
+     * 		   The location of the cube to inspect.
+     * @return The shared cube world object of the geological feature of the cube.
+     */
     public CubeWorldObject getCubeAt(int[] loc){
-        CubeWorldObject cube;
-        try {
-            cube = this.CubeWorld[loc[0]][loc[1]][loc[2]];
-        } catch (IndexOutOfBoundsException exception) {
-            throw new IllegalArgumentException("An illegal cubelocation was inspected getCubeIDAt");
-        }
-        return cube;
+        return CUBE_OBJECTS[getCubeIDAt(loc[0], loc[1], loc[2])];
     }
 
     /**
-     * Let the cubes that need to cave in cave in.
+     * Let the cubes that need to cave in cave in, as far as the cave-in budget of this world allows.
      * 
-     * @effect The cubes of the list containing the location of the cubes about to cave in are destroyed.
+     * @effect The first cubes of the queue of cubes about to cave in are destroyed, up to the cave-in budget of this
+     * 		   world. Cubes that are no longer solid or are connected to the border again are dropped without counting.
      */
     private void caveIn() {
-        caveInlist.forEach(this::destroyCube);
-        caveInlist.clear();
+        int budget = getCaveInBudget();
+        while (budget > 0 && ! caveInlist.isEmpty()) {
+            int[] location = caveInlist.poll();
+            if (! getCubeAt(location).isDestructible() || borderConnect.isSolidConnectedToBorder(location[0], location[1], location[2]))
+                continue;
+            nbCavedIn++;
+            budget--;
+            destroyCube(location);
+        }
+    }
+
+    /**
+     * Return the maximum number of cubes of this world that cave in during one advance of time.
+     */
+    @Basic
+    @Raw
+    public int getCaveInBudget() {
+        return this.caveInBudget;
+    }
+
+    /**
+     * Check whether the given budget is a valid cave-in budget for any world.
+     *
+     * @param  budget
+     * 		   The budget to check.
+     * @return True if and only if the budget is strictly positive.
+     */
+    public static boolean isValidCaveInBudget(int budget) {
+        return budget > 0;
+    }
+
+    /**
+     * Set the maximum number of cubes of this world that cave in during one advance of time to the given budget.
+     * 		A large collapse is spread over several advances of time; the cubes cave in in the order in which they lost
+     * 		their support.
+     *
+     * @param  budget
+     * 		   The new cave-in budget for this world.
+     * @post   The cave-in budget of this world is equal to the given budget.
+     * @throws IllegalArgumentException
+     * 		   The given budget is not a valid cave-in budget for any world.
+     */
+    public void setCaveInBudget(int budget) throws IllegalArgumentException {
+        if (! isValidCaveInBudget(budget))
+            throw new IllegalArgumentException("Invalid cave-in budget");
+        this.caveInBudget = budget;
+    }
+
+    /**
+     * Return the number of cubes of this world that are waiting to cave in.
+     */
+    public int getNbQueuedCaveIns() {
+        return this.caveInlist.size();
+    }
+
+    /**
+     * Return the number of cubes of this world that have caved in so far.
+     */
+    public long getNbCavedIn() {
+        return this.nbCavedIn;
     }
 
     /**
@@ -523,34 +1155,87 @@ public class World {
      * 		   The z coordinate of the cube to set the geological feature of.
      * @param  value
      * 		   The number referring to the geological feature.
+     * @effect If a solid cube becomes passable, the solid cubes that are no longer connected to the border because of it
+     * 		   are registered to cave in, as when the cube is destroyed.
      */
     public void setCubeType(int x, int y, int z, int value) {
-        CubeWorldObject cubeObject;
-        switch (value) {
-            case 3:	
-                cubeObject = new Workshop();
-                if (getCubeIDAt(new int[]{x, y, z}) == 1 || getCubeIDAt(new int[]{x, y, z}) == 2)
-                    this.borderConnect.changeSolidToPassable(x, y, z);
-                break;
-            default:
-            case 0:
-                cubeObject = new Air();
-                if (getCubeIDAt(new int[]{x, y, z}) == 1 || getCubeIDAt(new int[]{x, y, z}) == 2)
-                    this.borderConnect.changeSolidToPassable(x, y, z);
-                break;
-            case 1:
-                if (getCubeIDAt(new int[]{x, y, z}) == 0 || getCubeIDAt(new int[]{x, y, z}) == 3)
-                    throw new IllegalArgumentException("Facade just tried to make a non-Solid cube Solid");
-                cubeObject = new Rock();
-                break;
-            case 2:
-                if (getCubeIDAt(new int[]{x, y, z}) == 0 || getCubeIDAt(new int[]{x, y, z}) == 3)
-                    throw new IllegalArgumentException("Facade just tried to make a non-Solid cube Solid");
-                cubeObject = new Rock();
-                break;
+        if (value < 0 || value >= CUBE_OBJECTS.length)
+            value = 0;
+        boolean wasPassable = PASSABLE[getCubeIDAt(x, y, z)];
+        if (PASSABLE[value]) {
+            if (! wasPassable) {
+                List<int[]> disconnected = this.borderConnect.changeSolidToPassable(x, y, z);
+                markDisconnected(disconnected);
+                caveInlist.addAll(disconnected);
+            }
+        } else if (wasPassable) {
+            throw new IllegalArgumentException("Facade just tried to make a non-Solid cube Solid");
         }
         changeListener.notifyTerrainChanged(x, y, z);
-        CubeWorld[x][y][z] = cubeObject;
+        changeTerrain(x, y, z, value);
+    }
+
+    /**
+     * Set the geological feature of the cube with given x, y and z coordinate to the feature with given number, and bring
+     * everything derived from the terrain up to date.
+     *
+     * @effect The cubes a unit can stand in are recomputed for the changed cube and its neighbours.
+     * @effect A cube that becomes passable is no longer marked as a solid cube that is not connected to the border.
+     * @effect The change is recorded in the terrain change log of this world.
+     */
+    private void changeTerrain(int x, int y, int z, int feature) {
+        terrain.set(x, y, z, feature);
+        if (PASSABLE[feature])
+            terrain.setFlag(getCubeIndex(x, y, z), TerrainStorage.FLAG_DISCONNECTED, false);
+        for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, getxSideSize() - 1); nx++)
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, getySideSize() - 1); ny++)
+                for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, getzSideSize() - 1); nz++)
+                    terrain.setFlag(getCubeIndex(nx, ny, nz), TerrainStorage.FLAG_STANDABLE, computeStandable(nx, ny, nz));
+        recordTerrainChange(x, y, z);
+    }
+
+    /**
+     * Return the number of terrain changes made in this world.
+     * 		Anything derived from the terrain at some version is still up to date as long as this number is unchanged.
+     */
+    public long getTerrainVersion() {
+        return this.terrainVersion;
+    }
+
+    /**
+     * Return the indices of the cubes changed since the given terrain version, oldest change first.
+     *
+     * @param  version
+     * 		   The terrain version to compare with.
+     * @return The indices of the changed cubes, or null if more changes were made since the given version than this
+     * 		   world remembers.
+     */
+    public int[] getTerrainChangesSince(long version) {
+        long nbChanges = getTerrainVersion() - version;
+        if (nbChanges < 0 || nbChanges > TERRAIN_CHANGE_LOG_SIZE)
+            return null;
+        int[] changes = new int[(int) nbChanges];
+        for (int i = 0; i < changes.length; i++)
+            changes[i] = terrainChangeLog[(int) ((version + i) % TERRAIN_CHANGE_LOG_SIZE)];
+        return changes;
+    }
+
+    /**
+     * Register a change of the terrain of the cube with given x, y and z coordinate.
+     *
+     * @post   The terrain version of this world is incremented by one.
+     */
+    private void recordTerrainChange(int x, int y, int z) {
+        terrainChangeLog[(int) (terrainVersion % TERRAIN_CHANGE_LOG_SIZE)] = getCubeIndex(x, y, z);
+        terrainVersion++;
+    }
+
+    /**
+     * Return the x, y and z coordinate of the cube with the given linear index.
+     */
+    public int[] getCubeLocation(int index) {
+        int nbXY = getxSideSize() * getySideSize();
+        return new int[]{index % getxSideSize(), (index % nbXY) / getxSideSize(), index / nbXY};
     }
 
     /**
@@ -0,0 +1,252 @@
+package hillbillies.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A class collecting the methods to write and read terrains in the binary world file format.
+ * 		A world file starts with a header holding the four bytes "HBWF", the version of the format and the number of
+ * 		cubes along the x, y and z axis, all as big-endian ints. Then follows a plane per z coordinate, from the bottom
+ * 		up, holding the features of its cubes in linear cube index order, so fastest along x. Each plane is compressed
+ * 		into runs of cubes with the same feature: the length of a run as an unsigned variable-length integer with seven
+ * 		bits per byte, least significant first, followed by the feature as a single byte. Runs do not cross planes.
+ * 		Reading fills a terrain storage directly, without text parsing or intermediate arrays.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public final class WorldFile {
+
+    /**
+     * This class only collects static methods.
+     */
+    private WorldFile() {
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the first four bytes of every world file, "HBWF" in ASCII.
+     */
+    private static final int MAGIC = 0x48425746;
+
+    /**
+     * Constant reflecting the version of the format of world files written by this class.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /* Methods */
+
+    /**
+     * Write the features of the given terrain to the given stream in the world file format.
+     * 		The stream is not closed.
+     *
+     * @param	terrain
+     *			The terrain to write.
+     * @param	out
+     *			The stream to write to.
+     * @throws	IOException
+     *			Writing to the stream failed.
+     */
+    public static void write(TerrainStorage terrain, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        writeTerrain(terrain, data);
+        data.flush();
+    }
+
+    /**
+     * Write the features of the given terrain to the given data stream in the world file format, without flushing it.
+     * 		Used to embed a terrain in other files, such as world snapshots.
+     */
+    static void writeTerrain(TerrainStorage terrain, DataOutputStream data) throws IOException {
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(terrain.getNbX());
+        data.writeInt(terrain.getNbY());
+        data.writeInt(terrain.getNbZ());
+        for (int z = 0; z < terrain.getNbZ(); z++) {
+            int feature = terrain.get(0, 0, z);
+            int length = 0;
+            for (int y = 0; y < terrain.getNbY(); y++) {
+                for (int x = 0; x < terrain.getNbX(); x++) {
+                    int current = terrain.get(x, y, z);
+                    if (current != feature) {
+                        writeRun(data, length, feature);
+                        feature = current;
+                        length = 0;
+                    }
+                    length++;
+                }
+            }
+            writeRun(data, length, feature);
+        }
+    }
+
+    /**
+     * Read a terrain in the world file format from the given stream into a new chunked terrain, and return it.
+     * 		The stream is not closed.
+     *
+     * @param	in
+     *			The stream to read from.
+     * @return	A compacted chunked terrain holding the features read.
+     * @throws	IOException
+     *			Reading from the stream failed, or the stream does not hold a valid world file.
+     */
+    public static ChunkedTerrain read(InputStream in) throws IOException {
+        return readTerrain(new DataInputStream(new BufferedInputStream(in)));
+    }
+
+    /**
+     * Read a terrain in the world file format from the given data stream into a new chunked terrain, and return it.
+     * 		Nothing beyond the terrain is read from the stream, so it can be embedded in other files.
+     *
+     * @throws	IOException
+     *			Reading from the stream failed, or the stream does not hold a valid world file.
+     */
+    static ChunkedTerrain readTerrain(DataInputStream data) throws IOException {
+        int[] size = readHeader(data);
+        ChunkedTerrain terrain = new ChunkedTerrain(size[0], size[1], size[2], 0);
+        readPlanes(data, terrain);
+        terrain.compact();
+        return terrain;
+    }
+
+    /**
+     * Read a terrain in the world file format from the given stream into a new memory-mapped terrain at the given path,
+     * and return it.
+     * 		The stream is not closed.
+     *
+     * @param	in
+     *			The stream to read from.
+     * @param	file
+     *			The path of the file of the new terrain; an existing file is overwritten.
+     * @return	A memory-mapped terrain holding the features read, whose flags are not valid.
+     * @throws	IOException
+     *			Reading from the stream or creating the file failed, or the stream does not hold a valid world file.
+     */
+    public static MappedTerrain read(InputStream in, Path file) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int[] size = readHeader(data);
+        MappedTerrain terrain = MappedTerrain.create(file, size[0], size[1], size[2], 0);
+        readPlanes(data, terrain);
+        return terrain;
+    }
+
+    /**
+     * Convert the map in the text format of the given stream to the world file format, and write it to the given stream.
+     *
+     * @param	wrld
+     *			The stream of the map in text format.
+     * @param	out
+     *			The stream to write to.
+     * @throws	IOException
+     *			The map could not be read, or writing to the stream failed.
+     */
+    public static void convert(InputStream wrld, OutputStream out) throws IOException {
+        write(new TextMapReader(wrld).read(), out);
+    }
+
+    /**
+     * Convert the map in text format at the path given as first argument to a world file at the path given as second
+     * argument.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: WorldFile <map.wrld> <map.hbw>");
+            System.exit(1);
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]));
+             OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+            convert(in, out);
+        }
+    }
+
+    /**
+     * Write a run of the given length of cubes with the given feature.
+     */
+    private static void writeRun(DataOutputStream data, int length, int feature) throws IOException {
+        while (length >= 0x80) {
+            data.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        data.writeByte(length);
+        data.writeByte(feature);
+    }
+
+    /**
+     * Read the header of a world file, and return the number of cubes along the x, y and z axis.
+     *
+     * @throws	IOException
+     *			The header is not the header of a valid world file of a supported version.
+     */
+    private static int[] readHeader(DataInputStream data) throws IOException {
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a world file");
+        int version = data.readInt();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Unsupported world file version " + version);
+        int[] size = {data.readInt(), data.readInt(), data.readInt()};
+        if (size[0] <= 0 || size[1] <= 0 || size[2] <= 0 || (long) size[0] * size[1] * size[2] > Integer.MAX_VALUE)
+            throw new IOException("Invalid world size " + size[0] + "x" + size[1] + "x" + size[2]);
+        return size;
+    }
+
+    /**
+     * Read the planes of a world file into the given terrain, in which all cubes are air.
+     * 		Runs of air are skipped.
+     *
+     * @throws	IOException
+     *			The planes are damaged or hold an unknown feature.
+     */
+    private static void readPlanes(DataInputStream data, TerrainStorage terrain) throws IOException {
+        int nbX = terrain.getNbX();
+        int nbXY = nbX * terrain.getNbY();
+        for (int z = 0; z < terrain.getNbZ(); z++) {
+            int position = 0;
+            while (position < nbXY) {
+                int length = readLength(data);
+                int feature = data.readUnsignedByte();
+                if (length <= 0 || length > nbXY - position)
+                    throw new IOException("Invalid run of " + length + " cubes at z=" + z + ", position " + position);
+                if (! World.isValidFeature(feature))
+                    throw new IOException("Unknown feature " + feature + " at z=" + z + ", position " + position);
+                if (feature != 0) {
+                    for (int i = position; i < position + length; i++)
+                        terrain.set(i % nbX, i / nbX, z, feature);
+                }
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Read the length of a run.
+     *
+     * @throws	IOException
+     *			The stream ends, or the length does not fit in an int.
+     */
+    private static int readLength(DataInputStream data) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int current = data.read();
+            if (current < 0)
+                throw new EOFException("Unexpected end of world file");
+            length |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0)
+                return length;
+        }
+        throw new IOException("Invalid run length");
+    }
+
+}
@@ -1,18 +1,373 @@
 package hillbillies.model;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * A class of world maps.
+ * 		A world map is a registry of the movable world objects of a world. Each registered object gets an integer
+ * 		identifier that stays the same for as long as it is registered, and the objects are kept in a dense array so
+ * 		they can be iterated and removed in constant time. The coordinates of an object are read from the object itself,
+ * 		so moving an object within a cube does not change this world map at all.
+ * 		Viewed as a map, a world map maps the current location of each registered object to that object.
  * 
  * @version	2.9.05 technical beta
  * @author  Arthur Decloedt - Bachelor in de Informatica
  * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica  
  * 			https://github.com/julieallard/HillBilliesOGP.git
  */
-public class WorldMap<K extends VLocation, V extends MovableWorldObject> extends HashMap<VLocation, MovableWorldObject> {
-	
+public class WorldMap<K extends VLocation, V extends MovableWorldObject> extends AbstractMap<VLocation, MovableWorldObject> {
+
+	/* Variables */
+
+	/**
+	 * Array registering the registered objects of this world map, without gaps.
+	 */
+	private MovableWorldObject[] objects = new MovableWorldObject[16];
+
+	/**
+	 * Variable registering the number of registered objects of this world map.
+	 */
+	private int nbObjects = 0;
+
+	/**
+	 * Array registering, for each identifier, the position of the object with that identifier in the objects array,
+	 * or -1 if the identifier is not in use.
+	 */
+	private int[] positions = new int[16];
+
+	/**
+	 * Array registering, for each identifier in use, the key of the cube the object with that identifier is indexed
+	 * under in the cube index.
+	 */
+	private long[] cubeKeys = new long[16];
+
+	/**
+	 * Array registering, for each identifier in use, the key of the cell the object with that identifier is indexed
+	 * under in the cell index.
+	 */
+	private long[] cellKeys = new long[16];
+
+	/**
+	 * Stack registering the identifiers that were released and can be handed out again.
+	 */
+	private int[] freeIds = new int[16];
+
+	/**
+	 * Variable registering the number of identifiers on the stack of free identifiers.
+	 */
+	private int nbFreeIds = 0;
+
+	/**
+	 * Variable registering the lowest identifier that has never been handed out.
+	 */
+	private int nextId = 0;
+
+	/**
+	 * Variable registering the number of additions and removals of objects, used to detect changes during an iteration.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * Sets registering the registered units, logs and boulders of this world map, and read-only views on them.
+	 */
+	private final Set<Unit> units = new LinkedHashSet<>();
+	private final Set<Unit> unitsView = Collections.unmodifiableSet(units);
+	private final Set<Log> logs = new LinkedHashSet<>();
+	private final Set<Log> logsView = Collections.unmodifiableSet(logs);
+	private final Set<Boulder> boulders = new LinkedHashSet<>();
+	private final Set<Boulder> bouldersView = Collections.unmodifiableSet(boulders);
+
+	/**
+	 * Map registering the objects in each occupied cube of this world map, with the packed coordinate of the cube as
+	 * the key. Cubes without objects have no entry.
+	 */
+	private final Map<Long, List<MovableWorldObject>> cubeIndex = new HashMap<>();
+
+	/**
+	 * The length in cubes of the sides of the cells of the cell index.
+	 */
+	static final int CELL_SIZE = 8;
+
+	/**
+	 * Map registering the objects in each occupied cell of this world map, with the packed coordinate of the cell as
+	 * the key. The cells form a uniform grid of CELL_SIZE by CELL_SIZE by CELL_SIZE cubes over the world, and cells
+	 * without objects have no entry.
+	 */
+	private final Map<Long, List<MovableWorldObject>> cellIndex = new HashMap<>();
+
+	/* Methods */
+
+	/**
+	 * Return the key of the cube with given x, y and z coordinate in the cube index.
+	 * 		Each coordinate gets 21 bits, which is more than any world needs.
+	 */
+	static long packCube(int x, int y, int z) {
+		return ((long) x & 0x1FFFFF) | (((long) y & 0x1FFFFF) << 21) | (((long) z & 0x1FFFFF) << 42);
+	}
+
+	/**
+	 * Return the key of the cube the given object is located in.
+	 */
+	private static long cubeKeyOf(MovableWorldObject object) {
+		return packCube((int) object.getXCoordinate(), (int) object.getYCoordinate(), (int) object.getZCoordinate());
+	}
+
+	/**
+	 * Return the key of the cell the given object is located in.
+	 */
+	private static long cellKeyOf(MovableWorldObject object) {
+		return packCube(cellOf(object.getXCoordinate()), cellOf(object.getYCoordinate()), cellOf(object.getZCoordinate()));
+	}
+
+	/**
+	 * Return the coordinate of the cell containing the given coordinate, where coordinates below zero belong to the
+	 * first cell.
+	 */
+	private static int cellOf(double coordinate) {
+		if (coordinate <= 0)
+			return 0;
+		return (int) Math.min(coordinate / CELL_SIZE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Register the given object at its current location and return its identifier.
+	 *
+	 * @param	object
+	 *			The object to register.
+	 * @return	An identifier that is not in use by any other registered object of this world map.
+	 */
+	int addObject(MovableWorldObject object) {
+		int id;
+		if (nbFreeIds > 0)
+			id = freeIds[--nbFreeIds];
+		else {
+			id = nextId++;
+			if (id == positions.length) {
+				positions = Arrays.copyOf(positions, 2 * id);
+				cubeKeys = Arrays.copyOf(cubeKeys, 2 * id);
+				cellKeys = Arrays.copyOf(cellKeys, 2 * id);
+				freeIds = Arrays.copyOf(freeIds, 2 * id);
+			}
+		}
+		if (nbObjects == objects.length)
+			objects = Arrays.copyOf(objects, 2 * nbObjects);
+		objects[nbObjects] = object;
+		positions[id] = nbObjects++;
+		long cubeKey = cubeKeyOf(object);
+		cubeKeys[id] = cubeKey;
+		cubeIndex.computeIfAbsent(cubeKey, k -> new ArrayList<>(2)).add(object);
+		long cellKey = cellKeyOf(object);
+		cellKeys[id] = cellKey;
+		cellIndex.computeIfAbsent(cellKey, k -> new ArrayList<>()).add(object);
+		if (object instanceof Unit)
+			units.add((Unit) object);
+		else if (object instanceof Log)
+			logs.add((Log) object);
+		else if (object instanceof Boulder)
+			boulders.add((Boulder) object);
+		modCount++;
+		return id;
+	}
+
+	/**
+	 * Update the cube index of this world map after the given registered object has moved.
+	 * 		Nothing changes as long as the object stays in the same cube.
+	 *
+	 * @param	object
+	 *			The object that has moved.
+	 */
+	void moved(MovableWorldObject object) {
+		int id = object.getRegistryId();
+		long cubeKey = cubeKeyOf(object);
+		if (cubeKey == cubeKeys[id])
+			return;
+		removeFrom(cubeIndex, object, cubeKeys[id]);
+		cubeKeys[id] = cubeKey;
+		cubeIndex.computeIfAbsent(cubeKey, k -> new ArrayList<>(2)).add(object);
+		long cellKey = cellKeyOf(object);
+		if (cellKey == cellKeys[id])
+			return;
+		removeFrom(cellIndex, object, cellKeys[id]);
+		cellKeys[id] = cellKey;
+		cellIndex.computeIfAbsent(cellKey, k -> new ArrayList<>()).add(object);
+	}
+
+	/**
+	 * Remove the given registered object from this world map and release its identifier.
+	 * 		The last object of the objects array takes the place of the removed object.
+	 *
+	 * @param	object
+	 *			The object to remove.
+	 */
+	void removeObject(MovableWorldObject object) {
+		int id = object.getRegistryId();
+		int position = positions[id];
+		MovableWorldObject last = objects[--nbObjects];
+		objects[position] = last;
+		positions[last.getRegistryId()] = position;
+		objects[nbObjects] = null;
+		positions[id] = -1;
+		freeIds[nbFreeIds++] = id;
+		removeFrom(cubeIndex, object, cubeKeys[id]);
+		removeFrom(cellIndex, object, cellKeys[id]);
+		if (object instanceof Unit)
+			units.remove(object);
+		else if (object instanceof Log)
+			logs.remove(object);
+		else if (object instanceof Boulder)
+			boulders.remove(object);
+		modCount++;
+	}
+
+	/**
+	 * Remove the given object from the objects under the given key in the given cube or cell index.
+	 */
+	private static void removeFrom(Map<Long, List<MovableWorldObject>> index, MovableWorldObject object, long key) {
+		List<MovableWorldObject> indexed = index.get(key);
+		if (indexed == null)
+			return;
+		indexed.remove(object);
+		if (indexed.isEmpty())
+			index.remove(key);
+	}
+
+	/**
+	 * Check whether the given object is registered in this world map.
+	 *
+	 * @param	object
+	 *			The object to check.
+	 */
+	public boolean isRegistered(MovableWorldObject object) {
+		int id = object.getRegistryId();
+		return id >= 0 && id < nextId && positions[id] >= 0 && objects[positions[id]] == object;
+	}
+
+	/**
+	 * Return an array with all the registered objects of this world map.
+	 * 		The array is a copy, so objects can be registered and removed while it is traversed.
+	 */
+	public MovableWorldObject[] toArray() {
+		return Arrays.copyOf(objects, nbObjects);
+	}
+
+	/**
+	 * Return the number of registered objects of this world map.
+	 */
+	@Override
+	public int size() {
+		return nbObjects;
+	}
+
+	/**
+	 * Return the object at the given location, or null if its occupant is not registered at that location.
+	 */
+	@Override
+	public MovableWorldObject get(Object key) {
+		if (! (key instanceof VLocation))
+			return null;
+		VLocation location = (VLocation) key;
+		MovableWorldObject occupant = location.getOccupant();
+		if (occupant == null || ! isRegistered(occupant)
+				|| occupant.getXCoordinate() != location.getXLocation()
+				|| occupant.getYCoordinate() != location.getYLocation()
+				|| occupant.getZCoordinate() != location.getZLocation())
+			return null;
+		return occupant;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return (value instanceof MovableWorldObject) && isRegistered((MovableWorldObject) value);
+	}
+
+	/**
+	 * Return a read-only view on the registered objects of this world map.
+	 */
+	@Override
+	public Collection<MovableWorldObject> values() {
+		return new AbstractCollection<MovableWorldObject>() {
+
+			@Override
+			public Iterator<MovableWorldObject> iterator() {
+				return new ObjectIterator();
+			}
+
+			@Override
+			public int size() {
+				return nbObjects;
+			}
+
+			@Override
+			public boolean contains(Object object) {
+				return containsValue(object);
+			}
+		};
+	}
+
+	/**
+	 * Return a read-only view on the locations and objects of this world map.
+	 */
+	@Override
+	public Set<Map.Entry<VLocation, MovableWorldObject>> entrySet() {
+		return new AbstractSet<Map.Entry<VLocation, MovableWorldObject>>() {
+
+			@Override
+			public Iterator<Map.Entry<VLocation, MovableWorldObject>> iterator() {
+				ObjectIterator objectIterator = new ObjectIterator();
+				return new Iterator<Map.Entry<VLocation, MovableWorldObject>>() {
+
+					@Override
+					public boolean hasNext() {
+						return objectIterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<VLocation, MovableWorldObject> next() {
+						MovableWorldObject object = objectIterator.next();
+						return new AbstractMap.SimpleImmutableEntry<>(object.getLocation(), object);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return nbObjects;
+			}
+		};
+	}
+
+	/**
+	 * A class of iterators over the registered objects of this world map.
+	 * 		The iterator fails as soon as an object is registered or removed during the iteration.
+	 */
+	private class ObjectIterator implements Iterator<MovableWorldObject> {
+
+		private int next = 0;
+
+		private final int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < nbObjects;
+		}
+
+		@Override
+		public MovableWorldObject next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (next >= nbObjects)
+				throw new NoSuchElementException();
+			return objects[next++];
+		}
+	}
+
 	/**
 	 * Return all the objects in the cube with given location.
 	 * 
@@ -21,16 +376,241 @@ public class WorldMap<K extends VLocation, V extends MovableWorldObject> extends
 	 * @return	A list with all the objects in the cube with given location.
 	 */
     public List<MovableWorldObject> getAllInCube(int[] cubeLocation) {
-        Set<VLocation> keySet = this.keySet();
-        List<MovableWorldObject> objectSet = new ArrayList<>();
-        for (VLocation loc: keySet) {
-            if (! Arrays.equals(loc.getCubeLocation(), cubeLocation))
-            	continue;
-            objectSet.add(this.get(loc));
-        }
-        return objectSet;
+        List<MovableWorldObject> objects = cubeIndex.get(packCube(cubeLocation[0], cubeLocation[1], cubeLocation[2]));
+        if (objects == null)
+            return new ArrayList<>();
+        return new ArrayList<>(objects);
     }
 
+	/**
+	 * Return all the objects with a location in the given box.
+	 * 		Only the cells of the cell index that overlap the box are inspected, or all occupied cells if there are fewer
+	 * 		of them.
+	 *
+	 * @param	minX
+	 *			The lowest x coordinate of the box.
+	 * @param	minY
+	 *			The lowest y coordinate of the box.
+	 * @param	minZ
+	 *			The lowest z coordinate of the box.
+	 * @param	maxX
+	 *			The x coordinate bounding the box from above.
+	 * @param	maxY
+	 *			The y coordinate bounding the box from above.
+	 * @param	maxZ
+	 *			The z coordinate bounding the box from above.
+	 * @return	A list with all the objects whose x, y and z coordinate are at least the given lowest coordinate and
+	 * 			smaller than the given upper bound.
+	 */
+	public List<MovableWorldObject> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ) {
+		List<MovableWorldObject> result = new ArrayList<>();
+		if (maxX <= 0 || maxY <= 0 || maxZ <= 0 || minX >= maxX || minY >= maxY || minZ >= maxZ)
+			return result;
+		for (List<MovableWorldObject> cell: getCellsOverlapping(minX, minY, minZ, maxX, maxY, maxZ)) {
+			for (MovableWorldObject object: cell) {
+				double x = object.getXCoordinate();
+				double y = object.getYCoordinate();
+				double z = object.getZCoordinate();
+				if (minX <= x && x < maxX && minY <= y && y < maxY && minZ <= z && z < maxZ)
+					result.add(object);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return all the objects with a location in the given sphere.
+	 *
+	 * @param	x
+	 *			The x coordinate of the centre of the sphere.
+	 * @param	y
+	 *			The y coordinate of the centre of the sphere.
+	 * @param	z
+	 *			The z coordinate of the centre of the sphere.
+	 * @param	radius
+	 *			The radius of the sphere.
+	 * @return	A list with all the objects whose distance to the given centre is not greater than the given radius.
+	 */
+	public List<MovableWorldObject> getObjectsInSphere(double x, double y, double z, double radius) {
+		List<MovableWorldObject> result = new ArrayList<>();
+		if (radius < 0 || x + radius < 0 || y + radius < 0 || z + radius < 0)
+			return result;
+		double squaredRadius = radius * radius;
+		for (List<MovableWorldObject> cell: getCellsOverlapping(x - radius, y - radius, z - radius, x + radius,
+				y + radius, z + radius)) {
+			for (MovableWorldObject object: cell) {
+				double dx = object.getXCoordinate() - x;
+				double dy = object.getYCoordinate() - y;
+				double dz = object.getZCoordinate() - z;
+				if (dx * dx + dy * dy + dz * dz <= squaredRadius)
+					result.add(object);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the objects of the occupied cells that overlap the given box, cell by cell.
+	 */
+	private Collection<List<MovableWorldObject>> getCellsOverlapping(double minX, double minY, double minZ, double maxX,
+			double maxY, double maxZ) {
+		int minCellX = cellOf(minX);
+		int minCellY = cellOf(minY);
+		int minCellZ = cellOf(minZ);
+		int maxCellX = cellOf(maxX);
+		int maxCellY = cellOf(maxY);
+		int maxCellZ = cellOf(maxZ);
+		double nbCells = (maxCellX - minCellX + 1.0) * (maxCellY - minCellY + 1.0) * (maxCellZ - minCellZ + 1.0);
+		if (nbCells >= cellIndex.size())
+			return cellIndex.values();
+		List<List<MovableWorldObject>> cells = new ArrayList<>();
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+				for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+					List<MovableWorldObject> cell = cellIndex.get(packCube(cellX, cellY, cellZ));
+					if (cell != null)
+						cells.add(cell);
+				}
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Return the given number of objects satisfying the given condition that are nearest to the given position.
+	 * 		The cells of the cell index are visited in rings of growing distance around the cell of the position, until
+	 * 		no unvisited cell can hold an object closer than the farthest of the objects found. Once a ring would visit
+	 * 		more cells than are occupied, the remaining occupied cells are inspected directly instead.
+	 *
+	 * @param	x
+	 *			The x coordinate of the position.
+	 * @param	y
+	 *			The y coordinate of the position.
+	 * @param	z
+	 *			The z coordinate of the position.
+	 * @param	number
+	 *			The number of objects to return.
+	 * @param	condition
+	 *			The condition the objects must satisfy.
+	 * @return	A list with at most the given number of objects satisfying the given condition, ordered by increasing
+	 * 			distance to the given position, such that no other object satisfying the condition is closer to the
+	 * 			position than the last object of the list.
+	 */
+	public List<MovableWorldObject> getNearestObjects(double x, double y, double z, int number,
+			Predicate<? super MovableWorldObject> condition) {
+		if (number <= 0)
+			return new ArrayList<>();
+		//the candidates found so far, the farthest one first
+		PriorityQueue<Candidate> nearest = new PriorityQueue<>(number,
+				(first, second) -> Double.compare(second.squaredDistance, first.squaredDistance));
+		int cellX = cellOf(x);
+		int cellY = cellOf(y);
+		int cellZ = cellOf(z);
+		long nbVisitedCells = 0;
+		for (int ring = 0; ; ring++) {
+			if (nearest.size() == number) {
+				double bound = getDistanceToRing(x, y, z, cellX, cellY, cellZ, ring);
+				if (nearest.peek().squaredDistance <= bound * bound)
+					break;
+			}
+			long nbRingCells = (ring == 0) ? 1 : cube(2L * ring + 1) - cube(2L * ring - 1);
+			if (nbVisitedCells + nbRingCells > cellIndex.size()) {
+				for (Map.Entry<Long, List<MovableWorldObject>> cell: cellIndex.entrySet()) {
+					long key = cell.getKey();
+					int ringOfCell = Math.max(Math.abs((int) (key & 0x1FFFFF) - cellX),
+							Math.max(Math.abs((int) ((key >>> 21) & 0x1FFFFF) - cellY),
+									Math.abs((int) ((key >>> 42) & 0x1FFFFF) - cellZ)));
+					if (ringOfCell >= ring)
+						offerNearest(cell.getValue(), x, y, z, number, condition, nearest);
+				}
+				break;
+			}
+			for (int cx = cellX - ring; cx <= cellX + ring; cx++) {
+				for (int cy = cellY - ring; cy <= cellY + ring; cy++) {
+					//only the first and last layer of the ring are full, the layers in between only have their border
+					boolean border = (cx == cellX - ring || cx == cellX + ring || cy == cellY - ring || cy == cellY + ring);
+					int step = border ? 1 : Math.max(2 * ring, 1);
+					for (int cz = cellZ - ring; cz <= cellZ + ring; cz += step) {
+						if (cx < 0 || cy < 0 || cz < 0)
+							continue;
+						List<MovableWorldObject> cell = cellIndex.get(packCube(cx, cy, cz));
+						if (cell != null)
+							offerNearest(cell, x, y, z, number, condition, nearest);
+					}
+				}
+			}
+			nbVisitedCells += nbRingCells;
+		}
+		Candidate[] candidates = nearest.toArray(new Candidate[nearest.size()]);
+		Arrays.sort(candidates, (first, second) -> Double.compare(first.squaredDistance, second.squaredDistance));
+		List<MovableWorldObject> result = new ArrayList<>(candidates.length);
+		for (Candidate candidate: candidates)
+			result.add(candidate.object);
+		return result;
+	}
+
+	/**
+	 * Return a lower bound on the distance between the given position and the objects in the cells in the given ring
+	 * or farther around the given cell.
+	 * 		This is the distance from the position to the border of the block of cells inside the ring. Cells with negative
+	 * 		coordinates never hold objects, so the borders on that side are ignored.
+	 */
+	private static double getDistanceToRing(double x, double y, double z, int cellX, int cellY, int cellZ, int ring) {
+		if (ring == 0)
+			return 0;
+		double bound = Double.POSITIVE_INFINITY;
+		double[] position = new double[]{x, y, z};
+		int[] cell = new int[]{cellX, cellY, cellZ};
+		for (int i = 0; i < 3; i++) {
+			if (cell[i] - ring >= 0)
+				bound = Math.min(bound, position[i] - (double) (cell[i] - ring + 1) * CELL_SIZE);
+			bound = Math.min(bound, (double) (cell[i] + ring) * CELL_SIZE - position[i]);
+		}
+		return Math.max(bound, 0);
+	}
+
+	/**
+	 * Offer the objects of the given cell that satisfy the given condition to the given queue of nearest candidates,
+	 * keeping only the given number of nearest candidates.
+	 */
+	private static void offerNearest(List<MovableWorldObject> cell, double x, double y, double z, int number,
+			Predicate<? super MovableWorldObject> condition, PriorityQueue<Candidate> nearest) {
+		for (MovableWorldObject object: cell) {
+			double dx = object.getXCoordinate() - x;
+			double dy = object.getYCoordinate() - y;
+			double dz = object.getZCoordinate() - z;
+			double squaredDistance = dx * dx + dy * dy + dz * dz;
+			if (nearest.size() == number && squaredDistance >= nearest.peek().squaredDistance)
+				continue;
+			if (! condition.test(object))
+				continue;
+			nearest.add(new Candidate(object, squaredDistance));
+			if (nearest.size() > number)
+				nearest.poll();
+		}
+	}
+
+	private static long cube(long value) {
+		return value * value * value;
+	}
+
+	/**
+	 * A class of candidates for a nearest object query, involving an object and its squared distance to the position
+	 * of the query.
+	 */
+	private static class Candidate {
+
+		private Candidate(MovableWorldObject object, double squaredDistance) {
+			this.object = object;
+			this.squaredDistance = squaredDistance;
+		}
+
+		private final MovableWorldObject object;
+
+		private final double squaredDistance;
+	}
+
     /**
 	 * Return all the logs in the cube with given location.
 	 * 
@@ -71,30 +651,24 @@ public class WorldMap<K extends VLocation, V extends MovableWorldObject> extends
     }
 
 	/**
-	 * Return a set collecting all the units in this world map.
+	 * Return a read-only view on the units in this world map.
 	 */
     public Set<Unit> getAllUnits(){
-        Collection<MovableWorldObject> totColl = this.values();
-        Set<MovableWorldObject> unitSet = totColl.stream().filter(object -> (object instanceof Unit)).collect(Collectors.toSet());
-        return (Set) unitSet;
+        return unitsView;
     }
   
 	/**
-	 * Return a set collecting all the boulders in this world map.
+	 * Return a read-only view on the boulders in this world map.
 	 */
     public Set<Boulder> getAllBoulders() {
-        Collection<MovableWorldObject> totColl = this.values();
-        Set<MovableWorldObject> boulderSet = totColl.stream().filter(object -> (object instanceof Boulder)).collect(Collectors.toSet());
-        return (Set) boulderSet;
+        return bouldersView;
     }
     
 	/**
-	 * Return a set collecting all the logs in this world map.
+	 * Return a read-only view on the logs in this world map.
 	 */
     public Set<Log> getAllLogs() {
-        Collection<MovableWorldObject> totColl = this.values();
-        Set<MovableWorldObject> logSet = totColl.stream().filter(object -> (object instanceof Log)).collect(Collectors.toSet());
-        return (Set) logSet;
+        return logsView;
     }
 
-}
\ No newline at end of file
+}
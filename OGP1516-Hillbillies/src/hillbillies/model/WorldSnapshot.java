@@ -0,0 +1,648 @@
+package hillbillies.model;
+
+import hillbillies.model.EsotERICScript.Statements.ExecutionStatus;
+import hillbillies.model.activities.*;
+import hillbillies.model.exceptions.IllegalLocation;
+import hillbillies.model.exceptions.IllegalTimeException;
+import hillbillies.part2.listener.TerrainChangeListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class collecting the methods to save a world to a snapshot and to load it again.
+ * 		A snapshot starts with the four bytes "HBSN" and the version of the format, followed by the terrain in the world
+ * 		file format, the cave-in budget, the factions with their units, the logs and boulders lying in the world, the
+ * 		programs of the tasks, the tasks, the task queues of the schedulers and finally the activities and tasks of the
+ * 		units. Units, programs, tasks and the defenders of attacks refer to each other by their position in the snapshot.
+ * 		A snapshot is written and read as a single stream, without building an intermediate copy of the world. Paths of
+ * 		movements are not saved but planned again.
+ * 		The statements of a task are saved as the program they were created from by a task factory, and created anew
+ * 		from it when the task is loaded, each task getting statements of its own. A loaded task keeps its name,
+ * 		priority, selected cube, schedulers, executor and variables, and is queued and assigned as it was. The progress
+ * 		through its statements is not saved, so a task that was being executed starts again from its first statement.
+ * 		Tasks whose statements were not created by a task factory cannot be created again, and are left out of the
+ * 		snapshot, as if they were not queued or assigned.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public final class WorldSnapshot {
+
+    /**
+     * This class only collects static methods.
+     */
+    private WorldSnapshot() {
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the first four bytes of every snapshot, "HBSN" in ASCII.
+     */
+    private static final int MAGIC = 0x4842534E;
+
+    /**
+     * Constant reflecting the version of the format of snapshots written by this class.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Constants reflecting the kind of a log or boulder in a snapshot, and the absence of a carried object.
+     */
+    private static final int NO_OBJECT = 0;
+    private static final int LOG = 1;
+    private static final int BOULDER = 2;
+
+    /* Methods */
+
+    /**
+     * Write a snapshot of the given world to the given stream.
+     * 		The stream is not closed.
+     *
+     * @param	world
+     *			The world to save.
+     * @param	out
+     *			The stream to write to.
+     * @throws	IOException
+     *			Writing to the stream failed.
+     */
+    public static void write(World world, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        WorldFile.writeTerrain(world.getTerrain(), data);
+        writeState(world, data);
+        data.flush();
+    }
+
+    /**
+     * Write a snapshot made up of the given terrain and the given state, as captured by captureState, to the given
+     * stream.
+     * 		The stream is not closed. This allows the terrain and the state to be captured at one point in time, and
+     * 		written later on another thread.
+     *
+     * @throws	IOException
+     *			Writing to the stream failed.
+     */
+    static void write(TerrainStorage terrain, byte[] state, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        WorldFile.writeTerrain(terrain, data);
+        data.write(state);
+        data.flush();
+    }
+
+    /**
+     * Return the part of a snapshot of the given world that follows its terrain.
+     */
+    static byte[] captureState(World world) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 14);
+        try {
+            DataOutputStream data = new DataOutputStream(bytes);
+            writeState(world, data);
+            data.flush();
+        } catch (IOException exc) {
+            //a byte array output stream does not throw
+            throw new AssertionError(exc);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write the part of a snapshot of the given world that follows its terrain.
+     */
+    private static void writeState(World world, DataOutputStream data) throws IOException {
+        data.writeInt(world.getCaveInBudget());
+
+        List<Faction> factions = new ArrayList<>(world.FactionSet);
+        List<Unit> units = new ArrayList<>();
+        Map<Unit, Integer> unitIndex = new IdentityHashMap<>();
+        data.writeInt(factions.size());
+        for (Faction faction : factions) {
+            data.writeInt(faction.getNbUnits());
+            for (Unit unit : faction.getUnitSet()) {
+                unitIndex.put(unit, units.size());
+                units.add(unit);
+                writeUnit(data, unit);
+            }
+        }
+
+        List<InanimateMovableWorldObject> objects = new ArrayList<>(world.getWorldMap().getAllLogs());
+        objects.addAll(world.getWorldMap().getAllBoulders());
+        data.writeInt(objects.size());
+        for (InanimateMovableWorldObject object : objects) {
+            data.writeByte(object instanceof Log ? LOG : BOULDER);
+            data.writeInt(object.getWeight());
+            data.writeDouble(object.getXCoordinate());
+            data.writeDouble(object.getYCoordinate());
+            data.writeDouble(object.getZCoordinate());
+            writeActivity(data, object.getActivity(), unitIndex);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        Map<Task, Integer> taskIndex = new IdentityHashMap<>();
+        for (Faction faction : factions)
+            for (Task task : faction.getScheduler().getAllTasks())
+                addTask(task, tasks, taskIndex);
+        for (Unit unit : units)
+            if (unit.hasTask())
+                addTask(unit.getTask(), tasks, taskIndex);
+        List<TaskProgram> programs = new ArrayList<>();
+        Map<TaskProgram, Integer> programIndex = new IdentityHashMap<>();
+        for (Task task : tasks) {
+            if (! programIndex.containsKey(task.getProgram())) {
+                programIndex.put(task.getProgram(), programs.size());
+                programs.add(task.getProgram());
+            }
+        }
+        data.writeInt(programs.size());
+        for (TaskProgram program : programs)
+            writeProgram(data, program);
+        Map<Faction, Integer> factionIndex = new IdentityHashMap<>();
+        for (Faction faction : factions)
+            factionIndex.put(faction, factionIndex.size());
+        data.writeInt(tasks.size());
+        for (Task task : tasks)
+            writeTask(data, task, programIndex.get(task.getProgram()), factionIndex, unitIndex);
+        for (Faction faction : factions) {
+            List<Task> queue = faction.getScheduler().getTasksWithCondition(taskIndex::containsKey);
+            data.writeInt(queue.size());
+            for (Task task : queue)
+                data.writeInt(taskIndex.get(task));
+        }
+
+        for (Unit unit : units) {
+            writeActivity(data, unit.getActivity(), unitIndex);
+            data.writeBoolean(unit.hasPausedActivity());
+            if (unit.hasPausedActivity())
+                writeActivity(data, unit.getPausedActivity(), unitIndex);
+            Integer task = unit.hasTask() ? taskIndex.get(unit.getTask()) : null;
+            data.writeInt(task == null ? -1 : task);
+        }
+    }
+
+    /**
+     * Read a snapshot from the given stream into a new world, and return it.
+     * 		The stream is not closed.
+     *
+     * @param	in
+     *			The stream to read from.
+     * @param	changeListener
+     *			The terrain change listener for the new world.
+     * @return	A world holding the terrain, units, logs, boulders and tasks of the snapshot.
+     * @throws	IOException
+     *			Reading from the stream failed, or the stream does not hold a valid snapshot.
+     */
+    public static World read(InputStream in, TerrainChangeListener changeListener) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a world snapshot");
+        int version = data.readInt();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Unsupported world snapshot version " + version);
+        return read(WorldFile.readTerrain(data), data, changeListener);
+    }
+
+    /**
+     * Read the state of a snapshot, as captured by captureState, into a new world with the given terrain, and return
+     * it.
+     *
+     * @throws	IOException
+     *			The given state is not valid.
+     */
+    static World read(TerrainStorage terrain, byte[] state, TerrainChangeListener changeListener) throws IOException {
+        return read(terrain, new DataInputStream(new ByteArrayInputStream(state)), changeListener);
+    }
+
+    /**
+     * Read the part of a snapshot that follows its terrain from the given data stream into a new world with the given
+     * terrain, and return it.
+     *
+     * @throws	IOException
+     *			Reading from the stream failed, or the stream does not hold a valid state.
+     */
+    private static World read(TerrainStorage terrain, DataInputStream data, TerrainChangeListener changeListener)
+            throws IOException {
+        try {
+            World world = new World(terrain, changeListener);
+            world.setCaveInBudget(data.readInt());
+
+            int nbFactions = readCount(data, World.MAX_FACTIONS);
+            List<Faction> factions = new ArrayList<>();
+            List<Unit> units = new ArrayList<>();
+            for (int i = 0; i < nbFactions; i++) {
+                int nbUnits = readCount(data, Faction.MAX_UNITS);
+                if (nbUnits == 0)
+                    throw new IOException("Empty faction in world snapshot");
+                Faction faction = null;
+                for (int j = 0; j < nbUnits; j++) {
+                    Unit unit = readUnit(data, world, faction);
+                    faction = unit.getFaction();
+                    units.add(unit);
+                }
+                factions.add(faction);
+            }
+
+            int nbObjects = readCount(data, Integer.MAX_VALUE);
+            for (int i = 0; i < nbObjects; i++) {
+                InanimateMovableWorldObject object = readObject(data, world);
+                if (object == null)
+                    throw new IOException("Missing object in world snapshot");
+                object.restoreLocation(data.readDouble(), data.readDouble(), data.readDouble());
+                object.setActivity(readActivity(data, object, units));
+            }
+
+            int nbPrograms = readCount(data, Integer.MAX_VALUE);
+            List<TaskProgram> programs = new ArrayList<>();
+            for (int i = 0; i < nbPrograms; i++)
+                programs.add(readProgram(data));
+            int nbTasks = readCount(data, Integer.MAX_VALUE);
+            List<Task> tasks = new ArrayList<>();
+            TaskFactory factory = new TaskFactory();
+            for (int i = 0; i < nbTasks; i++)
+                tasks.add(readTask(data, world, programs, factory, factions, units));
+            for (Faction faction : factions) {
+                int nbQueued = readCount(data, nbTasks);
+                for (int i = 0; i < nbQueued; i++)
+                    faction.getScheduler().schedule(tasks.get(readIndex(data, nbTasks)));
+            }
+
+            for (Unit unit : units) {
+                unit.setActivity(readActivity(data, unit, units));
+                IActivity pausedActivity = data.readBoolean() ? readActivity(data, unit, units) : null;
+                int task = data.readInt();
+                if (task < -1 || task >= nbTasks)
+                    throw new IOException("Invalid task " + task + " in world snapshot");
+                unit.restore(pausedActivity, task < 0 ? null : tasks.get(task));
+            }
+            return world;
+        } catch (IllegalArgumentException | IllegalLocation | IllegalTimeException exc) {
+            throw new IOException("Invalid world snapshot: " + exc.getMessage(), exc);
+        }
+    }
+
+    /**
+     * Write the properties, location, points and carried object of the given unit.
+     */
+    private static void writeUnit(DataOutputStream data, Unit unit) throws IOException {
+        data.writeUTF(unit.getName());
+        data.writeInt(unit.weight);
+        data.writeInt(unit.getStrength());
+        data.writeInt(unit.getAgility());
+        data.writeInt(unit.getToughness());
+        data.writeBoolean(unit.isDefaultBehaviorEnabled());
+        data.writeDouble(unit.getXCoordinate());
+        data.writeDouble(unit.getYCoordinate());
+        data.writeDouble(unit.getZCoordinate());
+        data.writeInt(unit.getCurrentHitPoints());
+        data.writeInt(unit.getCurrentStaminaPoints());
+        data.writeFloat(unit.getOrientation());
+        data.writeBoolean(unit.isSprinting());
+        data.writeInt(unit.getXP());
+        data.writeInt(unit.getXPUsed());
+        data.writeDouble(unit.getTimeSinceLastRest());
+        InanimateMovableWorldObject carried = unit.isCarrying() ? unit.getCarriedObject() : null;
+        if (carried == null) {
+            data.writeByte(NO_OBJECT);
+        } else {
+            data.writeByte(carried instanceof Log ? LOG : BOULDER);
+            data.writeInt(carried.getWeight());
+        }
+    }
+
+    /**
+     * Read a unit written by writeUnit into the given world, as a member of the given faction, and return it.
+     *
+     * @param	faction
+     *			The faction of the unit, or null if the unit founds a new faction.
+     */
+    private static Unit readUnit(DataInputStream data, World world, Faction faction) throws IOException {
+        Unit unit = new Unit(data.readUTF(), data.readInt(), data.readInt(), data.readInt(), data.readInt(),
+                data.readBoolean(), world, faction);
+        unit.restoreLocation(data.readDouble(), data.readDouble(), data.readDouble());
+        world.addUnit(unit);
+        unit.setCurrentHitPoints(data.readInt());
+        unit.setCurrentStaminaPoints(data.readInt());
+        unit.setOrientation(data.readFloat());
+        unit.setSprinting(data.readBoolean());
+        unit.restore(data.readInt(), data.readInt(), data.readDouble());
+        InanimateMovableWorldObject carried = readObject(data, world);
+        if (carried != null) {
+            carried.restoreLocation(unit.getXCoordinate(), unit.getYCoordinate(), unit.getZCoordinate());
+            unit.carry(carried);
+        }
+        return unit;
+    }
+
+    /**
+     * Read the kind and weight of a log or boulder into a new object without a location in the given world, and return
+     * it, or return null if no object was written.
+     */
+    private static InanimateMovableWorldObject readObject(DataInputStream data, World world) throws IOException {
+        int kind = data.readUnsignedByte();
+        if (kind == NO_OBJECT)
+            return null;
+        int weight = data.readInt();
+        if (kind == LOG)
+            return new Log(weight, world);
+        if (kind == BOULDER)
+            return new Boulder(weight, world);
+        throw new IOException("Unknown kind of object " + kind + " in world snapshot");
+    }
+
+    /**
+     * Add the given task to the given list of tasks, unless it is already registered in the given map of indices, or
+     * its statements were not created by a task factory.
+     */
+    private static void addTask(Task task, List<Task> tasks, Map<Task, Integer> taskIndex) {
+        if (task.getProgram() == null || taskIndex.containsKey(task))
+            return;
+        taskIndex.put(task, tasks.size());
+        tasks.add(task);
+    }
+
+    /**
+     * Write the given task program and the programs of its parts.
+     */
+    private static void writeProgram(DataOutputStream data, TaskProgram program) throws IOException {
+        data.writeByte(program.getKind().ordinal());
+        data.writeBoolean(program.getName() != null);
+        if (program.getName() != null)
+            data.writeUTF(program.getName());
+        int[] numbers = program.getNumbers();
+        data.writeInt(numbers.length);
+        for (int number : numbers)
+            data.writeInt(number);
+        TaskProgram[] parts = program.getParts();
+        data.writeInt(parts.length);
+        for (TaskProgram part : parts) {
+            data.writeBoolean(part != null);
+            if (part != null)
+                writeProgram(data, part);
+        }
+    }
+
+    /**
+     * Read a task program written by writeProgram, and return it.
+     */
+    private static TaskProgram readProgram(DataInputStream data) throws IOException {
+        int kind = data.readUnsignedByte();
+        if (kind >= TaskProgram.Kind.values().length)
+            throw new IOException("Unknown kind of task program " + kind + " in world snapshot");
+        String name = data.readBoolean() ? data.readUTF() : null;
+        int[] numbers = new int[readCount(data, 3)];
+        for (int i = 0; i < numbers.length; i++)
+            numbers[i] = data.readInt();
+        int nbParts = readCount(data, Integer.MAX_VALUE);
+        List<TaskProgram> parts = new ArrayList<>();
+        for (int i = 0; i < nbParts; i++)
+            parts.add(data.readBoolean() ? readProgram(data) : null);
+        return new TaskProgram(TaskProgram.Kind.values()[kind], name, numbers, parts.toArray(new TaskProgram[nbParts]));
+    }
+
+    /**
+     * Write the name, priority, selected cube, execution status, program, schedulers, executor and variables of the
+     * given task.
+     */
+    private static void writeTask(DataOutputStream data, Task task, int program, Map<Faction, Integer> factionIndex,
+                                  Map<Unit, Integer> unitIndex) throws IOException {
+        data.writeUTF(task.getName());
+        data.writeInt(task.getPriority());
+        writeCube(data, task.getSelected());
+        data.writeByte(task.getStatus() == null ? -1 : task.getStatus().ordinal());
+        data.writeInt(program);
+        List<Integer> schedulers = new ArrayList<>();
+        for (Scheduler scheduler : task.getSchedulerSet())
+            if (factionIndex.containsKey(scheduler.getFaction()))
+                schedulers.add(factionIndex.get(scheduler.getFaction()));
+        data.writeInt(schedulers.size());
+        for (int scheduler : schedulers)
+            data.writeInt(scheduler);
+        data.writeInt(indexOf(task.getExecutor(), unitIndex));
+        data.writeInt(task.positionGlobalMap.size());
+        for (Map.Entry<String, int[]> entry : task.positionGlobalMap.entrySet()) {
+            data.writeUTF(entry.getKey());
+            writeCube(data, entry.getValue());
+        }
+        data.writeInt(task.booleanGlobalMap.size());
+        for (Map.Entry<String, Boolean> entry : task.booleanGlobalMap.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeBoolean(entry.getValue());
+        }
+        data.writeInt(task.unitGlobalMap.size());
+        for (Map.Entry<String, Unit> entry : task.unitGlobalMap.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeInt(indexOf(entry.getValue(), unitIndex));
+        }
+    }
+
+    /**
+     * Read a task written by writeTask in the given world, create its statements anew from the given programs with the
+     * given task factory, and return it.
+     * 		A task that was being executed starts again from its first statement. Variables referring to units that were
+     * 		not saved are dropped.
+     */
+    private static Task readTask(DataInputStream data, World world, List<TaskProgram> programs, TaskFactory factory,
+                                 List<Faction> factions, List<Unit> units) throws IOException {
+        Task task = new Task(data.readUTF(), data.readInt());
+        task.world = world;
+        task.setSelected(readCube(data));
+        int status = data.readByte();
+        if (status >= ExecutionStatus.values().length)
+            throw new IOException("Unknown execution status " + status + " in world snapshot");
+        task.setStatus(status < 0 ? null : restartedStatus(ExecutionStatus.values()[status]));
+        TaskProgram program = programs.get(readIndex(data, programs.size()));
+        task.setRootStatement(program.buildStatement(factory));
+        task.setProgram(program);
+        if (! task.isLegaltask())
+            throw new IOException("Illegal task program in world snapshot");
+        int nbSchedulers = readCount(data, factions.size());
+        for (int i = 0; i < nbSchedulers; i++)
+            task.addScheduler(factions.get(readIndex(data, factions.size())).getScheduler());
+        int executor = readIndex(data, -1, units.size());
+        task.setExecutor(executor < 0 ? null : units.get(executor));
+        int nbPositions = readCount(data, Integer.MAX_VALUE);
+        for (int i = 0; i < nbPositions; i++)
+            task.positionGlobalMap.put(data.readUTF(), readCube(data));
+        int nbBooleans = readCount(data, Integer.MAX_VALUE);
+        for (int i = 0; i < nbBooleans; i++)
+            task.booleanGlobalMap.put(data.readUTF(), data.readBoolean());
+        int nbUnits = readCount(data, Integer.MAX_VALUE);
+        for (int i = 0; i < nbUnits; i++) {
+            String name = data.readUTF();
+            int unit = readIndex(data, -1, units.size());
+            if (unit >= 0)
+                task.unitGlobalMap.put(name, units.get(unit));
+        }
+        return task;
+    }
+
+    /**
+     * Return the execution status a task with the given execution status is loaded with: a task that was finished or
+     * not yet executed keeps its status, any other task is not yet executed, since its statements are created anew.
+     */
+    private static ExecutionStatus restartedStatus(ExecutionStatus status) {
+        if (status == ExecutionStatus.FINISHED)
+            return status;
+        return ExecutionStatus.NOTYETEXECUTED;
+    }
+
+    /**
+     * Write the given activity, as far as it cannot be derived again when it is restored.
+     * 		Movements only keep their destination.
+     */
+    private static void writeActivity(DataOutputStream data, IActivity activity, Map<Unit, Integer> unitIndex)
+            throws IOException {
+        data.writeByte(activity.getId());
+        data.writeBoolean(activity.isDictatedByStatement());
+        switch (activity.getId()) {
+            case 1:
+                data.writeInt(indexOf(((Attack) activity).getDefender(), unitIndex));
+                data.writeDouble(((Attack) activity).getTimeLeft());
+                break;
+            case 2:
+                data.writeDouble(((Defend) activity).getTimeLeft());
+                break;
+            case 3:
+                writeCube(data, ((Movement) activity).getDestination());
+                break;
+            case 4:
+                writeCube(data, ((Work) activity).getTargetCubeLocation());
+                data.writeDouble(((Work) activity).getTimeLeft());
+                break;
+            case 5:
+                data.writeDouble(((Rest) activity).getTimeLeftTillFirstHP());
+                data.writeBoolean(((Rest) activity).hasFirstHP());
+                break;
+            case 6:
+                data.writeDouble(((Fall) activity).getDamageToBeDone());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Read an activity written by writeActivity for the given object, and return it.
+     * 		An attack on a unit that was not saved is restored as no activity.
+     */
+    private static IActivity readActivity(DataInputStream data, MovableWorldObject object, List<Unit> units)
+            throws IOException {
+        int id = data.readUnsignedByte();
+        boolean dictatedByStatement = data.readBoolean();
+        if (id != 0 && id != 6 && ! (object instanceof Unit))
+            throw new IOException("Invalid activity " + id + " for an object in world snapshot");
+        IActivity activity;
+        switch (id) {
+            case 0:
+                activity = new NoActivity();
+                break;
+            case 1:
+                int defender = readIndex(data, -1, units.size());
+                double attackTimeLeft = data.readDouble();
+                activity = (defender < 0) ? new NoActivity()
+                        : new Attack((Unit) object, units.get(defender), attackTimeLeft);
+                break;
+            case 2:
+                activity = new Defend((Unit) object, data.readDouble());
+                break;
+            case 3:
+                activity = new Movement((Unit) object, readCube(data));
+                break;
+            case 4:
+                activity = new Work((Unit) object, readCube(data), data.readDouble());
+                break;
+            case 5:
+                activity = new Rest((Unit) object, data.readDouble(), data.readBoolean());
+                break;
+            case 6:
+                activity = new Fall(object, data.readDouble());
+                break;
+            default:
+                throw new IOException("Unknown activity " + id + " in world snapshot");
+        }
+        activity.setDictatedByStatement(dictatedByStatement);
+        return activity;
+    }
+
+    /**
+     * Write the given cube location, which may be null.
+     */
+    private static void writeCube(DataOutputStream data, int[] cube) throws IOException {
+        data.writeBoolean(cube != null);
+        if (cube != null) {
+            data.writeInt(cube[0]);
+            data.writeInt(cube[1]);
+            data.writeInt(cube[2]);
+        }
+    }
+
+    /**
+     * Read a cube location written by writeCube, and return it.
+     */
+    private static int[] readCube(DataInputStream data) throws IOException {
+        if (! data.readBoolean())
+            return null;
+        return new int[]{data.readInt(), data.readInt(), data.readInt()};
+    }
+
+    /**
+     * Return the position of the given unit in the snapshot, or -1 if it is not saved.
+     */
+    private static int indexOf(Unit unit, Map<Unit, Integer> unitIndex) {
+        Integer index = (unit == null) ? null : unitIndex.get(unit);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * Read a count of at most the given maximum.
+     *
+     * @throws	IOException
+     *			The count is negative or exceeds the given maximum.
+     */
+    private static int readCount(DataInputStream data, int max) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > max)
+            throw new IOException("Invalid count " + count + " in world snapshot");
+        return count;
+    }
+
+    /**
+     * Read an index of at least zero and less than the given size.
+     *
+     * @throws	IOException
+     *			The index is out of range.
+     */
+    private static int readIndex(DataInputStream data, int size) throws IOException {
+        return readIndex(data, 0, size);
+    }
+
+    /**
+     * Read an index of at least the given minimum and less than the given size.
+     *
+     * @throws	IOException
+     *			The index is out of range.
+     */
+    private static int readIndex(DataInputStream data, int min, int size) throws IOException {
+        int index = data.readInt();
+        if (index < min || index >= size)
+            throw new IOException("Invalid reference " + index + " in world snapshot");
+        return index;
+    }
+
+}
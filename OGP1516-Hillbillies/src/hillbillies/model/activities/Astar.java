@@ -1,10 +1,24 @@
 package hillbillies.model.activities;
 
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.TerrainView;
 import hillbillies.model.Unit;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
+/**
+ * A class of A* path searches over the cubes of a unit's world.
+ * 		Nodes are linear cube indices, the open set is an indexed binary heap with decrease-key and the scores are kept in
+ * 		flat arrays. These arrays are owned by the searching thread and reused by every search on that thread, so a search
+ * 		only allocates the path it returns.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
 public class Astar {
 
     public Astar(Unit unit) {
@@ -12,81 +26,229 @@ public class Astar {
     }
 
     private final Unit unit;
-    
-    protected Cube[] FindPath(Cube startcube, Cube destination) throws RuntimeException {
 
-        //nodes already discovered and evaluated
-        Set<Cube> closedSet = new HashSet<>();
-        //nodes already discovered but yet to be evaluated
-        Set<Cube> openSet = new HashSet<>();
+    /**
+     * Variable registering the number of nodes expanded by the last search of this path search.
+     */
+    private int nbExpandedNodes;
 
-        openSet.add(startcube);
-        //the node this node can be most efficiently be reached from
-        Map<Cube, Cube> cameFrom = new HashMap<Cube, Cube>() {};
-        //the cost of getting to that node from the start
-        Map<Cube, Double> gScore = new HashMap<Cube, Double>() {};
-        //the distance from start to start is 0
-        gScore.put(startcube, (double) 0);
+    /**
+     * The search space of each thread, reused by all searches on that thread.
+     */
+    private static final ThreadLocal<SearchSpace> searchSpaces = ThreadLocal.withInitial(SearchSpace::new);
 
-        //A cost estimate for reaching the destination from the start through this node
-        //partly known (start => node) partly heuristic (node => destination)
-        Map<Cube, Double> FScore = new HashMap<Cube, Double>() {};
-        FScore.put(startcube, costEstimatefrom(startcube, destination));
+    /**
+     * The x, y and z offsets of the 26 neighbours of a cube, and the cost of the step towards each of them.
+     */
+    static final int[] OFFSET_X = new int[26];
+    static final int[] OFFSET_Y = new int[26];
+    static final int[] OFFSET_Z = new int[26];
+    static final float[] STEP_COST = new float[26];
 
-        while (! openSet.isEmpty()) {
-            Cube current = startcube;
-            double fscore = Double.MAX_VALUE;
-            //search the discovered neighbour that is probably the closest to the destination
-            for (Cube member: openSet) {
-                double currentFScore = FScore.getOrDefault(member, Double.MAX_VALUE);
-                if (currentFScore <= fscore) {
-                    current = member;
-                    fscore = currentFScore;
+    static {
+        int i = 0;
+        for (int x = -1; x < 2; x++) {
+            for (int y = -1; y < 2; y++) {
+                for (int z = -1; z < 2; z++) {
+                    if (x == 0 && y == 0 && z == 0)
+                        continue;
+                    OFFSET_X[i] = x;
+                    OFFSET_Y[i] = y;
+                    OFFSET_Z[i] = z;
+                    STEP_COST[i] = (float) Math.sqrt(x * x + y * y + z * z);
+                    i++;
                 }
             }
-            //if the destination is reached the shortest path is reconstructed
-            if (current == destination)
-                return reconstructPath(cameFrom, destination);
-            openSet.remove(current);
-            closedSet.add(current);
-            //alle buren worden ontdekt en er worden schattingen gemaakt van de afstand tot de bestemming
-            for (Cube buur: getAllNeighbours(current)) {
-                if (closedSet.contains(current))
+        }
+    }
+
+    private static final float SQRT2_MINUS_1 = (float) (Math.sqrt(2) - 1);
+    private static final float SQRT3_MINUS_SQRT2 = (float) (Math.sqrt(3) - Math.sqrt(2));
+
+    /**
+     * Return the shortest path from the given start cube to the given destination.
+     *
+     * @param	startcube
+     * 			The cube to start from.
+     * @param	destination
+     * 			The cube to reach.
+     * @return	The cubes to pass through in walking order, starting with the first step and ending with the destination,
+     * 			or an empty array if the start cube is the destination.
+     * 			If the destination cannot be reached, an array only containing the cube (-1, -1, -1).
+     */
+    protected Cube[] FindPath(Cube startcube, Cube destination) throws RuntimeException {
+        return FindPath(unit.getWorld(), startcube, destination);
+    }
+
+    /**
+     * Return the shortest path from the given start cube to the given destination, through the cubes units can stand in
+     * according to the given view on the terrain.
+     * 		Searches on a terrain snapshot can run on any thread, as each thread has a search space of its own.
+     *
+     * @param	world
+     * 			The view on the terrain to search.
+     * @param	startcube
+     * 			The cube to start from.
+     * @param	destination
+     * 			The cube to reach.
+     * @return	The same as FindPath(startcube, destination) would return on a world with the given terrain.
+     */
+    protected Cube[] FindPath(TerrainView world, Cube startcube, Cube destination) throws RuntimeException {
+        int nbX = world.getxSideSize();
+        int nbY = world.getySideSize();
+        int nbXY = nbX * nbY;
+        this.nbExpandedNodes = 0;
+        int[] startLoc = startcube.locArray;
+        int[] destLoc = destination.locArray;
+        if (! world.isWithinBorders(startLoc[0], startLoc[1], startLoc[2])
+                || ! world.isWithinBorders(destLoc[0], destLoc[1], destLoc[2]))
+            return noPath();
+        int start = world.getCubeIndex(startLoc[0], startLoc[1], startLoc[2]);
+        int goal = world.getCubeIndex(destLoc[0], destLoc[1], destLoc[2]);
+        if (start == goal)
+            return new Cube[0];
+
+        SearchSpace space = searchSpaces.get();
+        int generation = space.prepare(world.getNbCubes());
+        IndexedMinHeap openSet = space.openSet;
+        space.touch(start, generation);
+        space.gScore[start] = 0;
+        space.cameFrom[start] = -1;
+        openSet.insertOrDecrease(start, costEstimatefrom(startLoc[0], startLoc[1], startLoc[2], destLoc));
+
+        while (! openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (current == goal)
+                return reconstructPath(space.cameFrom, goal, nbX, nbXY);
+            space.closed[current] = generation;
+            this.nbExpandedNodes++;
+            int cx = current % nbX;
+            int cy = (current / nbX) % nbY;
+            int cz = current / nbXY;
+            float currentGScore = space.gScore[current];
+            for (int i = 0; i < 26; i++) {
+                int nx = cx + OFFSET_X[i];
+                int ny = cy + OFFSET_Y[i];
+                int nz = cz + OFFSET_Z[i];
+                if (! world.isWithinBorders(nx, ny, nz))
+                    continue;
+                int buur = current + OFFSET_X[i] + OFFSET_Y[i] * nbX + OFFSET_Z[i] * nbXY;
+                if (space.closed[buur] == generation)
                     continue;
-                double tentativeGScore = gScore.get(current) + Cube.getStraightDist(current, buur);
-                if (! openSet.contains(buur))
-                    openSet.add(buur);
-                else if (tentativeGScore >= gScore.get(buur))
+                float tentativeGScore = currentGScore + STEP_COST[i];
+                if (space.seen[buur] == generation) {
                     //a better path has already been found to this node
-                    continue;            
-                //this is the best path found to this node yet
-                cameFrom.put(buur, current);
-                gScore.put(buur, tentativeGScore);
-                FScore.put(buur, tentativeGScore + costEstimatefrom(buur, destination));
+                    if (tentativeGScore >= space.gScore[buur])
+                        continue;
+                } else {
+                    if (! world.isStandable(nx, ny, nz)) {
+                        //an impassable node is closed right away so it is only tested once per search
+                        space.closed[buur] = generation;
+                        continue;
+                    }
+                    space.touch(buur, generation);
+                }
+                space.cameFrom[buur] = current;
+                space.gScore[buur] = tentativeGScore;
+                openSet.insertOrDecrease(buur, tentativeGScore + costEstimatefrom(nx, ny, nz, destLoc));
             }
         }
-        return new Cube[]{new Cube(new int[]{-1,-1,-1})};
+        return noPath();
+    }
+
+    /**
+     * Return the unit this path search searches paths for.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public Unit getUnit() {
+        return this.unit;
     }
 
-    private double costEstimatefrom(Cube node, Cube destination){
-        return Cube.getStraightDist(node, destination);
+    /**
+     * Return the number of nodes expanded by the last search of this path search.
+     */
+    public int getNbExpandedNodes() {
+        return this.nbExpandedNodes;
     }
-    
-    private Cube[] reconstructPath(Map<Cube, Cube> cameFrom, Cube current){
-        List<Cube> path = new ArrayList<>();
-        path.add(current);
-        while (cameFrom.containsKey(current)) {
-            current = cameFrom.get(current);
-            path.add(current);
+
+    /**
+     * Return the result of a search that did not reach its destination.
+     */
+    private static Cube[] noPath() {
+        return new Cube[]{new Cube(new int[]{-1, -1, -1})};
+    }
+
+    /**
+     * Return an estimate of the cost of walking from the given cube to the given destination.
+     * 		The estimate is the exact cost of the shortest 26-connected path on an empty world, so it never overestimates.
+     */
+    static float costEstimatefrom(int x, int y, int z, int[] destination) {
+        int dx = Math.abs(x - destination[0]);
+        int dy = Math.abs(y - destination[1]);
+        int dz = Math.abs(z - destination[2]);
+        int max = Math.max(dx, Math.max(dy, dz));
+        int min = Math.min(dx, Math.min(dy, dz));
+        int mid = dx + dy + dz - max - min;
+        return max + SQRT2_MINUS_1 * mid + SQRT3_MINUS_SQRT2 * min;
+    }
+
+    private static Cube[] reconstructPath(int[] cameFrom, int goal, int nbX, int nbXY) {
+        int length = 0;
+        for (int node = goal; cameFrom[node] != -1; node = cameFrom[node])
+            length++;
+        Cube[] path = new Cube[length];
+        int node = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = new Cube(new int[]{node % nbX, (node % nbXY) / nbX, node / nbXY});
+            node = cameFrom[node];
         }
-        Cube[] path2 = new Cube[path.size()];
-        return path.toArray(path2);
+        return path;
     }
 
-    private Set<Cube> getAllNeighbours(Cube cube){
-        Set<Cube> intermediate = cube.generateNeighbours();
-        Set<Cube> set = intermediate.stream().filter(possibleCube -> unit.getWorld().canHaveAsCubeLocation(possibleCube.locArray, unit)).collect(Collectors.toSet());
-        return set;
+    /**
+     * A class of per-thread search spaces holding the scores and the open set of a search.
+     * 		Instead of clearing the arrays between searches, every search gets a new generation number and an entry is only
+     * 		valid if its stamp equals the generation of the current search.
+     */
+    private static class SearchSpace {
+
+        private int generation = 0;
+
+        private int[] seen = new int[0];
+
+        private int[] closed = new int[0];
+
+        private float[] gScore = new float[0];
+
+        private int[] cameFrom = new int[0];
+
+        private final IndexedMinHeap openSet = new IndexedMinHeap(0);
+
+        /**
+         * Prepare this search space for a search over the given number of nodes and return the generation of that search.
+         */
+        private int prepare(int nbNodes) {
+            if (seen.length < nbNodes) {
+                seen = new int[nbNodes];
+                closed = new int[nbNodes];
+                gScore = new float[nbNodes];
+                cameFrom = new int[nbNodes];
+                generation = 0;
+            }
+            openSet.ensureCapacity(nbNodes);
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+
+        private void touch(int node, int generation) {
+            seen[node] = generation;
+        }
     }
 
-}
\ No newline at end of file
+}
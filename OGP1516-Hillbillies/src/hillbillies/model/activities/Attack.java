@@ -54,6 +54,23 @@ public class Attack implements IActivity {
         this.dictatedByStatement = dictatedByStatement;
     }
 
+	/**
+	 * Initialize this new attack with given attacker, given defender and given time left, as restored from a snapshot.
+     *
+     * @param	attacker
+     *			The attacker for this attack.
+     * @param	defender
+     *			The defender for this attack.
+     * @param	timeLeft
+     *			The time left for this attack.
+     * @effect	This new attack is initialized with the given attacker and the given defender.
+     * @effect	The time left for this new attack is set to the given time left.
+     */
+    public Attack(Unit attacker, Unit defender, double timeLeft) throws IllegalTimeException {
+        this(attacker, defender);
+        this.setTimeLeft(timeLeft);
+    }
+
     /* Variables */
     
     /**
@@ -202,7 +219,7 @@ public class Attack implements IActivity {
     /**
      * Return the defender of this attack.
      */
-    private Unit getDefender() {
+    public Unit getDefender() {
     	return this.defender;
     }
     
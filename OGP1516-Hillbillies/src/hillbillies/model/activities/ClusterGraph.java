@@ -0,0 +1,773 @@
+package hillbillies.model.activities;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.World;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class of cluster graphs over the cubes units can stand in, for planning long paths hierarchically.
+ * 		The world is split into clusters of CLUSTER_SIZE cubes along each axis. The steps from a cube of one cluster to a
+ * 		cube of a neighbouring cluster are grouped into entrances, and one step of each entrance becomes an edge of the
+ * 		graph between a node on either side. Two steps belong to the same entrance if their cubes on either side are
+ * 		neighbours, so every cube reached through an entrance can also be reached from its node without leaving the
+ * 		cluster. Within a cluster, every two nodes are joined by an edge costing the shortest walk between them that
+ * 		stays inside the cluster.
+ * 		A path is planned over these nodes first, giving waypoints that are either in the same cluster or neighbours of
+ * 		each other. The walk between two waypoints is only searched cube by cube, within their cluster, when a unit gets
+ * 		there.
+ * 		The graph follows the terrain of its world lazily: before planning it applies the terrain changes made since it
+ * 		was last brought up to date, rebuilding only the entrances and edges of the clusters around the changed cubes.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class ClusterGraph {
+
+	/**
+	 * Initialize this new cluster graph for the given world.
+	 *
+	 * @param	world
+	 *			The world for this new cluster graph.
+	 */
+    public ClusterGraph(World world) {
+        this.world = world;
+        this.nbClustersX = (world.getxSideSize() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.nbClustersY = (world.getySideSize() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.nbClustersZ = (world.getzSideSize() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        rebuild();
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the number of cubes along each axis of a cluster.
+     */
+    public static final int CLUSTER_SIZE = 16;
+
+    /**
+     * Constant reflecting the largest distance between the first step of an entrance and its other steps. Wide openings
+     * are split into several entrances, so paths through them do not all have to pass through the middle.
+     */
+    private static final int MAX_ENTRANCE_WIDTH = 4;
+
+    /**
+     * Constant reflecting an empty array of cubes, shared by the nodes without partners and the clusters without nodes.
+     */
+    private static final int[] NO_CUBES = new int[0];
+
+    /**
+     * Variable registering the world of this cluster graph.
+     */
+    private final World world;
+
+    /**
+     * Variables registering the number of clusters along the x, y and z axis of the world.
+     */
+    private final int nbClustersX;
+    private final int nbClustersY;
+    private final int nbClustersZ;
+
+    /**
+     * Map registering, for each pair of neighbouring clusters with entrances between them, the steps chosen for those
+     * entrances, as the linear index of the cube in the cluster with the lower index followed by that of the cube in the
+     * other cluster.
+     */
+    private final Map<Long, int[]> entrances = new HashMap<>();
+
+    /**
+     * Map registering, for each node, the nodes in other clusters it is joined to by an entrance.
+     */
+    private final Map<Integer, int[]> partners = new HashMap<>();
+
+    /**
+     * Array registering the nodes of each cluster as sorted linear cube indices, indexed by cluster.
+     */
+    private int[][] nodes;
+
+    /**
+     * Array registering the costs of the edges between the nodes of each cluster, indexed by cluster, as a square matrix
+     * in the order of the nodes. Nodes that cannot reach each other inside their cluster cost infinity.
+     */
+    private float[][] costs;
+
+    /**
+     * Array registering, for each cluster, the position of its first node when the nodes of all clusters are numbered
+     * in the order of the clusters, followed by the number of nodes of this cluster graph.
+     */
+    private int[] nodeOffsets;
+
+    /**
+     * Variable registering the terrain version of the world this cluster graph is up to date with.
+     */
+    private long terrainVersion;
+
+    /**
+     * Variable registering the number of nodes and cubes expanded by the last planning or refinement of this graph.
+     */
+    private int nbExpandedNodes;
+
+    /* Methods */
+
+    /**
+     * Return the number of nodes and cubes expanded by the last planning or refinement of this cluster graph.
+     */
+    @Basic
+    @Raw
+    public int getNbExpandedNodes() {
+        return this.nbExpandedNodes;
+    }
+
+    /**
+     * Return the number of nodes of this cluster graph.
+     */
+    public int getNbNodes() {
+        refresh();
+        return nodeOffsets[nodes.length];
+    }
+
+    /**
+     * Plan a path for a unit from the given start cube to the given destination over this cluster graph.
+     *
+     * @param	start
+     * 			The location of the cube to start from.
+     * @param	destination
+     * 			The location of the cube to reach.
+     * @return	The waypoints of the path in walking order, ending with the destination, where every waypoint is in the
+     * 			same cluster as the one before it, or the start cube, or a neighbour of it. The waypoints can be refined
+     * 			into steps one at a time.
+     * 			An empty array if the start cube is the destination, or null if the destination cannot be reached.
+     */
+    public Cube[] findPath(int[] start, int[] destination) {
+        refresh();
+        nbExpandedNodes = 0;
+        if (! world.isWithinBorders(start[0], start[1], start[2])
+                || ! world.isStandable(destination[0], destination[1], destination[2]))
+            return null;
+        int from = world.getCubeIndex(start[0], start[1], start[2]);
+        int goal = world.getCubeIndex(destination[0], destination[1], destination[2]);
+        if (from == goal)
+            return new Cube[0];
+        int startCluster = getCluster(from);
+        int goalCluster = getCluster(goal);
+        if (startCluster == goalCluster) {
+            ClusterSearch direct = new ClusterSearch(startCluster, from, goal, null);
+            nbExpandedNodes += direct.nbExpanded;
+            if (direct.getCost(goal) < Float.POSITIVE_INFINITY)
+                return new Cube[]{toCube(goal)};
+        }
+        ClusterSearch fromStart = new ClusterSearch(startCluster, from, -1, nodes[startCluster]);
+        ClusterSearch toGoal = new ClusterSearch(goalCluster, goal, -1, nodes[goalCluster]);
+        nbExpandedNodes += fromStart.nbExpanded + toGoal.nbExpanded;
+
+        //A* over the nodes, where the start is joined to the nodes of its cluster and those of the destination's cluster
+        //are joined to the destination
+        PlanSearch search = new PlanSearch(from, goal);
+        int startNode = search.startNode;
+        int goalNode = search.goalNode;
+        while (! search.openSet.isEmpty()) {
+            int current = search.openSet.poll();
+            if (current == goalNode)
+                return search.getPath();
+            nbExpandedNodes++;
+            int cube = search.cubes[current];
+            int cluster = getCluster(cube);
+            int[] clusterNodes = nodes[cluster];
+            int first = nodeOffsets[cluster];
+            if (current == startNode) {
+                for (int i = 0; i < clusterNodes.length; i++)
+                    search.relax(current, first + i, fromStart.getCost(clusterNodes[i]));
+            } else {
+                int row = (current - first) * clusterNodes.length;
+                for (int i = 0; i < clusterNodes.length; i++)
+                    search.relax(current, first + i, costs[cluster][row + i]);
+                for (int partner: partners.getOrDefault(cube, NO_CUBES))
+                    search.relax(current, getNode(partner), stepCost(cube, partner));
+            }
+            if (cluster == goalCluster)
+                search.relax(current, goalNode, toGoal.getCost(cube));
+        }
+        return null;
+    }
+
+    /**
+     * Refine the walk from the given cube to the given waypoint, as planned by this cluster graph, into steps.
+     *
+     * @param	start
+     * 			The location of the cube to start from.
+     * @param	waypoint
+     * 			The location of the waypoint to reach.
+     * @return	The cubes to pass through in walking order, ending with the waypoint, found inside the cluster of both cubes,
+     * 			or only the waypoint if it is a neighbour of the start cube a unit can stand in.
+     * 			Null if the waypoint cannot be reached this way, which happens when the terrain changed since the path was
+     * 			planned, or when the given cubes are not consecutive waypoints.
+     */
+    public Cube[] refine(int[] start, int[] waypoint) {
+        nbExpandedNodes = 0;
+        if (! world.isStandable(waypoint[0], waypoint[1], waypoint[2]))
+            return null;
+        int distance = Math.max(Math.abs(start[0] - waypoint[0]),
+                Math.max(Math.abs(start[1] - waypoint[1]), Math.abs(start[2] - waypoint[2])));
+        if (distance <= 1)
+            return distance == 0 ? new Cube[0] : new Cube[]{new Cube(waypoint)};
+        if (! world.isWithinBorders(start[0], start[1], start[2]))
+            return null;
+        int from = world.getCubeIndex(start[0], start[1], start[2]);
+        int goal = world.getCubeIndex(waypoint[0], waypoint[1], waypoint[2]);
+        if (getCluster(from) != getCluster(goal))
+            return null;
+        ClusterSearch search = new ClusterSearch(getCluster(from), from, goal, null);
+        nbExpandedNodes = search.nbExpanded;
+        return search.getPath(goal);
+    }
+
+    /**
+     * Bring this cluster graph up to date with the terrain of its world.
+     * 		A changed cube can change whether a unit can stand in it or in its neighbours, so the entrances of the clusters
+     * 		of those cubes are searched anew, and the edges inside those clusters and inside the clusters whose nodes
+     * 		changed are computed anew. If the world no longer remembers all changes, the graph is built anew.
+     */
+    public void refresh() {
+        if (terrainVersion == world.getTerrainVersion())
+            return;
+        int[] changes = world.getTerrainChangesSince(terrainVersion);
+        if (changes == null) {
+            rebuild();
+            return;
+        }
+        BitSet changed = new BitSet();
+        for (int change: changes) {
+            int[] location = world.getCubeLocation(change);
+            for (int x = location[0] - 1; x < location[0] + 2; x++)
+                for (int y = location[1] - 1; y < location[1] + 2; y++)
+                    for (int z = location[2] - 1; z < location[2] + 2; z++)
+                        if (world.isWithinBorders(x, y, z))
+                            changed.set(getCluster(world.getCubeIndex(x, y, z)));
+        }
+        BitSet affected = (BitSet) changed.clone();
+        for (int cluster = changed.nextSetBit(0); cluster >= 0; cluster = changed.nextSetBit(cluster + 1)) {
+            for (int neighbour: getNeighbourClusters(cluster)) {
+                affected.set(neighbour);
+                //an entrance between two changed clusters is searched only once
+                if (! changed.get(neighbour) || neighbour > cluster)
+                    buildEntrances(Math.min(cluster, neighbour), Math.max(cluster, neighbour));
+            }
+        }
+        for (int cluster = affected.nextSetBit(0); cluster >= 0; cluster = affected.nextSetBit(cluster + 1)) {
+            if (changed.get(cluster) || ! Arrays.equals(nodes[cluster], collectNodes(cluster)))
+                buildEdges(cluster);
+        }
+        numberNodes();
+        terrainVersion = world.getTerrainVersion();
+    }
+
+    /**
+     * Build all entrances and edges of this cluster graph anew.
+     */
+    private void rebuild() {
+        int nbClusters = nbClustersX * nbClustersY * nbClustersZ;
+        entrances.clear();
+        partners.clear();
+        nodes = new int[nbClusters][];
+        costs = new float[nbClusters][];
+        for (int cluster = 0; cluster < nbClusters; cluster++) {
+            for (int neighbour: getNeighbourClusters(cluster))
+                if (neighbour > cluster)
+                    buildEntrances(cluster, neighbour);
+        }
+        for (int cluster = 0; cluster < nbClusters; cluster++)
+            buildEdges(cluster);
+        numberNodes();
+        terrainVersion = world.getTerrainVersion();
+    }
+
+    /**
+     * Number the nodes of all clusters in the order of the clusters, and within a cluster in the order of its nodes.
+     */
+    private void numberNodes() {
+        nodeOffsets = new int[nodes.length + 1];
+        for (int cluster = 0; cluster < nodes.length; cluster++)
+            nodeOffsets[cluster + 1] = nodeOffsets[cluster] + nodes[cluster].length;
+    }
+
+    /**
+     * Return the number of the node at the cube with the given linear index, as given by numberNodes.
+     */
+    private int getNode(int cube) {
+        int cluster = getCluster(cube);
+        return nodeOffsets[cluster] + Arrays.binarySearch(nodes[cluster], cube);
+    }
+
+    /**
+     * Search the entrances between the given neighbouring clusters anew.
+     * 		The steps between both clusters are grouped: two steps are in the same group if their cubes in the first
+     * 		cluster are neighbours or equal, and so are their cubes in the second cluster, as long as the group does not
+     * 		grow wider than MAX_ENTRANCE_WIDTH. The middle step of each group becomes an entrance.
+     *
+     * @param	cluster
+     * 			The cluster with the lower index.
+     * @param	neighbour
+     * 			The cluster with the higher index.
+     */
+    private void buildEntrances(int cluster, int neighbour) {
+        int[] old = entrances.remove(getPairKey(cluster, neighbour));
+        if (old != null) {
+            for (int i = 0; i < old.length; i += 2) {
+                unlink(old[i], old[i + 1]);
+                unlink(old[i + 1], old[i]);
+            }
+        }
+
+        //the cubes of the first cluster within one step of the second one
+        int[] box = getBox(cluster);
+        int[] other = getBox(neighbour);
+        int[] steps = new int[16];
+        int nbSteps = 0;
+        for (int x = Math.max(box[0], other[0] - 1); x < Math.min(box[3], other[3] + 1); x++) {
+            for (int y = Math.max(box[1], other[1] - 1); y < Math.min(box[4], other[4] + 1); y++) {
+                for (int z = Math.max(box[2], other[2] - 1); z < Math.min(box[5], other[5] + 1); z++) {
+                    if (! world.isStandable(x, y, z))
+                        continue;
+                    for (int i = 0; i < 26; i++) {
+                        int nx = x + Astar.OFFSET_X[i];
+                        int ny = y + Astar.OFFSET_Y[i];
+                        int nz = z + Astar.OFFSET_Z[i];
+                        if (! isInBox(other, nx, ny, nz) || ! world.isStandable(nx, ny, nz))
+                            continue;
+                        if (nbSteps + 2 > steps.length)
+                            steps = Arrays.copyOf(steps, 2 * steps.length);
+                        steps[nbSteps++] = world.getCubeIndex(x, y, z);
+                        steps[nbSteps++] = world.getCubeIndex(nx, ny, nz);
+                    }
+                }
+            }
+        }
+        if (nbSteps == 0)
+            return;
+
+        //group the steps, and take the middle step of each group
+        int nbGroupSteps = nbSteps / 2;
+        int[] group = new int[nbGroupSteps];
+        Arrays.fill(group, -1);
+        int[] members = new int[nbGroupSteps];
+        int[] chosen = new int[nbSteps];
+        int nbChosen = 0;
+        for (int first = 0; first < nbGroupSteps; first++) {
+            if (group[first] >= 0)
+                continue;
+            int nbMembers = 0;
+            group[first] = first;
+            members[nbMembers++] = first;
+            for (int i = 0; i < nbMembers; i++) {
+                int step = members[i];
+                for (int candidate = first + 1; candidate < nbGroupSteps; candidate++) {
+                    if (group[candidate] < 0 && areNeighbours(steps[2 * step], steps[2 * candidate])
+                            && areNeighbours(steps[2 * step + 1], steps[2 * candidate + 1])
+                            && getDistance(steps[2 * first], steps[2 * candidate]) <= MAX_ENTRANCE_WIDTH) {
+                        group[candidate] = first;
+                        members[nbMembers++] = candidate;
+                    }
+                }
+            }
+            int middle = members[nbMembers / 2];
+            chosen[nbChosen++] = steps[2 * middle];
+            chosen[nbChosen++] = steps[2 * middle + 1];
+            link(steps[2 * middle], steps[2 * middle + 1]);
+            link(steps[2 * middle + 1], steps[2 * middle]);
+        }
+        entrances.put(getPairKey(cluster, neighbour), Arrays.copyOf(chosen, nbChosen));
+    }
+
+    /**
+     * Collect the nodes of the given cluster from its entrances, and compute the edges between them anew.
+     */
+    private void buildEdges(int cluster) {
+        int[] clusterNodes = collectNodes(cluster);
+        int nbNodes = clusterNodes.length;
+        float[] clusterCosts = new float[nbNodes * nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            ClusterSearch search = new ClusterSearch(cluster, clusterNodes[i], -1,
+                    Arrays.copyOfRange(clusterNodes, i + 1, nbNodes));
+            clusterCosts[i * nbNodes + i] = 0;
+            //walks are reversible, so each pair of nodes is only searched once
+            for (int j = i + 1; j < nbNodes; j++) {
+                float cost = search.getCost(clusterNodes[j]);
+                clusterCosts[i * nbNodes + j] = cost;
+                clusterCosts[j * nbNodes + i] = cost;
+            }
+        }
+        nodes[cluster] = clusterNodes;
+        costs[cluster] = clusterCosts;
+    }
+
+    /**
+     * Return the nodes of the given cluster according to its entrances, as sorted linear cube indices.
+     */
+    private int[] collectNodes(int cluster) {
+        int[] clusterNodes = NO_CUBES;
+        for (int neighbour: getNeighbourClusters(cluster)) {
+            int[] steps = entrances.get(getPairKey(Math.min(cluster, neighbour), Math.max(cluster, neighbour)));
+            if (steps == null)
+                continue;
+            int offset = cluster < neighbour ? 0 : 1;
+            int length = clusterNodes.length;
+            clusterNodes = Arrays.copyOf(clusterNodes, length + steps.length / 2);
+            for (int i = offset; i < steps.length; i += 2)
+                clusterNodes[length++] = steps[i];
+        }
+        Arrays.sort(clusterNodes);
+        int nbNodes = 0;
+        for (int i = 0; i < clusterNodes.length; i++) {
+            if (nbNodes == 0 || clusterNodes[nbNodes - 1] != clusterNodes[i])
+                clusterNodes[nbNodes++] = clusterNodes[i];
+        }
+        return Arrays.copyOf(clusterNodes, nbNodes);
+    }
+
+    /**
+     * Register the second given node as a partner of the first one.
+     */
+    private void link(int node, int partner) {
+        int[] old = partners.getOrDefault(node, NO_CUBES);
+        int[] linked = Arrays.copyOf(old, old.length + 1);
+        linked[old.length] = partner;
+        partners.put(node, linked);
+    }
+
+    /**
+     * Remove the second given node as a partner of the first one.
+     */
+    private void unlink(int node, int partner) {
+        int[] old = partners.get(node);
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == partner) {
+                if (old.length == 1) {
+                    partners.remove(node);
+                } else {
+                    int[] unlinked = Arrays.copyOf(old, old.length - 1);
+                    if (i < unlinked.length)
+                        unlinked[i] = old[old.length - 1];
+                    partners.put(node, unlinked);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Return the index of the cluster of the cube with the given linear index.
+     */
+    private int getCluster(int cube) {
+        int[] location = world.getCubeLocation(cube);
+        return location[0] / CLUSTER_SIZE
+                + nbClustersX * (location[1] / CLUSTER_SIZE + nbClustersY * (location[2] / CLUSTER_SIZE));
+    }
+
+    /**
+     * Return the indices of the clusters next to the given cluster, including those only touching one of its edges or
+     * corners.
+     */
+    private int[] getNeighbourClusters(int cluster) {
+        int cx = cluster % nbClustersX;
+        int cy = (cluster / nbClustersX) % nbClustersY;
+        int cz = cluster / (nbClustersX * nbClustersY);
+        int[] neighbours = new int[26];
+        int nbNeighbours = 0;
+        for (int i = 0; i < 26; i++) {
+            int nx = cx + Astar.OFFSET_X[i];
+            int ny = cy + Astar.OFFSET_Y[i];
+            int nz = cz + Astar.OFFSET_Z[i];
+            if (nx >= 0 && ny >= 0 && nz >= 0 && nx < nbClustersX && ny < nbClustersY && nz < nbClustersZ)
+                neighbours[nbNeighbours++] = nx + nbClustersX * (ny + nbClustersY * nz);
+        }
+        return Arrays.copyOf(neighbours, nbNeighbours);
+    }
+
+    /**
+     * Return the cubes of the given cluster as the lowest x, y and z coordinate in it, followed by the x, y and z
+     * coordinate just past it.
+     */
+    private int[] getBox(int cluster) {
+        int x = (cluster % nbClustersX) * CLUSTER_SIZE;
+        int y = ((cluster / nbClustersX) % nbClustersY) * CLUSTER_SIZE;
+        int z = (cluster / (nbClustersX * nbClustersY)) * CLUSTER_SIZE;
+        return new int[]{x, y, z, Math.min(x + CLUSTER_SIZE, world.getxSideSize()),
+                Math.min(y + CLUSTER_SIZE, world.getySideSize()), Math.min(z + CLUSTER_SIZE, world.getzSideSize())};
+    }
+
+    /**
+     * Check whether the cube with given x, y and z coordinate lies in the given box, as returned by getBox.
+     */
+    private static boolean isInBox(int[] box, int x, int y, int z) {
+        return x >= box[0] && y >= box[1] && z >= box[2] && x < box[3] && y < box[4] && z < box[5];
+    }
+
+    /**
+     * Return the key of the given pair of clusters, the first one having the lower index.
+     */
+    private long getPairKey(int cluster, int neighbour) {
+        return (long) cluster * nbClustersX * nbClustersY * nbClustersZ + neighbour;
+    }
+
+    /**
+     * Check whether the cubes with the given linear indices are equal or neighbours.
+     */
+    private boolean areNeighbours(int cube1, int cube2) {
+        return getDistance(cube1, cube2) <= 1;
+    }
+
+    /**
+     * Return the largest difference between the x, y and z coordinate of the cubes with the given linear indices.
+     */
+    private int getDistance(int cube1, int cube2) {
+        int[] location1 = world.getCubeLocation(cube1);
+        int[] location2 = world.getCubeLocation(cube2);
+        return Math.max(Math.abs(location1[0] - location2[0]),
+                Math.max(Math.abs(location1[1] - location2[1]), Math.abs(location1[2] - location2[2])));
+    }
+
+    /**
+     * Return the cost of the step between the neighbouring cubes with the given linear indices.
+     */
+    private float stepCost(int cube1, int cube2) {
+        int[] location1 = world.getCubeLocation(cube1);
+        int[] location2 = world.getCubeLocation(cube2);
+        return Astar.costEstimatefrom(location1[0], location1[1], location1[2], location2);
+    }
+
+    /**
+     * Return the cube with the given linear index.
+     */
+    private Cube toCube(int cube) {
+        return new Cube(world.getCubeLocation(cube));
+    }
+
+    /**
+     * A class of searches over the nodes of this graph, numbered as by numberNodes, with the start and the destination
+     * of the search numbered right after them. The best known cost of reaching each node and the node it was reached
+     * from are kept in arrays indexed by that number, and the open set is an indexed heap, so a node is queued at most
+     * once and its key is lowered in place.
+     */
+    private class PlanSearch {
+
+        private PlanSearch(int from, int goal) {
+            int nbNodes = nodeOffsets[nodes.length];
+            startNode = nbNodes;
+            goalNode = nbNodes + 1;
+            cubes = new int[nbNodes + 2];
+            for (int cluster = 0; cluster < nodes.length; cluster++)
+                System.arraycopy(nodes[cluster], 0, cubes, nodeOffsets[cluster], nodes[cluster].length);
+            cubes[startNode] = from;
+            cubes[goalNode] = goal;
+            goalLocation = world.getCubeLocation(goal);
+            gScore = new float[nbNodes + 2];
+            Arrays.fill(gScore, Float.POSITIVE_INFINITY);
+            cameFrom = new int[nbNodes + 2];
+            openSet = new IndexedMinHeap(nbNodes + 2);
+            gScore[startNode] = 0;
+            cameFrom[startNode] = -1;
+            openSet.insertOrDecrease(startNode, estimate(startNode));
+        }
+
+        /**
+         * Variables registering the numbers of the start and of the destination of this search.
+         */
+        private final int startNode;
+        private final int goalNode;
+
+        /**
+         * Array registering the linear index of the cube of each node.
+         */
+        private final int[] cubes;
+
+        /**
+         * Variable registering the location of the destination of this search.
+         */
+        private final int[] goalLocation;
+
+        /**
+         * Arrays registering the cost of the cheapest way found to each node, and the node it was reached from.
+         */
+        private final float[] gScore;
+        private final int[] cameFrom;
+
+        /**
+         * Object holding the nodes to expand, keyed by their estimated total cost.
+         */
+        private final IndexedMinHeap openSet;
+
+        /**
+         * Return an estimate of the cost of walking from the given node to the destination, which never overestimates.
+         */
+        private float estimate(int node) {
+            int[] location = world.getCubeLocation(cubes[node]);
+            return Astar.costEstimatefrom(location[0], location[1], location[2], goalLocation);
+        }
+
+        /**
+         * Register the given node as reached from the given current node over an edge with the given cost, if that is
+         * cheaper than the best known way of reaching it.
+         */
+        private void relax(int current, int node, float cost) {
+            float tentativeGScore = gScore[current] + cost;
+            if (tentativeGScore == Float.POSITIVE_INFINITY || tentativeGScore >= gScore[node])
+                return;
+            gScore[node] = tentativeGScore;
+            cameFrom[node] = current;
+            openSet.insertOrDecrease(node, tentativeGScore + estimate(node));
+        }
+
+        /**
+         * Return the waypoints to the destination, following the nodes they were reached from, without the start.
+         */
+        private Cube[] getPath() {
+            int length = 0;
+            for (int node = goalNode; cameFrom[node] != -1; node = cameFrom[node])
+                length++;
+            Cube[] waypoints = new Cube[length];
+            int node = goalNode;
+            for (int i = length - 1; i >= 0; i--) {
+                waypoints[i] = toCube(cubes[node]);
+                node = cameFrom[node];
+            }
+            return waypoints;
+        }
+
+    }
+
+    /**
+     * A class of searches for walks that stay inside a single cluster, from one cube to a goal cube, or to all given
+     * target cubes if there is no goal. The cubes are numbered by their position in the cluster.
+     */
+    private class ClusterSearch {
+
+        private ClusterSearch(int cluster, int from, int goal, int[] targets) {
+            box = getBox(cluster);
+            sizeX = box[3] - box[0];
+            sizeXY = sizeX * (box[4] - box[1]);
+            int volume = sizeXY * (box[5] - box[2]);
+            cost = new float[volume];
+            cameFrom = new int[volume];
+            Arrays.fill(cost, Float.POSITIVE_INFINITY);
+            boolean[] closed = new boolean[volume];
+            IndexedMinHeap openSet = new IndexedMinHeap(volume);
+            int[] goalLocation = goal < 0 ? null : world.getCubeLocation(goal);
+            int start = getPosition(from);
+            int end = goal < 0 ? -1 : getPosition(goal);
+            //the search stops once the cheapest walk to each target is known
+            boolean[] isTarget = new boolean[volume];
+            int nbTargetsLeft = 0;
+            if (targets != null) {
+                for (int target: targets) {
+                    if (! isTarget[getPosition(target)])
+                        nbTargetsLeft++;
+                    isTarget[getPosition(target)] = true;
+                }
+                if (nbTargetsLeft == 0)
+                    return;
+            }
+            cost[start] = 0;
+            cameFrom[start] = -1;
+            openSet.insertOrDecrease(start, 0);
+            while (! openSet.isEmpty()) {
+                int current = openSet.poll();
+                closed[current] = true;
+                nbExpanded++;
+                if (current == end || (isTarget[current] && --nbTargetsLeft == 0))
+                    return;
+                int cx = box[0] + current % sizeX;
+                int cy = box[1] + (current % sizeXY) / sizeX;
+                int cz = box[2] + current / sizeXY;
+                for (int i = 0; i < 26; i++) {
+                    int nx = cx + Astar.OFFSET_X[i];
+                    int ny = cy + Astar.OFFSET_Y[i];
+                    int nz = cz + Astar.OFFSET_Z[i];
+                    if (! isInBox(box, nx, ny, nz))
+                        continue;
+                    int neighbour = current + Astar.OFFSET_X[i] + Astar.OFFSET_Y[i] * sizeX + Astar.OFFSET_Z[i] * sizeXY;
+                    if (closed[neighbour])
+                        continue;
+                    if (cost[neighbour] == Float.POSITIVE_INFINITY && ! world.isStandable(nx, ny, nz)) {
+                        //an impassable cube is closed right away so it is only tested once per search
+                        closed[neighbour] = true;
+                        continue;
+                    }
+                    float tentativeCost = cost[current] + Astar.STEP_COST[i];
+                    if (tentativeCost >= cost[neighbour])
+                        continue;
+                    cost[neighbour] = tentativeCost;
+                    cameFrom[neighbour] = current;
+                    float estimate = goalLocation == null ? 0 : Astar.costEstimatefrom(nx, ny, nz, goalLocation);
+                    openSet.insertOrDecrease(neighbour, tentativeCost + estimate);
+                }
+            }
+        }
+
+        /**
+         * Variable registering the cubes of the cluster, as returned by getBox.
+         */
+        private final int[] box;
+
+        /**
+         * Variables registering the number of cubes along the x axis of the cluster, and in a layer of it.
+         */
+        private final int sizeX;
+        private final int sizeXY;
+
+        /**
+         * Arrays registering the cost of the cheapest walk found to each cube, and the cube it was reached from.
+         */
+        private final float[] cost;
+        private final int[] cameFrom;
+
+        /**
+         * Variable registering the number of cubes expanded by this search.
+         */
+        private int nbExpanded;
+
+        /**
+         * Return the position in the cluster of the cube with the given linear index.
+         */
+        private int getPosition(int cube) {
+            int[] location = world.getCubeLocation(cube);
+            return (location[0] - box[0]) + sizeX * (location[1] - box[1]) + sizeXY * (location[2] - box[2]);
+        }
+
+        /**
+         * Return the cost of the cheapest walk found to the cube with the given linear index, or infinity if there is
+         * none.
+         */
+        private float getCost(int cube) {
+            return cost[getPosition(cube)];
+        }
+
+        /**
+         * Return the cubes passed through on the cheapest walk found to the cube with the given linear index, without the
+         * start, or null if there is none.
+         */
+        private Cube[] getPath(int cube) {
+            int end = getPosition(cube);
+            if (cost[end] == Float.POSITIVE_INFINITY)
+                return null;
+            int length = 0;
+            for (int position = end; cameFrom[position] != -1; position = cameFrom[position])
+                length++;
+            Cube[] path = new Cube[length];
+            int position = end;
+            for (int i = length - 1; i >= 0; i--) {
+                path[i] = new Cube(new int[]{box[0] + position % sizeX, box[1] + (position % sizeXY) / sizeX,
+                        box[2] + position / sizeXY});
+                position = cameFrom[position];
+            }
+            return path;
+        }
+
+    }
+
+}
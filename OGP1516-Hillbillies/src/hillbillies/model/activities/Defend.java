@@ -32,6 +32,21 @@ public class Defend implements IActivity {
         this.setTimeLeft(1);
     }
 
+	/**
+	 * Initialize this new defense with given defender and given time left, as restored from a snapshot.
+     *
+     * @param	defender
+     *			The defender for this new defense.
+     * @param	timeLeft
+     *			The time left for this new defense.
+     * @effect	This new defense is initialized with the given defender.
+     * @effect	The time left for this new defense is set to the given time left.
+     */
+    public Defend(Unit defender, double timeLeft) throws IllegalTimeException {
+        this(defender);
+        this.setTimeLeft(timeLeft);
+    }
+
     /* Variables */
     
     /**
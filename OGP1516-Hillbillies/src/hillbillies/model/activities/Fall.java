@@ -27,6 +27,21 @@ public class Fall implements IActivity {
         this.object = object;
         }
 
+	/**
+	 * Initialize this new fall with given movable world object and given damage points, as restored from a snapshot.
+     *
+     * @param  object
+     *         The movable world object for this new fall.
+     * @param  damageToBeDone
+     *         The damage points of this new fall that have to be dealt with.
+     * @post   The object of this new fall is equal to the given object.
+     * @post   The damage points of this new fall are equal to the given damage points.
+     */
+    public Fall(MovableWorldObject object, double damageToBeDone) {
+        this.object = object;
+        this.damageToBeDone = damageToBeDone;
+    }
+
     /* Variables */
     
     /**
@@ -72,42 +87,34 @@ public class Fall implements IActivity {
 		this.dictatedByStatement = flag;
 	}
 
-	// TODO
     /**
      * Update this fall according to the given amount of time advanced.
      * 
      * @param	dt
      * 			The amount of time to advance.
      * @effect	The object falls during the given amount of time and its z coordinate is proportionally reduced by 3 times the amount of time it falls.
-     *			If the object reaches a position whose underlying cube is solid and the z coordinate is below the centre of the current cube,
-     *			the object is moved back, up to the centre of this cube.
+     *			If the object passes the centre of the first cube below it whose underlying cube is solid, or of the lowest cube of
+     *			the world, the object is moved back, up to the centre of that cube.
      * @effect	If the object is a unit, it will deal with a damage points calculated as 10 points per z-level they fall.
-     * @effect	This fall's object finishes this activity.
+     * @effect	Once the object has reached that centre, this fall's object finishes this activity.
      */
     @Override
     public void advanceActivityTime(double dt) {
         VLocation oldLoc = this.getObject().getLocation();
-        double newZ = oldLoc.getCubeLocation()[2] - 3*dt;
-        if (this.getObject().getWorld().willBreakFall(oldLoc.getCubeLocation()) && newZ <= oldLoc.getCubeLocation()[2] + 0.5) {
-            this.getObject().setLocation(oldLoc.getXLocation(), oldLoc.getYLocation(), oldLoc.getCubeLocation()[2] + 0.5);
-            this.setDamageToBeDone(this.getDamageToBeDone() + 10 * (oldLoc.getZLocation() - this.getObject().getLocation().getZLocation()));
-            if (this.getObject() instanceof Unit) {
-                ((Unit) getObject()).dealDamage(this.getDamageToBeDone());
-            this.getObject().activityFinished();
+        int[] cube = oldLoc.getCubeLocation();
+        int landingZ = cube[2];
+        while (landingZ > 0 && ! this.getObject().getWorld().willBreakFall(new int[]{cube[0], cube[1], landingZ}))
+            landingZ--;
+        double newZ = oldLoc.getZLocation() - 3*dt;
+        if (newZ > landingZ + 0.5) {
+            this.getObject().setLocation(oldLoc.getXLocation(), oldLoc.getYLocation(), newZ);
+            this.setDamageToBeDone(this.getDamageToBeDone() + 10 * 3*dt);
             return;
-            }
         }
-        VLocation newPossibleLoc = new VLocation(oldLoc.getXLocation(), oldLoc.getYLocation(), oldLoc.getZLocation() - 3*dt, this.getObject());
-        if (! this.getObject().getWorld().willBreakFall(newPossibleLoc.getCubeLocation())) {
-            this.getObject().setLocation(newPossibleLoc);
-            this.setDamageToBeDone(3*dt*10);
-            return;
-        } else if (newPossibleLoc.getZLocation() - Math.floor(newPossibleLoc.getZLocation()) <= 0.5)
-            this.getObject().setLocation(newPossibleLoc.getXLocation(), newPossibleLoc.getYLocation(), Math.floor(newPossibleLoc.getZLocation()) + 0.5);
-        this.setDamageToBeDone(this.getDamageToBeDone() + 10 * (oldLoc.getZLocation() - this.getObject().getLocation().getZLocation()));
-        if (this.getObject() instanceof Unit) {
+        this.getObject().setLocation(oldLoc.getXLocation(), oldLoc.getYLocation(), landingZ + 0.5);
+        this.setDamageToBeDone(this.getDamageToBeDone() + 10 * (oldLoc.getZLocation() - (landingZ + 0.5)));
+        if (this.getObject() instanceof Unit)
             ((Unit) getObject()).dealDamage(this.getDamageToBeDone());
-        }
         this.getObject().activityFinished();
     }
 
@@ -163,7 +170,7 @@ public class Fall implements IActivity {
      */
 	@Basic
 	@Raw
-    private double getDamageToBeDone() {
+    public double getDamageToBeDone() {
     	return this.damageToBeDone;
     }
     
@@ -0,0 +1,349 @@
+package hillbillies.model.activities;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.TerrainView;
+import hillbillies.model.World;
+
+import java.util.Arrays;
+
+/**
+ * A class of flow fields registering, for every cube units can stand in, the step to take towards a single destination.
+ * 		The field is built by one search backwards from the destination over all the cubes a unit can reach it from, so
+ * 		every unit heading to the destination can follow the field instead of searching its own path. The steps follow
+ * 		shortest paths, as Astar would find them.
+ * 		The steps are kept in chunks of CHUNK_SIZE cubes along each axis, and only the chunks the search reached are
+ * 		allocated, so a field costs memory in proportion to the region its destination can be reached from. The scores of
+ * 		the search are kept in a search space per thread, which is reused by the next field built on that thread.
+ * 		A field holds for the terrain version of its world it was built for, and for every later version as long as no
+ * 		cube changed next to the region it reaches.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class FlowField {
+
+	/**
+	 * Initialize this new flow field towards the given destination in the given world.
+	 *
+	 * @param	world
+	 *			The world for this new flow field.
+	 * @param	destination
+	 *			The location of the cube this new flow field leads to.
+	 */
+    FlowField(World world, int[] destination) {
+        this(world, world, destination);
+    }
+
+	/**
+	 * Initialize this new flow field towards the given destination in the given world, searched on the given view of its
+	 * terrain.
+	 * 		With a terrain snapshot as the view, the field can be built on any thread while the world advances.
+	 *
+	 * @param	world
+	 *			The world for this new flow field.
+	 * @param	terrain
+	 *			The view of the terrain of the given world to search on.
+	 * @param	destination
+	 *			The location of the cube this new flow field leads to.
+	 */
+    FlowField(World world, TerrainView terrain, int[] destination) {
+        this.world = world;
+        this.destination = destination.clone();
+        this.terrainVersion = terrain.getTerrainVersion();
+        this.nbChunksX = (terrain.getxSideSize() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.nbChunksY = (terrain.getySideSize() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int nbChunksZ = (terrain.getzSideSize() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunks = new byte[nbChunksX * nbChunksY * nbChunksZ][];
+        if (terrain.isStandable(destination[0], destination[1], destination[2]))
+            build(terrain);
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the number of cubes along each axis of a chunk of a flow field.
+     */
+    static final int CHUNK_SIZE = 8;
+
+    /**
+     * Constant reflecting the direction of cubes from which the destination cannot be reached.
+     */
+    private static final byte NONE = -1;
+
+    /**
+     * Constant reflecting the direction of the destination itself.
+     */
+    private static final byte ARRIVED = 26;
+
+    /**
+     * Constant reflecting the search spaces of the threads building flow fields.
+     */
+    private static final ThreadLocal<SearchSpace> searchSpaces = ThreadLocal.withInitial(SearchSpace::new);
+
+    /**
+     * Variable registering the world of this flow field.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the location of the cube this flow field leads to.
+     */
+    private final int[] destination;
+
+    /**
+     * Variable registering the latest terrain version of the world this flow field is known to hold for.
+     */
+    private long terrainVersion;
+
+    /**
+     * Variables registering the number of chunks of this flow field along the x and y axis.
+     */
+    private final int nbChunksX;
+    private final int nbChunksY;
+
+    /**
+     * Array registering, for each chunk, the position in the neighbour offsets of Astar of the step to take towards the
+     * destination from each of its cubes, or NONE or ARRIVED. Chunks without any cube the destination can be reached
+     * from are null.
+     */
+    private final byte[][] chunks;
+
+    /**
+     * Variable registering the number of chunks of this flow field that are allocated.
+     */
+    private int nbChunks;
+
+    /**
+     * Variable registering the number of cubes expanded to build this flow field.
+     */
+    private int nbExpandedNodes;
+
+    /* Methods */
+
+    /**
+     * Return the location of the cube this flow field leads to.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public int[] getDestination() {
+        return this.destination.clone();
+    }
+
+    /**
+     * Return the latest terrain version of the world this flow field is known to hold for.
+     */
+    @Basic
+    @Raw
+    public long getTerrainVersion() {
+        return this.terrainVersion;
+    }
+
+    /**
+     * Return the number of cubes expanded to build this flow field.
+     */
+    @Basic
+    @Raw
+    public int getNbExpandedNodes() {
+        return this.nbExpandedNodes;
+    }
+
+    /**
+     * Return the number of chunks this flow field holds steps for.
+     */
+    @Basic
+    @Raw
+    public int getNbChunks() {
+        return this.nbChunks;
+    }
+
+    /**
+     * Check whether this flow field still holds for the terrain of its world.
+     * 		Whether a unit can stand in a cube only depends on the cubes next to it, so a change can only alter the field if
+     * 		a cube the destination can be reached from lies at most two cubes away from it. If none of the changes made
+     * 		since the terrain version of this field does, the field is known to hold for the current version as well.
+     */
+    public boolean isUpToDate() {
+        if (this.terrainVersion == world.getTerrainVersion())
+            return true;
+        int[] changes = world.getTerrainChangesSince(this.terrainVersion);
+        if (changes == null)
+            return false;
+        int nbX = world.getxSideSize();
+        int nbY = world.getySideSize();
+        for (int change : changes) {
+            int x = change % nbX;
+            int y = (change / nbX) % nbY;
+            int z = change / (nbX * nbY);
+            for (int nx = x - 2; nx <= x + 2; nx++)
+                for (int ny = y - 2; ny <= y + 2; ny++)
+                    for (int nz = z - 2; nz <= z + 2; nz++)
+                        if (world.isWithinBorders(nx, ny, nz) && getDirection(nx, ny, nz) != NONE)
+                            return false;
+        }
+        this.terrainVersion = world.getTerrainVersion();
+        return true;
+    }
+
+    /**
+     * Return the path from the given cube to the destination of this flow field.
+     *
+     * @param	start
+     * 			The location of the cube to start from.
+     * @return	The cubes to pass through in walking order, starting with the first step and ending with the destination,
+     * 			or an empty array if the start cube is the destination.
+     * 			Null if the destination cannot be reached from the start cube.
+     */
+    public Cube[] getPath(int[] start) {
+        if (! world.isWithinBorders(start[0], start[1], start[2]))
+            return null;
+        if (getDirection(start[0], start[1], start[2]) == NONE)
+            return null;
+        int length = 0;
+        int[] current = start.clone();
+        for (int direction = getDirection(current); direction != ARRIVED; direction = getDirection(current)) {
+            step(current, direction);
+            length++;
+        }
+        Cube[] path = new Cube[length];
+        current = start.clone();
+        for (int i = 0; i < length; i++) {
+            step(current, getDirection(current));
+            path[i] = new Cube(current.clone());
+        }
+        return path;
+    }
+
+    /**
+     * Move the given location one step along the given direction.
+     */
+    private static void step(int[] location, int direction) {
+        location[0] += Astar.OFFSET_X[direction];
+        location[1] += Astar.OFFSET_Y[direction];
+        location[2] += Astar.OFFSET_Z[direction];
+    }
+
+    /**
+     * Return the direction registered for the cube at the given location.
+     */
+    private byte getDirection(int[] location) {
+        return getDirection(location[0], location[1], location[2]);
+    }
+
+    /**
+     * Return the direction registered for the cube with the given x, y and z coordinate.
+     */
+    private byte getDirection(int x, int y, int z) {
+        byte[] chunk = chunks[chunkIndex(x, y, z)];
+        return chunk == null ? NONE : chunk[indexInChunk(x, y, z)];
+    }
+
+    /**
+     * Register the given direction for the cube with the given x, y and z coordinate, allocating its chunk if needed.
+     */
+    private void setDirection(int x, int y, int z, byte direction) {
+        int index = chunkIndex(x, y, z);
+        if (chunks[index] == null) {
+            chunks[index] = new byte[CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE];
+            Arrays.fill(chunks[index], NONE);
+            nbChunks++;
+        }
+        chunks[index][indexInChunk(x, y, z)] = direction;
+    }
+
+    /**
+     * Return the index of the chunk holding the cube with the given x, y and z coordinate.
+     */
+    private int chunkIndex(int x, int y, int z) {
+        return x / CHUNK_SIZE + nbChunksX * (y / CHUNK_SIZE + nbChunksY * (z / CHUNK_SIZE));
+    }
+
+    /**
+     * Return the index of the cube with the given x, y and z coordinate within its chunk.
+     */
+    private static int indexInChunk(int x, int y, int z) {
+        return x % CHUNK_SIZE + CHUNK_SIZE * (y % CHUNK_SIZE + CHUNK_SIZE * (z % CHUNK_SIZE));
+    }
+
+    /**
+     * Search backwards from the destination, giving every cube it reaches the step towards the cube it was reached from.
+     * 		Steps can be taken both ways between two cubes units can stand in, so the cheapest walk back from the
+     * 		destination to a cube is the cheapest walk from that cube to the destination.
+     */
+    private void build(TerrainView terrain) {
+        int nbX = terrain.getxSideSize();
+        int nbY = terrain.getySideSize();
+        int nbXY = nbX * nbY;
+        SearchSpace space = searchSpaces.get();
+        int generation = space.prepare(terrain.getNbCubes());
+        IndexedMinHeap openSet = space.openSet;
+        int goal = terrain.getCubeIndex(destination[0], destination[1], destination[2]);
+        space.seen[goal] = generation;
+        space.cost[goal] = 0;
+        setDirection(destination[0], destination[1], destination[2], ARRIVED);
+        openSet.insertOrDecrease(goal, 0);
+        while (! openSet.isEmpty()) {
+            int current = openSet.poll();
+            nbExpandedNodes++;
+            int cx = current % nbX;
+            int cy = (current / nbX) % nbY;
+            int cz = current / nbXY;
+            for (int i = 0; i < 26; i++) {
+                int nx = cx + Astar.OFFSET_X[i];
+                int ny = cy + Astar.OFFSET_Y[i];
+                int nz = cz + Astar.OFFSET_Z[i];
+                if (! terrain.isWithinBorders(nx, ny, nz))
+                    continue;
+                int neighbour = current + Astar.OFFSET_X[i] + Astar.OFFSET_Y[i] * nbX + Astar.OFFSET_Z[i] * nbXY;
+                float tentativeCost = space.cost[current] + Astar.STEP_COST[i];
+                if (space.seen[neighbour] == generation && tentativeCost >= space.cost[neighbour])
+                    continue;
+                if (! terrain.isStandable(nx, ny, nz))
+                    continue;
+                space.seen[neighbour] = generation;
+                space.cost[neighbour] = tentativeCost;
+                //the neighbour steps back along the opposite offset, which is mirrored in the order of the offsets
+                setDirection(nx, ny, nz, (byte) (25 - i));
+                openSet.insertOrDecrease(neighbour, tentativeCost);
+            }
+        }
+    }
+
+    /**
+     * A class of per-thread search spaces holding the costs and the open set of the search building a flow field.
+     * 		Instead of clearing the arrays between searches, every search gets a new generation number and a cost is only
+     * 		valid if its stamp equals the generation of the current search.
+     */
+    private static class SearchSpace {
+
+        private int generation = 0;
+
+        private int[] seen = new int[0];
+
+        private float[] cost = new float[0];
+
+        private final IndexedMinHeap openSet = new IndexedMinHeap(0);
+
+        /**
+         * Prepare this search space for a search over the given number of nodes and return the generation of that search.
+         */
+        private int prepare(int nbNodes) {
+            if (seen.length < nbNodes) {
+                seen = new int[nbNodes];
+                cost = new float[nbNodes];
+                generation = 0;
+            }
+            openSet.ensureCapacity(nbNodes);
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+package hillbillies.model.activities;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.World;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A class of caches of the flow fields of a world, shared by the movements heading to the same destination.
+ * 		Building a field costs a search over all cubes that can reach its destination, which only pays off when several
+ * 		units head there. A field is therefore only built once its destination has been asked for SHARE_THRESHOLD times;
+ * 		before that the movement searches its own path. The cache holds a limited number of fields and evicts the one that
+ * 		was used least recently. A field that no longer holds for the terrain of the world is dropped when asked for.
+ * 		If the world has a path request service, fields are built by its workers instead: a destination has no field
+ * 		until its field is done, and at most as many fields are built at the same time as the cache can hold.
+ *
+ * @invar	The capacity of each flow field cache is strictly positive.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class FlowFieldCache {
+
+	/**
+	 * Initialize this new flow field cache for the given world, holding at most the given number of fields.
+	 *
+	 * @param	world
+	 *			The world for this new flow field cache.
+	 * @param	capacity
+	 *			The number of fields this new cache can hold.
+	 * @throws	IllegalArgumentException
+	 *			The given capacity is not strictly positive.
+	 */
+    public FlowFieldCache(World world, int capacity) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid flow field cache capacity " + capacity);
+        this.world = world;
+        this.capacity = capacity;
+        this.fields = new LinkedHashMap<Integer, FlowField>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FlowField> eldest) {
+                return size() > FlowFieldCache.this.capacity;
+            }
+        };
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the number of fields a cache holds by default.
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Constant reflecting the number of times a destination is asked for before its field is built.
+     */
+    public static final int SHARE_THRESHOLD = 2;
+
+    /**
+     * Constant reflecting the number of destinations whose requests are counted.
+     */
+    private static final int NB_COUNTED_DESTINATIONS = 64;
+
+    /**
+     * Variable registering the world of this flow field cache.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the number of fields this cache can hold.
+     */
+    private final int capacity;
+
+    /**
+     * Map registering the cached fields by the linear index of their destination, least recently used first.
+     */
+    private final LinkedHashMap<Integer, FlowField> fields;
+
+    /**
+     * Map registering the fields being built by the path request service of the world, by the linear index of their
+     * destination.
+     */
+    private final Map<Integer, Future<FlowField>> pending = new HashMap<>();
+
+    /**
+     * Map registering how many times each destination without a field was asked for, least recently asked first.
+     */
+    private final LinkedHashMap<Integer, Integer> requests = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+            return size() > NB_COUNTED_DESTINATIONS;
+        }
+    };
+
+    /**
+     * Variables registering the number of fields built by this cache, and the number of times a cached field was used.
+     */
+    private int nbBuilt = 0;
+    private int nbHits = 0;
+
+    /* Methods */
+
+    /**
+     * Return the number of fields this flow field cache can hold.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Return the number of fields this flow field cache holds, including those that no longer hold for the terrain.
+     */
+    public int getNbFields() {
+        return this.fields.size();
+    }
+
+    /**
+     * Return the number of fields built by this flow field cache.
+     */
+    public int getNbBuilt() {
+        return this.nbBuilt;
+    }
+
+    /**
+     * Return the number of times this flow field cache handed out a field it already held.
+     */
+    public int getNbHits() {
+        return this.nbHits;
+    }
+
+    /**
+     * Return the flow field towards the given destination, if it is shared enough to be worth a field.
+     *
+     * @param	destination
+     * 			The location of the cube to lead to.
+     * @return	The cached field towards the given destination if it holds for the current terrain, or a new one if the
+     * 			destination has now been asked for SHARE_THRESHOLD times. Null otherwise, or if the destination lies
+     * 			outside the world.
+     * 			If the world has a path request service, a new field is only returned once a worker built it, and null
+     * 			until then.
+     */
+    public FlowField get(int[] destination) {
+        if (! world.isWithinBorders(destination[0], destination[1], destination[2]))
+            return null;
+        int key = world.getCubeIndex(destination[0], destination[1], destination[2]);
+        FlowField field = fields.get(key);
+        Future<FlowField> building = pending.get(key);
+        if (field != null) {
+            if (field.isUpToDate()) {
+                nbHits++;
+                return field;
+            }
+            //a field that was shared before the terrain changed is likely to be shared again
+            fields.remove(key);
+        } else if (building != null) {
+            if (! building.isDone() && world.getPathRequestService() != null)
+                return null;
+            pending.remove(key);
+            field = getBuilt(building);
+            if (field != null && field.isUpToDate()) {
+                nbBuilt++;
+                fields.put(key, field);
+                return field;
+            }
+            //the field was built for an older terrain, or the service was removed or closed before it was built
+        } else {
+            int nbRequests = requests.merge(key, 1, Integer::sum);
+            if (nbRequests < SHARE_THRESHOLD)
+                return null;
+            requests.remove(key);
+        }
+        PathRequestService service = world.getPathRequestService();
+        if (service != null) {
+            building = pending.size() < capacity ? service.submitFlowField(destination.clone()) : null;
+            if (building != null)
+                pending.put(key, building);
+            else
+                //the field is submitted again the next time the destination is asked for
+                requests.put(key, SHARE_THRESHOLD - 1);
+            return null;
+        }
+        field = new FlowField(world, destination);
+        nbBuilt++;
+        fields.put(key, field);
+        return field;
+    }
+
+    /**
+     * Return the field built by the given future, or null if it was cancelled or failed.
+     */
+    private static FlowField getBuilt(Future<FlowField> building) {
+        if (! building.isDone()) {
+            building.cancel(true);
+            return null;
+        }
+        try {
+            return building.get();
+        } catch (CancellationException | ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove all fields and request counts from this flow field cache, and cancel the fields being built.
+     */
+    public void clear() {
+        fields.clear();
+        requests.clear();
+        for (Future<FlowField> building : pending.values())
+            building.cancel(true);
+        pending.clear();
+    }
+
+}
@@ -0,0 +1,217 @@
+package hillbillies.model.activities;
+
+import java.util.Arrays;
+
+/**
+ * A class of indexed binary min-heaps over integer nodes with float keys.
+ * 		Each node (a linear cube index) is in the heap at most once, so the key of a queued node can be lowered in place
+ * 		instead of queueing a duplicate entry.
+ *
+ * @invar	The key of every queued node is not smaller than the key of its parent in the heap.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class IndexedMinHeap {
+
+	/**
+	 * Initialize this new heap for nodes in the range [0, capacity).
+	 *
+	 * @param	capacity
+	 * 			The number of distinct nodes this new heap can hold.
+	 */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[Math.max(capacity, 1)];
+        this.keys = new float[Math.max(capacity, 1)];
+        this.positions = new int[Math.max(capacity, 1)];
+        Arrays.fill(this.positions, -1);
+    }
+
+    /* Variables */
+
+    /**
+     * Array registering the queued nodes in heap order.
+     */
+    private int[] heap;
+
+    /**
+     * Array registering the key of each node, indexed by node.
+     */
+    private float[] keys;
+
+    /**
+     * Array registering the position of each node in the heap, or -1 if the node is not queued.
+     */
+    private int[] positions;
+
+    /**
+     * Variable registering the number of queued nodes.
+     */
+    private int size;
+
+    /* Methods */
+
+    /**
+     * Return the number of distinct nodes this heap can hold.
+     */
+    public int getCapacity() {
+        return this.positions.length;
+    }
+
+    /**
+     * Grow this heap so that it can hold nodes in the range [0, capacity).
+     *
+     * @param	capacity
+     * 			The number of distinct nodes this heap must be able to hold.
+     * @post	This heap is empty.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > getCapacity()) {
+            this.heap = new int[capacity];
+            this.keys = new float[capacity];
+            this.positions = new int[capacity];
+            Arrays.fill(this.positions, -1);
+            this.size = 0;
+        } else
+            clear();
+    }
+
+    /**
+     * Return whether this heap has no queued nodes.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Return the number of queued nodes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return whether the given node is queued in this heap.
+     */
+    public boolean contains(int node) {
+        return this.positions[node] >= 0;
+    }
+
+    /**
+     * Return the key of the given queued node.
+     */
+    public float getKey(int node) {
+        return this.keys[node];
+    }
+
+    /**
+     * Remove all queued nodes from this heap.
+     * 		Only the positions of the queued nodes are reset, so this takes time proportional to the size of the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++)
+            this.positions[this.heap[i]] = -1;
+        this.size = 0;
+    }
+
+    /**
+     * Queue the given node with the given key, or lower the key of the node if it is already queued with a higher key.
+     *
+     * @param	node
+     * 			The node to queue.
+     * @param	key
+     * 			The key for the node.
+     * @return	True if and only if the node was added or its key was lowered.
+     */
+    public boolean insertOrDecrease(int node, float key) {
+        int position = this.positions[node];
+        if (position < 0) {
+            position = this.size++;
+            this.heap[position] = node;
+            this.positions[node] = position;
+        } else if (key >= this.keys[node])
+            return false;
+        this.keys[node] = key;
+        siftUp(position);
+        return true;
+    }
+
+    /**
+     * Return the node with the lowest key in this heap, without removing it.
+     *
+     * @throws	IllegalStateException
+     * 			This heap is empty.
+     */
+    public int peek() throws IllegalStateException {
+        if (this.size == 0)
+            throw new IllegalStateException("Peeked into an empty heap");
+        return this.heap[0];
+    }
+
+    /**
+     * Remove the node with the lowest key from this heap and return it.
+     *
+     * @throws	IllegalStateException
+     * 			This heap is empty.
+     */
+    public int poll() throws IllegalStateException {
+        if (this.size == 0)
+            throw new IllegalStateException("Polled an empty heap");
+        int top = this.heap[0];
+        this.positions[top] = -1;
+        int last = this.heap[--this.size];
+        if (this.size > 0) {
+            this.heap[0] = last;
+            this.positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Move the node at the given heap position up until its parent has a key that is not larger.
+     */
+    private void siftUp(int position) {
+        int node = this.heap[position];
+        float key = this.keys[node];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = this.heap[parentPosition];
+            if (this.keys[parent] <= key)
+                break;
+            this.heap[position] = parent;
+            this.positions[parent] = position;
+            position = parentPosition;
+        }
+        this.heap[position] = node;
+        this.positions[node] = position;
+    }
+
+    /**
+     * Move the node at the given heap position down until both its children have a key that is not smaller.
+     */
+    private void siftDown(int position) {
+        int node = this.heap[position];
+        float key = this.keys[node];
+        int half = this.size >>> 1;
+        while (position < half) {
+            int childPosition = 2 * position + 1;
+            int child = this.heap[childPosition];
+            int rightPosition = childPosition + 1;
+            if (rightPosition < this.size && this.keys[this.heap[rightPosition]] < this.keys[child]) {
+                childPosition = rightPosition;
+                child = this.heap[childPosition];
+            }
+            if (key <= this.keys[child])
+                break;
+            this.heap[position] = child;
+            this.positions[child] = position;
+            position = childPosition;
+        }
+        this.heap[position] = node;
+        this.positions[node] = position;
+    }
+
+}
@@ -0,0 +1,371 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.TerrainView;
+import hillbillies.model.Unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class of jump point searches over the cubes of a unit's world.
+ * 		The moves are those of Astar: a step to any of the 26 neighbouring cubes a unit can stand in. Among the shortest
+ * 		paths between two cubes, the search only follows the canonical ones, which take their diagonal steps first: after
+ * 		a step, the next step keeps the signs of the previous one and only drops axes. Such a path is scanned in straight
+ * 		lines without putting the cubes in the open set. A scan only stops at a jump point: a cube next to a blocked cube
+ * 		that forces a non canonical step, the destination, or a cube on a diagonal from which a scan along one of its axes
+ * 		finds a jump point. On open terrain, this expands a few cubes at the ends of long lines instead of the whole
+ * 		symmetric frontier of Astar, while the paths found are equally short.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class JumpPointSearch extends Astar {
+
+    public JumpPointSearch(Unit unit) {
+        super(unit);
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the direction of the start cube, which is not reached by a step.
+     */
+    private static final byte NO_DIRECTION = -1;
+
+    /**
+     * The directions a scan continues in after a step in each direction: the direction itself and the directions that
+     * drop some of its axes.
+     */
+    private static final int[][] NATURAL = new int[26][];
+
+    /**
+     * The directions that drop some of the axes of each direction, which a scan along that direction also scans.
+     */
+    private static final int[][] SUB_DIRECTIONS = new int[26][];
+
+    /**
+     * The directions of the neighbours that may be forced after a step in each direction, and for each of them the
+     * directions of the neighbours through which a canonical path of at most the same cost leads to it. A neighbour is
+     * forced if a unit can stand in it but in none of these cubes.
+     */
+    private static final int[][] FORCED = new int[26][];
+    private static final int[][][] DOMINATORS = new int[26][26][];
+
+    /**
+     * The directions the search leaves the start cube in.
+     */
+    private static final int[] ALL_DIRECTIONS = new int[26];
+
+    static {
+        for (int d = 0; d < 26; d++) {
+            ALL_DIRECTIONS[d] = d;
+            List<Integer> natural = new ArrayList<>();
+            List<Integer> sub = new ArrayList<>();
+            List<Integer> forced = new ArrayList<>();
+            natural.add(d);
+            for (int e = 0; e < 26; e++) {
+                if (e == d)
+                    continue;
+                if (keepsAxes(d, e)) {
+                    natural.add(e);
+                    sub.add(e);
+                    continue;
+                }
+                //the cube two steps away, seen from the cube before the step in direction d
+                int vx = OFFSET_X[d] + OFFSET_X[e];
+                int vy = OFFSET_Y[d] + OFFSET_Y[e];
+                int vz = OFFSET_Z[d] + OFFSET_Z[e];
+                if (Math.max(Math.abs(vx), Math.max(Math.abs(vy), Math.abs(vz))) <= 1)
+                    //the cube before the step reaches this neighbour in a single step, or it is that cube itself
+                    continue;
+                double cost = (double) STEP_COST[d] + STEP_COST[e];
+                List<Integer> dominators = new ArrayList<>();
+                for (int f = 0; f < 26; f++) {
+                    int first = directionOf(OFFSET_X[d] + OFFSET_X[f], OFFSET_Y[d] + OFFSET_Y[f], OFFSET_Z[d] + OFFSET_Z[f]);
+                    int second = directionOf(OFFSET_X[e] - OFFSET_X[f], OFFSET_Y[e] - OFFSET_Y[f], OFFSET_Z[e] - OFFSET_Z[f]);
+                    if (first < 0 || second < 0)
+                        continue;
+                    double alternative = (double) STEP_COST[first] + STEP_COST[second];
+                    if (alternative < cost - 1e-6 || (alternative < cost + 1e-6 && (first == second || keepsAxes(first, second))))
+                        dominators.add(f);
+                }
+                if (dominators.isEmpty()) {
+                    natural.add(e);
+                } else {
+                    forced.add(e);
+                    DOMINATORS[d][e] = dominators.stream().mapToInt(Integer::intValue).toArray();
+                }
+            }
+            NATURAL[d] = natural.stream().mapToInt(Integer::intValue).toArray();
+            SUB_DIRECTIONS[d] = sub.stream().mapToInt(Integer::intValue).toArray();
+            FORCED[d] = forced.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * The search space of each thread, reused by all searches on that thread.
+     */
+    private static final ThreadLocal<SearchSpace> searchSpaces = ThreadLocal.withInitial(SearchSpace::new);
+
+    /**
+     * Variables registering the number of jump points expanded by the last search of this path search, and the number
+     * of cubes its scans stepped through.
+     */
+    private int nbExpandedNodes;
+    private int nbScannedCubes;
+
+    /* Methods */
+
+    /**
+     * Return the number of jump points expanded by the last search of this path search.
+     */
+    @Override
+    public int getNbExpandedNodes() {
+        return this.nbExpandedNodes;
+    }
+
+    /**
+     * Return the number of cubes the scans of the last search of this path search stepped through.
+     */
+    public int getNbScannedCubes() {
+        return this.nbScannedCubes;
+    }
+
+    /**
+     * Return a shortest path from the given start cube to the given destination, through the cubes units can stand in
+     * according to the given view on the terrain.
+     *
+     * @param	world
+     * 			The view on the terrain to search.
+     * @param	startcube
+     * 			The cube to start from.
+     * @param	destination
+     * 			The cube to reach.
+     * @return	The cubes to pass through in walking order, starting with the first step and ending with the destination,
+     * 			or an empty array if the start cube is the destination. The path is as short as the one Astar finds.
+     * 			If the destination cannot be reached, an array only containing the cube (-1, -1, -1).
+     */
+    @Override
+    protected Cube[] FindPath(TerrainView world, Cube startcube, Cube destination) throws RuntimeException {
+        int nbX = world.getxSideSize();
+        int nbY = world.getySideSize();
+        int nbXY = nbX * nbY;
+        this.nbExpandedNodes = 0;
+        this.nbScannedCubes = 0;
+        int[] startLoc = startcube.locArray;
+        int[] destLoc = destination.locArray;
+        if (! world.isWithinBorders(startLoc[0], startLoc[1], startLoc[2])
+                || ! world.isWithinBorders(destLoc[0], destLoc[1], destLoc[2]))
+            return new Cube[]{new Cube(new int[]{-1, -1, -1})};
+        int start = world.getCubeIndex(startLoc[0], startLoc[1], startLoc[2]);
+        int goal = world.getCubeIndex(destLoc[0], destLoc[1], destLoc[2]);
+        if (start == goal)
+            return new Cube[0];
+        if (! world.isStandable(destLoc[0], destLoc[1], destLoc[2]))
+            return new Cube[]{new Cube(new int[]{-1, -1, -1})};
+
+        SearchSpace space = searchSpaces.get();
+        int generation = space.prepare(world.getNbCubes());
+        IndexedMinHeap openSet = space.openSet;
+        space.seen[start] = generation;
+        space.gScore[start] = 0;
+        space.cameFrom[start] = -1;
+        space.direction[start] = NO_DIRECTION;
+        openSet.insertOrDecrease(start, costEstimatefrom(startLoc[0], startLoc[1], startLoc[2], destLoc));
+
+        while (! openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (current == goal)
+                return reconstructPath(space.cameFrom, goal, nbX, nbXY);
+            space.closed[current] = generation;
+            this.nbExpandedNodes++;
+            int cx = current % nbX;
+            int cy = (current / nbX) % nbY;
+            int cz = current / nbXY;
+            int arrival = space.direction[current];
+            float currentGScore = space.gScore[current];
+            for (int d: successorDirections(world, cx, cy, cz, arrival)) {
+                int jumpPoint = jump(world, cx, cy, cz, d, goal);
+                if (jumpPoint < 0 || space.closed[jumpPoint] == generation)
+                    continue;
+                int jx = jumpPoint % nbX;
+                int jy = (jumpPoint / nbX) % nbY;
+                int jz = jumpPoint / nbXY;
+                int nbSteps = Math.max(Math.abs(jx - cx), Math.max(Math.abs(jy - cy), Math.abs(jz - cz)));
+                float tentativeGScore = currentGScore + nbSteps * STEP_COST[d];
+                if (space.seen[jumpPoint] == generation && tentativeGScore >= space.gScore[jumpPoint])
+                    continue;
+                space.seen[jumpPoint] = generation;
+                space.cameFrom[jumpPoint] = current;
+                space.gScore[jumpPoint] = tentativeGScore;
+                space.direction[jumpPoint] = (byte) d;
+                openSet.insertOrDecrease(jumpPoint, tentativeGScore + costEstimatefrom(jx, jy, jz, destLoc));
+            }
+        }
+        return new Cube[]{new Cube(new int[]{-1, -1, -1})};
+    }
+
+    /**
+     * Return the directions to scan from the cube with given coordinates, reached by a step in the given direction.
+     * 		These are the natural directions after that step, and the directions of the forced neighbours.
+     */
+    private static int[] successorDirections(TerrainView world, int x, int y, int z, int arrival) {
+        if (arrival == NO_DIRECTION)
+            return ALL_DIRECTIONS;
+        int[] forced = FORCED[arrival];
+        int[] natural = NATURAL[arrival];
+        int[] result = null;
+        int nbForced = 0;
+        for (int e: forced) {
+            if (isForced(world, x, y, z, arrival, e)) {
+                if (result == null)
+                    result = Arrays.copyOf(natural, natural.length + forced.length);
+                result[natural.length + nbForced++] = e;
+            }
+        }
+        return result == null ? natural : Arrays.copyOf(result, natural.length + nbForced);
+    }
+
+    /**
+     * Check whether the neighbour in direction e of the cube with given coordinates, reached by a step in direction d,
+     * is forced: a unit can stand in it, but in none of the cubes through which a canonical path reaches it as cheaply.
+     */
+    private static boolean isForced(TerrainView world, int x, int y, int z, int d, int e) {
+        if (! world.isStandable(x + OFFSET_X[e], y + OFFSET_Y[e], z + OFFSET_Z[e]))
+            return false;
+        for (int f: DOMINATORS[d][e])
+            if (world.isStandable(x + OFFSET_X[f], y + OFFSET_Y[f], z + OFFSET_Z[f]))
+                return false;
+        return true;
+    }
+
+    /**
+     * Check whether the cube with given coordinates, reached by a step in direction d, has a forced neighbour.
+     */
+    private static boolean hasForcedNeighbour(TerrainView world, int x, int y, int z, int d) {
+        for (int e: FORCED[d])
+            if (isForced(world, x, y, z, d, e))
+                return true;
+        return false;
+    }
+
+    /**
+     * Scan from the cube with given coordinates in the given direction, and return the linear index of the first jump
+     * point, or -1 if the scan runs into a cube a unit cannot stand in first.
+     */
+    private int jump(TerrainView world, int x, int y, int z, int d, int goal) {
+        int[] sub = SUB_DIRECTIONS[d];
+        while (true) {
+            x += OFFSET_X[d];
+            y += OFFSET_Y[d];
+            z += OFFSET_Z[d];
+            if (! world.isStandable(x, y, z))
+                return -1;
+            this.nbScannedCubes++;
+            int cube = world.getCubeIndex(x, y, z);
+            if (cube == goal || hasForcedNeighbour(world, x, y, z, d))
+                return cube;
+            for (int s: sub)
+                if (jump(world, x, y, z, s, goal) >= 0)
+                    return cube;
+        }
+    }
+
+    /**
+     * Return the path through the jump points leading to the given goal, with the straight lines between them filled in.
+     */
+    private static Cube[] reconstructPath(int[] cameFrom, int goal, int nbX, int nbXY) {
+        int length = 0;
+        for (int node = goal; cameFrom[node] != -1; node = cameFrom[node])
+            length += distance(node, cameFrom[node], nbX, nbXY);
+        Cube[] path = new Cube[length];
+        int index = length;
+        for (int node = goal; cameFrom[node] != -1; node = cameFrom[node]) {
+            int[] to = {node % nbX, (node % nbXY) / nbX, node / nbXY};
+            int previous = cameFrom[node];
+            int[] from = {previous % nbX, (previous % nbXY) / nbX, previous / nbXY};
+            int nbSteps = distance(node, previous, nbX, nbXY);
+            for (int step = nbSteps; step > 0; step--)
+                path[--index] = new Cube(new int[]{
+                        from[0] + Integer.signum(to[0] - from[0]) * step,
+                        from[1] + Integer.signum(to[1] - from[1]) * step,
+                        from[2] + Integer.signum(to[2] - from[2]) * step});
+        }
+        return path;
+    }
+
+    /**
+     * Return the number of steps between the cubes with given linear indices, which lie on a straight or diagonal line.
+     */
+    private static int distance(int first, int second, int nbX, int nbXY) {
+        int dx = Math.abs(first % nbX - second % nbX);
+        int dy = Math.abs((first % nbXY) / nbX - (second % nbXY) / nbX);
+        int dz = Math.abs(first / nbXY - second / nbXY);
+        return Math.max(dx, Math.max(dy, dz));
+    }
+
+    /**
+     * Check whether direction e keeps the signs of direction d and only drops some of its axes.
+     */
+    private static boolean keepsAxes(int d, int e) {
+        return (OFFSET_X[e] == 0 || OFFSET_X[e] == OFFSET_X[d])
+                && (OFFSET_Y[e] == 0 || OFFSET_Y[e] == OFFSET_Y[d])
+                && (OFFSET_Z[e] == 0 || OFFSET_Z[e] == OFFSET_Z[d]);
+    }
+
+    /**
+     * Return the position in the neighbour offsets of the given offset, or -1 if it is not the offset of a neighbour.
+     */
+    private static int directionOf(int x, int y, int z) {
+        if (Math.abs(x) > 1 || Math.abs(y) > 1 || Math.abs(z) > 1 || (x == 0 && y == 0 && z == 0))
+            return -1;
+        int index = (x + 1) * 9 + (y + 1) * 3 + (z + 1);
+        return index > 13 ? index - 1 : index;
+    }
+
+    /**
+     * A class of per-thread search spaces holding the scores, the directions of arrival and the open set of a search.
+     * 		As in Astar, an entry is only valid if its stamp equals the generation of the current search.
+     */
+    private static class SearchSpace {
+
+        private int generation = 0;
+
+        private int[] seen = new int[0];
+
+        private int[] closed = new int[0];
+
+        private float[] gScore = new float[0];
+
+        private int[] cameFrom = new int[0];
+
+        private byte[] direction = new byte[0];
+
+        private final IndexedMinHeap openSet = new IndexedMinHeap(0);
+
+        /**
+         * Prepare this search space for a search over the given number of nodes and return the generation of that search.
+         */
+        private int prepare(int nbNodes) {
+            if (seen.length < nbNodes) {
+                seen = new int[nbNodes];
+                closed = new int[nbNodes];
+                gScore = new float[nbNodes];
+                cameFrom = new int[nbNodes];
+                direction = new byte[nbNodes];
+                generation = 0;
+            }
+            openSet.ensureCapacity(nbNodes);
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+
+}
@@ -4,10 +4,13 @@ import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Immutable;
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.Unit;
+import hillbillies.model.World;
 import hillbillies.model.exceptions.IllegalLocation;
 import ogp.framework.util.Util;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * A class of movements involving a unit and a destination.
@@ -35,7 +38,7 @@ public class Movement implements IActivity {
             throw new IllegalLocation();
         Cube destCube = new Cube(destination);
         this.destinationCube = destCube;
-        this.pathing = new Astar(unit);
+        this.pathing = unit.getWorld().usesJumpPointSearch() ? new JumpPointSearch(unit) : new Astar(unit);
     }
 
     /* Variables */
@@ -61,7 +64,8 @@ public class Movement implements IActivity {
     private final Cube destinationCube;
     
     /**
-     * Variable registering the pathing of this movement, calculated according to the A star algorithm.
+     * Variable registering the pathing of this movement, calculated according to the A star algorithm, or to the jump
+     * point search if the world of the unit uses it.
      */
     private final Astar pathing;
     
@@ -70,6 +74,54 @@ public class Movement implements IActivity {
      */
     private Cube nextStop;
 
+    /**
+     * Variable registering the path this movement is following, in walking order and ending at the destination.
+     */
+    private Cube[] path;
+
+    /**
+     * Variable registering the position in the path of the next stop that has not been taken yet.
+     */
+    private int pathIndex;
+
+    /**
+     * Variable registering the terrain version of the world of this movement's unit against which the path was last checked.
+     */
+    private long pathTerrainVersion;
+
+    /**
+     * Variable registering the waypoints planned over the cluster graph of the world, ending at the destination, or null if
+     * the path was searched cube by cube right away.
+     */
+    private Cube[] waypoints;
+
+    /**
+     * Variable registering the position in the waypoints of the next waypoint the path has not been refined to yet.
+     */
+    private int waypointIndex;
+
+    /**
+     * Variable registering the number of times this movement searched a path anew.
+     */
+    private int nbPathSearches = 0;
+
+    /**
+     * Variable registering whether this movement waits for a path from the path request service of the world.
+     */
+    private boolean waitingForPath = false;
+
+    /**
+     * Variable registering the future path requested from the path request service of the world, or null if the
+     * request was refused or no request is pending.
+     */
+    private Future<Cube[]> pendingPath;
+
+    /**
+     * Variables registering the cube the pending path was requested from, and the terrain version it was requested at.
+     */
+    private int[] pendingStart;
+    private long pendingTerrainVersion;
+
     /* Methods */
     
     /**
@@ -105,6 +157,9 @@ public class Movement implements IActivity {
     public void advanceActivityTime(double dt) {
         if (nextStop == null) {
             boolean foundpath = setNextStop();
+            if (! foundpath && isWaitingForPath())
+                //the unit waits in place until its path arrives
+                return;
             if (! foundpath) {
                 this.getUnit().activityFinished();
                 this.getUnit().addXP(1);
@@ -184,6 +239,8 @@ public class Movement implements IActivity {
      */
     @Override
     public void finishActivity() {
+        if (pendingPath != null)
+            pendingPath.cancel(false);
         this.isFinished = true;
         this.getUnit().activityFinished();
     }
@@ -232,16 +289,239 @@ public class Movement implements IActivity {
     /**
      * Return whether a next destination cube was found as this movement still needs to be continued until the next stop
      * will be this movement's destination or not.
+     * 		The path is only searched again if there is no path yet, or if the terrain changed next to the remaining part of
+     * 		the path, or if the next stop on the path can no longer be taken from the unit's current cube. Once the unit
+     * 		stands in the destination, no path is searched at all.
+     * 		If other units head to the same destination, the path follows the flow field of the world towards it. Otherwise,
+     * 		if the world uses hierarchical pathfinding, a path to a destination more than a cluster away is planned over the
+     * 		cluster graph of the world, and only refined into steps up to the next waypoint each time the unit reaches one.
+     * 		If the world has a path request service, the path is searched by that service instead, and no next stop is
+     * 		found until it arrives.
      */
     public boolean setNextStop() {
-        Cube[] path = pathing.FindPath(new Cube(this.getUnit().getLocation().getCubeLocation()), destinationCube);
-        if (Arrays.equals(path, new Cube[]{new Cube(new int[]{-1, -1, -1})})) {
+        int[] currentLoc = this.getUnit().getLocation().getCubeLocation();
+        if (Arrays.equals(currentLoc, getDestination()))
+            return false;
+        if (! hasValidPathFrom(currentLoc)) {
+            //a path that was followed to its end continues to the next waypoint, any other path is searched anew
+            boolean followed = path != null && pathIndex >= path.length;
+            if (! (followed && refineNextWaypoint(currentLoc)) && ! findPath(currentLoc))
+                return false;
+        }
+        this.nextStop = path[pathIndex++];
+        return true;
+    }
+
+    /**
+     * Search a new path from the given cube to the destination of this movement.
+     *
+     * @param  currentLoc
+     * 		   The cube the unit of this movement is in.
+     * @return True if and only if a path with at least one stop was found.
+     */
+    private boolean findPath(int[] currentLoc) {
+        World world = this.getUnit().getWorld();
+        PathRequestService service = world.getPathRequestService();
+        if (isWaitingForPath()) {
+            if (service != null)
+                return receivePath(service, currentLoc);
+            //the service was removed from the world, so the path is searched right away
+            this.waitingForPath = false;
+            this.pendingPath = null;
+        }
+        this.nbPathSearches++;
+        this.waypoints = null;
+        FlowField field = world.getFlowFields().get(getDestination());
+        if (field != null) {
+            this.path = field.getPath(currentLoc);
+            this.pathIndex = 0;
+            this.pathTerrainVersion = field.getTerrainVersion();
+            if (path == null || path.length == 0) {
+                this.path = null;
+                return false;
+            }
+            return true;
+        }
+        if (service != null)
+            //the cluster graph is brought up to date with the live terrain, so it cannot be used on a worker
+            return requestPath(service, currentLoc);
+        if (world.usesHierarchicalPathfinding()
+                && chebyshevDistance(currentLoc, getDestination()) > ClusterGraph.CLUSTER_SIZE) {
+            Cube[] planned = world.getClusterGraph().findPath(currentLoc, getDestination());
+            if (planned == null || planned.length == 0) {
+                this.path = null;
+                return false;
+            }
+            this.waypoints = planned;
+            this.waypointIndex = 0;
+            if (refineNextWaypoint(currentLoc))
+                return true;
+            //the first waypoint is always reachable inside its cluster, but a full search is the safe way out
+            this.waypoints = null;
+        }
+        this.path = pathing.FindPath(new Cube(currentLoc), destinationCube);
+        this.pathIndex = 0;
+        this.pathTerrainVersion = world.getTerrainVersion();
+        if (path.length == 0 || Arrays.equals(path, new Cube[]{new Cube(new int[]{-1, -1, -1})})) {
+            this.path = null;
             return false;
         }
-        this.nextStop = path[0];
         return true;
     }
 
+    /**
+     * Return whether this movement waits for a path from the path request service of the world.
+     */
+    @Basic
+    @Raw
+    public boolean isWaitingForPath() {
+        return this.waitingForPath;
+    }
+
+    /**
+     * Request a path from the given cube to the destination of this movement from the given path request service.
+     *
+     * @param  service
+     * 		   The path request service of the world.
+     * @param  currentLoc
+     * 		   The cube the unit of this movement is in.
+     * @return Always false, as the path is not there yet.
+     * @post   This movement waits for a path, also if the service refused the request. It is then requested again the
+     * 		   next time a path is needed.
+     */
+    private boolean requestPath(PathRequestService service, int[] currentLoc) {
+        this.path = null;
+        this.pendingStart = currentLoc.clone();
+        this.pendingTerrainVersion = this.getUnit().getWorld().getTerrainVersion();
+        this.pendingPath = service.submit(pathing, new Cube(pendingStart), destinationCube);
+        this.waitingForPath = true;
+        return false;
+    }
+
+    /**
+     * Take the path requested from the given path request service, if it has arrived and still holds for the terrain.
+     *
+     * @param  service
+     * 		   The path request service of the world.
+     * @param  currentLoc
+     * 		   The cube the unit of this movement is in.
+     * @return True if and only if the path arrived, has at least one stop and can still be followed from the given cube.
+     * 		   If the terrain changed next to the path since it was requested, or the unit is no longer in the cube it
+     * 		   was requested from, or the request was refused, a new path is requested. This is also the case if no path
+     * 		   was found but the terrain has changed since.
+     */
+    private boolean receivePath(PathRequestService service, int[] currentLoc) {
+        if (pendingPath == null)
+            return requestPath(service, currentLoc);
+        if (! pendingPath.isDone())
+            return false;
+        Cube[] found;
+        try {
+            found = pendingPath.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("The path search of a movement failed", e);
+        }
+        this.pendingPath = null;
+        this.waitingForPath = false;
+        if (! Arrays.equals(pendingStart, currentLoc))
+            return requestPath(service, currentLoc);
+        if (found.length == 0)
+            return false;
+        if (Arrays.equals(found, new Cube[]{new Cube(new int[]{-1, -1, -1})})) {
+            if (pendingTerrainVersion != this.getUnit().getWorld().getTerrainVersion())
+                return requestPath(service, currentLoc);
+            return false;
+        }
+        this.path = found;
+        this.pathIndex = 0;
+        this.pathTerrainVersion = pendingTerrainVersion;
+        if (! hasValidPathFrom(currentLoc))
+            return requestPath(service, currentLoc);
+        return true;
+    }
+
+    /**
+     * Refine the path of this movement from the given cube to the next of its waypoints.
+     *
+     * @param  currentLoc
+     * 		   The cube the unit of this movement is in.
+     * @return False if this movement has no waypoints left, or if the next waypoint can no longer be reached inside its
+     * 		   cluster, in which case the path has to be planned anew.
+     */
+    private boolean refineNextWaypoint(int[] currentLoc) {
+        if (waypoints == null || waypointIndex >= waypoints.length)
+            return false;
+        World world = this.getUnit().getWorld();
+        Cube[] refined = world.getClusterGraph().refine(currentLoc, waypoints[waypointIndex].locArray);
+        if (refined == null || refined.length == 0)
+            return false;
+        this.waypointIndex++;
+        this.path = refined;
+        this.pathIndex = 0;
+        this.pathTerrainVersion = world.getTerrainVersion();
+        return true;
+    }
+
+    /**
+     * Return the number of times this movement searched a path anew, not counting the refinements up to its waypoints.
+     */
+    @Basic
+    @Raw
+    public int getNbPathSearches() {
+        return this.nbPathSearches;
+    }
+
+    /**
+     * Check whether the remaining part of the path of this movement can still be followed from the given cube.
+     *
+     * @param  currentLoc
+     * 		   The cube the unit of this movement is in.
+     * @return False if this movement has no path or has taken all of its stops.
+     * 		   False if the next stop is not a neighbour of the given cube or cannot be stood in.
+     * 		   False if the terrain changed in or next to one of the remaining stops since the path was last checked.
+     */
+    private boolean hasValidPathFrom(int[] currentLoc) {
+        if (path == null || pathIndex >= path.length)
+            return false;
+        int[] next = path[pathIndex].locArray;
+        if (chebyshevDistance(currentLoc, next) != 1)
+            return false;
+        if (! this.getUnit().getWorld().canHaveAsCubeLocation(next, this.getUnit()))
+            return false;
+        return ! isPathTouchedByTerrainChanges();
+    }
+
+    /**
+     * Check whether the terrain changed in or next to one of the remaining stops of the path of this movement since it was
+     * last checked. A change of a cube can only change whether a unit can stand in that cube or in one of its neighbours.
+     *
+     * @post   The path of this movement is registered as checked against the current terrain version.
+     */
+    private boolean isPathTouchedByTerrainChanges() {
+        World world = this.getUnit().getWorld();
+        if (world.getTerrainVersion() == pathTerrainVersion)
+            return false;
+        int[] changes = world.getTerrainChangesSince(pathTerrainVersion);
+        pathTerrainVersion = world.getTerrainVersion();
+        if (changes == null)
+            return true;
+        for (int change: changes) {
+            int[] changedLoc = world.getCubeLocation(change);
+            for (int i = pathIndex; i < path.length; i++) {
+                if (chebyshevDistance(changedLoc, path[i].locArray) <= 1)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the largest difference between the x, y and z coordinate of the given cubes.
+     */
+    private static int chebyshevDistance(int[] cube1, int[] cube2) {
+        return Math.max(Math.abs(cube1[0] - cube2[0]), Math.max(Math.abs(cube1[1] - cube2[1]), Math.abs(cube1[2] - cube2[2])));
+    }
+
     /**
      * Return the speed of this movement.
      */
@@ -275,7 +555,7 @@ public class Movement implements IActivity {
         double norm = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2) + Math.pow(dz, 2));
         double newX = dx / norm;
         double newY = dy / norm;
-        double newZ = dy / norm;
+        double newZ = dz / norm;
         return new double[]{newX, newY, newZ};
     }
     
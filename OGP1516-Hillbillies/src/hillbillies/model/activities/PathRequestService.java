@@ -0,0 +1,196 @@
+package hillbillies.model.activities;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.model.TerrainSnapshot;
+import hillbillies.model.World;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class of services searching the paths of the units of a world on a pool of worker threads, so that long searches do
+ * not stall the advance of time of the world.
+ * 		A request is searched on the terrain snapshot of the world at the time it was submitted. The world may change
+ * 		while the search runs, so the path that comes back holds for the terrain version of that snapshot, and has to be
+ * 		checked against the changes made since before it is followed. Requests wait in a queue of limited capacity; a
+ * 		request that does not fit is refused rather than blocking the world, and can be submitted again later. The flow
+ * 		fields of the world are built by the same workers.
+ *
+ * @invar	The number of workers and the queue capacity of each path request service are strictly positive.
+ *
+ * @version	2.9.05 technical beta
+ * @author  Arthur Decloedt - Bachelor in de Informatica
+ * 			Julie Allard - Bachelor Handelsingenieur in de beleidsinformatica
+ * 			https://github.com/julieallard/HillBilliesOGP.git
+ */
+public class PathRequestService implements Closeable {
+
+	/**
+	 * Initialize this new path request service for the given world, with the given number of worker threads and a queue
+	 * holding at most the given number of waiting requests.
+	 *
+	 * @param	world
+	 *			The world whose units this new service searches paths for.
+	 * @param	nbWorkers
+	 *			The number of threads searching paths.
+	 * @param	queueCapacity
+	 *			The number of requests that can wait for a worker.
+	 * @throws	IllegalArgumentException
+	 *			The given number of workers or the given queue capacity is not strictly positive.
+	 */
+    public PathRequestService(World world, int nbWorkers, int queueCapacity) throws IllegalArgumentException {
+        if (nbWorkers <= 0)
+            throw new IllegalArgumentException("Invalid number of path workers " + nbWorkers);
+        if (queueCapacity <= 0)
+            throw new IllegalArgumentException("Invalid path request queue capacity " + queueCapacity);
+        this.world = world;
+        this.nbWorkers = nbWorkers;
+        this.queueCapacity = queueCapacity;
+        this.workers = new ThreadPoolExecutor(nbWorkers, nbWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "Path worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /* Variables */
+
+    /**
+     * Constant reflecting the number of worker threads a service uses by default.
+     */
+    public static final int DEFAULT_NB_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Constant reflecting the number of requests that can wait for a worker by default.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Variable registering the world whose units this path request service searches paths for.
+     */
+    private final World world;
+
+    /**
+     * Variables registering the number of worker threads and the number of requests that can wait for a worker.
+     */
+    private final int nbWorkers;
+    private final int queueCapacity;
+
+    /**
+     * Variable registering the pool of worker threads of this path request service.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Variables registering the number of requests submitted to this service, and the number of those it refused.
+     */
+    private int nbSubmitted = 0;
+    private int nbRefused = 0;
+
+    /* Methods */
+
+    /**
+     * Return the world whose units this path request service searches paths for.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Return the number of worker threads of this path request service.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public int getNbWorkers() {
+        return this.nbWorkers;
+    }
+
+    /**
+     * Return the number of requests that can wait for a worker of this path request service.
+     */
+    @Basic
+    @Raw
+    @Immutable
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     * Return the number of requests submitted to this path request service, including those it refused.
+     */
+    public int getNbSubmitted() {
+        return this.nbSubmitted;
+    }
+
+    /**
+     * Return the number of requests this path request service refused because its queue was full.
+     */
+    public int getNbRefused() {
+        return this.nbRefused;
+    }
+
+    /**
+     * Submit a search for a path from the given start cube to the given destination, on the terrain of the world as it
+     * is now.
+     * 		This is to be called from the thread advancing the world, between changes of its terrain.
+     *
+     * @param	pathing
+     * 			The path search to use. It must not be used for anything else until the search is done.
+     * @param	startcube
+     * 			The cube to start from.
+     * @param	destination
+     * 			The cube to reach.
+     * @return	The future result of the search, as FindPath of the given path search would return it on the current
+     * 			terrain version of the world, or null if the queue of this service is full or the service is closed.
+     */
+    public Future<Cube[]> submit(Astar pathing, Cube startcube, Cube destination) {
+        TerrainSnapshot snapshot = world.getTerrainSnapshot();
+        nbSubmitted++;
+        try {
+            return workers.submit(() -> pathing.FindPath(snapshot, startcube, destination));
+        } catch (RejectedExecutionException e) {
+            nbRefused++;
+            return null;
+        }
+    }
+
+    /**
+     * Submit building a flow field towards the given destination, on the terrain of the world as it is now.
+     * 		This is to be called from the thread advancing the world, between changes of its terrain.
+     *
+     * @param	destination
+     * 			The location of the cube the field leads to.
+     * @return	The future flow field, holding for the current terrain version of the world, or null if the queue of this
+     * 			service is full or the service is closed.
+     */
+    Future<FlowField> submitFlowField(int[] destination) {
+        TerrainSnapshot snapshot = world.getTerrainSnapshot();
+        nbSubmitted++;
+        try {
+            return workers.submit(() -> new FlowField(world, snapshot, destination));
+        } catch (RejectedExecutionException e) {
+            nbRefused++;
+            return null;
+        }
+    }
+
+    /**
+     * Stop the workers of this path request service. Searches that are still queued are dropped.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+}
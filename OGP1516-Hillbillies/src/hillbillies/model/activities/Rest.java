@@ -28,6 +28,24 @@ public class Rest implements IActivity {
 		this.gotFirstHP = false;
 	}
 
+	/**
+	 * Initialize this new rest with given unit, given time left until the first hitpoint and given state of recovery of
+	 * the first hitpoint, as restored from a snapshot.
+     *
+     * @param  unit
+     *         The unit for this new rest.
+     * @param  timeLeftTillFirstHP
+     *         The time left until the first hitpoint will be recovered during this new rest.
+     * @param  gotFirstHP
+     *         Whether the first hitpoint has already been recovered during this new rest.
+     * @post   The unit of this new rest is equal to the given unit.
+     */
+	public Rest(Unit unit, double timeLeftTillFirstHP, boolean gotFirstHP) {
+		this.unit = unit;
+		this.timeLeftTillFirstHP = timeLeftTillFirstHP;
+		this.gotFirstHP = gotFirstHP;
+	}
+
 	/* Variables */
 	
     /**
@@ -56,6 +74,24 @@ public class Rest implements IActivity {
 	private boolean gotFirstHP;
 	
     /* Methods */
+
+    /**
+     * Return the time left until the first hitpoint will be recovered during this rest.
+     */
+    @Basic
+    @Raw
+    public double getTimeLeftTillFirstHP() {
+        return this.timeLeftTillFirstHP;
+    }
+
+    /**
+     * Return whether the first hitpoint has already been recovered during this rest.
+     */
+    @Basic
+    @Raw
+    public boolean hasFirstHP() {
+        return this.gotFirstHP;
+    }
     
     /**
      * Return whether this rest has been dictated by a statement.
@@ -43,6 +43,23 @@ public class Work implements IActivity {
         this.targetCubeLocation = targetCubeLocation;
     }
 
+	/**
+	 * Initialize this new work with given unit, given target location and given time left, as restored from a snapshot.
+     *
+     * @param	unit
+     *			The unit for this new work.
+     * @param	targetCubeLocation
+     *			The target location for this new work.
+     * @param	timeLeft
+     *			The time left for this new work.
+     * @effect	This new work is initialized with the given unit and the given target location.
+     * @effect	The time left for this new work is set to the given time left.
+     */
+    public Work(Unit unit, int[] targetCubeLocation, double timeLeft) throws IllegalTimeException {
+        this(unit, targetCubeLocation);
+        this.setTimeLeft(timeLeft);
+    }
+
     /* Variables */
     
     /**
@@ -201,7 +218,7 @@ public class Work implements IActivity {
      */
 	@Basic
 	@Raw
-    private int[] getTargetCubeLocation() {
+    public int[] getTargetCubeLocation() {
     	return this.targetCubeLocation;
     }
     
@@ -0,0 +1,25 @@
+package hillbillies.model.exceptions;
+
+import java.io.IOException;
+
+public class MapFormatException extends IOException {
+
+    private final int line;
+
+    private final int column;
+
+    public MapFormatException(String message, int line, int column){
+        super(message + " (line " + line + ", column " + column + ")");
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine(){
+        return this.line;
+    }
+
+    public int getColumn(){
+        return this.column;
+    }
+
+}
@@ -0,0 +1,95 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class AutosaveTest {
+
+    @Test
+    public void save_KeepsCapturedState() throws Exception {
+        Path file = Files.createTempFile("world", ".hbsn.gz");
+        ChunkedTerrain terrain = WorldMaps.floorTerrain(20, 20, 6);
+        terrain.set(5, 5, 1, 2);
+        World world = new World(terrain, new DefaultTerrainChangeListener());
+        world.addUnit(new Unit("Saved", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world));
+        try (Autosave autosave = new Autosave(world, file, 10)) {
+            Future<?> save = autosave.save();
+            //changes after the capture are not part of the save, even while it is still being written
+            world.setCubeType(5, 5, 1, 0);
+            world.addUnit(new Unit("Unsaved", 3.5, 2.5, 1.5, 50, 50, 50, 50, false, world));
+            save.get();
+            assertEquals(1, autosave.getNbSaves());
+            assertNull(autosave.getLastError());
+            assertTrue(autosave.getLastCapturePause() > 0);
+            assertTrue(autosave.getLastSaveTime() > 0);
+            assertEquals(Files.size(file), autosave.getLastSaveSize());
+            World loaded = Autosave.load(file, new DefaultTerrainChangeListener());
+            assertEquals(2, loaded.getCubeIDAt(5, 5, 1));
+            assertEquals(1, loaded.TotalUnitSet.size());
+            assertEquals("Saved", loaded.TotalUnitSet.iterator().next().getName());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void advanceTime_SavesEveryInterval() throws Exception {
+        Path file = Files.createTempFile("world", ".hbsn.gz");
+        World world = WorldMaps.floorWorld(20, 20, 6);
+        Autosave autosave = new Autosave(world, file, 0.5);
+        try {
+            world.setAutosave(autosave);
+            for (int i = 0; i < 4; i++)
+                world.advanceTime(0.2);
+            autosave.close();
+            assertEquals(1, autosave.getNbSaves());
+            assertEquals(20, Autosave.load(file, new DefaultTerrainChangeListener()).getxSideSize());
+        } finally {
+            autosave.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void close_DetachesFromWorld() throws Exception {
+        Path file = Files.createTempFile("world", ".hbsn.gz");
+        World world = WorldMaps.floorWorld(20, 20, 6);
+        Autosave autosave = new Autosave(world, file, 0.1);
+        try {
+            world.setAutosave(autosave);
+            world.advanceTime(0.2);
+            autosave.close();
+            assertTrue(autosave.isClosed());
+            assertNull(world.getAutosave());
+            //the world goes on without saving once its autosave is closed
+            for (int i = 0; i < 4; i++)
+                world.advanceTime(0.2);
+            assertEquals(1, autosave.getNbSaves());
+        } finally {
+            autosave.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setAutosave_Closed() throws Exception {
+        World world = WorldMaps.floorWorld(8, 8, 4);
+        Autosave autosave = new Autosave(world, Paths.get("unused.hbsn.gz"), 1);
+        autosave.close();
+        world.setAutosave(autosave);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setAutosave_OtherWorld() throws Exception {
+        WorldMaps.floorWorld(8, 8, 4).setAutosave(new Autosave(WorldMaps.floorWorld(8, 8, 4), Paths.get("unused.hbsn.gz"), 1));
+    }
+
+}
@@ -0,0 +1,93 @@
+package hillbillies.model;
+
+import hillbillies.tests.util.WorldMaps;
+import hillbillies.util.ConnectedToBorder;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how fast border connectivity follows units digging tunnels through the large bundled maps.
+ * 		The same straight tunnels are dug once with the provided ConnectedToBorder and once with BorderConnectivity, and
+ * 		the numbers of disconnected cubes they report are compared. Run as a Java application; the optional arguments are
+ * 		the number of tunnels and the names of the maps.
+ */
+public class BorderConnectivityBenchmark {
+
+    private static final int TUNNEL_LENGTH = 12;
+
+    public static void main(String[] args) throws Exception {
+        int nbTunnels = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String[] maps = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"50x50x50.wrld", "80x80x80.wrld"};
+        for (String map: maps) {
+            int[][][] terrain = WorldMaps.readTerrain(map);
+            int nbX = terrain.length;
+            int nbY = terrain[0].length;
+            int nbZ = terrain[0][0].length;
+            boolean[] passable = new boolean[nbX * nbY * nbZ];
+            for (int x = 0; x < nbX; x++)
+                for (int y = 0; y < nbY; y++)
+                    for (int z = 0; z < nbZ; z++)
+                        passable[x + nbX * (y + nbY * z)] = terrain[x][y][z] == 0 || terrain[x][y][z] == 3;
+            int[][] digs = tunnels(nbX, nbY, nbZ, nbTunnels, new Random(42));
+
+            ConnectedToBorder old = new ConnectedToBorder(nbX, nbY, nbZ);
+            old.changeSolidToPassable(passable);
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long oldChanged = 0;
+            for (int[] dig: digs)
+                oldChanged += old.changeSolidToPassable(dig[0], dig[1], dig[2]).size();
+            long oldTime = System.nanoTime() - start;
+            long oldAllocated = allocatedBytes() - allocatedBefore;
+
+            BorderConnectivity connectivity = new BorderConnectivity(nbX, nbY, nbZ);
+            connectivity.changeSolidToPassable(passable);
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            long changed = 0;
+            for (int[] dig: digs) {
+                List<int[]> disconnected = connectivity.changeSolidToPassable(dig[0], dig[1], dig[2]);
+                changed += disconnected.size();
+            }
+            long time = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            System.out.printf("%s: %d digs; ConnectedToBorder %.1f us/dig, %d bytes/dig, %d disconnected; "
+                            + "BorderConnectivity %.1f us/dig, %d bytes/dig, %d disconnected%n", map, digs.length,
+                    oldTime / 1e3 / digs.length, oldAllocated / digs.length, oldChanged,
+                    time / 1e3 / digs.length, allocated / digs.length, changed);
+        }
+    }
+
+    /**
+     * Return the cubes dug by the given number of straight horizontal tunnels at random places in a world of the given
+     * size, in digging order.
+     */
+    private static int[][] tunnels(int nbX, int nbY, int nbZ, int nbTunnels, Random random) {
+        int[][] digs = new int[nbTunnels * TUNNEL_LENGTH][];
+        int nbDigs = 0;
+        for (int tunnel = 0; tunnel < nbTunnels; tunnel++) {
+            boolean alongX = random.nextBoolean();
+            int x = random.nextInt(alongX ? nbX - TUNNEL_LENGTH : nbX);
+            int y = random.nextInt(alongX ? nbY : nbY - TUNNEL_LENGTH);
+            int z = random.nextInt(nbZ);
+            for (int step = 0; step < TUNNEL_LENGTH; step++)
+                digs[nbDigs++] = alongX ? new int[]{x + step, y, z} : new int[]{x, y + step, z};
+        }
+        return digs;
+    }
+
+    /**
+     * Return the number of bytes allocated by the current thread so far, or 0 if the virtual machine does not tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+}
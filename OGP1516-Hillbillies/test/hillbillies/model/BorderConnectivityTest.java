@@ -0,0 +1,89 @@
+package hillbillies.model;
+
+import hillbillies.util.ConnectedToBorder;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BorderConnectivityTest {
+
+    private static Set<Integer> indices(List<int[]> coordinates, BorderConnectivity connectivity) {
+        Set<Integer> result = new HashSet<>();
+        for (int[] coordinate: coordinates)
+            result.add(connectivity.getIndex(coordinate[0], coordinate[1], coordinate[2]));
+        return result;
+    }
+
+    private static Set<Integer> connected(ConnectedToBorder connectivity, BorderConnectivity indexing) {
+        Set<Integer> result = new HashSet<>();
+        for (int x = 0; x < indexing.getNbX(); x++)
+            for (int y = 0; y < indexing.getNbY(); y++)
+                for (int z = 0; z < indexing.getNbZ(); z++)
+                    if (connectivity.isSolidConnectedToBorder(x, y, z))
+                        result.add(indexing.getIndex(x, y, z));
+        return result;
+    }
+
+    private static void assertSameConnectivity(ConnectedToBorder expected, BorderConnectivity actual) {
+        for (int x = 0; x < actual.getNbX(); x++)
+            for (int y = 0; y < actual.getNbY(); y++)
+                for (int z = 0; z < actual.getNbZ(); z++)
+                    assertEquals(expected.isSolidConnectedToBorder(x, y, z), actual.isSolidConnectedToBorder(x, y, z));
+    }
+
+    @Test
+    public void changeSolidToPassable_SameAsConnectedToBorder() throws Exception {
+        Random random = new Random(7);
+        for (int world = 0; world < 200; world++) {
+            int nbX = 3 + random.nextInt(6);
+            int nbY = 3 + random.nextInt(6);
+            int nbZ = 3 + random.nextInt(6);
+            ConnectedToBorder expected = new ConnectedToBorder(nbX, nbY, nbZ);
+            BorderConnectivity actual = new BorderConnectivity(nbX, nbY, nbZ);
+            for (int change = 0; change < nbX * nbY * nbZ; change++) {
+                int x = random.nextInt(nbX);
+                int y = random.nextInt(nbY);
+                int z = random.nextInt(nbZ);
+                if (random.nextInt(4) == 0) {
+                    List<int[]> expectedChanged = expected.changePassableToSolid(x, y, z);
+                    List<int[]> actualChanged = actual.changePassableToSolid(x, y, z);
+                    assertEquals(expectedChanged.size(), actualChanged.size());
+                    assertEquals(indices(expectedChanged, actual), indices(actualChanged, actual));
+                } else {
+                    //ConnectedToBorder also reports blobs that were disconnected before; only new ones are reported here
+                    Set<Integer> connectedBefore = connected(expected, actual);
+                    Set<Integer> expectedChanged = indices(expected.changeSolidToPassable(x, y, z), actual);
+                    expectedChanged.retainAll(connectedBefore);
+                    List<int[]> actualChanged = actual.changeSolidToPassable(x, y, z);
+                    assertEquals(expectedChanged.size(), actualChanged.size());
+                    assertEquals(expectedChanged, indices(actualChanged, actual));
+                }
+                assertSameConnectivity(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void changeSolidToPassable_BulkSameAsConnectedToBorder() throws Exception {
+        Random random = new Random(11);
+        for (int world = 0; world < 40; world++) {
+            int nbX = 3 + random.nextInt(8);
+            int nbY = 3 + random.nextInt(8);
+            int nbZ = 3 + random.nextInt(8);
+            boolean[] cubes = new boolean[nbX * nbY * nbZ];
+            for (int i = 0; i < cubes.length; i++)
+                cubes[i] = random.nextInt(3) != 0;
+            ConnectedToBorder expected = new ConnectedToBorder(nbX, nbY, nbZ);
+            BorderConnectivity actual = new BorderConnectivity(nbX, nbY, nbZ);
+            assertEquals(indices(expected.changeSolidToPassable(cubes), actual),
+                    indices(actual.changeSolidToPassable(cubes), actual));
+            assertSameConnectivity(expected, actual);
+        }
+    }
+
+}
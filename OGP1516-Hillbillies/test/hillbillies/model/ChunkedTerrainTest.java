@@ -0,0 +1,80 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChunkedTerrainTest {
+
+    @Test
+    public void setAndGet() throws Exception {
+        ChunkedTerrain terrain = new ChunkedTerrain(40, 20, 17, 1);
+        assertEquals(0, terrain.getNbMixedChunks());
+        terrain.set(39, 19, 16, 0);
+        terrain.set(17, 3, 2, 2);
+        assertEquals(0, terrain.get(39, 19, 16));
+        assertEquals(2, terrain.get(17, 3, 2));
+        assertEquals(1, terrain.get(16, 3, 2));
+        assertEquals(2, terrain.get(17 + 40 * (3 + 20 * 2)));
+        assertEquals(2, terrain.getNbMixedChunks());
+    }
+
+    @Test
+    public void compact() throws Exception {
+        ChunkedTerrain terrain = new ChunkedTerrain(20, 20, 20, 0);
+        //the last chunk along each axis only partly lies within the terrain
+        for (int x = 16; x < 20; x++)
+            for (int y = 16; y < 20; y++)
+                for (int z = 16; z < 20; z++)
+                    terrain.set(x, y, z, 1);
+        terrain.set(0, 0, 0, 3);
+        assertEquals(1, terrain.compact());
+        assertEquals(1, terrain.getUniformFeature(19, 19, 19));
+        assertEquals(-1, terrain.getUniformFeature(0, 0, 0));
+        assertEquals(3, terrain.get(0, 0, 0));
+    }
+
+    @Test
+    public void copyFeatures_IndependentOfChanges() throws Exception {
+        ChunkedTerrain terrain = new ChunkedTerrain(40, 20, 20, 1);
+        terrain.set(1, 1, 1, 2);
+        ChunkedTerrain copy = terrain.copyFeatures();
+        terrain.set(1, 1, 1, 0);
+        terrain.set(30, 1, 1, 3);
+        copy.set(2, 1, 1, 3);
+        assertEquals(2, copy.get(1, 1, 1));
+        assertEquals(1, copy.get(30, 1, 1));
+        assertEquals(3, copy.get(2, 1, 1));
+        assertEquals(0, terrain.get(1, 1, 1));
+        assertEquals(3, terrain.get(30, 1, 1));
+        assertEquals(1, terrain.get(2, 1, 1));
+        assertFalse(copy.hasValidFlags());
+    }
+
+    @Test
+    public void world_SameAsCubeWorld() throws Exception {
+        int[][][] types = new int[20][18][5];
+        ChunkedTerrain terrain = new ChunkedTerrain(20, 18, 5, 0);
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 18; y++) {
+                types[x][y][0] = 1;
+                terrain.set(x, y, 0, 1);
+            }
+        }
+        types[4][4][3] = 2;
+        terrain.set(4, 4, 3, 2);
+        World fromTypes = new World(types, new DefaultTerrainChangeListener());
+        World fromTerrain = new World(terrain, new DefaultTerrainChangeListener());
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 18; y++) {
+                for (int z = 0; z < 5; z++) {
+                    assertEquals(fromTypes.getCubeIDAt(x, y, z), fromTerrain.getCubeIDAt(x, y, z));
+                    assertEquals(fromTypes.isStandable(x, y, z), fromTerrain.isStandable(x, y, z));
+                }
+            }
+        }
+        assertEquals(1, fromTerrain.getNbQueuedCaveIns());
+    }
+
+}
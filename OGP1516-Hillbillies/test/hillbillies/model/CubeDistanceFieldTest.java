@@ -0,0 +1,87 @@
+package hillbillies.model;
+
+import hillbillies.model.CubeObjects.Workshop;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CubeDistanceFieldTest {
+
+    private static final int WORKSHOP = Workshop.INSTANCE.getId();
+
+    /**
+     * Return a world with rock, trees and workshops scattered over it.
+     */
+    private static World randomWorld(Random random) {
+        int[][][] types = new int[12][12][6];
+        for (int x = 0; x < 12; x++)
+            for (int y = 0; y < 12; y++)
+                for (int z = 0; z < 6; z++)
+                    types[x][y][z] = new int[]{0, 0, 0, 1, 1, 2, 3}[random.nextInt(7)];
+        return new World(types, new DefaultTerrainChangeListener());
+    }
+
+    /**
+     * Check that the given distance field agrees with a distance field built anew for every cube of its world.
+     */
+    private static void assertAgreesWithRebuild(World world, CubeDistanceField field) {
+        CubeDistanceField rebuilt = new CubeDistanceField(world, field.getCubeType());
+        for (int x = 0; x < world.getxSideSize(); x++) {
+            for (int y = 0; y < world.getySideSize(); y++) {
+                for (int z = 0; z < world.getzSideSize(); z++) {
+                    int[] cube = {x, y, z};
+                    assertEquals(rebuilt.getDistance(cube), field.getDistance(cube));
+                    //of several nearest cubes at the same distance, either may be registered
+                    int[] nearest = field.getNearest(cube);
+                    if (rebuilt.getNearest(cube) == null) {
+                        assertNull(nearest);
+                    } else {
+                        assertEquals(field.getCubeType(), world.getCubeIDAt(nearest));
+                        assertEquals(0, field.getDistance(nearest));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Make a random change to the terrain of the given world: destroy a random solid cube, or make a random cube air or
+     * a workshop.
+     */
+    private static void changeRandomCube(World world, Random random) {
+        int[] cube = {random.nextInt(12), random.nextInt(12), random.nextInt(6)};
+        //a destroyed cube may leave a boulder or log behind, which needs a solid cube below it
+        boolean supported = cube[2] == 0 || ! world.getCubeAt(new int[]{cube[0], cube[1], cube[2] - 1}).isPassable();
+        if (random.nextBoolean() && supported && world.getCubeAt(cube).isDestructible())
+            world.destroyCube(cube);
+        else
+            world.setCubeType(cube[0], cube[1], cube[2], random.nextInt(3) == 0 ? WORKSHOP : 0);
+    }
+
+    @Test
+    public void refresh_AgreesWithRebuildAfterEachChange() {
+        Random random = new Random(23);
+        World world = randomWorld(random);
+        CubeDistanceField field = world.getDistanceField(WORKSHOP);
+        for (int change = 0; change < 150; change++) {
+            changeRandomCube(world, random);
+            assertAgreesWithRebuild(world, field);
+        }
+    }
+
+    @Test
+    public void refresh_ChangeLogOverflow() {
+        Random random = new Random(29);
+        World world = randomWorld(random);
+        CubeDistanceField field = world.getDistanceField(WORKSHOP);
+        field.refresh();
+        long version = world.getTerrainVersion();
+        while (world.getTerrainChangesSince(version) != null)
+            changeRandomCube(world, random);
+        assertAgreesWithRebuild(world, field);
+    }
+
+}
@@ -0,0 +1,113 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares a world on a chunked terrain on the heap with a world on a memory-mapped terrain.
+ * 		A hilly terrain with tunnels is generated; then for both kinds of terrain the time to create a world, the heap in
+ * 		use afterwards, the time of random lookups and the time of digging are measured. For the mapped terrain a world
+ * 		is created twice: once deriving the flags, and once more from the reopened file whose flags are then valid.
+ * 		Run as a Java application; pass the size along x, y and z as arguments, 256 by 256 by 128 by default.
+ */
+public class MappedTerrainBenchmark {
+
+    private static final int LOOKUPS = 10_000_000;
+
+    private static final int DIGS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int nbX = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int nbY = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int nbZ = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+        System.out.printf("%dx%dx%d cubes%n", nbX, nbY, nbZ);
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        World chunked = new World(generate(nbX, nbY, nbZ), new DefaultTerrainChangeListener());
+        long chunkedTime = System.nanoTime() - start;
+        System.out.printf("chunked: world %.0f ms, heap %d MB%n", chunkedTime / 1e6, (usedHeap() - heapBefore) >> 20);
+        measure("chunked", chunked);
+        chunked = null;
+
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            MappedTerrain.create(file, generate(nbX, nbY, nbZ)).flush();
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            World mapped = new World(MappedTerrain.open(file), new DefaultTerrainChangeListener());
+            long derivingTime = System.nanoTime() - start;
+            ((MappedTerrain) mapped.getTerrain()).flush();
+            start = System.nanoTime();
+            World reopened = new World(MappedTerrain.open(file), new DefaultTerrainChangeListener());
+            long restoringTime = System.nanoTime() - start;
+            mapped = null;
+            System.out.printf("mapped: world %.0f ms deriving flags, %.0f ms from valid flags, heap %d MB, file %d MB%n",
+                    derivingTime / 1e6, restoringTime / 1e6, (usedHeap() - heapBefore) >> 20, Files.size(file) >> 20);
+            measure("mapped", reopened);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static ChunkedTerrain generate(int nbX, int nbY, int nbZ) {
+        ChunkedTerrain terrain = new ChunkedTerrain(nbX, nbY, nbZ, 0);
+        Random random = new Random(3);
+        for (int x = 0; x < nbX; x++) {
+            for (int y = 0; y < nbY; y++) {
+                int height = (int) (nbZ * (0.5 + 0.15 * Math.sin(x / 17.0) + 0.1 * Math.cos(y / 11.0)));
+                for (int z = 0; z < height; z++)
+                    terrain.set(x, y, z, (z == height - 1 && random.nextInt(8) == 0) ? 2 : 1);
+            }
+        }
+        for (int tunnel = 0; tunnel < nbX / 8; tunnel++) {
+            int y = random.nextInt(nbY);
+            int z = 1 + random.nextInt(nbZ / 3);
+            for (int x = 0; x < nbX; x++)
+                terrain.set(x, y, z, 0);
+        }
+        terrain.compact();
+        return terrain;
+    }
+
+    private static void measure(String name, World world) {
+        Random random = new Random(5);
+        int nbX = world.getxSideSize();
+        int nbY = world.getySideSize();
+        int nbZ = world.getzSideSize();
+        long start = System.nanoTime();
+        int standable = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (world.isStandable(random.nextInt(nbX), random.nextInt(nbY), random.nextInt(nbZ)))
+                standable++;
+        }
+        long lookupTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int dug = 0;
+        for (int i = 0; i < DIGS; i++) {
+            int x = random.nextInt(nbX);
+            int y = random.nextInt(nbY);
+            int z = random.nextInt(nbZ / 3);
+            if (world.getCubeIDAt(x, y, z) == 1) {
+                world.setCubeType(x, y, z, 0);
+                dug++;
+            }
+        }
+        long digTime = System.nanoTime() - start;
+        System.out.printf("%s: %.1f ns per lookup (%d standable), %.1f us per dig (%d dug, %d to cave in)%n", name,
+                (double) lookupTime / LOOKUPS, standable, digTime / 1e3 / Math.max(dug, 1), dug,
+                world.getNbQueuedCaveIns());
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,134 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class MappedTerrainTest {
+
+    private static ChunkedTerrain floorWithFloatingBlock() {
+        ChunkedTerrain terrain = new ChunkedTerrain(20, 18, 6, 0);
+        for (int x = 0; x < 20; x++)
+            for (int y = 0; y < 18; y++)
+                terrain.set(x, y, 0, 1);
+        for (int x = 5; x < 7; x++)
+            for (int y = 5; y < 7; y++)
+                terrain.set(x, y, 3, 2);
+        terrain.set(9, 9, 1, 1);
+        terrain.set(9, 9, 2, 1);
+        return terrain;
+    }
+
+    private static void assertSameWorld(World expected, World actual) {
+        for (int x = 0; x < expected.getxSideSize(); x++) {
+            for (int y = 0; y < expected.getySideSize(); y++) {
+                for (int z = 0; z < expected.getzSideSize(); z++) {
+                    assertEquals(expected.getCubeIDAt(x, y, z), actual.getCubeIDAt(x, y, z));
+                    assertEquals(expected.isStandable(x, y, z), actual.isStandable(x, y, z));
+                    assertEquals(expected.borderConnect.isSolidConnectedToBorder(x, y, z),
+                            actual.borderConnect.isSolidConnectedToBorder(x, y, z));
+                }
+            }
+        }
+        assertEquals(expected.getNbQueuedCaveIns(), actual.getNbQueuedCaveIns());
+    }
+
+    @Test
+    public void createAndOpen() throws Exception {
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            MappedTerrain created = MappedTerrain.create(file, 40, 20, 3, 1);
+            created.set(39, 19, 2, 0);
+            created.setFlag(5, TerrainStorage.FLAG_STANDABLE, true);
+            created.flush();
+            MappedTerrain opened = MappedTerrain.open(file);
+            assertEquals(40, opened.getNbX());
+            assertEquals(0, opened.get(39, 19, 2));
+            assertEquals(1, opened.get(38, 19, 2));
+            assertTrue(opened.getFlag(5, TerrainStorage.FLAG_STANDABLE));
+            assertEquals(1, opened.get(5));
+            assertFalse(opened.hasValidFlags());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void flush_ChangeAfterFlushClearsValidFlags() throws Exception {
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            World world = new World(MappedTerrain.create(file, floorWithFloatingBlock()), new DefaultTerrainChangeListener());
+            MappedTerrain terrain = (MappedTerrain) world.getTerrain();
+            terrain.flush();
+            assertTrue(MappedTerrain.open(file).hasValidFlags());
+            //a world that takes the terrain, and a change to it, stop the file from claiming valid flags
+            World reopened = new World(MappedTerrain.open(file), new DefaultTerrainChangeListener());
+            assertFalse(MappedTerrain.open(file).hasValidFlags());
+            ((MappedTerrain) reopened.getTerrain()).flush();
+            assertTrue(MappedTerrain.open(file).hasValidFlags());
+            reopened.setCubeType(9, 9, 1, 0);
+            assertFalse(MappedTerrain.open(file).hasValidFlags());
+            ((MappedTerrain) reopened.getTerrain()).flush();
+            assertTrue(MappedTerrain.open(file).hasValidFlags());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_NotATerrain() throws Exception {
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            Files.write(file, new byte[]{1, 2, 3});
+            MappedTerrain.open(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void world_SameAsChunkedWorld() throws Exception {
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            World chunked = new World(floorWithFloatingBlock(), new DefaultTerrainChangeListener());
+            World mapped = new World(MappedTerrain.create(file, floorWithFloatingBlock()), new DefaultTerrainChangeListener());
+            assertSameWorld(chunked, mapped);
+            chunked.setCubeType(9, 9, 1, 0);
+            mapped.setCubeType(9, 9, 1, 0);
+            assertSameWorld(chunked, mapped);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void world_ReopenedFromValidFlags() throws Exception {
+        Path file = Files.createTempFile("terrain", ".hbtr");
+        try {
+            World chunked = new World(floorWithFloatingBlock(), new DefaultTerrainChangeListener());
+            World first = new World(MappedTerrain.create(file, floorWithFloatingBlock()), new DefaultTerrainChangeListener());
+            chunked.setCubeType(9, 9, 1, 0);
+            first.setCubeType(9, 9, 1, 0);
+            assertTrue(first.getTerrain().hasValidFlags());
+            //the file only claims valid flags once they are flushed
+            assertFalse(MappedTerrain.open(file).hasValidFlags());
+            ((MappedTerrain) first.getTerrain()).flush();
+            MappedTerrain reopened = MappedTerrain.open(file);
+            assertTrue(reopened.hasValidFlags());
+            World second = new World(reopened, new DefaultTerrainChangeListener());
+            assertSameWorld(chunked, second);
+            //the restored connectivity must still follow later changes
+            chunked.setCubeType(0, 0, 0, 0);
+            second.setCubeType(0, 0, 0, 0);
+            assertSameWorld(chunked, second);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
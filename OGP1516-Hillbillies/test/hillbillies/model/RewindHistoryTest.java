@@ -0,0 +1,72 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RewindHistoryTest {
+
+    /**
+     * Return a world with a floor of rock and a row of trees on it.
+     */
+    private static World treeRowWorld() {
+        ChunkedTerrain terrain = WorldMaps.floorTerrain(20, 20, 6);
+        for (int x = 0; x < 10; x++)
+            terrain.set(x, 10, 1, 2);
+        return new World(terrain, new DefaultTerrainChangeListener());
+    }
+
+    @Test
+    public void restore_EveryTick() throws Exception {
+        World world = treeRowWorld();
+        Unit unit = new Unit("Rewound", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        unit.setCurrentHitPoints(20);
+        RewindHistory history = new RewindHistory(world, 4, 1 << 20);
+        world.setRewindHistory(history);
+        for (int tick = 1; tick <= 10; tick++) {
+            world.setCubeType(tick - 1, 10, 1, 0);
+            unit.setCurrentHitPoints(unit.getCurrentHitPoints() - 1);
+            if (tick % 3 == 0)
+                new Log(tick + 0.5, 5.5, 1.5, world);
+            world.advanceTime(0.1);
+        }
+        assertEquals(0, history.getOldestTick());
+        assertEquals(10, history.getNewestTick());
+        for (int tick = 0; tick <= 10; tick++) {
+            World restored = history.restore(tick, new DefaultTerrainChangeListener());
+            for (int x = 0; x < 10; x++)
+                assertEquals(x < tick ? 0 : 2, restored.getCubeIDAt(x, 10, 1));
+            Unit restoredUnit = restored.TotalUnitSet.iterator().next();
+            assertEquals(unit.getCurrentHitPoints() + 10 - tick, restoredUnit.getCurrentHitPoints());
+            assertEquals(tick / 3, restored.getWorldMap().getAllLogs().size());
+        }
+        assertEquals(2, history.rewind(0.3, new DefaultTerrainChangeListener()).getWorldMap().getAllLogs().size());
+    }
+
+    @Test
+    public void advanceTime_StaysWithinBudget() throws Exception {
+        World world = treeRowWorld();
+        RewindHistory history = new RewindHistory(world, 5, 1);
+        world.setRewindHistory(history);
+        for (int tick = 1; tick <= 20; tick++) {
+            world.setCubeType(tick % 10, 10, 1, tick % 2 == 0 ? 0 : 2);
+            world.advanceTime(0.1);
+        }
+        //only the newest keyframe and its deltas are kept
+        assertEquals(20, history.getOldestTick());
+        assertEquals(2, history.restore(20, new DefaultTerrainChangeListener()).getCubeIDAt(1, 10, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rewind_BeyondHistory() throws Exception {
+        World world = treeRowWorld();
+        RewindHistory history = new RewindHistory(world, 5, 1 << 20);
+        world.setRewindHistory(history);
+        world.advanceTime(0.1);
+        history.rewind(0.2, new DefaultTerrainChangeListener());
+    }
+
+}
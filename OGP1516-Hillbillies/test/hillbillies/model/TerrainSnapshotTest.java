@@ -0,0 +1,64 @@
+package hillbillies.model;
+
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TerrainSnapshotTest {
+
+    /**
+     * Check that the given snapshot registers the same standable cubes as its world.
+     */
+    private static void assertAgreesWithWorld(World world, TerrainSnapshot snapshot) {
+        assertEquals(world.getTerrainVersion(), snapshot.getTerrainVersion());
+        for (int x = 0; x < world.getxSideSize(); x++)
+            for (int y = 0; y < world.getySideSize(); y++)
+                for (int z = 0; z < world.getzSideSize(); z++)
+                    assertEquals(world.isStandable(x, y, z), snapshot.isStandable(x, y, z));
+    }
+
+    @Test
+    public void getTerrainSnapshot_AgreesWithWorldAfterChanges() {
+        Random random = new Random(11);
+        World world = WorldMaps.randomWorld(random, 30, 12, 2, 25);
+        world.getTerrainSnapshot();
+        for (int round = 0; round < 20; round++) {
+            for (int change = 0; change < 10; change++) {
+                int[] cube = {random.nextInt(30), random.nextInt(30), random.nextInt(12)};
+                //a destroyed cube may leave a boulder or log behind, which needs a solid cube below it
+                if (world.getCubeAt(cube).isDestructible()
+                        && (cube[2] == 0 || ! world.isPassableAtIndex(world.getCubeIndex(cube[0], cube[1], cube[2] - 1))))
+                    world.destroyCube(cube);
+            }
+            assertAgreesWithWorld(world, world.getTerrainSnapshot());
+        }
+    }
+
+    @Test
+    public void getTerrainSnapshot_SharesUnchangedBlocks() {
+        World world = WorldMaps.floorWorld(40, 40, 8);
+        TerrainSnapshot snapshot = world.getTerrainSnapshot();
+        world.destroyCube(new int[]{2, 2, 0});
+        TerrainSnapshot next = world.getTerrainSnapshot();
+        assertAgreesWithWorld(world, next);
+        assertFalse(next.sharesBlock(snapshot, 0));
+        assertTrue(next.sharesBlock(snapshot, world.getNbCubes() - 1));
+        assertTrue(snapshot.isStandable(2, 2, 1));
+        assertFalse(snapshot.isStandable(2, 2, 0));
+    }
+
+    @Test
+    public void getTerrainSnapshot_ChangeLogOverflow() {
+        World world = WorldMaps.floorWorld(40, 40, 3);
+        long version = world.getTerrainSnapshot().getTerrainVersion();
+        for (int x = 0; x < 40 && world.getTerrainChangesSince(version) != null; x++)
+            for (int y = 0; y < 40; y++)
+                world.destroyCube(new int[]{x, y, 0});
+        assertNull(world.getTerrainChangesSince(version));
+        assertAgreesWithWorld(world, world.getTerrainSnapshot());
+    }
+
+}
@@ -0,0 +1,77 @@
+package hillbillies.model;
+
+import hillbillies.part2.internal.map.GameMapReader;
+import hillbillies.tests.util.WorldMaps;
+import ogp.framework.util.internal.ResourceUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Compares the time GameMapReader and TextMapReader take to read each bundled map.
+ * 		Every map is first read into memory, so only parsing is measured; each reader then reads it a number of times
+ * 		after warming up, and the average time and the bytes allocated per read are reported. Run as a Java application;
+ * 		pass the names of maps as arguments to read only those.
+ */
+public class TextMapReaderBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        String[] maps = args.length > 0 ? args : WorldMaps.BUNDLED_MAPS;
+        for (String map: maps) {
+            byte[] bytes = readAll(map);
+            for (int warmUp = 0; warmUp < 5; warmUp++) {
+                readWithGameMapReader(bytes);
+                readWithTextMapReader(bytes);
+            }
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++)
+                readWithGameMapReader(bytes);
+            long oldTime = (System.nanoTime() - start) / ROUNDS;
+            long oldAllocated = (allocatedBytes() - allocatedBefore) / ROUNDS;
+
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++)
+                readWithTextMapReader(bytes);
+            long newTime = (System.nanoTime() - start) / ROUNDS;
+            long newAllocated = (allocatedBytes() - allocatedBefore) / ROUNDS;
+
+            System.out.printf("%-14s GameMapReader: %.2f ms, %d kB allocated; TextMapReader: %.2f ms, %d kB allocated%n",
+                    map, oldTime / 1e6, oldAllocated >> 10, newTime / 1e6, newAllocated >> 10);
+        }
+    }
+
+    private static byte[] readAll(String map) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = ResourceUtils.openResource("resources/" + map)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer))
+                out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void readWithGameMapReader(byte[] bytes) {
+        new GameMapReader().readFromReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+    }
+
+    private static void readWithTextMapReader(byte[] bytes) throws Exception {
+        new TextMapReader(new ByteArrayInputStream(bytes)).read();
+    }
+
+    /**
+     * Return the number of bytes allocated by the current thread so far, or 0 if the virtual machine does not tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+}
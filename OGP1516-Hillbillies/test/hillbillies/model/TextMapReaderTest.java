@@ -0,0 +1,69 @@
+package hillbillies.model;
+
+import hillbillies.model.exceptions.MapFormatException;
+import hillbillies.tests.util.WorldMaps;
+import ogp.framework.util.internal.ResourceUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TextMapReaderTest {
+
+    private static ChunkedTerrain read(String map) throws Exception {
+        return new TextMapReader(new ByteArrayInputStream(map.getBytes(StandardCharsets.US_ASCII))).read();
+    }
+
+    private static void assertError(String map, int line, int column) throws Exception {
+        try {
+            read(map);
+            fail("Expected an error in\n" + map);
+        } catch (MapFormatException e) {
+            assertEquals(e.getMessage(), line, e.getLine());
+            assertEquals(e.getMessage(), column, e.getColumn());
+        }
+    }
+
+    @Test
+    public void read_SameAsGameMapReader() throws Exception {
+        for (String map: WorldMaps.BUNDLED_MAPS) {
+            int[][][] expected = WorldMaps.readTerrain(map);
+            ChunkedTerrain actual;
+            try (InputStream in = ResourceUtils.openResource("resources/" + map)) {
+                actual = new TextMapReader(in).read();
+            }
+            assertEquals(expected.length, actual.getNbX());
+            assertEquals(expected[0].length, actual.getNbY());
+            assertEquals(expected[0][0].length, actual.getNbZ());
+            for (int x = 0; x < actual.getNbX(); x++)
+                for (int y = 0; y < actual.getNbY(); y++)
+                    for (int z = 0; z < actual.getNbZ(); z++)
+                        assertEquals(map, expected[x][y][z], actual.get(x, y, z));
+        }
+    }
+
+    @Test
+    public void read_Layout() throws Exception {
+        //the top layer comes first, rows may be surrounded by whitespace and the last line end may be missing
+        ChunkedTerrain terrain = read("3 2 2\r\n\r\n.W.\r\n...\r\n\n RSR \n\tRRR");
+        assertEquals(3, terrain.get(1, 0, 1));
+        assertEquals(2, terrain.get(1, 0, 0));
+        assertEquals(1, terrain.get(2, 1, 0));
+        assertEquals(0, terrain.get(0, 1, 1));
+    }
+
+    @Test
+    public void read_ErrorPositions() throws Exception {
+        assertError("3 2 1\n\n.X.\n...\n", 3, 2);
+        assertError("3 2 1\n\n...\n..\n", 4, 3);
+        assertError("3 2 1\n\n...\n....\n", 4, 4);
+        assertError("3 2 1\n.\n...\n...\n", 2, 1);
+        assertError("3 2 1\n\n...\n", 4, 1);
+        assertError("3 x 1\n", 1, 3);
+        assertError("3 0 1\n", 1, 3);
+    }
+
+}
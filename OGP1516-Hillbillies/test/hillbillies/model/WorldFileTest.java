@@ -0,0 +1,57 @@
+package hillbillies.model;
+
+import hillbillies.tests.util.WorldMaps;
+import ogp.framework.util.internal.ResourceUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class WorldFileTest {
+
+    private static byte[] convert(String map) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldFile.convert(ResourceUtils.openResource("resources/" + map), out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip_BundledMaps() throws Exception {
+        for (String map: WorldMaps.BUNDLED_MAPS) {
+            byte[] bytes = convert(map);
+            ChunkedTerrain terrain = WorldFile.read(new ByteArrayInputStream(bytes));
+            int[][][] expected = WorldMaps.readTerrain(map);
+            assertEquals(expected.length, terrain.getNbX());
+            assertEquals(expected[0].length, terrain.getNbY());
+            assertEquals(expected[0][0].length, terrain.getNbZ());
+            for (int x = 0; x < terrain.getNbX(); x++)
+                for (int y = 0; y < terrain.getNbY(); y++)
+                    for (int z = 0; z < terrain.getNbZ(); z++)
+                        assertEquals(map, expected[x][y][z], terrain.get(x, y, z));
+            ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+            WorldFile.write(terrain, rewritten);
+            assertTrue(map, Arrays.equals(bytes, rewritten.toByteArray()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_Truncated() throws Exception {
+        byte[] bytes = convert("15x15x15.wrld");
+        WorldFile.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_RunTooLong() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldFile.write(new ChunkedTerrain(4, 4, 2, 1), out);
+        byte[] bytes = out.toByteArray();
+        //the run of the first plane covers 16 cubes; make it cover 17
+        bytes[20] = 17;
+        WorldFile.read(new ByteArrayInputStream(bytes));
+    }
+
+}
@@ -0,0 +1,85 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+import hillbillies.util.ConnectedToBorder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import ogp.framework.util.internal.ResourceUtils;
+
+/**
+ * Measures how long it takes to load each bundled map.
+ * 		For every map the border connectivity is initialized once cube by cube, as worlds used to do, and once in bulk, and
+ * 		both results are compared; then a whole world is created from the map, once from the text map and once from the
+ * 		map converted to a binary world file, including reading that file. Run as a Java application; pass "bulk" as
+ * 		the first argument to skip the cube by cube initialization, which takes seconds on the largest maps, and the names
+ * 		of maps as further arguments to load only those.
+ */
+public class WorldLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        boolean bulkOnly = args.length > 0 && args[0].equals("bulk");
+        int first = bulkOnly ? 1 : 0;
+        String[] maps = args.length > first ? java.util.Arrays.copyOfRange(args, first, args.length) : WorldMaps.BUNDLED_MAPS;
+        for (String map: maps) {
+            int[][][] terrain = WorldMaps.readTerrain(map);
+            int nbX = terrain.length;
+            int nbY = terrain[0].length;
+            int nbZ = terrain[0][0].length;
+            boolean[] passable = new boolean[nbX * nbY * nbZ];
+            for (int x = 0; x < nbX; x++)
+                for (int y = 0; y < nbY; y++)
+                    for (int z = 0; z < nbZ; z++)
+                        passable[x + nbX * (y + nbY * z)] = terrain[x][y][z] == 0 || terrain[x][y][z] == 3;
+
+            long start = System.nanoTime();
+            ConnectedToBorder bulk = new ConnectedToBorder(nbX, nbY, nbZ);
+            List<int[]> bulkCaveIns = bulk.changeSolidToPassable(passable);
+            long bulkTime = System.nanoTime() - start;
+
+            String incremental = "skipped";
+            if (! bulkOnly) {
+                start = System.nanoTime();
+                ConnectedToBorder perCube = new ConnectedToBorder(nbX, nbY, nbZ);
+                for (int x = 0; x < nbX; x++)
+                    for (int y = 0; y < nbY; y++)
+                        for (int z = 0; z < nbZ; z++)
+                            if (passable[x + nbX * (y + nbY * z)])
+                                perCube.changeSolidToPassable(x, y, z);
+                long perCubeTime = System.nanoTime() - start;
+                int differences = 0;
+                for (int x = 0; x < nbX; x++)
+                    for (int y = 0; y < nbY; y++)
+                        for (int z = 0; z < nbZ; z++)
+                            if (perCube.isSolidConnectedToBorder(x, y, z) != bulk.isSolidConnectedToBorder(x, y, z))
+                                differences++;
+                incremental = String.format("%.1f ms, %d differences", perCubeTime / 1e6, differences);
+            }
+
+            start = System.nanoTime();
+            new World(terrain, new DefaultTerrainChangeListener());
+            long worldTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            WorldMaps.readTerrain(map);
+            long textTime = System.nanoTime() - start;
+
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            WorldFile.convert(ResourceUtils.openResource("resources/" + map), binary);
+            start = System.nanoTime();
+            ChunkedTerrain read = WorldFile.read(new ByteArrayInputStream(binary.toByteArray()));
+            long binaryTime = System.nanoTime() - start;
+            new World(read, new DefaultTerrainChangeListener());
+            long binaryWorldTime = System.nanoTime() - start;
+
+            System.out.printf("%-14s cube by cube: %s; bulk: %.2f ms, %d to cave in; text map: %.2f ms; world: %.2f ms; "
+                    + "binary file (%d bytes): %.2f ms; world from it: %.2f ms%n", map, incremental, bulkTime / 1e6,
+                    bulkCaveIns.size(), textTime / 1e6, worldTime / 1e6, binary.size(), binaryTime / 1e6,
+                    binaryWorldTime / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package hillbillies.model;
+
+import hillbillies.model.activities.Movement;
+import hillbillies.tests.util.WorldMaps;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the churn of the world map while hundreds of objects move around a bundled map.
+ * 		The factions of a world hold at most 250 units, so the units are joined by as many logs, which are moved
+ * 		directly. Run as a Java application; the optional arguments are the name of the map, the number of units and the
+ * 		number of ticks.
+ */
+public class WorldMapBenchmark {
+
+    private static final double DT = 0.05;
+
+    public static void main(String[] args) throws Exception {
+        String map = args.length > 0 ? args[0] : "50x50x10.wrld";
+        int nbUnits = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+        int nbTicks = args.length > 2 ? Integer.parseInt(args[2]) : 4000;
+        World world = WorldMaps.createWorld(map);
+        Random random = new Random(42);
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < nbUnits; i++) {
+            int[] spawn = randomStandableCube(world, null, random);
+            units.add(new Unit("Churn", spawn[0] + 0.5, spawn[1] + 0.5, spawn[2] + 0.5, 50, 50, 50, 50, false, world));
+        }
+        List<MovableWorldObject> objects = new ArrayList<>(units);
+        for (int i = 0; i < nbUnits; i++) {
+            int[] spawn = randomStandableCube(world, null, random);
+            objects.add(new Log(spawn[0] + 0.5, spawn[1] + 0.5, spawn[2] + 0.5, world));
+        }
+
+        //Walking: every tick the units advance through the world, idle units get a new destination.
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int tick = 0; tick < nbTicks; tick++) {
+            for (Unit unit: units) {
+                if (unit.getActivity().getId() == 0)
+                    unit.setActivity(new Movement(unit, randomStandableCube(world, unit, random)));
+            }
+            world.advanceTime(DT);
+        }
+        long walkTime = System.nanoTime() - start;
+        long walkAllocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("walk: %d units, %d ticks, %.3f ms/tick, %d bytes/tick, %d objects registered%n", nbUnits,
+                nbTicks, walkTime / 1e6 / nbTicks, walkAllocated / nbTicks, world.getWorldMap().size());
+
+        //Moving within their cube: only the registry is exercised, without path finding or activities.
+        allocatedBefore = allocatedBytes();
+        start = System.nanoTime();
+        for (int tick = 0; tick < nbTicks; tick++) {
+            double offset = (tick % 2 == 0) ? 0.1 : -0.1;
+            for (MovableWorldObject object: objects)
+                object.setLocation(Math.floor(object.getXCoordinate()) + 0.5 + offset, object.getYCoordinate(),
+                        object.getZCoordinate());
+        }
+        long moveTime = System.nanoTime() - start;
+        long moveAllocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("move: %d objects, %d ticks, %.1f ns/move, %d bytes/tick, %d objects registered%n",
+                objects.size(), nbTicks, (double) moveTime / nbTicks / objects.size(), moveAllocated / nbTicks,
+                world.getWorldMap().size());
+
+        //Removal and registration again: every object leaves and re-enters the world map.
+        start = System.nanoTime();
+        for (int tick = 0; tick < nbTicks; tick++) {
+            for (MovableWorldObject object: objects) {
+                object.unregister();
+                object.register();
+            }
+        }
+        long churnTime = System.nanoTime() - start;
+        System.out.printf("churn: %.1f ns per unregister and register, %d objects registered%n",
+                (double) churnTime / nbTicks / objects.size(), world.getWorldMap().size());
+    }
+
+    /**
+     * Return the number of bytes allocated by the current thread so far, or 0 if the virtual machine does not tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+    /**
+     * Return a random cube the given unit can stand in; with a null unit only supported cubes are returned.
+     */
+    private static int[] randomStandableCube(World world, Unit unit, Random random) {
+        while (true) {
+            int x = random.nextInt(world.getxSideSize());
+            int y = random.nextInt(world.getySideSize());
+            int z = random.nextInt(world.getzSideSize());
+            if (world.canHaveAsCubeLocation(x, y, z, unit))
+                return new int[]{x, y, z};
+        }
+    }
+
+}
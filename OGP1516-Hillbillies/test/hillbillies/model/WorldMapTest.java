@@ -1,8 +1,20 @@
 package hillbillies.model;
 
 
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
 
 public class WorldMapTest {
 
@@ -69,4 +81,94 @@ public class WorldMapTest {
     public void getAllUnitsInCube() throws Exception {
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getObjectsInBox() throws Exception {
+        World world = new World(new int[40][40][10], new DefaultTerrainChangeListener());
+        Unit unit1 = new Unit("Unit", 1.5, 1.5, 0.5, 50, 50, 50, 50, false, world);
+        Unit unit2 = new Unit("Unit", 9.5, 9.5, 0.5, 50, 50, 50, 50, false, world);
+        Unit unit3 = new Unit("Unit", 30.5, 2.5, 0.5, 50, 50, 50, 50, false, world);
+        List<MovableWorldObject> inBox = world.getObjectsInBox(0, 0, 0, 10, 10, 1);
+        assertEquals(new HashSet<>(Arrays.asList(unit1, unit2)), new HashSet<>(inBox));
+        //the upper bounds are not part of the box
+        assertTrue(world.getObjectsInBox(0, 0, 0, 9.5, 9.5, 1).contains(unit1));
+        assertFalse(world.getObjectsInBox(0, 0, 0, 9.5, 9.5, 1).contains(unit2));
+        unit3.setLocation(5.5, 5.5, 0.5);
+        assertTrue(world.getObjectsInBox(0, 0, 0, 10, 10, 1).contains(unit3));
+        unit3.unregister();
+        assertFalse(world.getObjectsInBox(0, 0, 0, 40, 40, 10).contains(unit3));
+    }
+
+    @Test
+    public void getObjectsInSphere() throws Exception {
+        World world = new World(new int[40][40][10], new DefaultTerrainChangeListener());
+        Unit unit1 = new Unit("Unit", 10.5, 10.5, 0.5, 50, 50, 50, 50, false, world);
+        Unit unit2 = new Unit("Unit", 13.5, 14.5, 0.5, 50, 50, 50, 50, false, world);
+        Unit unit3 = new Unit("Unit", 20.5, 10.5, 0.5, 50, 50, 50, 50, false, world);
+        List<MovableWorldObject> inSphere = world.getObjectsInSphere(10.5, 10.5, 0.5, 5);
+        assertEquals(new HashSet<>(Arrays.asList(unit1, unit2)), new HashSet<>(inSphere));
+        assertFalse(inSphere.contains(unit3));
+    }
+
+    private static double distance(MovableWorldObject object, double[] position) {
+        double[] location = object.getLocation().getArray();
+        return Math.sqrt(Math.pow(location[0] - position[0], 2) + Math.pow(location[1] - position[1], 2)
+                + Math.pow(location[2] - position[2], 2));
+    }
+
+    /**
+     * Check that the given objects are the given number of objects satisfying the given condition nearest to the given
+     * position, by comparing their distances with those of a scan over all given objects.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends MovableWorldObject> void assertNearest(List<T> objects, double[] position, int number,
+            Predicate<? super T> condition, List<? extends MovableWorldObject> nearest) {
+        List<T> expected = new ArrayList<>();
+        for (T object: objects)
+            if (condition.test(object))
+                expected.add(object);
+        expected.sort(Comparator.comparingDouble(object -> distance(object, position)));
+        assertEquals(Math.min(number, expected.size()), nearest.size());
+        for (int i = 0; i < nearest.size(); i++) {
+            assertTrue(condition.test((T) nearest.get(i)));
+            assertEquals(distance(expected.get(i), position), distance(nearest.get(i), position), 1e-9);
+        }
+    }
+
+    @Test
+    public void getNearestObjects_AgreesWithScan() throws Exception {
+        Random random = new Random(17);
+        World world = new World(new int[80][80][10], new DefaultTerrainChangeListener());
+        assertTrue(world.getWorldMap().getNearestObjects(40, 40, 5, 3, object -> true).isEmpty());
+        assertNull(world.getNearestUnit(40, 40, 5, unit -> true));
+        List<MovableWorldObject> objects = new ArrayList<>();
+        List<Unit> units = new ArrayList<>();
+        Set<Unit> selected = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextInt(80) + random.nextDouble();
+            double y = random.nextInt(80) + random.nextDouble();
+            if (i % 3 == 0) {
+                objects.add(new Log(x, y, 0.5, world));
+            } else {
+                Unit unit = new Unit("Unit", x, y, 0.5, 50, 50, 50, 50, false, world);
+                objects.add(unit);
+                units.add(unit);
+                if (i % 2 == 0)
+                    selected.add(unit);
+            }
+        }
+        for (int query = 0; query < 200; query++) {
+            double[] position = {random.nextDouble() * 80, random.nextDouble() * 80, random.nextDouble() * 10};
+            //the last number is larger than the number of objects
+            int number = new int[]{1, 2, 5, 20, 100}[query % 5];
+            Predicate<MovableWorldObject> condition = (query % 2 == 0) ? object -> true : object -> object instanceof Log;
+            assertNearest(objects, position, number, condition,
+                    world.getWorldMap().getNearestObjects(position[0], position[1], position[2], number, condition));
+            assertNearest(units, position, number, selected::contains,
+                    world.getNearestUnits(position[0], position[1], position[2], number, selected::contains));
+            assertNearest(units, position, 1, unit -> true,
+                    Arrays.asList(world.getNearestUnit(position[0], position[1], position[2], unit -> true)));
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package hillbillies.model;
+
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Measures how long it takes to save and to load a snapshot of an 80x80x80 world holding 100 units and 200 logs and
+ * boulders lying on top of its lower half, which is rock with wood and tunnels of air scattered below the surface. Run
+ * as a Java application; the times are the averages over the last of a number of rounds. Then the same world is
+ * saved by an autosave, measuring how long the world is paused to capture its state and how long the compressed save
+ * takes on the background thread. Finally a rewind history records a minute of ticks of a tenth of a second, in which
+ * a cube is dug and some units are hurt every tick, measuring its memory use and how long restoring a tick takes.
+ */
+public class WorldSnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = 80;
+        Random random = new Random(42);
+        ChunkedTerrain terrain = new ChunkedTerrain(size, size, size, 0);
+        for (int z = 0; z < size / 2; z++)
+            for (int y = 0; y < size; y++)
+                for (int x = 0; x < size; x++)
+                    terrain.set(x, y, z, (z < size / 2 - 1 && random.nextInt(10) == 0) ? 2 : 1);
+        for (int tunnel = 0; tunnel < 40; tunnel++) {
+            int y = random.nextInt(size);
+            int z = 1 + random.nextInt(size / 2 - 2);
+            for (int x = 0; x < size; x++)
+                terrain.set(x, y, z, 0);
+        }
+        World world = new World(terrain, new DefaultTerrainChangeListener());
+        int z = size / 2;
+        for (int i = 0; i < World.MAX_UNITS; i++)
+            world.addUnit(new Unit("Unit", random.nextInt(size) + 0.5, random.nextInt(size) + 0.5, z + 0.5, 50, 50, 50,
+                    50, true, world));
+        for (int i = 0; i < 100; i++) {
+            new Log(random.nextInt(size) + 0.5, random.nextInt(size) + 0.5, z + 0.5, world);
+            new Boulder(random.nextInt(size) + 0.5, random.nextInt(size) + 0.5, z + 0.5, world);
+        }
+
+        int rounds = 10;
+        int measured = 5;
+        long writeTime = 0;
+        long readTime = 0;
+        byte[] bytes = null;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WorldSnapshot.write(world, out);
+            bytes = out.toByteArray();
+            long written = System.nanoTime();
+            World loaded = WorldSnapshot.read(new ByteArrayInputStream(bytes), new DefaultTerrainChangeListener());
+            long read = System.nanoTime();
+            if (loaded.TotalUnitSet.size() != world.TotalUnitSet.size())
+                throw new AssertionError("Units were lost");
+            if (round >= rounds - measured) {
+                writeTime += written - start;
+                readTime += read - written;
+            }
+        }
+        System.out.printf("%dx%dx%d, %d units: snapshot of %d bytes; write: %.2f ms; read: %.2f ms%n", size, size, size,
+                world.TotalUnitSet.size(), bytes.length, writeTime / 1e6 / measured, readTime / 1e6 / measured);
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("world", ".hbsn.gz");
+        try (Autosave autosave = new Autosave(world, file, 1)) {
+            for (int round = 0; round < rounds; round++) {
+                autosave.save().get();
+                //change a cube after every capture, so the next capture shares a chunk the world has copied
+                world.setCubeType(round, 0, size / 2 - 1, 2);
+            }
+            System.out.printf("autosave: capture pause %.3f ms (longest %.3f ms); compressed save of %d bytes on the "
+                    + "background thread: %.2f ms%n", autosave.getLastCapturePause() / 1e6,
+                    autosave.getMaxCapturePause() / 1e6, autosave.getLastSaveSize(), autosave.getLastSaveTime() / 1e6);
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+
+        RewindHistory history = new RewindHistory(world, 50, 64L << 20);
+        world.setRewindHistory(history);
+        Unit[] units = world.TotalUnitSet.toArray(new Unit[0]);
+        //without tasks in their schedulers, units with default behaviour cannot advance
+        for (Unit unit : units)
+            unit.setDefaultBehavior(false);
+        long recordTime = 0;
+        for (int tick = 0; tick < 600; tick++) {
+            world.setCubeType(tick % size, 1 + tick / size, size / 2 - 1, 0);
+            for (int i = tick % 10; i < units.length; i += 10)
+                units[i].setCurrentHitPoints(units[i].getCurrentHitPoints() - 1);
+            long start = System.nanoTime();
+            world.advanceTime(0.1);
+            recordTime += System.nanoTime() - start;
+        }
+        long restoreTime = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            history.restore(history.getNewestTick() - 49, new DefaultTerrainChangeListener());
+            if (round >= rounds - measured)
+                restoreTime += System.nanoTime() - start;
+        }
+        System.out.printf("rewind: a minute of %d ticks takes %.2f MB; advance with recording %.3f ms per tick; "
+                + "restore of the tick furthest from a keyframe: %.2f ms%n", history.getNewestTick(),
+                history.getMemoryUse() / 1e6, recordTime / 1e6 / history.getNewestTick(), restoreTime / 1e6 / measured);
+    }
+
+}
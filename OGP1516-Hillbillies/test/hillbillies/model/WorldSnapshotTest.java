@@ -0,0 +1,199 @@
+package hillbillies.model;
+
+import hillbillies.model.EsotERICScript.Statements.ExecutionStatus;
+import hillbillies.model.EsotERICScript.Statements.Statement;
+import hillbillies.model.activities.Rest;
+import hillbillies.model.activities.Work;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WorldSnapshotTest {
+
+    private static World reload(World world) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldSnapshot.write(world, out);
+        return WorldSnapshot.read(new ByteArrayInputStream(out.toByteArray()), new DefaultTerrainChangeListener());
+    }
+
+    /**
+     * Return a task created by a task factory, that moves to the given cube and works there.
+     */
+    private static Task digTask(String name, int priority, int[] selected) {
+        TaskFactory factory = new TaskFactory();
+        List<Statement> statements = new ArrayList<>();
+        statements.add(factory.createMoveTo(factory.createLiteralPosition(selected[0], selected[1], selected[2], null),
+                null));
+        statements.add(factory.createWork(factory.createLiteralPosition(selected[0], selected[1], selected[2], null),
+                null));
+        Statement activity = factory.createSequence(statements, null);
+        return factory.createTasks(name, priority, activity, Collections.singletonList(selected)).get(0);
+    }
+
+    private static Map<String, Unit> unitsByName(World world) {
+        Map<String, Unit> units = new HashMap<>();
+        for (Unit unit : world.TotalUnitSet)
+            units.put(unit.getName(), unit);
+        return units;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ChunkedTerrain terrain = WorldMaps.floorTerrain(12, 12, 6);
+        terrain.set(6, 6, 1, 2);
+        World world = new World(terrain, new DefaultTerrainChangeListener());
+        for (int i = 0; i < 7; i++) {
+            Unit unit = new Unit("Unit " + (char) ('A' + i), i + 1.5, 2.5, 1.5, 60, 50 + i, 40, 30 + i, i % 2 == 0, world);
+            world.addUnit(unit);
+        }
+        Map<String, Unit> units = unitsByName(world);
+        units.get("Unit A").addXP(25);
+        units.get("Unit A").setCurrentHitPoints(12);
+        units.get("Unit B").setActivity(new Rest(units.get("Unit B")));
+        units.get("Unit C").setActivity(new Work(units.get("Unit C"), new int[]{6, 6, 1}));
+        units.get("Unit D").carry(new Log(4.5, 2.5, 1.5, world));
+        Boulder boulder = new Boulder(9.5, 9.5, 1.5, world);
+        Task task = digTask("dig", 7, new int[]{6, 6, 1});
+        task.unitGlobalMap.put("friend", units.get("Unit E"));
+        units.get("Unit A").getFaction().getScheduler().schedule(task);
+        task.addScheduler(units.get("Unit A").getFaction().getScheduler());
+
+        World loaded = reload(world);
+
+        assertEquals(world.TotalUnitSet.size(), loaded.TotalUnitSet.size());
+        assertEquals(world.FactionSet.size(), loaded.FactionSet.size());
+        Map<String, Unit> loadedUnits = unitsByName(loaded);
+        for (Unit unit : units.values()) {
+            Unit copy = loadedUnits.get(unit.getName());
+            assertEquals(unit.getWeight(), copy.getWeight());
+            assertEquals(unit.getStrength(), copy.getStrength());
+            assertEquals(unit.getAgility(), copy.getAgility());
+            assertEquals(unit.getToughness(), copy.getToughness());
+            assertEquals(unit.getXP(), copy.getXP());
+            assertEquals(unit.getCurrentHitPoints(), copy.getCurrentHitPoints());
+            assertEquals(unit.isDefaultBehaviorEnabled(), copy.isDefaultBehaviorEnabled());
+            assertTrue(Arrays.equals(unit.getLocation().getArray(), copy.getLocation().getArray()));
+            assertEquals(unit.getActivity().getId(), copy.getActivity().getId());
+            assertEquals(unit.getFaction().getNbUnits(), copy.getFaction().getNbUnits());
+            assertTrue(copy.isRegistered());
+        }
+        assertEquals(((Work) units.get("Unit C").getActivity()).getTimeLeft(),
+                ((Work) loadedUnits.get("Unit C").getActivity()).getTimeLeft(), 1e-9);
+        assertEquals(units.get("Unit D").getCarriedObject().getWeight(),
+                loadedUnits.get("Unit D").getCarriedObject().getWeight());
+        assertTrue(loaded.getWorldMap().getAllLogs().isEmpty());
+        assertEquals(1, loaded.getWorldMap().getAllBoulders().size());
+        assertEquals(boulder.getWeight(), loaded.getWorldMap().getAllBoulders().iterator().next().getWeight());
+        assertEquals(2, loaded.getCubeIDAt(6, 6, 1));
+
+        Task loadedTask = loadedUnits.get("Unit A").getFaction().getScheduler().getHPTask();
+        assertEquals("dig", loadedTask.getName());
+        assertEquals(7, loadedTask.getPriority());
+        assertTrue(Arrays.equals(new int[]{6, 6, 1}, loadedTask.getSelected()));
+        assertSame(loadedUnits.get("Unit E"), loadedTask.unitGlobalMap.get("friend"));
+        assertTrue(loadedTask.getSchedulerSet().contains(loadedUnits.get("Unit A").getFaction().getScheduler()));
+        assertNotSame(task.getRootStatement(), loadedTask.getRootStatement());
+        assertEquals(2, loadedTask.getRootStatement().getPartStatement().probe().size());
+    }
+
+    @Test
+    public void roundTrip_TaskBeingExecutedStartsAgain() throws Exception {
+        World world = WorldMaps.floorWorld(12, 12, 6);
+        Unit unit = new Unit("Digger", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        Scheduler scheduler = unit.getFaction().getScheduler();
+        Task running = digTask("running", 3, new int[]{6, 6, 1});
+        running.addScheduler(scheduler);
+        running.setStatus(ExecutionStatus.BEINGEXECUTED);
+        running.startExecution(unit);
+        unit.setTask(running);
+        Task queued = digTask("queued", 5, new int[]{7, 6, 1});
+        scheduler.schedule(queued);
+        queued.addScheduler(scheduler);
+
+        Unit loadedUnit = reload(world).TotalUnitSet.iterator().next();
+
+        Task loadedRunning = loadedUnit.getTask();
+        assertEquals("running", loadedRunning.getName());
+        assertEquals(ExecutionStatus.NOTYETEXECUTED, loadedRunning.getStatus());
+        assertSame(loadedUnit, loadedRunning.getExecutor());
+        Scheduler loadedScheduler = loadedUnit.getFaction().getScheduler();
+        assertTrue(loadedRunning.getSchedulerSet().contains(loadedScheduler));
+        assertFalse(loadedScheduler.areTasksPartOf(loadedRunning));
+        assertEquals(1, loadedScheduler.getAllTasks().size());
+        assertEquals("queued", loadedScheduler.getHPTask().getName());
+        assertTrue(Arrays.equals(new int[]{7, 6, 1}, loadedScheduler.getHPTask().getSelected()));
+    }
+
+    private static void assertSameProgram(TaskProgram expected, TaskProgram actual) {
+        assertEquals(expected.getKind(), actual.getKind());
+        assertEquals(expected.getName(), actual.getName());
+        assertTrue(Arrays.equals(expected.getNumbers(), actual.getNumbers()));
+        TaskProgram[] expectedParts = expected.getParts();
+        TaskProgram[] actualParts = actual.getParts();
+        assertEquals(expectedParts.length, actualParts.length);
+        for (int i = 0; i < expectedParts.length; i++) {
+            if (expectedParts[i] == null)
+                assertNull(actualParts[i]);
+            else
+                assertSameProgram(expectedParts[i], actualParts[i]);
+        }
+    }
+
+    @Test
+    public void roundTrip_ProgramCreatedAnew() throws Exception {
+        World world = WorldMaps.floorWorld(12, 12, 6);
+        Unit unit = new Unit("Digger", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        TaskFactory factory = new TaskFactory();
+        List<Statement> body = new ArrayList<>();
+        body.add(factory.createAssignment("target", factory.createLiteralPosition(4, 5, 1, null), null));
+        body.add(factory.createIf(factory.createIsSolid(factory.createLiteralPosition(4, 5, 0, null), null),
+                factory.createBreak(null), factory.createWork(factory.createHerePosition(null), null), null));
+        Statement activity = factory.createWhile(factory.createAnd(factory.createTrue(null),
+                factory.createNot(factory.createFalse(null), null), null), factory.createSequence(body, null), null);
+        Task task = factory.createTasks("loop", 2, activity, Collections.singletonList(new int[]{4, 5, 1})).get(0);
+        unit.getFaction().getScheduler().schedule(task);
+        task.addScheduler(unit.getFaction().getScheduler());
+
+        Task loadedTask = reload(world).TotalUnitSet.iterator().next().getFaction().getScheduler().getHPTask();
+
+        assertSameProgram(task.getProgram(), loadedTask.getProgram());
+        assertTrue(loadedTask.isLegaltask());
+    }
+
+    @Test
+    public void write_TaskWithoutProgramLeftOut() throws Exception {
+        World world = WorldMaps.floorWorld(12, 12, 6);
+        Unit unit = new Unit("Digger", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        Task task = new Task("unknown", 1);
+        unit.getFaction().getScheduler().schedule(task);
+        task.addScheduler(unit.getFaction().getScheduler());
+
+        Unit loadedUnit = reload(world).TotalUnitSet.iterator().next();
+
+        assertTrue(loadedUnit.getFaction().getScheduler().getAllTasks().isEmpty());
+        assertFalse(loadedUnit.hasTask());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_NotASnapshot() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldFile.write(new ChunkedTerrain(4, 4, 2, 1), out);
+        WorldSnapshot.read(new ByteArrayInputStream(out.toByteArray()), new DefaultTerrainChangeListener());
+    }
+
+}
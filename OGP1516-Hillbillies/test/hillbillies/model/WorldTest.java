@@ -1,14 +1,19 @@
 package hillbillies.model;
 
 import hillbillies.model.CubeObjects.Air;
+import hillbillies.model.activities.Fall;
+import hillbillies.model.activities.NoActivity;
 import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
 import org.junit.Test;
 
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by arthurdecloedt on 20/05/16.
@@ -113,4 +118,106 @@ public class WorldTest {
     }
 
 
+    private static boolean isSolid(World world, int x, int y, int z) {
+        int type = world.getCubeIDAt(x, y, z);
+        return type == 1 || type == 2;
+    }
+
+    /**
+     * Check whether the cube with given coordinates is passable and has a solid cube or the border of the world next to
+     * it, looking at the terrain of the given world only.
+     */
+    private static boolean isPassableWithSupport(World world, int x, int y, int z) {
+        if (isSolid(world, x, y, z))
+            return false;
+        for (int dx = -1; dx < 2; dx++)
+            for (int dy = -1; dy < 2; dy++)
+                for (int dz = -1; dz < 2; dz++)
+                    if (! world.isWithinBorders(x + dx, y + dy, z + dz) || isSolid(world, x + dx, y + dy, z + dz))
+                        return true;
+        return false;
+    }
+
+    @Test
+    public void isStandable_AgreesWithTerrain() throws Exception {
+        Random random = new Random(31);
+        int[][][] types = new int[10][10][8];
+        for (int x = 0; x < 10; x++)
+            for (int y = 0; y < 10; y++)
+                for (int z = 0; z < 8; z++)
+                    types[x][y][z] = new int[]{0, 0, 0, 1, 2, 3}[random.nextInt(6)];
+        World world = new World(types, new DefaultTerrainChangeListener());
+        for (int change = 0; change < 200; change++) {
+            int[] cube = {random.nextInt(10), random.nextInt(10), random.nextInt(8)};
+            if (random.nextBoolean())
+                world.destroyCube(cube);
+            else
+                world.setCubeType(cube[0], cube[1], cube[2], random.nextBoolean() ? 0 : 3);
+            for (int x = 0; x < 10; x++)
+                for (int y = 0; y < 10; y++)
+                    for (int z = 0; z < 8; z++)
+                        assertEquals(isPassableWithSupport(world, x, y, z), world.isStandable(x, y, z));
+        }
+    }
+
+    @Test
+    public void caveInQueue() throws Exception {
+        int[][][] types = new int[6][6][6];
+        for (int x = 2; x < 4; x++)
+            for (int y = 2; y < 4; y++)
+                for (int z = 2; z < 4; z++)
+                    types[x][y][z] = 1;
+        World world = new World(types, new DefaultTerrainChangeListener());
+        assertEquals(8, world.getNbQueuedCaveIns());
+        assertEquals(0, world.getNbCavedIn());
+        world.setCaveInBudget(3);
+        assertEquals(3, world.getCaveInBudget());
+        //the block caves in over three ticks, at most three cubes per tick
+        int[] expectedQueued = {5, 2, 0, 0};
+        for (int tick = 0; tick < expectedQueued.length; tick++) {
+            int queued = world.getNbQueuedCaveIns();
+            long cavedIn = world.getNbCavedIn();
+            world.advanceTime(0.1);
+            assertEquals(expectedQueued[tick], world.getNbQueuedCaveIns());
+            assertEquals(queued - world.getNbQueuedCaveIns(), world.getNbCavedIn() - cavedIn);
+        }
+        assertEquals(8, world.getNbCavedIn());
+        for (int x = 2; x < 4; x++)
+            for (int y = 2; y < 4; y++)
+                for (int z = 2; z < 4; z++)
+                    assertEquals(0, world.getCubeIDAt(x, y, z));
+    }
+
+    @Test
+    public void boulder_FallsUntilSupported() throws Exception {
+        World world = new World(WorldMaps.floorCubes(6, 6, 6), new DefaultTerrainChangeListener());
+        Boulder boulder = new Boulder(2.5, 2.5, 4.5, world);
+        assertTrue(boulder.getActivity() instanceof Fall);
+        for (int tick = 0; tick < 20; tick++)
+            world.advanceTime(0.1);
+        assertTrue(boulder.getActivity() instanceof NoActivity);
+        assertEquals(1.5, boulder.getLocation().getZLocation(), 1e-9);
+    }
+
+    @Test
+    public void destroyCube_ObjectOnTopFalls() throws Exception {
+        int[][][] types = WorldMaps.floorCubes(6, 6, 6);
+        types[2][2][1] = 1;
+        World world = new World(types, new DefaultTerrainChangeListener());
+        Log log = new Log(2.5, 2.5, 2.5, world);
+        assertTrue(log.getActivity() instanceof NoActivity);
+        world.destroyCube(new int[]{2, 2, 1});
+        assertTrue(log.getActivity() instanceof Fall);
+        for (int tick = 0; tick < 10; tick++)
+            world.advanceTime(0.1);
+        assertTrue(log.getActivity() instanceof NoActivity);
+        assertEquals(1.5, log.getLocation().getZLocation(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCaveInBudget_Invalid() throws Exception {
+        World world = new World(new int[3][3][3], new DefaultTerrainChangeListener());
+        world.setCaveInBudget(0);
+    }
+
 }
@@ -0,0 +1,67 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the heap based Astar with the previous HashSet/HashMap implementation on the bundled maps.
+ * 		Run as a Java application; the optional arguments are the names of the maps to use.
+ */
+public class AstarBenchmark {
+
+    private static final int NB_QUERIES = 40;
+
+    /**
+     * The previous implementation gets at most this many nanoseconds per map before its remaining queries are skipped.
+     */
+    private static final long LEGACY_BUDGET = 30_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String[] maps = args.length > 0 ? args : WorldMaps.BUNDLED_MAPS;
+        System.out.printf("%-16s %8s %12s %12s %12s %12s%n", "map", "queries", "heap ms", "heap nodes", "legacy ms", "legacy nodes");
+        for (String map: maps) {
+            World world = WorldMaps.createWorld(map);
+            Random random = new Random(42);
+            int[] spawn = WorldMaps.randomStandableCube(world, null, random);
+            Unit unit = new Unit("Benchmark", spawn[0] + 0.5, spawn[1] + 0.5, spawn[2] + 0.5, 50, 50, 50, 50, false, world);
+            List<int[][]> queries = new ArrayList<>();
+            for (int i = 0; i < NB_QUERIES; i++)
+                queries.add(new int[][]{WorldMaps.randomStandableCube(world, unit, random), WorldMaps.randomStandableCube(world, unit, random)});
+
+            Astar astar = new Astar(unit);
+            for (int[][] query: queries)
+                astar.FindPath(new Cube(query[0]), new Cube(query[1]));
+            long heapTime = 0;
+            long heapNodes = 0;
+            for (int[][] query: queries) {
+                long start = System.nanoTime();
+                astar.FindPath(new Cube(query[0]), new Cube(query[1]));
+                heapTime += System.nanoTime() - start;
+                heapNodes += astar.getNbExpandedNodes();
+            }
+
+            LegacyAstar legacy = new LegacyAstar(unit);
+            long legacyTime = 0;
+            long legacyNodes = 0;
+            int legacyQueries = 0;
+            for (int[][] query: queries) {
+                if (legacyTime > LEGACY_BUDGET)
+                    break;
+                long start = System.nanoTime();
+                legacy.FindPath(new Cube(query[0]), new Cube(query[1]));
+                legacyTime += System.nanoTime() - start;
+                legacyNodes += legacy.getNbExpandedNodes();
+                legacyQueries++;
+            }
+            System.out.printf("%-16s %8d %12.2f %12d %12.2f %12d   (legacy ran %d queries)%n", map, queries.size(),
+                    heapTime / 1e6, heapNodes, legacyTime / 1e6 * queries.size() / Math.max(legacyQueries, 1),
+                    legacyNodes * queries.size() / Math.max(legacyQueries, 1), legacyQueries);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AstarTest {
+
+    @Test
+    public void findPath_WalkingOrderWithoutStart() {
+        World world = WorldMaps.floorWorld(10, 10, 3);
+        Unit unit = new Unit("Walker", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        int[] start = {1, 1, 1};
+        Cube[] path = astar.FindPath(new Cube(start), new Cube(new int[]{6, 1, 1}));
+        assertEquals(5, path.length);
+        for (int i = 0; i < path.length; i++)
+            assertArrayEquals(new int[]{2 + i, 1, 1}, path[i].locArray);
+        assertEquals(5, PathAssertions.walk(unit, start, path), 1e-6);
+    }
+
+    @Test
+    public void findPath_StartIsDestination() {
+        World world = WorldMaps.floorWorld(10, 10, 3);
+        Astar astar = new Astar(new Unit("Walker", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world));
+        assertEquals(0, astar.FindPath(new Cube(new int[]{4, 4, 1}), new Cube(new int[]{4, 4, 1})).length);
+    }
+
+    @Test
+    public void findPath_NoPath() {
+        World world = WorldMaps.wallWorld(10, 10, 5, -1);
+        Astar astar = new Astar(new Unit("Walker", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world));
+        Cube start = new Cube(new int[]{1, 1, 1});
+        //the wall cuts the world in two
+        assertArrayEquals(new int[]{-1, -1, -1}, astar.FindPath(start, new Cube(new int[]{8, 1, 1}))[0].locArray);
+        //the destination has no support
+        assertTrue(PathAssertions.isNoPath(astar.FindPath(start, new Cube(new int[]{3, 3, 3}))));
+        //the destination is outside the world
+        assertTrue(PathAssertions.isNoPath(astar.FindPath(start, new Cube(new int[]{10, 1, 1}))));
+        assertTrue(PathAssertions.isNoPath(astar.FindPath(start, new Cube(new int[]{1, -1, 1}))));
+    }
+
+    @Test
+    public void findPath_AsShortAsLegacyAstar() {
+        Random random = new Random(5);
+        World world = WorldMaps.randomWorld(random, 12, 10, 2, 20);
+        Unit unit = new Unit("Walker", 0.5, 0.5, 9.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        LegacyAstar legacy = new LegacyAstar(unit);
+        for (int query = 0; query < 40; query++) {
+            int[] start = WorldMaps.randomStandableCube(world, unit, random);
+            int[] destination = WorldMaps.randomStandableCube(world, unit, random);
+            Cube[] path = astar.FindPath(new Cube(start), new Cube(destination));
+            Cube[] reversed = legacy.FindPath(new Cube(start), new Cube(destination));
+            if (PathAssertions.isNoPath(reversed)) {
+                assertTrue(PathAssertions.isNoPath(path));
+                continue;
+            }
+            //the previous implementation returns the path from the destination back to the start cube
+            Cube[] expected = new Cube[reversed.length - 1];
+            for (int i = 0; i < expected.length; i++)
+                expected[i] = reversed[expected.length - 1 - i];
+            assertEquals(PathAssertions.walk(unit, start, expected), PathAssertions.walk(unit, start, path), 1e-4);
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+import java.util.Random;
+
+/**
+ * Compares planning long paths over the cluster graph with Astar on an 80x80x80 world whose lower half is rock with
+ * tunnels of air, and whose surface is crossed by long rock walls. One set of queries goes from one corner region of the
+ * surface to the opposite one, another one from the surface into the tunnels, which cannot be reached. Run as a Java
+ * application.
+ * 		For the cluster graph, the latency is the time until the unit can take its first step: planning the waypoints and
+ * 		refining the first of them. The time and nodes of refining all waypoints, as a unit walking the path would, are
+ * 		reported separately. Finally a cube is dug out of each wall, and the time to bring the graph up to date is measured.
+ */
+public class ClusterGraphBenchmark {
+
+    private static final int NB_QUERIES = 40;
+
+    public static void main(String[] args) throws Exception {
+        int size = 80;
+        Random random = new Random(42);
+        ChunkedTerrain terrain = new ChunkedTerrain(size, size, size, 0);
+        for (int z = 0; z < size / 2; z++)
+            for (int y = 0; y < size; y++)
+                for (int x = 0; x < size; x++)
+                    terrain.set(x, y, z, 1);
+        for (int tunnel = 0; tunnel < 40; tunnel++) {
+            int y = random.nextInt(size);
+            int z = 1 + random.nextInt(size / 2 - 2);
+            for (int x = 0; x < size; x++)
+                terrain.set(x, y, z, 0);
+        }
+        int[][] walls = new int[40][];
+        for (int wall = 0; wall < walls.length; wall++) {
+            int x = random.nextInt(size - 30);
+            int y = random.nextInt(size - 30);
+            boolean alongX = random.nextBoolean();
+            for (int i = 0; i < 30; i++)
+                for (int z = size / 2; z < size / 2 + 3; z++)
+                    terrain.set(alongX ? x + i : x, alongX ? y : y + i, z, 1);
+            walls[wall] = new int[]{alongX ? x + 15 : x, alongX ? y : y + 15, size / 2};
+        }
+        World world = new World(terrain, new DefaultTerrainChangeListener());
+        Unit unit = new Unit("Benchmark", 0.5, 0.5, size - 0.5, 50, 50, 50, 50, false, world);
+
+        int[][][] queries = new int[NB_QUERIES][][];
+        for (int i = 0; i < NB_QUERIES; i++)
+            queries[i] = new int[][]{surfaceCube(world, random, 0), surfaceCube(world, random, size - 12)};
+        //the tunnels are sealed in rock, so they cannot be reached from the surface
+        int[][][] sealed = new int[NB_QUERIES / 4][][];
+        for (int i = 0; i < sealed.length; i++)
+            sealed[i] = new int[][]{surfaceCube(world, random, 0), tunnelCube(world, random)};
+
+        long buildStart = System.nanoTime();
+        ClusterGraph graph = world.getClusterGraph();
+        long buildTime = System.nanoTime() - buildStart;
+        System.out.printf("%dx%dx%d: cluster graph of %d nodes built in %.2f ms%n", size, size, size, graph.getNbNodes(),
+                buildTime / 1e6);
+
+        Astar astar = new Astar(unit);
+        compare(graph, astar, queries, "to the far corner");
+        compare(graph, astar, sealed, "into a sealed tunnel");
+
+        long refreshTime = 0;
+        int nbDug = 0;
+        for (int[] wall: walls) {
+            if (world.getCubeIDAt(wall) != 1)
+                continue;
+            world.destroyCube(wall);
+            nbDug++;
+            long start = System.nanoTime();
+            graph.refresh();
+            refreshTime += System.nanoTime() - start;
+        }
+        System.out.printf("refresh after digging out a wall cube: %.2f ms (%d cubes)%n",
+                refreshTime / 1e6 / Math.max(nbDug, 1), nbDug);
+    }
+
+    /**
+     * Run the given queries with both Astar and the given cluster graph, twice, and report the second round.
+     */
+    private static void compare(ClusterGraph graph, Astar astar, int[][][] queries, String description) {
+        for (int round = 0; round < 2; round++) {
+            long astarTime = 0;
+            long astarNodes = 0;
+            long planTime = 0;
+            long planNodes = 0;
+            long refineTime = 0;
+            long refineNodes = 0;
+            int nbFound = 0;
+            for (int[][] query: queries) {
+                long start = System.nanoTime();
+                Cube[] path = astar.FindPath(new Cube(query[0]), new Cube(query[1]));
+                astarTime += System.nanoTime() - start;
+                astarNodes += astar.getNbExpandedNodes();
+
+                start = System.nanoTime();
+                Cube[] waypoints = graph.findPath(query[0], query[1]);
+                int nodes = graph.getNbExpandedNodes();
+                if (waypoints != null && waypoints.length > 0) {
+                    graph.refine(query[0], waypoints[0].locArray);
+                    nodes += graph.getNbExpandedNodes();
+                    nbFound++;
+                }
+                planTime += System.nanoTime() - start;
+                planNodes += nodes;
+                if ((waypoints == null) != (path.length == 1 && path[0].locArray[0] == -1))
+                    throw new AssertionError("The cluster graph and Astar disagree on a path");
+
+                start = System.nanoTime();
+                int[] current = query[0];
+                for (Cube waypoint: waypoints == null ? new Cube[0] : waypoints) {
+                    graph.refine(current, waypoint.locArray);
+                    refineNodes += graph.getNbExpandedNodes();
+                    current = waypoint.locArray;
+                }
+                refineTime += System.nanoTime() - start;
+            }
+            if (round == 1) {
+                int nbQueries = queries.length;
+                System.out.printf("%d queries %s, %d with a path (averages per query)%n", nbQueries, description,
+                        nbFound);
+                System.out.printf("  Astar:                 %8.3f ms %10d nodes%n", astarTime / 1e6 / nbQueries,
+                        astarNodes / nbQueries);
+                System.out.printf("  cluster graph latency: %8.3f ms %10d nodes%n", planTime / 1e6 / nbQueries,
+                        planNodes / nbQueries);
+                System.out.printf("  all refinements:       %8.3f ms %10d nodes%n", refineTime / 1e6 / nbQueries,
+                        refineNodes / nbQueries);
+            }
+        }
+    }
+
+    /**
+     * Return a random cube a unit can stand in inside one of the tunnels.
+     */
+    private static int[] tunnelCube(World world, Random random) {
+        while (true) {
+            int x = 1 + random.nextInt(world.getxSideSize() - 2);
+            int y = random.nextInt(world.getySideSize());
+            int z = random.nextInt(world.getzSideSize() / 2 - 1);
+            if (world.isStandable(x, y, z))
+                return new int[]{x, y, z};
+        }
+    }
+
+    /**
+     * Return a random cube a unit can stand in on top of the rock, in the square of 12 by 12 cubes starting at the given
+     * x and y coordinate.
+     */
+    private static int[] surfaceCube(World world, Random random, int corner) {
+        while (true) {
+            int x = corner + random.nextInt(12);
+            int y = corner + random.nextInt(12);
+            int z = world.getzSideSize() / 2;
+            if (world.isStandable(x, y, z))
+                return new int[]{x, y, z};
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClusterGraphTest {
+
+    @Test
+    public void findPath_AgreesWithAstar() {
+        Random random = new Random(7);
+        World world = WorldMaps.randomWorld(random, 48, 16, 4, 15);
+        Unit unit = new Unit("Walker", 0.5, 0.5, 15.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        ClusterGraph graph = world.getClusterGraph();
+        for (int query = 0; query < 30; query++) {
+            int[] start = WorldMaps.randomStandableCube(world, unit, random);
+            int[] destination = WorldMaps.randomStandableCube(world, unit, random);
+            Cube[] expected = astar.FindPath(new Cube(start), new Cube(destination));
+            Cube[] waypoints = graph.findPath(start, destination);
+            if (PathAssertions.isNoPath(expected)) {
+                assertNull(waypoints);
+                continue;
+            }
+            assertNotNull(waypoints);
+            double cost = 0;
+            int[] current = start;
+            for (Cube waypoint: waypoints) {
+                Cube[] stretch = graph.refine(current, waypoint.locArray);
+                assertNotNull(stretch);
+                cost += PathAssertions.walk(unit, current, stretch);
+                current = waypoint.locArray;
+            }
+            assertArrayEquals(destination, current);
+            assertTrue(cost <= 1.5 * PathAssertions.walk(unit, start, expected) + 1e-6);
+        }
+    }
+
+    @Test
+    public void refresh_DestroyedCubeOpensPassage() {
+        World world = WorldMaps.wallWorld(40, 20, 5, -1);
+        ClusterGraph graph = world.getClusterGraph();
+        assertNull(graph.findPath(new int[]{2, 5, 1}, new int[]{37, 5, 1}));
+        world.destroyCube(new int[]{20, 5, 1});
+        Cube[] waypoints = graph.findPath(new int[]{2, 5, 1}, new int[]{37, 5, 1});
+        assertNotNull(waypoints);
+        assertArrayEquals(new int[]{37, 5, 1}, waypoints[waypoints.length - 1].locArray);
+    }
+
+    @Test
+    public void movement_FollowsWaypointsToFarDestination() throws Exception {
+        World world = WorldMaps.wallWorld(40, 8, 3, 7);
+        world.setHierarchicalPathfinding(true);
+        PathAssertions.assertMovesTo(world, new int[]{1, 1, 1}, new int[]{38, 2, 1});
+    }
+
+}
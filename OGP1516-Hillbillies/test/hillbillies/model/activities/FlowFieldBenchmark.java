@@ -0,0 +1,90 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+import java.util.Random;
+
+/**
+ * Compares 100 units each searching their own path to the same workshop with Astar against the units sharing one flow
+ * field, on an 80x80x80 world whose lower half is rock and whose surface is crossed by rock walls. Run as a Java
+ * application; the times are the averages over the last of a number of rounds.
+ */
+public class FlowFieldBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = 80;
+        Random random = new Random(42);
+        ChunkedTerrain terrain = new ChunkedTerrain(size, size, size, 0);
+        for (int z = 0; z < size / 2; z++)
+            for (int y = 0; y < size; y++)
+                for (int x = 0; x < size; x++)
+                    terrain.set(x, y, z, 1);
+        for (int wall = 0; wall < 40; wall++) {
+            int x = random.nextInt(size - 30);
+            int y = random.nextInt(size - 30);
+            boolean alongX = random.nextBoolean();
+            for (int i = 0; i < 30; i++)
+                for (int z = size / 2; z < size / 2 + 3; z++)
+                    terrain.set(alongX ? x + i : x, alongX ? y : y + i, z, 1);
+        }
+        int[] workshop = {size / 2, size / 2, size / 2};
+        terrain.set(workshop[0], workshop[1], workshop[2], 3);
+        World world = new World(terrain, new DefaultTerrainChangeListener());
+        Unit unit = new Unit("Benchmark", 0.5, 0.5, size - 0.5, 50, 50, 50, 50, false, world);
+        int[][] starts = new int[100][];
+        for (int i = 0; i < starts.length; i++) {
+            while (starts[i] == null) {
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                if (world.isStandable(x, y, size / 2))
+                    starts[i] = new int[]{x, y, size / 2};
+            }
+        }
+
+        int rounds = 10;
+        int measured = 5;
+        long astarTime = 0;
+        long astarNodes = 0;
+        long fieldTime = 0;
+        long fieldNodes = 0;
+        Astar astar = new Astar(unit);
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            long nodes = 0;
+            for (int[] from: starts) {
+                astar.FindPath(new Cube(from), new Cube(workshop));
+                nodes += astar.getNbExpandedNodes();
+            }
+            long searched = System.nanoTime();
+            FlowField field = new FlowField(world, workshop);
+            for (int[] from: starts) {
+                if (field.getPath(from) == null)
+                    throw new AssertionError("A unit cannot reach the workshop");
+            }
+            long followed = System.nanoTime();
+            if (round >= rounds - measured) {
+                astarTime += searched - start;
+                astarNodes += nodes;
+                fieldTime += followed - searched;
+                fieldNodes += field.getNbExpandedNodes();
+            }
+        }
+        System.out.printf("%dx%dx%d, %d units to one workshop: Astar %.2f ms, %d nodes; flow field %.2f ms, %d nodes%n",
+                size, size, size, starts.length, astarTime / 1e6 / measured, astarNodes / measured,
+                fieldTime / 1e6 / measured, fieldNodes / measured);
+
+        //a cached field only costs following it
+        FlowFieldCache cache = new FlowFieldCache(world, FlowFieldCache.DEFAULT_CAPACITY);
+        cache.get(workshop);
+        cache.get(workshop);
+        long start = System.nanoTime();
+        for (int[] from: starts)
+            cache.get(workshop).getPath(from);
+        System.out.printf("cached field: %.3f ms for all units (%d hits)%n", (System.nanoTime() - start) / 1e6,
+                cache.getNbHits());
+    }
+
+}
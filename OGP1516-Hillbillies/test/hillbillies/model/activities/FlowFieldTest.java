@@ -0,0 +1,123 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FlowFieldTest {
+
+    @Test
+    public void getPath_AsShortAsAstar() {
+        Random random = new Random(3);
+        World world = WorldMaps.randomWorld(random, 32, 14, 3, 15);
+        Unit unit = new Unit("Walker", 0.5, 0.5, 13.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        int[] destination = WorldMaps.randomStandableCube(world, unit, random);
+        FlowField field = new FlowField(world, destination);
+        for (int query = 0; query < 30; query++) {
+            int[] start = WorldMaps.randomStandableCube(world, unit, random);
+            PathAssertions.assertAsShortAsAstar(unit, astar, start, destination, field.getPath(start));
+        }
+    }
+
+    @Test
+    public void get_SharedDestinationsLeastRecentlyUsedEvicted() {
+        World world = WorldMaps.floorWorld(20, 20, 4);
+        FlowFieldCache cache = new FlowFieldCache(world, 2);
+        int[] first = {2, 2, 1};
+        int[] second = {10, 10, 1};
+        int[] third = {17, 3, 1};
+        assertNull(cache.get(first));
+        FlowField field = cache.get(first);
+        assertNotNull(field);
+        assertSame(field, cache.get(first));
+        cache.get(second);
+        assertNotNull(cache.get(second));
+        cache.get(third);
+        assertNotNull(cache.get(third));
+        assertEquals(2, cache.getNbFields());
+        assertEquals(3, cache.getNbBuilt());
+        assertEquals(1, cache.getNbHits());
+        //the first field was used least recently, so it was evicted and has to be asked for anew
+        assertNull(cache.get(first));
+        assertNotNull(cache.get(second));
+    }
+
+    @Test
+    public void get_TerrainChangeInvalidates() {
+        World world = WorldMaps.floorWorld(20, 20, 4);
+        FlowFieldCache cache = new FlowFieldCache(world, 2);
+        int[] destination = {2, 2, 1};
+        cache.get(destination);
+        FlowField field = cache.get(destination);
+        assertNull(field.getPath(new int[]{10, 10, 0}));
+        world.destroyCube(new int[]{10, 10, 0});
+        assertFalse(field.isUpToDate());
+        FlowField rebuilt = cache.get(destination);
+        assertNotSame(field, rebuilt);
+        assertTrue(rebuilt.isUpToDate());
+        assertNotNull(rebuilt.getPath(new int[]{10, 10, 0}));
+    }
+
+    @Test
+    public void isUpToDate_OnlyChangesNextToReachableRegion() {
+        World world = WorldMaps.wallWorld(40, 16, 4, -1);
+        FlowField field = new FlowField(world, new int[]{2, 2, 1});
+        //the wall cuts the world in two, so the field only reaches the chunks on the side of its destination
+        assertEquals(6, field.getNbChunks());
+        world.destroyCube(new int[]{30, 10, 0});
+        assertTrue(field.isUpToDate());
+        assertEquals(world.getTerrainVersion(), field.getTerrainVersion());
+        assertNull(field.getPath(new int[]{30, 10, 0}));
+        world.destroyCube(new int[]{5, 10, 0});
+        assertFalse(field.isUpToDate());
+    }
+
+    @Test
+    public void get_BuiltByPathRequestService() throws Exception {
+        World world = WorldMaps.wallWorld(20, 20, 4, 12);
+        try (PathRequestService service = new PathRequestService(world, 1, 4)) {
+            world.setPathRequestService(service);
+            FlowFieldCache cache = world.getFlowFields();
+            int[] destination = {17, 3, 1};
+            assertNull(cache.get(destination));
+            //the field is now built on the worker, and not handed out before it is done
+            assertNull(cache.get(destination));
+            assertEquals(1, service.getNbSubmitted());
+            FlowField field = null;
+            for (int i = 0; i < 200 && field == null; i++) {
+                Thread.sleep(5);
+                field = cache.get(destination);
+            }
+            assertNotNull(field);
+            assertTrue(field.isUpToDate());
+            assertEquals(1, service.getNbSubmitted());
+            assertEquals(1, cache.getNbBuilt());
+            Unit unit = new Unit("Walker", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world);
+            int[] start = {1, 1, 1};
+            PathAssertions.assertAsShortAsAstar(unit, new Astar(unit), start, destination, field.getPath(start));
+        }
+    }
+
+    @Test
+    public void movement_FollowsSharedField() throws Exception {
+        World world = WorldMaps.floorWorld(20, 20, 4);
+        Unit first = new Unit("First", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world);
+        Unit second = new Unit("Second", 1.5, 18.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(first);
+        world.addUnit(second);
+        int[] destination = {18, 9, 1};
+        first.setActivity(new Movement(first, destination));
+        second.setActivity(new Movement(second, destination));
+        PathAssertions.advanceWhileMoving(first, second);
+        assertArrayEquals(destination, first.getLocation().getCubeLocation());
+        assertArrayEquals(destination, second.getLocation().getCubeLocation());
+        assertEquals(1, world.getFlowFields().getNbBuilt());
+    }
+
+}
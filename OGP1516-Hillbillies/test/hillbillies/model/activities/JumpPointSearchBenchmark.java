@@ -0,0 +1,93 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the jump point search with Astar on the bundled maps: the nodes put through the open set, the cubes the scans
+ * of the jump point search step through, and the wall time. Run as a Java application; the optional arguments are the
+ * names of the maps to use. Without arguments, two generated maps of open terrain follow the bundled maps: a flat plain,
+ * and rolling hills with scattered boulders.
+ */
+public class JumpPointSearchBenchmark {
+
+    private static final int NB_QUERIES = 40;
+
+    public static void main(String[] args) throws Exception {
+        String[] maps = args.length > 0 ? args : WorldMaps.BUNDLED_MAPS;
+        System.out.printf("%-16s %8s %12s %12s %12s %12s %12s%n", "map", "queries", "astar ms", "astar nodes", "jps ms",
+                "jps nodes", "jps scanned");
+        for (String map: maps)
+            compare(map, WorldMaps.createWorld(map));
+        if (args.length == 0) {
+            compare("plain 80x80x8", openTerrain(80, false));
+            compare("hills 80x80x8", openTerrain(80, true));
+        }
+    }
+
+    /**
+     * Return a world of the given width whose ground is a plain, or rolling hills with scattered boulders.
+     */
+    private static World openTerrain(int size, boolean hilly) {
+        Random random = new Random(7);
+        ChunkedTerrain terrain = new ChunkedTerrain(size, size, 8, 0);
+        for (int x = 0; x < size; x++)
+            for (int y = 0; y < size; y++) {
+                int height = hilly ? 2 + (int) Math.round(Math.sin(x / 9.0) + Math.cos(y / 11.0)) : 1;
+                if (hilly && random.nextInt(100) < 3)
+                    height++;
+                for (int z = 0; z < height; z++)
+                    terrain.set(x, y, z, 1);
+            }
+        return new World(terrain, new DefaultTerrainChangeListener());
+    }
+
+    /**
+     * Run random queries on the given world with both Astar and the jump point search, twice, and report the second round.
+     */
+    private static void compare(String map, World world) {
+        Random random = new Random(42);
+        int[] spawn = WorldMaps.randomStandableCube(world, null, random);
+        Unit unit = new Unit("Benchmark", spawn[0] + 0.5, spawn[1] + 0.5, spawn[2] + 0.5, 50, 50, 50, 50, false, world);
+        List<int[][]> queries = new ArrayList<>();
+        for (int i = 0; i < NB_QUERIES; i++)
+            queries.add(new int[][]{WorldMaps.randomStandableCube(world, unit, random),
+                    WorldMaps.randomStandableCube(world, unit, random)});
+
+        Astar astar = new Astar(unit);
+        JumpPointSearch jumpPointSearch = new JumpPointSearch(unit);
+        long astarTime = 0;
+        long astarNodes = 0;
+        long jpsTime = 0;
+        long jpsNodes = 0;
+        long jpsScanned = 0;
+        //the first round warms up both searches and is not reported
+        for (int round = 0; round < 2; round++) {
+            astarTime = astarNodes = jpsTime = jpsNodes = jpsScanned = 0;
+            for (int[][] query: queries) {
+                long start = System.nanoTime();
+                Cube[] expected = astar.FindPath(new Cube(query[0]), new Cube(query[1]));
+                astarTime += System.nanoTime() - start;
+                astarNodes += astar.getNbExpandedNodes();
+
+                start = System.nanoTime();
+                Cube[] path = jumpPointSearch.FindPath(new Cube(query[0]), new Cube(query[1]));
+                jpsTime += System.nanoTime() - start;
+                jpsNodes += jumpPointSearch.getNbExpandedNodes();
+                jpsScanned += jumpPointSearch.getNbScannedCubes();
+                if (expected.length != path.length && (expected.length == 1 || path.length == 1))
+                    throw new AssertionError("The jump point search and Astar disagree on a path on " + map);
+            }
+        }
+        System.out.printf("%-16s %8d %12.2f %12d %12.2f %12d %12d%n", map, queries.size(), astarTime / 1e6,
+                astarNodes, jpsTime / 1e6, jpsNodes, jpsScanned);
+    }
+
+}
@@ -0,0 +1,53 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JumpPointSearchTest {
+
+    @Test
+    public void findPath_AsShortAsAstar() {
+        Random random = new Random(11);
+        for (int density: new int[]{3, 15, 40}) {
+            World world = WorldMaps.randomWorld(random, 24, 14, 2, density);
+            Unit unit = new Unit("Walker", 0.5, 0.5, 13.5, 50, 50, 50, 50, false, world);
+            Astar astar = new Astar(unit);
+            JumpPointSearch jumpPointSearch = new JumpPointSearch(unit);
+            for (int query = 0; query < 60; query++) {
+                int[] start = WorldMaps.randomStandableCube(world, unit, random);
+                int[] destination = WorldMaps.randomStandableCube(world, unit, random);
+                Cube[] path = jumpPointSearch.FindPath(new Cube(start), new Cube(destination));
+                PathAssertions.assertAsShortAsAstar(unit, astar, start, destination, path);
+            }
+        }
+    }
+
+    @Test
+    public void findPath_OpenTerrainExpandsFewerNodes() {
+        World world = WorldMaps.floorWorld(60, 60, 4);
+        Unit unit = new Unit("Walker", 0.5, 0.5, 1.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        JumpPointSearch jumpPointSearch = new JumpPointSearch(unit);
+        Cube start = new Cube(new int[]{2, 50, 1});
+        Cube destination = new Cube(new int[]{57, 3, 1});
+        Cube[] expected = astar.FindPath(start, destination);
+        Cube[] path = jumpPointSearch.FindPath(start, destination);
+        assertEquals(expected.length, path.length);
+        assertTrue(jumpPointSearch.getNbExpandedNodes() * 4 < astar.getNbExpandedNodes());
+    }
+
+    @Test
+    public void movement_UsesJumpPointSearchOfWorld() throws Exception {
+        World world = WorldMaps.wallWorld(12, 12, 3, 11);
+        world.setJumpPointSearch(true);
+        assertTrue(world.usesJumpPointSearch());
+        PathAssertions.assertMovesTo(world, new int[]{1, 1, 1}, new int[]{10, 2, 1});
+    }
+
+}
@@ -0,0 +1,99 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The search Astar used before the heap based version: a linear scan over a HashSet open set and boxed HashMap scores,
+ * kept as a reference for AstarTest and AstarBenchmark. The reference comparison with the destination and the missing
+ * border check are fixed, otherwise it would never report a path and crash next to the border of a map, and so is the
+ * distance, which was the signed sum of the coordinate differences and made its paths anything but shortest.
+ * 		Like the original, it returns the path from the destination back to the start cube, both included.
+ */
+class LegacyAstar {
+
+    LegacyAstar(Unit unit) {
+        this.unit = unit;
+    }
+
+    private final Unit unit;
+
+    private int nbExpandedNodes;
+
+    /**
+     * Return the number of nodes expanded by the last search.
+     */
+    int getNbExpandedNodes() {
+        return nbExpandedNodes;
+    }
+
+    Cube[] FindPath(Cube startcube, Cube destination) {
+        nbExpandedNodes = 0;
+        Set<Cube> closedSet = new HashSet<>();
+        Set<Cube> openSet = new HashSet<>();
+        openSet.add(startcube);
+        Map<Cube, Cube> cameFrom = new HashMap<>();
+        Map<Cube, Double> gScore = new HashMap<>();
+        gScore.put(startcube, (double) 0);
+        Map<Cube, Double> FScore = new HashMap<>();
+        FScore.put(startcube, distance(startcube, destination));
+        while (! openSet.isEmpty()) {
+            Cube current = startcube;
+            double fscore = Double.MAX_VALUE;
+            for (Cube member: openSet) {
+                double currentFScore = FScore.getOrDefault(member, Double.MAX_VALUE);
+                if (currentFScore <= fscore) {
+                    current = member;
+                    fscore = currentFScore;
+                }
+            }
+            if (current.equals(destination))
+                return reconstructPath(cameFrom, destination);
+            openSet.remove(current);
+            closedSet.add(current);
+            nbExpandedNodes++;
+            for (Cube buur: getAllNeighbours(current)) {
+                if (closedSet.contains(buur))
+                    continue;
+                double tentativeGScore = gScore.get(current) + distance(current, buur);
+                if (! openSet.contains(buur))
+                    openSet.add(buur);
+                else if (tentativeGScore >= gScore.get(buur))
+                    continue;
+                cameFrom.put(buur, current);
+                gScore.put(buur, tentativeGScore);
+                FScore.put(buur, tentativeGScore + distance(buur, destination));
+            }
+        }
+        return new Cube[]{new Cube(new int[]{-1, -1, -1})};
+    }
+
+    private static double distance(Cube cube1, Cube cube2) {
+        double dx = cube1.locArray[0] - cube2.locArray[0];
+        double dy = cube1.locArray[1] - cube2.locArray[1];
+        double dz = cube1.locArray[2] - cube2.locArray[2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private Cube[] reconstructPath(Map<Cube, Cube> cameFrom, Cube current) {
+        List<Cube> path = new ArrayList<>();
+        path.add(current);
+        while (cameFrom.containsKey(current)) {
+            current = cameFrom.get(current);
+            path.add(current);
+        }
+        return path.toArray(new Cube[path.size()]);
+    }
+
+    private Set<Cube> getAllNeighbours(Cube cube) {
+        World world = unit.getWorld();
+        return cube.generateNeighbours().stream()
+                .filter(c -> world.isWithinBorders(c.locArray[0], c.locArray[1], c.locArray[2]))
+                .filter(c -> world.canHaveAsCubeLocation(c.locArray, unit))
+                .collect(Collectors.toSet());
+    }
+
+}
@@ -0,0 +1,82 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MovementTest {
+
+    /**
+     * Return a world with a floor of rock and a block of rock far away from the row y = 1 the units of these tests walk.
+     */
+    private static World blockWorld() {
+        int[][][] types = WorldMaps.floorCubes(40, 40, 4);
+        for (int x = 20; x < 40; x++)
+            for (int y = 10; y < 40; y++)
+                for (int z = 1; z < 3; z++)
+                    types[x][y][z] = 1;
+        return new World(types, new DefaultTerrainChangeListener());
+    }
+
+    /**
+     * Add a unit to the given world walking from (1, 1, 1) to (8, 1, 1), and let it take its first step.
+     */
+    private static Movement startWalking(World world) throws Exception {
+        Unit unit = new Unit("Walker", 1.5, 1.5, 1.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        Movement movement = new Movement(unit, new int[]{8, 1, 1});
+        unit.setActivity(movement);
+        unit.advanceTime(0.1);
+        assertEquals(1, movement.getNbPathSearches());
+        return movement;
+    }
+
+    /**
+     * Let the unit walking in the given world walk to the end of its movement, and check that it arrived.
+     */
+    private static void finishWalking(World world) throws Exception {
+        Unit unit = world.TotalUnitSet.iterator().next();
+        PathAssertions.advanceWhileMoving(unit);
+        assertArrayEquals(new int[]{8, 1, 1}, unit.getLocation().getCubeLocation());
+    }
+
+    @Test
+    public void setNextStop_FarChangeKeepsPath() throws Exception {
+        World world = blockWorld();
+        Movement movement = startWalking(world);
+        world.setCubeType(30, 30, 2, 0);
+        world.setCubeType(5, 3, 0, 0);
+        finishWalking(world);
+        assertEquals(1, movement.getNbPathSearches());
+    }
+
+    @Test
+    public void setNextStop_ChangeNextToStopReplans() throws Exception {
+        World world = blockWorld();
+        Movement movement = startWalking(world);
+        //the floor cube diagonally below (6, 1, 1), which the path still has to pass
+        world.setCubeType(6, 2, 0, 0);
+        finishWalking(world);
+        assertEquals(2, movement.getNbPathSearches());
+    }
+
+    @Test
+    public void setNextStop_ChangeLogOverflowReplans() throws Exception {
+        World world = blockWorld();
+        Movement movement = startWalking(world);
+        long version = world.getTerrainVersion();
+        //none of these changes is near the path, but the world forgets which cubes changed
+        for (int x = 20; x < 40 && world.getTerrainChangesSince(version) != null; x++)
+            for (int y = 10; y < 40; y++)
+                for (int z = 2; z > 0; z--)
+                    world.setCubeType(x, y, z, 0);
+        assertNull(world.getTerrainChangesSince(version));
+        finishWalking(world);
+        assertEquals(2, movement.getNbPathSearches());
+    }
+
+}
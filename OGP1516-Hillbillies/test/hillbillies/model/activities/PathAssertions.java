@@ -0,0 +1,93 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks shared by the tests of the path searches and of the movements following their paths.
+ */
+class PathAssertions {
+
+    /**
+     * Return the cost of walking the given path from the given start cube, after checking that every step goes to a
+     * neighbouring cube the given unit can stand in.
+     */
+    static double walk(Unit unit, int[] start, Cube[] path) {
+        World world = unit.getWorld();
+        double cost = 0;
+        int[] current = start;
+        for (Cube stop: path) {
+            int[] next = stop.locArray;
+            int dx = Math.abs(next[0] - current[0]);
+            int dy = Math.abs(next[1] - current[1]);
+            int dz = Math.abs(next[2] - current[2]);
+            assertTrue(Math.max(dx, Math.max(dy, dz)) == 1);
+            assertTrue(world.canHaveAsCubeLocation(next[0], next[1], next[2], unit));
+            cost += Math.sqrt(dx + dy + dz);
+            current = next;
+        }
+        return cost;
+    }
+
+    /**
+     * Check whether the given path is the one Astar returns when there is no path.
+     */
+    static boolean isNoPath(Cube[] path) {
+        return path.length == 1 && path[0].locArray[0] == -1;
+    }
+
+    /**
+     * Check that the given path from the given start cube to the given destination is as short as the one the given
+     * Astar finds for the given unit, or that the path is null or the no path result if Astar finds none.
+     */
+    static void assertAsShortAsAstar(Unit unit, Astar astar, int[] start, int[] destination, Cube[] path) {
+        Cube[] expected = astar.FindPath(new Cube(start), new Cube(destination));
+        if (isNoPath(expected)) {
+            assertTrue(path == null || isNoPath(path));
+            return;
+        }
+        assertNotNull(path);
+        if (path.length > 0)
+            assertArrayEquals(destination, path[path.length - 1].locArray);
+        assertEquals(walk(unit, start, expected), walk(unit, start, path), 1e-3);
+    }
+
+    /**
+     * Advance the time of the given units until none of them moves anymore, for at most 1000 ticks.
+     * 		Ticks take far less time than a search on a worker, so while a movement waits for its path the worker gets
+     * 		the time a frame would.
+     */
+    static void advanceWhileMoving(Unit... units) throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            boolean moving = false;
+            for (Unit unit: units) {
+                if (unit.getActivity() instanceof Movement) {
+                    moving = true;
+                    if (((Movement) unit.getActivity()).isWaitingForPath())
+                        Thread.sleep(5);
+                    unit.advanceTime(0.1);
+                }
+            }
+            if (! moving)
+                return;
+        }
+    }
+
+    /**
+     * Add a unit standing in the given start cube to the given world, let it move to the given destination and check
+     * that it arrives there.
+     *
+     * @return	The unit that moved.
+     */
+    static Unit assertMovesTo(World world, int[] start, int[] destination) throws Exception {
+        Unit unit = new Unit("Walker", start[0] + 0.5, start[1] + 0.5, start[2] + 0.5, 50, 50, 50, 50, false, world);
+        world.addUnit(unit);
+        unit.setActivity(new Movement(unit, destination));
+        advanceWhileMoving(unit);
+        assertArrayEquals(destination, unit.getLocation().getCubeLocation());
+        return unit;
+    }
+
+}
@@ -0,0 +1,84 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long the ticks of a world take when 100 units start long movements in the same tick, once with the paths
+ * searched while the world advances and once with a path request service. Run as a Java application; the optional
+ * argument is the name of the map to use, by default the largest bundled map.
+ * 		Between two ticks the benchmark sleeps as long as the rest of a frame would take, which is when the workers of the
+ * 		service catch up.
+ */
+public class PathRequestServiceBenchmark {
+
+    private static final int NB_UNITS = 100;
+
+    private static final int NB_TICKS = 60;
+
+    private static final long FRAME_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        String map = args.length > 0 ? args[0] : "80x80x80.wrld";
+        for (int round = 0; round < 3; round++) {
+            run(map, null, round == 2);
+            run(map, PathRequestService.DEFAULT_NB_WORKERS, round == 2);
+        }
+    }
+
+    /**
+     * Let the units of a new world with the given map start their movements, searching their paths with a service with
+     * the given number of workers, or while the world advances if that number is null, and report the ticks if asked.
+     */
+    private static void run(String map, Integer nbWorkers, boolean report) throws Exception {
+        World world = WorldMaps.createWorld(map);
+        PathRequestService service = null;
+        if (nbWorkers != null) {
+            service = new PathRequestService(world, nbWorkers, PathRequestService.DEFAULT_QUEUE_CAPACITY);
+            world.setPathRequestService(service);
+        }
+        Random random = new Random(42);
+        List<Movement> movements = new ArrayList<>();
+        for (int i = 0; i < NB_UNITS; i++) {
+            int[] spawn = WorldMaps.randomStandableCube(world, null, random);
+            Unit unit = new Unit("Benchmark", spawn[0] + 0.5, spawn[1] + 0.5, spawn[2] + 0.5, 50, 50, 50, 50, false, world);
+            world.addUnit(unit);
+            Movement movement = new Movement(unit, WorldMaps.randomStandableCube(world, unit, random));
+            unit.setActivity(movement);
+            movements.add(movement);
+        }
+
+        long firstTick = 0;
+        long longestTick = 0;
+        long totalTime = 0;
+        int ticksUntilAllPaths = -1;
+        for (int tick = 0; tick < NB_TICKS; tick++) {
+            long start = System.nanoTime();
+            world.advanceTime(0.1);
+            long duration = System.nanoTime() - start;
+            if (tick == 0)
+                firstTick = duration;
+            longestTick = Math.max(longestTick, duration);
+            totalTime += duration;
+            if (ticksUntilAllPaths < 0 && movements.stream().noneMatch(Movement::isWaitingForPath))
+                ticksUntilAllPaths = tick + 1;
+            Thread.sleep(FRAME_MILLIS);
+        }
+        if (report) {
+            System.out.printf("%s, %d units, %s:%n", map, NB_UNITS,
+                    nbWorkers == null ? "paths searched while advancing" : nbWorkers + " path workers");
+            System.out.printf("  first tick %.2f ms, longest tick %.2f ms, mean tick %.2f ms, all paths after %d ticks%n",
+                    firstTick / 1e6, longestTick / 1e6, totalTime / 1e6 / NB_TICKS, ticksUntilAllPaths);
+            if (service != null)
+                System.out.printf("  %d requests, %d refused%n", service.getNbSubmitted(), service.getNbRefused());
+        }
+        if (service != null)
+            service.close();
+    }
+
+}
@@ -0,0 +1,74 @@
+package hillbillies.model.activities;
+
+import hillbillies.model.TerrainSnapshot;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.tests.util.WorldMaps;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PathRequestServiceTest {
+
+    @Test
+    public void submit_AsShortAsAstarOnWorld() throws Exception {
+        Random random = new Random(3);
+        World world = WorldMaps.wallWorld(30, 30, 4, 25);
+        Unit unit = new Unit("Walker", 0.5, 0.5, 1.5, 50, 50, 50, 50, false, world);
+        Astar astar = new Astar(unit);
+        try (PathRequestService service = new PathRequestService(world, 2, 8)) {
+            for (int query = 0; query < 20; query++) {
+                int[] start = WorldMaps.randomStandableCube(world, unit, random);
+                int[] destination = WorldMaps.randomStandableCube(world, unit, random);
+                Future<Cube[]> future = service.submit(new Astar(unit), new Cube(start), new Cube(destination));
+                PathAssertions.assertAsShortAsAstar(unit, astar, start, destination, future.get());
+            }
+            assertEquals(20, service.getNbSubmitted());
+        }
+    }
+
+    @Test
+    public void getTerrainSnapshot_UnaffectedByLaterChanges() {
+        World world = WorldMaps.wallWorld(12, 12, 4, 2);
+        TerrainSnapshot snapshot = world.getTerrainSnapshot();
+        assertSame(snapshot, world.getTerrainSnapshot());
+        assertFalse(snapshot.isStandable(6, 8, 1));
+        world.destroyCube(new int[]{6, 8, 1});
+        assertTrue(world.isStandable(6, 8, 1));
+        assertFalse(snapshot.isStandable(6, 8, 1));
+        assertNotSame(snapshot, world.getTerrainSnapshot());
+        assertTrue(world.getTerrainSnapshot().isStandable(6, 8, 1));
+        assertEquals(world.getTerrainVersion(), world.getTerrainSnapshot().getTerrainVersion());
+    }
+
+    @Test
+    public void movement_WaitsInPlaceForRequestedPath() throws Exception {
+        World world = WorldMaps.wallWorld(30, 30, 4, 25);
+        try (PathRequestService service = new PathRequestService(world, 1, 4)) {
+            world.setPathRequestService(service);
+            Unit unit = new Unit("Walker", 2.5, 2.5, 1.5, 50, 50, 50, 50, false, world);
+            world.addUnit(unit);
+            Movement movement = new Movement(unit, new int[]{27, 2, 1});
+            unit.setActivity(movement);
+            world.advanceTime(0.1);
+            assertTrue(movement.isWaitingForPath());
+            assertArrayEquals(new int[]{2, 2, 1}, unit.getLocation().getCubeLocation());
+            //the floor of the gap in the wall changes while the path is searched, so the path is requested again
+            world.destroyCube(new int[]{15, 25, 0});
+            PathAssertions.advanceWhileMoving(unit);
+            assertArrayEquals(new int[]{27, 2, 1}, unit.getLocation().getCubeLocation());
+            assertEquals(2, service.getNbSubmitted());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPathRequestService_OtherWorld() {
+        try (PathRequestService service = new PathRequestService(WorldMaps.wallWorld(8, 8, 4, 1), 1, 1)) {
+            WorldMaps.wallWorld(8, 8, 4, 1).setPathRequestService(service);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package hillbillies.tests.util;
+
+import java.io.IOException;
+import java.util.Random;
+
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class WorldMaps {
+
+	/**
+	 * The names of the maps in src-provided/resources, from small to large.
+	 */
+	public static final String[] BUNDLED_MAPS = new String[] { "15x15x15.wrld", "20x20x10.wrld", "20x40x10.wrld",
+			"20x20x40.wrld", "25x25x25.wrld", "50x50x10.wrld", "50x50x50.wrld", "80x80x10.wrld", "80x80x80.wrld" };
+
+	public static GameMap readMap(String filename) throws IOException {
+		return new GameMapReader().readFromResource("resources/" + filename);
+	}
+
+	/**
+	 * Return the terrain of the given bundled map in the [x][y][z] layout expected by the World constructor, the same
+	 * way GameControllerPart2 builds it.
+	 */
+	public static int[][][] readTerrain(String filename) throws IOException {
+		GameMap map = readMap(filename);
+		int[][][] types = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+		for (int x = 0; x < types.length; x++) {
+			for (int y = 0; y < types[x].length; y++) {
+				for (int z = 0; z < types[x][y].length; z++) {
+					types[x][y][z] = map.getTypeAt(x, y, z).getByteValue();
+				}
+			}
+		}
+		return types;
+	}
+
+	public static World createWorld(String filename) throws IOException {
+		return new World(readTerrain(filename), new DefaultTerrainChangeListener());
+	}
+
+	/**
+	 * Return the cube types of a world of the given size that is air everywhere except for a floor of rock at z = 0.
+	 */
+	public static int[][][] floorCubes(int nbX, int nbY, int nbZ) {
+		int[][][] types = new int[nbX][nbY][nbZ];
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				types[x][y][0] = 1;
+		return types;
+	}
+
+	/**
+	 * Return the terrain of a world of the given size that is air everywhere except for a floor of rock at z = 0.
+	 */
+	public static ChunkedTerrain floorTerrain(int nbX, int nbY, int nbZ) {
+		ChunkedTerrain terrain = new ChunkedTerrain(nbX, nbY, nbZ, 0);
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				terrain.set(x, y, 0, 1);
+		return terrain;
+	}
+
+	/**
+	 * Return a world of the given size that is air everywhere except for a floor of rock at z = 0.
+	 */
+	public static World floorWorld(int nbX, int nbY, int nbZ) {
+		return new World(floorCubes(nbX, nbY, nbZ), new DefaultTerrainChangeListener());
+	}
+
+	/**
+	 * Return a world of the given size with a floor of rock and a rock wall across the middle of the x axis, as high
+	 * as the world, that has a gap at the given y coordinate. A gap outside the world leaves the wall closed.
+	 */
+	public static World wallWorld(int nbX, int nbY, int nbZ, int gap) {
+		int[][][] types = floorCubes(nbX, nbY, nbZ);
+		for (int y = 0; y < nbY; y++)
+			for (int z = 1; z < nbZ; z++)
+				if (y != gap)
+					types[nbX / 2][y][z] = 1;
+		return new World(types, new DefaultTerrainChangeListener());
+	}
+
+	/**
+	 * Return a world of the given length, width and height whose given number of lowest layers are rock, with rock
+	 * scattered at the given density in percent over the layers above them, up to four layers below the top.
+	 */
+	public static World randomWorld(Random random, int size, int height, int nbFloors, int density) {
+		int[][][] types = new int[size][size][height];
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				for (int z = 0; z < height - 4; z++)
+					if (z < nbFloors || random.nextInt(100) < density)
+						types[x][y][z] = 1;
+		return new World(types, new DefaultTerrainChangeListener());
+	}
+
+	/**
+	 * Return a random cube of the given world the given unit can stand in; with a null unit only cubes supported from
+	 * below are returned.
+	 */
+	public static int[] randomStandableCube(World world, Unit unit, Random random) {
+		while (true) {
+			int x = random.nextInt(world.getxSideSize());
+			int y = random.nextInt(world.getySideSize());
+			int z = random.nextInt(world.getzSideSize());
+			if (world.canHaveAsCubeLocation(x, y, z, unit))
+				return new int[]{x, y, z};
+		}
+	}
+
+}